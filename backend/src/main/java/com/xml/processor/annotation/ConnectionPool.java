@@ -0,0 +1,21 @@
+package com.xml.processor.annotation;
+
+import com.xml.processor.config.Workload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the connection pool for the database work of the annotated class or method; a method
+ * annotation overrides the one on its class. Unannotated code uses the {@link Workload#QUERY} pool.
+ * <p>
+ * The pool is chosen when a transaction issues its first statement, so a call that joins a running
+ * transaction keeps that transaction's connection whatever it is annotated with.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConnectionPool {
+    Workload value();
+}
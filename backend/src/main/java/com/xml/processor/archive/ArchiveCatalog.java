@@ -0,0 +1,128 @@
+package com.xml.processor.archive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The segments recorded in {@code archive_segments}, kept in memory so that queries prune on
+ * their statistics without a round trip. Statistics are stored as text and typed again on load.
+ */
+@Component
+public class ArchiveCatalog {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Map<String, Object>>> STATS_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, List<ArchiveSegment>> segments;
+
+    /**
+     * Segments of the table, in id order.
+     */
+    public List<ArchiveSegment> getSegments(ArchivedTable table) {
+        Map<String, List<ArchiveSegment>> current = segments;
+        if (current == null) {
+            current = reload();
+        }
+        return current.getOrDefault(table.getTableName(), List.of());
+    }
+
+    /**
+     * Segments written from the given source table.
+     */
+    public List<ArchiveSegment> getSegments(ArchivedTable table, String source) {
+        return getSegments(table).stream().filter(segment -> segment.source().equals(source)).toList();
+    }
+
+    void add(ArchiveSegment segment) {
+        jdbcTemplate.update("INSERT INTO archive_segments (segment_name, table_name, source, file_name, row_count, "
+                + "min_id, max_id, range_start, range_end, column_stats, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            segment.segmentName(), segment.tableName(), segment.source(), segment.fileName(), segment.rowCount(),
+            segment.minId(), segment.maxId(), segment.rangeStart(), segment.rangeEnd(),
+            writeStats(segment.columnStats()), segment.createdAt());
+    }
+
+    void remove(ArchiveSegment segment) {
+        jdbcTemplate.update("DELETE FROM archive_segments WHERE segment_name = ?", segment.segmentName());
+    }
+
+    synchronized Map<String, List<ArchiveSegment>> reload() {
+        List<ArchiveSegment> all = jdbcTemplate.query("SELECT segment_name, table_name, source, file_name, row_count, "
+                + "min_id, max_id, range_start, range_end, column_stats, created_at FROM archive_segments "
+                + "ORDER BY min_id NULLS LAST, segment_name",
+            (rs, rowNum) -> mapSegment(rs));
+        Map<String, List<ArchiveSegment>> byTable = all.stream()
+            .collect(Collectors.groupingBy(ArchiveSegment::tableName, Collectors.toUnmodifiableList()));
+        segments = byTable;
+        return byTable;
+    }
+
+    private static ArchiveSegment mapSegment(ResultSet rs) throws SQLException {
+        String tableName = rs.getString("table_name");
+        return new ArchiveSegment(rs.getString("segment_name"), tableName, rs.getString("source"),
+            rs.getString("file_name"), rs.getLong("row_count"),
+            rs.getObject("min_id", Long.class), rs.getObject("max_id", Long.class),
+            toLocalDateTime(rs.getTimestamp("range_start")), toLocalDateTime(rs.getTimestamp("range_end")),
+            readStats(tableName, rs.getString("column_stats")), toLocalDateTime(rs.getTimestamp("created_at")));
+    }
+
+    private static String writeStats(Map<String, ColumnStats> stats) {
+        Map<String, Map<String, Object>> json = new LinkedHashMap<>();
+        stats.forEach((column, columnStats) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("min", columnStats.min() != null ? columnStats.min().toString() : null);
+            entry.put("max", columnStats.max() != null ? columnStats.max().toString() : null);
+            entry.put("nulls", columnStats.nullCount());
+            json.put(column, entry);
+        });
+        try {
+            return objectMapper.writeValueAsString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize segment statistics", e);
+        }
+    }
+
+    private static Map<String, ColumnStats> readStats(String tableName, String text) throws SQLException {
+        ArchivedTable table = ArchivedTable.fromTableName(tableName).orElse(null);
+        Map<String, ColumnStats> stats = new LinkedHashMap<>();
+        if (table == null) {
+            return stats;
+        }
+        try {
+            objectMapper.readValue(text, STATS_TYPE).forEach((column, entry) -> {
+                ColumnType type = table.typeOf(column);
+                if (type == null) {
+                    return;
+                }
+                Object min = entry.get("min");
+                Object max = entry.get("max");
+                stats.put(column, new ColumnStats(
+                    min != null ? type.parse(min.toString()) : null,
+                    max != null ? type.parse(max.toString()) : null,
+                    ((Number) entry.get("nulls")).longValue()));
+            });
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Unreadable statistics of an archive segment of " + tableName, e);
+        }
+        return stats;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,377 @@
+package com.xml.processor.archive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.partition.PartitionCatalog;
+import com.xml.processor.partition.PartitionManager;
+import com.xml.processor.partition.PartitionedTable;
+import com.xml.processor.partition.TablePartition;
+import com.xml.processor.service.payload.ProcessedDataCodec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves rows older than {@code app.archive.after-days} out of the primary tables into archive
+ * segments: processed files with their processed data, and ASN headers with their lines.
+ * <p>
+ * Each batch of rows is written to segment files first; the segments are then registered and the
+ * rows deleted in one transaction, and the files are removed again if that transaction fails. ASN
+ * headers are locked when they are read and archived in that same transaction, so a concurrent
+ * upsert of one of those documents cannot lose lines. A detached partition of processed files is
+ * archived once all of it is past the cutoff and then dropped; segments left behind by an
+ * archival of that partition that did not finish are discarded and written again.
+ */
+@ConnectionPool(Workload.ADMIN)
+@Component
+public class ArchiveManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveManager.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ArchiveCatalog archiveCatalog;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.after-days:90}")
+    private int afterDays;
+
+    @Value("${app.archive.directory:./data/archive}")
+    private String directory;
+
+    @Value("${app.archive.rows-per-segment:50000}")
+    private int rowsPerSegment;
+
+    private Path root;
+
+    @PostConstruct
+    void init() {
+        root = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 45 0 * * *}")
+    public void archiveScheduled() {
+        if (!enabled || afterDays <= 0) {
+            return;
+        }
+        try {
+            archive(LocalDateTime.now().minusDays(afterDays));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Archiving failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Archives the processed files and ASN documents older than the cutoff, which may not be later than
+     * {@code app.archive.after-days} ago.
+     *
+     * @return the number of rows archived
+     */
+    public synchronized long archive(LocalDateTime cutoff) throws IOException {
+        LocalDateTime latest = LocalDateTime.now().minusDays(Math.max(afterDays, 0));
+        if (cutoff.isAfter(latest)) {
+            throw new ValidationException("Archive cutoff must not be after " + latest
+                + " (app.archive.after-days=" + afterDays + ")");
+        }
+        long started = System.currentTimeMillis();
+        long processedFiles = archiveProcessedFiles(cutoff);
+        long asnRows = archiveAsn(cutoff);
+        if (processedFiles + asnRows > 0) {
+            logger.info("Archived {} processed files and {} ASN header and line rows from before {} in {} ms",
+                processedFiles, asnRows, cutoff, System.currentTimeMillis() - started);
+        }
+        return processedFiles + asnRows;
+    }
+
+    Path pathOf(ArchiveSegment segment) {
+        return root.resolve(segment.tableName()).resolve(segment.fileName());
+    }
+
+    private long archiveProcessedFiles(LocalDateTime cutoff) throws IOException {
+        ArchivedTable table = ArchivedTable.PROCESSED_FILES;
+        long archived = 0;
+        for (TablePartition partition : partitionCatalog.getPartitions(PartitionedTable.PROCESSED_FILES)) {
+            LocalDateTime newest = partition.rangeEnd() != null ? partition.rangeEnd() : partition.detachedAt();
+            if (!newest.isBefore(cutoff)) {
+                continue;
+            }
+            discard(table, partition.partitionName());
+            String payloads = partition.companionName("processed_file_payloads");
+            long lastId = 0;
+            List<Object[]> batch;
+            while (!(batch = readProcessedFiles(partition.partitionName(), payloads, null, lastId)).isEmpty()) {
+                commit(List.of(writeSegment(table, partition.partitionName(), batch)), () -> { });
+                lastId = (Long) batch.get(batch.size() - 1)[0];
+                archived += batch.size();
+            }
+            partitionManager.drop(PartitionedTable.PROCESSED_FILES, partition);
+            logger.info("Archived partition {} with {} rows", partition.partitionName(), partition.rowCount());
+        }
+
+        // Rows still in the live table, when partitioning is off or has fallen behind
+        long lastId = 0;
+        List<Object[]> batch;
+        while (!(batch = readProcessedFiles(table.getTableName(), "processed_file_payloads", cutoff, lastId)).isEmpty()) {
+            long minId = (Long) batch.get(0)[0];
+            long maxId = (Long) batch.get(batch.size() - 1)[0];
+            // Deleting the file cascades to its payload
+            commit(List.of(writeSegment(table, table.getTableName(), batch)), () -> jdbcTemplate.update(
+                "DELETE FROM processed_files WHERE id BETWEEN ? AND ? AND processed_at < ?", minId, maxId, cutoff));
+            lastId = maxId;
+            archived += batch.size();
+        }
+        return archived;
+    }
+
+    private List<Object[]> readProcessedFiles(String tableName, String payloadTable, LocalDateTime cutoff, long afterId) {
+        String sql = "SELECT f.*, p.codec AS payload_codec, p.original_size AS payload_original_size, "
+            + "p.payload AS payload_bytes FROM " + tableName + " f LEFT JOIN " + payloadTable
+            + " p ON p.processed_file_id = f.id WHERE f.id > ?"
+            + (cutoff != null ? " AND f.processed_at < ?" : "") + " ORDER BY f.id LIMIT ?";
+        Object[] args = cutoff != null
+            ? new Object[] {afterId, cutoff, rowsPerSegment}
+            : new Object[] {afterId, rowsPerSegment};
+        return jdbcTemplate.query(sql, rowMapper(ArchivedTable.PROCESSED_FILES), args);
+    }
+
+    private long archiveAsn(LocalDateTime cutoff) throws IOException {
+        long archived = 0;
+        long lastId = 0;
+        AsnBatch batch;
+        while ((batch = archiveAsnBatch(cutoff, lastId)) != null) {
+            archived += batch.rows();
+            lastId = batch.maxId();
+        }
+        return archived;
+    }
+
+    /**
+     * Archives the next headers after the given id with their lines, all in one transaction. The
+     * headers are locked before their lines are read: an upsert of one of these documents updates
+     * its header first, so it waits for the headers to be gone instead of adding or changing lines
+     * between the read and the delete.
+     *
+     * @return the batch archived, null if no header was left
+     */
+    private AsnBatch archiveAsnBatch(LocalDateTime cutoff, long afterId) throws IOException {
+        List<ArchiveSegment> segments = new ArrayList<>();
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                List<Object[]> headers = jdbcTemplate.query(
+                    "SELECT * FROM asn_headers WHERE created_at < ? AND id > ? ORDER BY id LIMIT ? FOR UPDATE",
+                    rowMapper(ArchivedTable.ASN_HEADERS), cutoff, afterId, rowsPerSegment);
+                if (headers.isEmpty()) {
+                    return null;
+                }
+                long minId = (Long) headers.get(0)[0];
+                long maxId = (Long) headers.get(headers.size() - 1)[0];
+
+                writeSegment(ArchivedTable.ASN_HEADERS, "asn_headers", headers, segments);
+                // Lines are written in segments of their own size, so a batch of long documents stays bounded
+                List<Object[]> lines = new ArrayList<>();
+                RowMapper<Object[]> lineMapper = rowMapper(ArchivedTable.ASN_LINES);
+                jdbcTemplate.query("SELECT l.* FROM asn_lines l JOIN asn_headers h ON h.id = l.header_id "
+                        + "WHERE h.created_at < ? AND h.id BETWEEN ? AND ? ORDER BY l.id",
+                    rs -> {
+                        lines.add(lineMapper.mapRow(rs, lines.size()));
+                        if (lines.size() == rowsPerSegment) {
+                            writeSegment(ArchivedTable.ASN_LINES, "asn_lines", lines, segments);
+                            lines.clear();
+                        }
+                    }, cutoff, minId, maxId);
+                if (!lines.isEmpty()) {
+                    writeSegment(ArchivedTable.ASN_LINES, "asn_lines", lines, segments);
+                }
+
+                segments.forEach(archiveCatalog::add);
+                jdbcTemplate.update("DELETE FROM asn_lines WHERE header_id IN "
+                    + "(SELECT id FROM asn_headers WHERE created_at < ? AND id BETWEEN ? AND ?)", cutoff, minId, maxId);
+                jdbcTemplate.update("DELETE FROM asn_headers WHERE created_at < ? AND id BETWEEN ? AND ?", cutoff, minId, maxId);
+                return new AsnBatch(maxId, segments.stream().mapToLong(ArchiveSegment::rowCount).sum());
+            });
+        } catch (UncheckedIOException e) {
+            deleteFiles(segments);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            deleteFiles(segments);
+            throw e;
+        } finally {
+            if (!segments.isEmpty()) {
+                archiveCatalog.reload();
+            }
+        }
+    }
+
+    private void writeSegment(ArchivedTable table, String source, List<Object[]> rows, List<ArchiveSegment> segments) {
+        try {
+            segments.add(writeSegment(table, source, rows));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record AsnBatch(long maxId, long rows) {
+    }
+
+    /**
+     * Writes the rows, ordered by id, to a new segment file; it is not registered yet.
+     */
+    private ArchiveSegment writeSegment(ArchivedTable table, String source, List<Object[]> rows) throws IOException {
+        Long minId = (Long) rows.get(0)[0];
+        Long maxId = (Long) rows.get(rows.size() - 1)[0];
+        LocalDateTime now = LocalDateTime.now();
+        String segmentName = table.getTableName() + "_" + minId + "_" + maxId + "_" + now.format(SEGMENT_TIME);
+        ArchiveSegment pending = new ArchiveSegment(segmentName, table.getTableName(), source,
+            segmentName + SEGMENT_SUFFIX, rows.size(), minId, maxId, null, null, Map.of(), now);
+        Map<String, ColumnStats> stats = SegmentFile.write(pathOf(pending), table, rows);
+        ColumnStats key = stats.get(table.getKeyColumn());
+        return new ArchiveSegment(segmentName, table.getTableName(), source, pending.fileName(), rows.size(),
+            minId, maxId, (LocalDateTime) key.min(), (LocalDateTime) key.max(), stats, now);
+    }
+
+    /**
+     * Registers the written segments and removes their rows in one transaction, deleting the
+     * files again if it fails.
+     */
+    private void commit(List<ArchiveSegment> segments, Runnable deleteRows) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                segments.forEach(archiveCatalog::add);
+                deleteRows.run();
+            });
+        } catch (RuntimeException e) {
+            deleteFiles(segments);
+            throw e;
+        } finally {
+            archiveCatalog.reload();
+        }
+    }
+
+    /**
+     * Removes the segments written from a source whose archival did not finish.
+     */
+    private void discard(ArchivedTable table, String source) {
+        List<ArchiveSegment> stale = archiveCatalog.getSegments(table, source);
+        if (stale.isEmpty()) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> stale.forEach(archiveCatalog::remove));
+        deleteFiles(stale);
+        archiveCatalog.reload();
+        logger.warn("Discarded {} segments of an unfinished archival of {}", stale.size(), source);
+    }
+
+    private void deleteFiles(List<ArchiveSegment> segments) {
+        for (ArchiveSegment segment : segments) {
+            try {
+                Files.deleteIfExists(pathOf(segment));
+            } catch (IOException e) {
+                logger.warn("Could not delete archive segment {}: {}", segment.fileName(), e.getMessage());
+            }
+        }
+    }
+
+    private static RowMapper<Object[]> rowMapper(ArchivedTable table) {
+        return new ArchivedRowMapper(table);
+    }
+
+    private static String processedDataJson(ResultSet rs) throws SQLException {
+        String codec = rs.getString("payload_codec");
+        if (codec == null) {
+            // Not yet moved out of the inline column
+            return rs.getString("processed_data");
+        }
+        Map<String, Object> data = ProcessedDataCodec.decode(codec, rs.getInt("payload_original_size"), rs.getBytes("payload_bytes"));
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Could not serialize the processed data of file " + rs.getLong("id"), e);
+        }
+    }
+
+    /**
+     * Maps a row to the table's archived columns; columns the source table lacks, such as those
+     * added after a partition was detached, are archived as null.
+     */
+    private static final class ArchivedRowMapper implements RowMapper<Object[]> {
+
+        private final ArchivedTable table;
+        private final List<String> columns;
+        private Set<String> available;
+
+        ArchivedRowMapper(ArchivedTable table) {
+            this.table = table;
+            this.columns = table.getColumns();
+        }
+
+        @Override
+        public Object[] mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (available == null) {
+                available = columnLabels(rs.getMetaData());
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                if (table == ArchivedTable.PROCESSED_FILES && column.equals("processed_data")) {
+                    row[i] = processedDataJson(rs);
+                } else if (available.contains(column)) {
+                    row[i] = table.typeOf(column).read(rs, column);
+                }
+            }
+            return row;
+        }
+
+        private static Set<String> columnLabels(ResultSetMetaData metaData) throws SQLException {
+            Set<String> labels = new HashSet<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                labels.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+            }
+            return labels;
+        }
+    }
+}
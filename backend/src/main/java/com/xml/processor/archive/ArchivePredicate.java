@@ -0,0 +1,50 @@
+package com.xml.processor.archive;
+
+/**
+ * A condition on one archived column. Segments whose statistics rule the condition out are
+ * skipped without being read.
+ */
+public record ArchivePredicate(String column, Operator operator, Object value) {
+
+    public enum Operator {
+        EQUAL, AT_LEAST, AT_MOST
+    }
+
+    public static ArchivePredicate equal(String column, Object value) {
+        return new ArchivePredicate(column, Operator.EQUAL, value);
+    }
+
+    public static ArchivePredicate atLeast(String column, Object value) {
+        return new ArchivePredicate(column, Operator.AT_LEAST, value);
+    }
+
+    public static ArchivePredicate atMost(String column, Object value) {
+        return new ArchivePredicate(column, Operator.AT_MOST, value);
+    }
+
+    public boolean test(Object candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        int comparison = ColumnType.compare(candidate, value);
+        return switch (operator) {
+            case EQUAL -> comparison == 0;
+            case AT_LEAST -> comparison >= 0;
+            case AT_MOST -> comparison <= 0;
+        };
+    }
+
+    /**
+     * Whether a segment with these statistics can hold a matching row.
+     */
+    public boolean mayMatch(ColumnStats stats) {
+        if (stats == null || stats.min() == null) {
+            return true;
+        }
+        return switch (operator) {
+            case EQUAL -> ColumnType.compare(stats.min(), value) <= 0 && ColumnType.compare(stats.max(), value) >= 0;
+            case AT_LEAST -> ColumnType.compare(stats.max(), value) >= 0;
+            case AT_MOST -> ColumnType.compare(stats.min(), value) <= 0;
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.xml.processor.archive;
+
+import com.xml.processor.exception.ValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scans archive segments with the predicates pushed down: segments whose statistics rule a
+ * predicate out are never opened, and within a segment only the predicate columns are decompressed
+ * until the matching rows are known. The remaining columns are decoded for segments with matches only.
+ */
+@Service
+public class ArchiveQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveQueryService.class);
+
+    @Autowired
+    private ArchiveCatalog archiveCatalog;
+
+    @Autowired
+    private ArchiveManager archiveManager;
+
+    @Value("${app.archive.query.max-rows:10000}")
+    private int maxRows;
+
+    /**
+     * Rows found by a scan, in id order, and how much of the archive it had to read.
+     *
+     * @param truncated whether more rows matched than the limit
+     */
+    public record ArchiveQueryResult(List<Map<String, Object>> rows, int segmentsTotal, int segmentsScanned,
+                                     boolean truncated) {
+    }
+
+    public ArchiveQueryResult query(ArchivedTable table, List<ArchivePredicate> predicates, int limit) throws IOException {
+        for (ArchivePredicate predicate : predicates) {
+            if (table.typeOf(predicate.column()) == null) {
+                throw new ValidationException("Unknown column of archived " + table.getTableName() + ": " + predicate.column());
+            }
+        }
+        int rowLimit = limit > 0 ? Math.min(limit, maxRows) : maxRows;
+        long started = System.currentTimeMillis();
+
+        List<ArchiveSegment> segments = archiveCatalog.getSegments(table);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int scanned = 0;
+        boolean truncated = false;
+        for (ArchiveSegment segment : segments) {
+            if (!segment.mayMatch(predicates)) {
+                continue;
+            }
+            scanned++;
+            SegmentFile file = SegmentFile.open(archiveManager.pathOf(segment));
+            BitSet matches = new BitSet(file.rowCount());
+            matches.set(0, file.rowCount());
+            for (ArchivePredicate predicate : predicates) {
+                Object[] values = file.column(predicate.column());
+                for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                    if (!predicate.test(values[row])) {
+                        matches.clear(row);
+                    }
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+            if (matches.isEmpty()) {
+                continue;
+            }
+            List<String> columns = table.getColumns();
+            Object[][] values = new Object[columns.size()][];
+            for (int c = 0; c < columns.size(); c++) {
+                values[c] = file.column(columns.get(c));
+            }
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                if (rows.size() == rowLimit) {
+                    truncated = true;
+                    break;
+                }
+                Map<String, Object> record = new LinkedHashMap<>();
+                for (int c = 0; c < columns.size(); c++) {
+                    record.put(columns.get(c), values[c][row]);
+                }
+                rows.add(record);
+            }
+            if (truncated) {
+                break;
+            }
+        }
+        logger.debug("Archive query on {} read {} of {} segments and found {} rows in {} ms",
+            table.getTableName(), scanned, segments.size(), rows.size(), System.currentTimeMillis() - started);
+        return new ArchiveQueryResult(rows, segments.size(), scanned, truncated);
+    }
+}
@@ -0,0 +1,29 @@
+package com.xml.processor.archive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A segment as recorded in {@code archive_segments}.
+ *
+ * @param source     the table the rows were moved out of, a detached partition or the live table
+ * @param fileName   file name relative to the table's directory in the archive
+ * @param columnStats per-column statistics, copied from the segment header
+ */
+public record ArchiveSegment(String segmentName, String tableName, String source, String fileName, long rowCount,
+                             Long minId, Long maxId, LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                             Map<String, ColumnStats> columnStats, LocalDateTime createdAt) {
+
+    /**
+     * Whether the statistics allow a row matching all of the predicates.
+     */
+    public boolean mayMatch(List<ArchivePredicate> predicates) {
+        for (ArchivePredicate predicate : predicates) {
+            if (!predicate.mayMatch(columnStats.get(predicate.column()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
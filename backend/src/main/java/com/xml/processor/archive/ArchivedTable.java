@@ -0,0 +1,101 @@
+package com.xml.processor.archive;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tables whose old rows move into archive segments, with the columns kept for each.
+ * <p>
+ * Archived processed files carry their processed data as JSON text, decompressed from
+ * {@code processed_file_payloads}, so an audit needs nothing but the segment.
+ */
+public enum ArchivedTable {
+
+    PROCESSED_FILES("processed_files", "processed_at",
+        "id", ColumnType.LONG,
+        "file_name", ColumnType.STRING,
+        "status", ColumnType.STRING,
+        "error_message", ColumnType.STRING,
+        "interface_id", ColumnType.LONG,
+        "client_id", ColumnType.LONG,
+        "processed_data", ColumnType.STRING,
+        "raw_payload_hash", ColumnType.STRING,
+        "processed_at", ColumnType.TIMESTAMP,
+        "created_at", ColumnType.TIMESTAMP,
+        "updated_at", ColumnType.TIMESTAMP),
+
+    ASN_HEADERS("asn_headers", "created_at",
+        "id", ColumnType.LONG,
+        "document_number", ColumnType.STRING,
+        "document_type", ColumnType.STRING,
+        "sender_id", ColumnType.STRING,
+        "receiver_id", ColumnType.STRING,
+        "document_date", ColumnType.STRING,
+        "document_time", ColumnType.STRING,
+        "status", ColumnType.STRING,
+        "notes", ColumnType.STRING,
+        "client_id", ColumnType.LONG,
+        "created_at", ColumnType.TIMESTAMP,
+        "updated_at", ColumnType.TIMESTAMP),
+
+    ASN_LINES("asn_lines", "created_at",
+        "id", ColumnType.LONG,
+        "header_id", ColumnType.LONG,
+        "line_number", ColumnType.LONG,
+        "item_number", ColumnType.STRING,
+        "item_description", ColumnType.STRING,
+        "quantity", ColumnType.LONG,
+        "unit_of_measure", ColumnType.STRING,
+        "lot_number", ColumnType.STRING,
+        "serial_number", ColumnType.STRING,
+        "status", ColumnType.STRING,
+        "notes", ColumnType.STRING,
+        "client_id", ColumnType.LONG,
+        "created_at", ColumnType.TIMESTAMP,
+        "updated_at", ColumnType.TIMESTAMP);
+
+    private final String tableName;
+    private final String keyColumn;
+    private final Map<String, ColumnType> columns = new LinkedHashMap<>();
+
+    ArchivedTable(String tableName, String keyColumn, Object... columns) {
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        for (int i = 0; i < columns.length; i += 2) {
+            this.columns.put((String) columns[i], (ColumnType) columns[i + 1]);
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Timestamp column that decides when a row is archived and that date filters apply to.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * Column names in segment order.
+     */
+    public List<String> getColumns() {
+        return List.copyOf(columns.keySet());
+    }
+
+    public ColumnType typeOf(String column) {
+        return columns.get(column);
+    }
+
+    public static Optional<ArchivedTable> fromTableName(String tableName) {
+        for (ArchivedTable table : values()) {
+            if (table.tableName.equalsIgnoreCase(tableName)) {
+                return Optional.of(table);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,8 @@
+package com.xml.processor.archive;
+
+/**
+ * Smallest and largest value of a column within a segment. Both are null when there is no bound
+ * to prune on: every value is null, or the values are too long to keep as statistics.
+ */
+public record ColumnStats(Object min, Object max, long nullCount) {
+}
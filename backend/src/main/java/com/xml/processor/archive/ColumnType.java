@@ -0,0 +1,208 @@
+package com.xml.processor.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+
+/**
+ * Value types of archived columns and how a column chunk of each is encoded.
+ * <p>
+ * Numbers and timestamps are stored as zigzag varints of the difference to the previous value, so
+ * ascending ids and timestamps take a byte or two per row before compression. Strings are stored
+ * as length-prefixed UTF-8; the deflate pass over the chunk folds the repeated values of low
+ * cardinality columns such as status.
+ * <p>
+ * Segment files identify a type by its {@link #code()}, which must never change or be reused.
+ */
+public enum ColumnType {
+
+    LONG(0) {
+        @Override
+        Object read(ResultSet rs, String column) throws SQLException {
+            return rs.getObject(column) != null ? rs.getLong(column) : null;
+        }
+
+        @Override
+        void writeValue(DataOutputStream out, Object value, long[] previous) throws IOException {
+            long current = (Long) value;
+            writeVarLong(out, current - previous[0]);
+            previous[0] = current;
+        }
+
+        @Override
+        Object readValue(DataInputStream in, long[] previous) throws IOException {
+            previous[0] += readVarLong(in);
+            return previous[0];
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Long.valueOf(text.trim());
+        }
+    },
+
+    TIMESTAMP(1) {
+        @Override
+        Object read(ResultSet rs, String column) throws SQLException {
+            return rs.getObject(column, LocalDateTime.class);
+        }
+
+        @Override
+        void writeValue(DataOutputStream out, Object value, long[] previous) throws IOException {
+            long current = toMicros((LocalDateTime) value);
+            writeVarLong(out, current - previous[0]);
+            previous[0] = current;
+        }
+
+        @Override
+        Object readValue(DataInputStream in, long[] previous) throws IOException {
+            previous[0] += readVarLong(in);
+            return fromMicros(previous[0]);
+        }
+
+        @Override
+        public Object parse(String text) {
+            return LocalDateTime.parse(text.trim());
+        }
+    },
+
+    STRING(2) {
+        @Override
+        Object read(ResultSet rs, String column) throws SQLException {
+            return rs.getString(column);
+        }
+
+        @Override
+        void writeValue(DataOutputStream out, Object value, long[] previous) throws IOException {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        Object readValue(DataInputStream in, long[] previous) throws IOException {
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object parse(String text) {
+            return text;
+        }
+    };
+
+    private final int code;
+
+    ColumnType(int code) {
+        this.code = code;
+    }
+
+    int code() {
+        return code;
+    }
+
+    /**
+     * The type with the code, or null if there is none.
+     */
+    static ColumnType fromCode(int code) {
+        for (ColumnType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    abstract Object read(ResultSet rs, String column) throws SQLException;
+
+    abstract void writeValue(DataOutputStream out, Object value, long[] previous) throws IOException;
+
+    abstract Object readValue(DataInputStream in, long[] previous) throws IOException;
+
+    /**
+     * Converts a value given as text, such as a request parameter, to this type.
+     */
+    public abstract Object parse(String text);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Encodes a column chunk: the null positions followed by the values that are not null.
+     */
+    byte[] encode(Object[] values, int rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BitSet nulls = new BitSet(rows);
+        for (int i = 0; i < rows; i++) {
+            if (values[i] == null) {
+                nulls.set(i);
+            }
+        }
+        byte[] nullBits = nulls.toByteArray();
+        writeVarLong(out, nullBits.length);
+        out.write(nullBits);
+        long[] previous = {0};
+        for (int i = 0; i < rows; i++) {
+            if (values[i] != null) {
+                writeValue(out, values[i], previous);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    Object[] decode(DataInputStream in, int rows) throws IOException {
+        byte[] nullBits = new byte[(int) readVarLong(in)];
+        in.readFully(nullBits);
+        BitSet nulls = BitSet.valueOf(nullBits);
+        Object[] values = new Object[rows];
+        long[] previous = {0};
+        for (int i = 0; i < rows; i++) {
+            if (!nulls.get(i)) {
+                values[i] = readValue(in, previous);
+            }
+        }
+        return values;
+    }
+
+    static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,247 @@
+package com.xml.processor.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable, column-major file of archived rows.
+ * <p>
+ * Layout: the magic {@code XPSG}, a format version byte, the length of the header and the header
+ * itself, followed by one deflated chunk per column. The header holds the table name, the row
+ * count and, for every column, its name, type code, statistics and the position of its chunk, so a
+ * reader decompresses only the columns a query touches. The file is mapped into memory and each
+ * chunk is inflated straight from the mapping.
+ */
+final class SegmentFile {
+
+    private static final int MAGIC = 0x58505347;
+    private static final byte VERSION = 1;
+    /** Longer strings get no statistics; a truncated maximum would not be an upper bound. */
+    private static final int MAX_STATS_LENGTH = 256;
+
+    private record Column(ColumnType type, ColumnStats stats, long offset, int length, int rawLength) {
+    }
+
+    private final String tableName;
+    private final int rowCount;
+    private final Map<String, Column> columns;
+    private final ByteBuffer data;
+    private final Map<String, Object[]> decoded = new HashMap<>();
+
+    private SegmentFile(String tableName, int rowCount, Map<String, Column> columns, ByteBuffer data) {
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.data = data;
+    }
+
+    /**
+     * Writes the rows, each holding the table's columns in order, to a new segment at the path.
+     * The file is written under a temporary name and moved into place once complete.
+     *
+     * @return the statistics of each column
+     */
+    static Map<String, ColumnStats> write(Path path, ArchivedTable table, List<Object[]> rows) throws IOException {
+        List<String> names = table.getColumns();
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeUTF(table.getTableName());
+        headerOut.writeInt(rows.size());
+        headerOut.writeShort(names.size());
+
+        Map<String, ColumnStats> stats = new LinkedHashMap<>();
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        for (int c = 0; c < names.size(); c++) {
+            String name = names.get(c);
+            ColumnType type = table.typeOf(name);
+            Object[] values = new Object[rows.size()];
+            for (int r = 0; r < rows.size(); r++) {
+                values[r] = rows.get(r)[c];
+            }
+            ColumnStats columnStats = statsOf(type, values);
+            stats.put(name, columnStats);
+
+            byte[] raw = type.encode(values, values.length);
+            long offset = chunks.size();
+            // Closing a ByteArrayOutputStream has no effect, the chunks keep accumulating
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try (OutputStream deflated = new DeflaterOutputStream(chunks, deflater, 8192)) {
+                deflated.write(raw);
+            } finally {
+                deflater.end();
+            }
+
+            headerOut.writeUTF(name);
+            headerOut.writeByte(type.code());
+            headerOut.writeLong(columnStats.nullCount());
+            headerOut.writeBoolean(columnStats.min() != null);
+            if (columnStats.min() != null) {
+                writeValue(headerOut, type, columnStats.min());
+                writeValue(headerOut, type, columnStats.max());
+            }
+            headerOut.writeLong(offset);
+            headerOut.writeInt((int) (chunks.size() - offset));
+            headerOut.writeInt(raw.length);
+        }
+        headerOut.flush();
+
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(header.size());
+            header.writeTo(out);
+            chunks.writeTo(out);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return stats;
+    }
+
+    static SegmentFile open(Path path) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mapped.getInt() != MAGIC || mapped.get() != VERSION) {
+            throw new IOException("Not an archive segment: " + path);
+        }
+        byte[] headerBytes = new byte[mapped.getInt()];
+        mapped.get(headerBytes);
+        ByteBuffer data = mapped.slice();
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+        String tableName = header.readUTF();
+        int rowCount = header.readInt();
+        int columnCount = header.readShort();
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            String name = header.readUTF();
+            int code = header.readByte();
+            ColumnType type = ColumnType.fromCode(code);
+            if (type == null) {
+                throw new IOException("Unknown type " + code + " of column " + name + " in archive segment " + path);
+            }
+            long nullCount = header.readLong();
+            Object min = null;
+            Object max = null;
+            if (header.readBoolean()) {
+                min = readValue(header, type);
+                max = readValue(header, type);
+            }
+            columns.put(name, new Column(type, new ColumnStats(min, max, nullCount),
+                header.readLong(), header.readInt(), header.readInt()));
+        }
+        return new SegmentFile(tableName, rowCount, columns, data);
+    }
+
+    String tableName() {
+        return tableName;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    /**
+     * Values of the column by row, decompressed on first access.
+     */
+    Object[] column(String name) throws IOException {
+        Object[] values = decoded.get(name);
+        if (values != null) {
+            return values;
+        }
+        Column column = columns.get(name);
+        if (column == null) {
+            // Written before the column was archived
+            values = new Object[rowCount];
+        } else {
+            ByteBuffer chunk = data.slice((int) column.offset(), column.length());
+            byte[] raw = new byte[column.rawLength()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(chunk);
+                int read = 0;
+                while (read < raw.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, read, raw.length - read);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated column " + name + " in archive segment of " + tableName);
+                    }
+                    read += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt column " + name + " in archive segment of " + tableName, e);
+            } finally {
+                inflater.end();
+            }
+            values = column.type().decode(new DataInputStream(new ByteArrayInputStream(raw)), rowCount);
+        }
+        decoded.put(name, values);
+        return values;
+    }
+
+    private static ColumnStats statsOf(ColumnType type, Object[] values) {
+        Object min = null;
+        Object max = null;
+        long nulls = 0;
+        boolean withStats = true;
+        for (Object value : values) {
+            if (value == null) {
+                nulls++;
+                continue;
+            }
+            if (type == ColumnType.STRING && ((String) value).length() > MAX_STATS_LENGTH) {
+                withStats = false;
+            }
+            if (min == null || ColumnType.compare(value, min) < 0) {
+                min = value;
+            }
+            if (max == null || ColumnType.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+        return withStats ? new ColumnStats(min, max, nulls) : new ColumnStats(null, null, nulls);
+    }
+
+    private static void writeValue(DataOutputStream out, ColumnType type, Object value) throws IOException {
+        switch (type) {
+            case LONG -> out.writeLong((Long) value);
+            case TIMESTAMP -> out.writeLong(ColumnType.toMicros((LocalDateTime) value));
+            case STRING -> out.writeUTF((String) value);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, ColumnType type) throws IOException {
+        return switch (type) {
+            case LONG -> in.readLong();
+            case TIMESTAMP -> ColumnType.fromMicros(in.readLong());
+            case STRING -> in.readUTF();
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.xml.processor.aspect;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.config.WorkloadContextHolder;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Binds the workload of {@link ConnectionPool} annotated code to the thread for the duration of the
+ * call. Runs outside the transaction advice so the workload is in place before any statement.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConnectionPoolAspect {
+
+    @Around("@within(com.xml.processor.annotation.ConnectionPool) || @annotation(com.xml.processor.annotation.ConnectionPool)")
+    public Object bindWorkload(ProceedingJoinPoint joinPoint) throws Throwable {
+        Workload previous = WorkloadContextHolder.setWorkload(resolveWorkload(joinPoint));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            WorkloadContextHolder.restore(previous);
+        }
+    }
+
+    private Workload resolveWorkload(ProceedingJoinPoint joinPoint) {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), targetClass);
+        ConnectionPool annotation = AnnotatedElementUtils.findMergedAnnotation(method, ConnectionPool.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, ConnectionPool.class);
+        }
+        return annotation != null ? annotation.value() : WorkloadContextHolder.getWorkload();
+    }
+}
@@ -1,14 +1,24 @@
 package com.xml.processor.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.context.annotation.Bean;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
 import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
-public class AsyncConfig {
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${app.export.max-concurrent:2}")
+    private int maxConcurrentExports;
+
+    @Value("${app.export.queue-capacity:10}")
+    private int exportQueueCapacity;
 
     @Bean(name = "xmlProcessorExecutor")
     public Executor taskExecutor() {
@@ -17,7 +27,45 @@ public class AsyncConfig {
         executor.setMaxPoolSize(5);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("XmlProcessor-");
+        executor.setTaskDecorator(WorkloadContextHolder::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs exports. Sized like the export connection pool, so an export never waits for a connection
+     * while holding a thread; exports beyond the queue capacity are rejected.
+     */
+    @Bean(name = "exportExecutor")
+    public ThreadPoolTaskExecutor exportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentExports);
+        executor.setMaxPoolSize(maxConcurrentExports);
+        executor.setQueueCapacity(exportQueueCapacity);
+        executor.setThreadNamePrefix("Export-");
+        executor.setTaskDecorator(WorkloadContextHolder::propagate);
         executor.initialize();
         return executor;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Runs all other asynchronous request handling, such as streamed ASN document listings.
+     */
+    @Bean(name = "mvcAsyncExecutor")
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(20);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("MvcAsync-");
+        executor.setTaskDecorator(WorkloadContextHolder::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // The timeout comes from spring.mvc.async.request-timeout
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
@@ -0,0 +1,165 @@
+package com.xml.processor.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects what Hikari reports about each pool: how long callers waited for a connection, how long
+ * they held it, how often they gave up, and the current occupancy.
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    /** Usage of the current thread while {@link #trackThreadUsage()} is active. */
+    private static final ThreadLocal<ThreadUsage> threadUsage = new ThreadLocal<>();
+
+    private final Map<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetrics metrics = new PoolMetrics(poolStats);
+        pools.put(poolName, metrics);
+        return metrics;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new TreeMap<>();
+        pools.forEach((name, metrics) -> result.put(name, metrics.toMap()));
+        return result;
+    }
+
+    public void reset() {
+        pools.values().forEach(PoolMetrics::reset);
+    }
+
+    /**
+     * Starts adding up how long the current thread holds connections of any pool, until the returned
+     * usage is closed. Hikari reports a connection when it is returned, so only connections returned
+     * before closing are counted.
+     */
+    public ThreadUsage trackThreadUsage() {
+        ThreadUsage usage = new ThreadUsage(threadUsage.get());
+        threadUsage.set(usage);
+        return usage;
+    }
+
+    /**
+     * Connections a thread borrowed and the time it held them. Tracking nests: an inner usage also
+     * counts towards the outer one.
+     */
+    public static final class ThreadUsage implements AutoCloseable {
+
+        private final ThreadUsage outer;
+        private int connections;
+        private long heldMillis;
+
+        private ThreadUsage(ThreadUsage outer) {
+            this.outer = outer;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public long getHeldMillis() {
+            return heldMillis;
+        }
+
+        private void record(long millis) {
+            for (ThreadUsage usage = this; usage != null; usage = usage.outer) {
+                usage.connections++;
+                usage.heldMillis += millis;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (outer != null) {
+                threadUsage.set(outer);
+            } else {
+                threadUsage.remove();
+            }
+        }
+    }
+
+    private static final class PoolMetrics implements IMetricsTracker {
+
+        private final PoolStats poolStats;
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder usages = new LongAdder();
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAccumulator maxUsageMillis = new LongAccumulator(Long::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+
+        PoolMetrics(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usages.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+            maxUsageMillis.accumulate(elapsedBorrowedMillis);
+            ThreadUsage usage = threadUsage.get();
+            if (usage != null) {
+                usage.record(elapsedBorrowedMillis);
+            }
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        void reset() {
+            acquisitions.reset();
+            acquireNanos.reset();
+            maxAcquireNanos.reset();
+            usages.reset();
+            usageMillis.reset();
+            maxUsageMillis.reset();
+            timeouts.reset();
+        }
+
+        Map<String, Object> toMap() {
+            int active = poolStats.getActiveConnections();
+            int max = poolStats.getMaxConnections();
+            long acquired = acquisitions.sum();
+            long used = usages.sum();
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("active", active);
+            map.put("idle", poolStats.getIdleConnections());
+            map.put("total", poolStats.getTotalConnections());
+            map.put("max", max);
+            map.put("utilization", max == 0 ? 0.0 : (double) active / max);
+            map.put("pendingThreads", poolStats.getPendingThreads());
+            map.put("acquisitions", acquired);
+            map.put("avgWaitMs", acquired == 0 ? 0.0 : acquireNanos.sum() / 1_000_000.0 / acquired);
+            map.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxAcquireNanos.get()));
+            map.put("avgUsageMs", used == 0 ? 0.0 : (double) usageMillis.sum() / used);
+            map.put("maxUsageMs", maxUsageMillis.get());
+            map.put("timeouts", timeouts.sum());
+            return map;
+        }
+    }
+}
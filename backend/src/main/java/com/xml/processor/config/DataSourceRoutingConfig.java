@@ -0,0 +1,96 @@
+package com.xml.processor.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Gives every {@link Workload} its own, separately sized Hikari pool on the primary database, sized
+ * with {@code app.datasource.pools.<workload>.*}, and adds a read replica pool once
+ * {@code app.datasource.replica.url} is set.
+ * <p>
+ * Code selects its pool with {@link com.xml.processor.annotation.ConnectionPool}; everything else uses
+ * the query pool. Methods annotated with {@code @Transactional(readOnly = true)} run on the replica
+ * when there is one and the query workload is selected, so listings may lag behind the primary by
+ * the replication delay. Flyway runs on the admin pool.
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    @Bean
+    @ConfigurationProperties("app.datasource.pools.ingest")
+    public HikariDataSource ingestDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        return createPool(properties, Workload.INGEST.poolName(), metrics);
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.pools.query")
+    public HikariDataSource queryDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        return createPool(properties, Workload.QUERY.poolName(), metrics);
+    }
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("app.datasource.pools.admin")
+    public HikariDataSource adminDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        return createPool(properties, Workload.ADMIN.poolName(), metrics);
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.pools.export")
+    public HikariDataSource exportDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        return createPool(properties, Workload.EXPORT.poolName(), metrics);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.replica.url")
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(Environment environment, ConnectionPoolMetrics metrics) throws Exception {
+        DataSourceProperties properties = Binder.get(environment)
+            .bind("app.datasource.replica", DataSourceProperties.class)
+            .get();
+        properties.afterPropertiesSet();
+        HikariDataSource dataSource = createPool(properties, WorkloadRoutingDataSource.REPLICA, metrics);
+        dataSource.setReadOnly(true);
+        logger.info("Routing read-only transactions to replica {}", properties.getUrl());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource ingestDataSource, HikariDataSource queryDataSource,
+                                 HikariDataSource adminDataSource, HikariDataSource exportDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        Map<Workload, DataSource> pools = Map.of(
+            Workload.INGEST, ingestDataSource,
+            Workload.QUERY, queryDataSource,
+            Workload.ADMIN, adminDataSource,
+            Workload.EXPORT, exportDataSource);
+        return new LazyConnectionDataSourceProxy(new WorkloadRoutingDataSource(pools, replicaDataSource.getIfAvailable()));
+    }
+
+    private static HikariDataSource createPool(DataSourceProperties properties, String poolName,
+                                               ConnectionPoolMetrics metrics) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(poolName);
+        dataSource.setMetricsTrackerFactory(metrics);
+        return dataSource;
+    }
+}
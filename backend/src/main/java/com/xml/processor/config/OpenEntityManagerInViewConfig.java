@@ -0,0 +1,32 @@
+package com.xml.processor.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Keeps an entity manager open for the whole request, like {@code spring.jpa.open-in-view} does,
+ * except on the paths in {@code app.jpa.open-in-view.excluded-paths}. Connections are given back
+ * after every transaction either way; the upload paths open their own short transactions and keep
+ * no entity manager across the parse of a file.
+ */
+@Configuration
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.jpa.open-in-view.excluded-paths:}")
+    private String[] excludedPaths;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns(excludedPaths);
+    }
+}
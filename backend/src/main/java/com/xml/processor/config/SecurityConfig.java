@@ -3,6 +3,7 @@ package com.xml.processor.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -53,6 +54,9 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**", "/h2-console/**").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/archive/run").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/mapping/xsd-snapshot").hasRole("ADMIN")
+                .requestMatchers("/api/cache/**", "/api/pools/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .headers(headers -> headers
@@ -0,0 +1,26 @@
+package com.xml.processor.config;
+
+import java.util.Locale;
+
+/**
+ * The kinds of database work that get a connection pool of their own, so that a burst of one
+ * cannot take the connections another needs.
+ */
+public enum Workload {
+
+    /** File processing and bulk writes: long transactions, many rows. */
+    INGEST,
+
+    /** UI and API requests, reads and small writes. Used when nothing else is selected. */
+    QUERY,
+
+    /** Audit logging, partition maintenance and background migrations. */
+    ADMIN,
+
+    /** Streaming exports, which hold one connection for the whole download. */
+    EXPORT;
+
+    public String poolName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
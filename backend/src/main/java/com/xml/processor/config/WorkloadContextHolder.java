@@ -0,0 +1,47 @@
+package com.xml.processor.config;
+
+/**
+ * The workload of the code running on the current thread, read by {@link WorkloadRoutingDataSource}
+ * when a transaction fetches its connection. Tasks handed to the application's executors carry the
+ * workload of the thread that submitted them (see {@link #propagate(Runnable)}).
+ */
+public class WorkloadContextHolder {
+    private static final ThreadLocal<Workload> CONTEXT = new ThreadLocal<>();
+
+    public static Workload getWorkload() {
+        Workload workload = CONTEXT.get();
+        return workload != null ? workload : Workload.QUERY;
+    }
+
+    /**
+     * Sets the workload and returns the previous one, null if none was set.
+     */
+    public static Workload setWorkload(Workload workload) {
+        Workload previous = CONTEXT.get();
+        CONTEXT.set(workload);
+        return previous;
+    }
+
+    public static void restore(Workload previous) {
+        if (previous == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(previous);
+        }
+    }
+
+    /**
+     * Task decorator that runs the task under the workload of the submitting thread.
+     */
+    public static Runnable propagate(Runnable task) {
+        Workload workload = CONTEXT.get();
+        return () -> {
+            Workload previous = setWorkload(workload);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+}
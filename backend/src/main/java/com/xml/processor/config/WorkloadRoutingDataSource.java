@@ -0,0 +1,56 @@
+package com.xml.processor.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections from the pool of the current {@link Workload}, or from the replica inside
+ * read-only transactions of the {@link Workload#QUERY} workload when a replica is configured. Reads
+ * made on behalf of ingest, admin or export work stay on the primary, so they never see replication
+ * lag.
+ * <p>
+ * The choice is made once per physical connection. Hibernate must therefore give its connection
+ * back after every transaction ({@code hibernate.connection.handling_mode}
+ * {@code DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION}); otherwise an entity manager kept open
+ * for the request would reuse its first connection, replica or not, for every later transaction.
+ * <p>
+ * The transaction manager fetches its connection before it marks the transaction read-only, so this
+ * data source has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * which defers the lookup to the first statement.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String REPLICA = "replica";
+
+    private final boolean replicaConfigured;
+
+    /**
+     * @param pools   a pool for every workload
+     * @param replica the replica pool, null to keep read-only transactions on the workload pools
+     */
+    public WorkloadRoutingDataSource(Map<Workload, ? extends DataSource> pools, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>(pools);
+        if (replica != null) {
+            targets.put(REPLICA, replica);
+        }
+        replicaConfigured = replica != null;
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(pools.get(Workload.QUERY));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Workload workload = WorkloadContextHolder.getWorkload();
+        if (replicaConfigured && workload == Workload.QUERY
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return REPLICA;
+        }
+        return workload;
+    }
+}
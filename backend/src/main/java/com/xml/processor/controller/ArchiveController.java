@@ -0,0 +1,104 @@
+package com.xml.processor.controller;
+
+import com.xml.processor.archive.ArchiveManager;
+import com.xml.processor.archive.ArchivePredicate;
+import com.xml.processor.archive.ArchiveQueryService;
+import com.xml.processor.archive.ArchivedTable;
+import com.xml.processor.archive.ColumnType;
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.exception.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queries of the archived history of processed files and ASN documents. Any parameter named after
+ * an archived column filters on that column; {@code from} and {@code to} bound the table's
+ * timestamp column.
+ */
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    private static final Set<String> RESERVED = Set.of("from", "to", "limit");
+
+    @Autowired
+    private ArchiveQueryService archiveQueryService;
+
+    @Autowired
+    private ArchiveManager archiveManager;
+
+    /**
+     * @param table {@code processed-files}, {@code asn-headers} or {@code asn-lines}
+     */
+    @GetMapping("/{table}")
+    public ResponseEntity<Map<String, Object>> query(@PathVariable String table,
+                                                     @RequestParam(defaultValue = "1000") int limit,
+                                                     @RequestParam Map<String, String> params) throws IOException {
+        ArchivedTable archivedTable = ArchivedTable.fromTableName(table.replace('-', '_'))
+            .orElseThrow(() -> new ValidationException("Unknown archived table: " + table));
+
+        List<ArchivePredicate> predicates = new ArrayList<>();
+        params.forEach((column, value) -> {
+            if (!RESERVED.contains(column)) {
+                predicates.add(ArchivePredicate.equal(column, parse(archivedTable, column, value)));
+            }
+        });
+        String key = archivedTable.getKeyColumn();
+        if (params.containsKey("from")) {
+            predicates.add(ArchivePredicate.atLeast(key, parse(archivedTable, key, params.get("from"))));
+        }
+        if (params.containsKey("to")) {
+            predicates.add(ArchivePredicate.atMost(key, parse(archivedTable, key, params.get("to"))));
+        }
+        Long clientId = ClientContextHolder.getClientId();
+        if (clientId != null) {
+            predicates.removeIf(predicate -> predicate.column().equals("client_id"));
+            predicates.add(ArchivePredicate.equal("client_id", clientId));
+        }
+
+        ArchiveQueryService.ArchiveQueryResult result = archiveQueryService.query(archivedTable, predicates, limit);
+        Map<String, Object> response = new HashMap<>();
+        response.put("rows", result.rows());
+        response.put("segmentsTotal", result.segmentsTotal());
+        response.put("segmentsScanned", result.segmentsScanned());
+        response.put("truncated", result.truncated());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Archives the rows from before the given time now, instead of waiting for the nightly run.
+     */
+    @PostMapping("/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> archive(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("before", before);
+        response.put("rowsArchived", archiveManager.archive(before));
+        return ResponseEntity.ok(response);
+    }
+
+    private static Object parse(ArchivedTable table, String column, String value) {
+        ColumnType type = table.typeOf(column);
+        if (type == null) {
+            throw new ValidationException("Unknown column of archived " + table.getTableName() + ": " + column);
+        }
+        try {
+            return type.parse(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ValidationException("Invalid value for " + column + ": " + value);
+        }
+    }
+}
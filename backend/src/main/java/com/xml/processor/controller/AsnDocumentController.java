@@ -0,0 +1,103 @@
+package com.xml.processor.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.dto.AsnDocument;
+import com.xml.processor.dto.AsnDocumentFilter;
+import com.xml.processor.service.interfaces.AsnService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ASN headers together with their lines. Each page costs two queries however many documents it
+ * holds, instead of one request per header for its lines.
+ */
+@RestController
+@RequestMapping("/api/asn/documents")
+public class AsnDocumentController {
+
+    @Autowired
+    private AsnService asnService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.asn.documents.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * A page of documents in id order; pass the returned nextAfterId as afterId for the next page.
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getDocuments(
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate shipmentDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate shipmentDateTo,
+            @RequestParam(required = false) List<String> documentNumber,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        AsnDocumentFilter filter = filter(clientId, shipmentDateFrom, shipmentDateTo, documentNumber);
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<AsnDocument> documents = asnService.getAsnDocuments(filter, afterId, pageSize);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("documents", documents);
+        response.put("nextAfterId", documents.size() == pageSize ? documents.get(documents.size() - 1).id() : null);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * All matching documents as NDJSON, one document with its lines per line, written page by page.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamDocuments(
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate shipmentDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate shipmentDateTo,
+            @RequestParam(required = false) List<String> documentNumber) {
+
+        // Resolved here, the body is written on another thread without the client context
+        AsnDocumentFilter filter = filter(clientId, shipmentDateFrom, shipmentDateTo, documentNumber);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+                Long afterId = null;
+                List<AsnDocument> page;
+                do {
+                    page = asnService.getAsnDocuments(filter, afterId, maxPageSize);
+                    for (AsnDocument document : page) {
+                        generator.writeObject(document);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).id();
+                } while (page.size() == maxPageSize);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /**
+     * The clientId parameter only selects a client for callers without a client context; a caller
+     * with one sees its own documents whatever it asks for.
+     */
+    private static AsnDocumentFilter filter(Long clientId, LocalDate shipmentDateFrom, LocalDate shipmentDateTo,
+                                            List<String> documentNumbers) {
+        Long contextClientId = ClientContextHolder.getClientId();
+        return new AsnDocumentFilter(contextClientId != null ? contextClientId : clientId,
+            shipmentDateFrom, shipmentDateTo, documentNumbers);
+    }
+}
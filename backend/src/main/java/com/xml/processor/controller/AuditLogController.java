@@ -1,6 +1,9 @@
 package com.xml.processor.controller;
 
+import com.xml.processor.dto.AuditLogFilter;
 import com.xml.processor.model.AuditLog;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
 import com.xml.processor.service.AuditLogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -34,6 +37,29 @@ public class AuditLogController {
         return ResponseEntity.ok(auditLogService.getAuditLogs(pageRequest));
     }
 
+    /**
+     * Keyset-paged listing covering all filters of the endpoints below; pass the returned
+     * nextCursor to get the following page.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<AuditLog>> scrollAuditLogs(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) Integer responseStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "NONE") String count) {
+        
+        AuditLogFilter filter = new AuditLogFilter(username, clientId, action, responseStatus, startDate, endDate);
+        return ResponseEntity.ok(auditLogService.scrollAuditLogs(
+            filter, KeysetRequest.of(sortBy, direction, cursor, limit, count)));
+    }
+
     @GetMapping("/username/{username}")
     public ResponseEntity<Page<AuditLog>> getAuditLogsByUsername(
             @PathVariable String username,
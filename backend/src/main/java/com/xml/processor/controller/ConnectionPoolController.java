@@ -0,0 +1,32 @@
+package com.xml.processor.controller;
+
+import com.xml.processor.config.ConnectionPoolMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/pools")
+@PreAuthorize("hasRole('ADMIN')")
+public class ConnectionPoolController {
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    /**
+     * Occupancy, connection wait times and timeouts of every connection pool, keyed by pool name.
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(connectionPoolMetrics.getStatistics());
+    }
+
+    @DeleteMapping("/statistics")
+    public ResponseEntity<Void> resetStatistics() {
+        connectionPoolMetrics.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.xml.processor.controller;
+
+import com.xml.processor.service.EntityCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@PreAuthorize("hasRole('ADMIN')")
+public class EntityCacheController {
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    /**
+     * Hit, miss and put counts of the second-level and query cache, per region.
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(entityCacheService.getStatistics());
+    }
+
+    @DeleteMapping("/statistics")
+    public ResponseEntity<Void> resetStatistics() {
+        entityCacheService.resetStatistics();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Drops every cached entity and query result, e.g. after reference data was edited directly in the database.
+     */
+    @PostMapping("/evict")
+    public ResponseEntity<Void> evictAll() {
+        entityCacheService.evictAll();
+        return ResponseEntity.noContent().build();
+    }
+}
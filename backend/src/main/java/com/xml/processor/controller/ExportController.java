@@ -0,0 +1,120 @@
+package com.xml.processor.controller;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.service.export.DataExportService;
+import com.xml.processor.service.export.ExportFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Downloads of ASN documents and processed file metadata as NDJSON (the default) or CSV. Responses
+ * are streamed while the rows are read, and gzip-compressed when the client accepts it. Exports run
+ * on the export executor, not the one shared by other asynchronous requests, so at most
+ * app.export.max-concurrent of them hold a thread and an export connection at a time.
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private DataExportService dataExportService;
+
+    @Autowired
+    @Qualifier("exportExecutor")
+    private ThreadPoolTaskExecutor exportExecutor;
+
+    @GetMapping("/asn")
+    public WebAsyncTask<Void> exportAsn(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+
+        ExportFormat exportFormat = ExportFormat.from(format);
+        Long client = client(clientId);
+        return stream("asn", exportFormat, acceptEncoding, response,
+            out -> dataExportService.exportAsn(client, startDate, endDate, exportFormat, out));
+    }
+
+    @GetMapping("/processed-files")
+    public WebAsyncTask<Void> exportProcessedFiles(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) Long interfaceId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+
+        ExportFormat exportFormat = ExportFormat.from(format);
+        ProcessedFileFilter filter = new ProcessedFileFilter(
+            client(clientId), interfaceId, status, fileName, startDate, endDate);
+        return stream("processed-files", exportFormat, acceptEncoding, response,
+            out -> dataExportService.exportProcessedFiles(filter, exportFormat, out));
+    }
+
+    /**
+     * Resolved on the request thread, the export runs on another one without the client context. A
+     * caller with a client context exports its own data whatever clientId it passes.
+     */
+    private static Long client(Long clientId) {
+        Long contextClientId = ClientContextHolder.getClientId();
+        return contextClientId != null ? contextClientId : clientId;
+    }
+
+    /**
+     * Sets the headers now and writes the body on the export executor. The response parameter marks
+     * the request as handled, so the empty result completes it without rendering anything.
+     */
+    private WebAsyncTask<Void> stream(String name, ExportFormat format, String acceptEncoding,
+                                      HttpServletResponse response, Export export) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType(format.getMediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename(name + "." + format.getExtension())
+            .build()
+            .toString());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        // The timeout comes from spring.mvc.async.request-timeout
+        return new WebAsyncTask<>(null, exportExecutor, () -> {
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                export.writeTo(compressed);
+                compressed.finish();
+            } else {
+                export.writeTo(out);
+            }
+            out.flush();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        void writeTo(OutputStream out) throws Exception;
+    }
+}
@@ -25,6 +25,42 @@ public class MappingController {
         return ResponseEntity.ok(elements);
     }
 
+    /**
+     * Returns one level of the XSD tree. Omit {@code parentPath} for the top-level elements and
+     * pass the returned {@code nextCursor} to fetch the next page of a long sequence.
+     */
+    @GetMapping("/xsd-tree")
+    public ResponseEntity<Map<String, Object>> getXsdTree(
+            @RequestParam String xsdPath,
+            @RequestParam(required = false) String parentPath,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(xsdService.getXsdChildren(xsdPath, parentPath, cursor, limit));
+    }
+
+    @GetMapping("/xsd-paths/suggest")
+    public ResponseEntity<List<String>> suggestXsdPaths(
+            @RequestParam String xsdPath,
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(xsdService.suggestPaths(xsdPath, prefix, limit));
+    }
+
+    @GetMapping("/xsd-paths/validate")
+    public ResponseEntity<Map<String, Object>> validateXsdPath(
+            @RequestParam String xsdPath,
+            @RequestParam String xmlPath) {
+        return ResponseEntity.ok(xsdService.validateXmlPath(xsdPath, xmlPath));
+    }
+
+    /**
+     * Compiles all interface schemas into the binary snapshot that is mapped at startup.
+     */
+    @PostMapping("/xsd-snapshot")
+    public ResponseEntity<Map<String, Object>> buildXsdSnapshot() {
+        return ResponseEntity.ok(xsdService.buildSnapshot());
+    }
+
     @GetMapping("/rules")
     public ResponseEntity<List<MappingRule>> getAllMappingRules() {
         return ResponseEntity.ok(xsdService.getAllMappingRules());
@@ -1,6 +1,11 @@
 package com.xml.processor.controller;
 
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
 import com.xml.processor.service.ProcessedFileService;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -20,7 +25,7 @@ public class ProcessedFileController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFiles(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFiles(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "processedDate") String sortBy,
@@ -30,11 +35,38 @@ public class ProcessedFileController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFiles(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFiles(
             page, size, sortBy, direction, fileNameFilter, statusFilter, startDate, endDate);
         return ResponseEntity.ok(processedFiles);
     }
 
+    /**
+     * Keyset-paged listing: pass the returned nextCursor to get the following page. The total is
+     * only computed when asked for with count=EXACT or count=ESTIMATE.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProcessedFileSummary>> scrollProcessedFiles(
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) Long interfaceId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "NONE") String count) {
+        
+        // A caller with a client context only sees its own files, whatever clientId it passes
+        Long contextClientId = ClientContextHolder.getClientId();
+        ProcessedFileFilter filter = new ProcessedFileFilter(
+            contextClientId != null ? contextClientId : clientId,
+            interfaceId, status, fileName, startDate, endDate);
+        return ResponseEntity.ok(processedFileService.scrollProcessedFiles(
+            filter, KeysetRequest.of(sortBy, direction, cursor, limit, count)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProcessedFile> getProcessedFile(@PathVariable Long id) {
         return ResponseEntity.ok(processedFileService.getProcessedFileById(id));
@@ -57,46 +89,46 @@ public class ProcessedFileController {
     }
 
     @GetMapping("/client/{clientId}")
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFilesByClient(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFilesByClient(
             @PathVariable Long clientId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFilesByClient(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFilesByClient(
             clientId, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<ProcessedFile>> searchProcessedFiles(
+    public ResponseEntity<Page<ProcessedFileSummary>> searchProcessedFiles(
             @RequestParam String fileName,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.searchProcessedFiles(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.searchProcessedFiles(
             fileName, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFilesByStatus(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFilesByStatus(
             @PathVariable String status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFilesByStatus(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFilesByStatus(
             status, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
 
     @GetMapping("/date-range")
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFilesByDateRange(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFilesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "0") int page,
@@ -104,13 +136,13 @@ public class ProcessedFileController {
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFilesByDateRange(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFilesByDateRange(
             startDate, endDate, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
 
     @GetMapping("/client/{clientId}/status/{status}")
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFilesByClientAndStatus(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFilesByClientAndStatus(
             @PathVariable Long clientId,
             @PathVariable String status,
             @RequestParam(defaultValue = "0") int page,
@@ -118,13 +150,13 @@ public class ProcessedFileController {
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFilesByClientAndStatus(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFilesByClientAndStatus(
             clientId, status, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
 
     @GetMapping("/client/{clientId}/date-range")
-    public ResponseEntity<Page<ProcessedFile>> getProcessedFilesByClientAndDateRange(
+    public ResponseEntity<Page<ProcessedFileSummary>> getProcessedFilesByClientAndDateRange(
             @PathVariable Long clientId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
@@ -133,7 +165,7 @@ public class ProcessedFileController {
             @RequestParam(defaultValue = "processedDate") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
         
-        Page<ProcessedFile> processedFiles = processedFileService.getProcessedFilesByClientAndDateRange(
+        Page<ProcessedFileSummary> processedFiles = processedFileService.getProcessedFilesByClientAndDateRange(
             clientId, startDate, endDate, page, size, sortBy, direction);
         return ResponseEntity.ok(processedFiles);
     }
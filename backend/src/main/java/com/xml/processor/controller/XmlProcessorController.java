@@ -1,19 +1,31 @@
 package com.xml.processor.controller;
 
+import com.xml.processor.dto.ProcessedFileSummary;
 import com.xml.processor.model.ProcessedFile;
 import com.xml.processor.service.XmlProcessorService;
+import com.xml.processor.service.payload.RawPayloadStore;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api")
 public class XmlProcessorController {
     private final XmlProcessorService service;
+    private final RawPayloadStore rawPayloadStore;
 
-    public XmlProcessorController(XmlProcessorService service) {
+    public XmlProcessorController(XmlProcessorService service, RawPayloadStore rawPayloadStore) {
         this.service = service;
+        this.rawPayloadStore = rawPayloadStore;
     }
 
     @PostMapping("/upload")
@@ -22,12 +34,42 @@ public class XmlProcessorController {
     }
 
     @GetMapping("/files/processed")
-    public ResponseEntity<List<ProcessedFile>> getProcessedFiles() {
+    public ResponseEntity<List<ProcessedFileSummary>> getProcessedFiles() {
         return ResponseEntity.ok(service.getProcessedFiles());
     }
 
     @GetMapping("/files/errors")
-    public ResponseEntity<List<ProcessedFile>> getErrorFiles() {
+    public ResponseEntity<List<ProcessedFileSummary>> getErrorFiles() {
         return ResponseEntity.ok(service.getErrorFiles());
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/files/{id}/reprocess")
+    public ResponseEntity<ProcessedFile> reprocessFile(@PathVariable Long id) {
+        return ResponseEntity.ok(service.reprocessFile(id));
+    }
+
+    /**
+     * Downloads the original XML of a processed file. Clients accepting gzip get the stored blob as
+     * it is, without decompressing it.
+     */
+    @GetMapping("/files/{id}/raw")
+    public void downloadRawPayload(@PathVariable Long id,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                   HttpServletResponse response) throws IOException {
+        ProcessedFile file = service.getFileWithRawPayload(id);
+        String hash = file.getRawPayloadHash();
+        response.setContentType(MediaType.APPLICATION_XML_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(file.getFileName()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(rawPayloadStore.compressedSize(hash));
+            rawPayloadStore.transferCompressed(hash, Channels.newChannel(response.getOutputStream()));
+        } else {
+            try (InputStream payload = rawPayloadStore.open(hash)) {
+                payload.transferTo(response.getOutputStream());
+            }
+        }
+    }
+}
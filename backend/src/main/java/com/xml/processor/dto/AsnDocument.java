@@ -0,0 +1,16 @@
+package com.xml.processor.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * An ASN header together with its lines, as returned by the aggregate read API.
+ */
+public record AsnDocument(Long id, String documentNumber, String documentType, String senderId, String receiverId,
+                          String documentDate, String documentTime, String status, String notes, Long clientId,
+                          LocalDateTime createdAt, LocalDateTime updatedAt, List<Line> lines) {
+
+    public record Line(Long id, Integer lineNumber, String itemNumber, String itemDescription, Integer quantity,
+                       String unitOfMeasure, String lotNumber, String serialNumber, String status, String notes) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.xml.processor.dto;
+
+import com.xml.processor.pagination.SqlFilter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Filters of the ASN document listing; null and empty fields are not applied.
+ *
+ * @param shipmentDateFrom document date on or after
+ * @param shipmentDateTo   document date on or before
+ * @param documentNumbers  any of these document numbers
+ */
+public record AsnDocumentFilter(Long clientId, LocalDate shipmentDateFrom, LocalDate shipmentDateTo,
+                                List<String> documentNumbers) {
+
+    public SqlFilter toSqlFilter() {
+        // document_date holds ISO dates as text, which order like the dates themselves
+        return new SqlFilter()
+            .equal("client_id", clientId)
+            .range("document_date",
+                shipmentDateFrom != null ? shipmentDateFrom.toString() : null,
+                shipmentDateTo != null ? shipmentDateTo.toString() : null)
+            .in("document_number", documentNumbers);
+    }
+}
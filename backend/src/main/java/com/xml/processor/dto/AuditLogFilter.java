@@ -0,0 +1,24 @@
+package com.xml.processor.dto;
+
+import com.xml.processor.pagination.SqlFilter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the audit log listings; null fields are not applied.
+ *
+ * @param startDate created at or after
+ * @param endDate   created at or before
+ */
+public record AuditLogFilter(String username, Long clientId, String action, Integer responseStatus,
+                             LocalDateTime startDate, LocalDateTime endDate) {
+
+    public SqlFilter toSqlFilter() {
+        return new SqlFilter()
+            .equal("username", username)
+            .equal("client_id", clientId)
+            .equal("action", action)
+            .equal("response_status", responseStatus)
+            .between("created_at", startDate, endDate);
+    }
+}
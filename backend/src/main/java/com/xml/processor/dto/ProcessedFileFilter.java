@@ -0,0 +1,25 @@
+package com.xml.processor.dto;
+
+import com.xml.processor.pagination.SqlFilter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the processed file listings; null fields are not applied.
+ *
+ * @param fileName  case-insensitive substring of the file name
+ * @param startDate processed at or after
+ * @param endDate   processed at or before
+ */
+public record ProcessedFileFilter(Long clientId, Long interfaceId, String status, String fileName,
+                                  LocalDateTime startDate, LocalDateTime endDate) {
+
+    public SqlFilter toSqlFilter() {
+        return new SqlFilter()
+            .equal("client_id", clientId)
+            .equal("interface_id", interfaceId)
+            .equal("status", status)
+            .containsIgnoreCase("file_name", fileName)
+            .between("processed_at", startDate, endDate);
+    }
+}
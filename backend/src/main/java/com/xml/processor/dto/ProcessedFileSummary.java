@@ -0,0 +1,12 @@
+package com.xml.processor.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a processed file. Listings select only these columns, so they never read the
+ * processed data payload; that is only returned by the detail endpoint.
+ */
+public record ProcessedFileSummary(Long id, String fileName, String status, Long clientId, Long interfaceId,
+                                   LocalDateTime processedAt, String errorMessage, LocalDateTime createdAt,
+                                   LocalDateTime updatedAt) {
+}
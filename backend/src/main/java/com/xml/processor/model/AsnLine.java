@@ -6,6 +6,14 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "asn_lines")
+@NamedEntityGraph(
+    name = "AsnLine.listing",
+    attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode(value = "header", subgraph = "header")
+    },
+    subgraphs = @NamedSubgraph(name = "header", attributeNodes = @NamedAttributeNode("client"))
+)
 @Getter
 @Setter
 public class AsnLine extends BaseEntity {
@@ -41,6 +49,19 @@ public class AsnLine extends BaseEntity {
     @Column(length = 500)
     private String notes;
 
+    /**
+     * Content fingerprint maintained by {@code AsnUpsertWriter}; cleared on any other update so the
+     * next revision of the document rewrites the line.
+     */
+    @Column(name = "line_fingerprint", length = 64)
+    private String lineFingerprint;
+
+    @PreUpdate
+    protected void onUpdate() {
+        super.onUpdate();
+        lineFingerprint = null;
+    }
+
     // Compatibility method for tests
     public void setLineNumber(String lineNumberStr) {
         try {
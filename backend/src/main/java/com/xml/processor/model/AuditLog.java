@@ -7,7 +7,12 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+    // Keyset paging seeks on (filter, created_at, id)
+    @Index(name = "idx_audit_logs_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_audit_logs_client_created_at_id", columnList = "client_id, created_at, id"),
+    @Index(name = "idx_audit_logs_username_created_at_id", columnList = "username, created_at, id")
+})
 @Data
 public class AuditLog {
     @Id
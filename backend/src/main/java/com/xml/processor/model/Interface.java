@@ -1,14 +1,20 @@
 package com.xml.processor.model;
     
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
     
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
     
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.interfaces")
 @Table(name = "interfaces")
 @Getter
 @Setter
@@ -39,6 +45,14 @@ public class Interface extends BaseEntity {
     @Column
     private Integer priority = 0; // For processing order
     
+    // Early element values that must match for detection, e.g. {"MESTYP": "DELVRY", "SNDPRN": ["SAPERP"]}
+    @Column(columnDefinition = "JSON")
+    @Convert(converter = JsonAttributeConverter.class)
+    private Map<String, Object> detectionCriteria;
+    
+    // Served by /api/interfaces/{id}/mappings; serializing it here would load it for every interface
+    // and recurse through MappingRule.interfaceEntity
+    @JsonIgnore
     @OneToMany(mappedBy = "interfaceEntity", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<MappingRule> mappingRules = new HashSet<>();
 } 
\ No newline at end of file
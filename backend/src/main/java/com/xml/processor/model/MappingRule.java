@@ -3,10 +3,22 @@ package com.xml.processor.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reference.mapping-rules")
 @Table(name = "mapping_rules")
+@NamedEntityGraph(
+    name = "MappingRule.listing",
+    attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode(value = "interfaceEntity", subgraph = "interfaceEntity")
+    },
+    subgraphs = @NamedSubgraph(name = "interfaceEntity", attributeNodes = @NamedAttributeNode("client"))
+)
 @EqualsAndHashCode(callSuper = true)
 public class MappingRule extends BaseEntity {
 
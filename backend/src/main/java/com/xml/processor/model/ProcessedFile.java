@@ -9,6 +9,14 @@ import java.util.Map;
 
 @Entity
 @Table(name = "processed_files")
+@NamedEntityGraph(
+    name = "ProcessedFile.listing",
+    attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode(value = "interfaceEntity", subgraph = "interfaceEntity")
+    },
+    subgraphs = @NamedSubgraph(name = "interfaceEntity", attributeNodes = @NamedAttributeNode("client"))
+)
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class ProcessedFile extends BaseEntity {
@@ -26,13 +34,29 @@ public class ProcessedFile extends BaseEntity {
     @JoinColumn(name = "interface_id")
     private Interface interfaceEntity;
     
-    @Column(columnDefinition = "JSON")
-    @Convert(converter = JsonAttributeConverter.class)
+    /**
+     * Stored compressed in {@link ProcessedFilePayload} and only populated when a single file is
+     * loaded through the service; list queries never read it.
+     */
+    @Transient
     private Map<String, Object> processedData;
     
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
     
+    /**
+     * SHA-256 of the original XML kept in the raw payload store, null if it was not kept.
+     */
+    @Column(name = "raw_payload_hash", length = 64)
+    private String rawPayloadHash;
+    
+    /**
+     * How long processing this file held database connections, set on the result of an upload or
+     * reprocessing and not stored.
+     */
+    @Transient
+    private Long connectionHoldMs;
+    
     @PrePersist
     protected void onCreate() {
         super.onCreate();
@@ -0,0 +1,37 @@
+package com.xml.processor.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Compressed processed data of a {@link ProcessedFile}, kept apart from the metadata row and
+ * sharing its id. It is only read when a single file is requested.
+ */
+@Entity
+@Table(name = "processed_file_payloads")
+@Data
+@EqualsAndHashCode(exclude = "processedFile")
+@ToString(exclude = {"processedFile", "payload"})
+public class ProcessedFilePayload {
+
+    @Id
+    @Column(name = "processed_file_id")
+    private Long processedFileId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "processed_file_id")
+    private ProcessedFile processedFile;
+
+    @Column(nullable = false, length = 16)
+    private String codec;
+
+    @Column(name = "original_size", nullable = false)
+    private int originalSize;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] payload;
+}
@@ -0,0 +1,31 @@
+package com.xml.processor.pagination;
+
+import com.xml.processor.exception.ValidationException;
+
+import java.util.Locale;
+
+/**
+ * How the total of a keyset-paged listing is computed.
+ */
+public enum CountMode {
+    /** No total, the cheapest option and the default. */
+    NONE,
+    /** {@code COUNT(*)} over the filtered rows. */
+    EXACT,
+    /**
+     * Table statistics when unfiltered, otherwise a count that stops at a cap; the response
+     * says whether the total is exact.
+     */
+    ESTIMATE;
+
+    public static CountMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid count mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.xml.processor.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset-paged listing.
+ *
+ * @param items      the rows of this page
+ * @param nextCursor opaque token for the next page, null on the last page
+ * @param hasNext    whether there is a next page
+ * @param total      total number of matching rows, null when not requested
+ * @param totalExact whether {@code total} is exact or an estimate / lower bound
+ * @param countMode  how {@code total} was computed
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, boolean hasNext, Long total, boolean totalExact,
+                            CountMode countMode) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(items.stream().<R>map(mapper).toList(), nextCursor, hasNext, total, totalExact, countMode);
+    }
+}
@@ -0,0 +1,54 @@
+package com.xml.processor.pagination;
+
+import com.xml.processor.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Continuation token of a keyset-paged listing: the sort key and id of the last row returned.
+ * Clients treat it as opaque; it is bound to the sort it was issued for. A null sort value is
+ * encoded by leaving the value out, so that it stays distinct from an empty string.
+ */
+record KeysetCursor(String sortBy, boolean ascending, Long id, Object sortValue) {
+
+    private static final String VERSION = "k2";
+
+    String encode() {
+        String token = VERSION + ':' + sortBy + ':' + (ascending ? 'a' : 'd') + ':' + id
+            + (sortValue != null ? ":" + sortValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static KeysetCursor decode(String cursor, KeysetSort<?> sort, boolean ascending) {
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // The sort value comes last since strings may contain the separator
+            String[] parts = token.split(":", 5);
+            if (parts.length >= 4 && VERSION.equals(parts[0])) {
+                if (!parts[1].equals(sort.name()) || parts[2].equals("a") != ascending) {
+                    throw new ValidationException("Cursor was issued for a different sort order");
+                }
+                Object value = parts.length == 5 ? parse(parts[4], sort.type()) : null;
+                return new KeysetCursor(parts[1], ascending, Long.valueOf(parts[3]), value);
+            }
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            // Fall through to the generic error below
+        }
+        throw new ValidationException("Invalid cursor: " + cursor);
+    }
+
+    private static Object parse(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(value);
+        } else if (type == Long.class) {
+            return Long.valueOf(value);
+        } else if (type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        throw new IllegalStateException("Unsupported keyset sort type " + type.getName());
+    }
+}
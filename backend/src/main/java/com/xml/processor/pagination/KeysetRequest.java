@@ -0,0 +1,26 @@
+package com.xml.processor.pagination;
+
+/**
+ * One page request of a keyset-paged listing.
+ *
+ * @param sortBy    attribute to sort on, null for the listing's default
+ * @param ascending sort direction
+ * @param cursor    continuation token from the previous page, null for the first page
+ * @param limit     page size, clamped to {@link #MAX_LIMIT}
+ * @param countMode how the total is computed
+ */
+public record KeysetRequest(String sortBy, boolean ascending, String cursor, int limit, CountMode countMode) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    public KeysetRequest {
+        limit = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        countMode = countMode == null ? CountMode.NONE : countMode;
+    }
+
+    public static KeysetRequest of(String sortBy, String direction, String cursor, Integer limit, String count) {
+        return new KeysetRequest(sortBy, "asc".equalsIgnoreCase(direction), cursor,
+            limit != null ? limit : DEFAULT_LIMIT, CountMode.parse(count));
+    }
+}
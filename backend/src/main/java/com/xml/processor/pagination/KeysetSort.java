@@ -0,0 +1,23 @@
+package com.xml.processor.pagination;
+
+import java.util.function.Function;
+
+/**
+ * An attribute a listing can be sorted and sought on. The id is always used as tie-breaker.
+ * NULLs of a nullable attribute sort after all values, as in PostgreSQL's default index order.
+ *
+ * @param name      attribute name, as used in requests; the listing maps it to its column
+ * @param type      attribute type, used to read the value back from a cursor
+ * @param extractor reads the attribute from a row, to build the next cursor
+ * @param nullable  whether the column may be null, which needs a wider seek condition
+ */
+public record KeysetSort<T>(String name, Class<?> type, Function<T, ?> extractor, boolean nullable) {
+
+    public static <T> KeysetSort<T> of(String name, Class<?> type, Function<T, ?> extractor) {
+        return new KeysetSort<>(name, type, extractor, false);
+    }
+
+    public static <T> KeysetSort<T> nullable(String name, Class<?> type, Function<T, ?> extractor) {
+        return new KeysetSort<>(name, type, extractor, true);
+    }
+}
@@ -0,0 +1,257 @@
+package com.xml.processor.pagination;
+
+import com.xml.processor.exception.ValidationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * A listing over one or more tables of the same shape, typically a live table and the detached
+ * partitions a filter reaches, in plain SQL.
+ * <p>
+ * Keyset pages ({@link #scroll}) are ordered by (sort column, id) and each one continues strictly
+ * after the last row of the previous one, so a page costs an index range scan of {@code limit + 1}
+ * rows per table however deep it is, and rows inserted meanwhile neither shift nor repeat pages.
+ * Offset pages ({@link #page}) serve the page-number endpoints. Over several tables, every table
+ * returns only its own first rows, already sorted and limited, and just those are merged.
+ *
+ * @param <R> the row type returned
+ */
+public class ListingQuery<R> {
+
+    /** ESTIMATE counts filtered rows up to this many and reports a lower bound beyond. */
+    static final int ESTIMATE_CAP = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableStatistics tableStatistics;
+    private final Map<String, String> columns;
+    private final String selectList;
+    private final RowMapper<R> rowMapper;
+    private final Function<R, Long> idOf;
+    private final Map<String, KeysetSort<R>> sorts = new LinkedHashMap<>();
+    private final String defaultSort;
+
+    /**
+     * @param columns   selected columns keyed by attribute name, in select order; these are also
+     *                  the attributes offset pages can be sorted on, and must include {@code id}
+     * @param rowMapper maps a row of the selected columns
+     * @param idOf      reads the id of a row
+     * @param sorts     attributes keyset pages can be sorted on, the first one is the default
+     */
+    @SafeVarargs
+    public ListingQuery(JdbcTemplate jdbcTemplate, TableStatistics tableStatistics, Map<String, String> columns,
+                        RowMapper<R> rowMapper, Function<R, Long> idOf, KeysetSort<R>... sorts) {
+        if (!"id".equals(columns.get("id"))) {
+            throw new IllegalArgumentException("A listing must select the id column");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableStatistics = tableStatistics;
+        this.columns = new LinkedHashMap<>(columns);
+        this.selectList = String.join(", ", columns.values());
+        this.rowMapper = rowMapper;
+        this.idOf = idOf;
+        for (KeysetSort<R> sort : sorts) {
+            if (!columns.containsKey(sort.name())) {
+                throw new IllegalArgumentException("Keyset sort " + sort.name() + " is not a selected column");
+            }
+            this.sorts.put(sort.name(), sort);
+        }
+        this.defaultSort = sorts[0].name();
+    }
+
+    public CursorPage<R> scroll(List<String> tables, SqlFilter filter, KeysetRequest request) {
+        String sortBy = request.sortBy() == null || request.sortBy().isBlank() ? defaultSort : request.sortBy();
+        KeysetSort<R> sort = sorts.get(sortBy);
+        if (sort == null) {
+            throw new ValidationException("Cannot sort on " + sortBy + ", supported: " + sorts.keySet());
+        }
+        boolean ascending = request.ascending();
+        KeysetCursor after = request.cursor() == null || request.cursor().isBlank()
+            ? null
+            : KeysetCursor.decode(request.cursor(), sort, ascending);
+
+        List<String> conditions = new ArrayList<>(filter.conditions());
+        List<Object> args = new ArrayList<>(filter.args());
+        String column = columns.get(sort.name());
+        if (after != null) {
+            conditions.add(seekAfter(column, sort.nullable(), ascending, after, args));
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        String nulls = sort.nullable() ? (ascending ? " NULLS LAST" : " NULLS FIRST") : "";
+        String orderBy = column.equals("id") ? "id" + direction : column + direction + nulls + ", id" + direction;
+
+        List<R> rows = select(tables, conditions, args, orderBy, 0, request.limit() + 1);
+        boolean hasNext = rows.size() > request.limit();
+        if (hasNext) {
+            rows = rows.subList(0, request.limit());
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            R last = rows.get(rows.size() - 1);
+            nextCursor = new KeysetCursor(sort.name(), ascending, idOf.apply(last), sort.extractor().apply(last)).encode();
+        }
+
+        Long total = null;
+        boolean totalExact = false;
+        switch (request.countMode()) {
+            case EXACT -> {
+                total = countExact(tables, filter);
+                totalExact = true;
+            }
+            case ESTIMATE -> {
+                Long estimate = filter.isEmpty() ? estimateRowCount(tables) : null;
+                if (estimate != null) {
+                    total = estimate;
+                } else {
+                    long counted = countCapped(tables, filter);
+                    totalExact = counted <= ESTIMATE_CAP;
+                    total = Math.min(counted, ESTIMATE_CAP);
+                }
+            }
+            case NONE -> {
+            }
+        }
+        return new CursorPage<>(List.copyOf(rows), nextCursor, hasNext, total, totalExact, request.countMode());
+    }
+
+    /**
+     * The condition for the rows after the cursor in (column, id) order, adding its arguments.
+     * NULLs sort after all values, so ascending they follow every value and descending they
+     * come first.
+     */
+    private static String seekAfter(String column, boolean nullable, boolean ascending, KeysetCursor after,
+                                    List<Object> args) {
+        String op = ascending ? " > ?" : " < ?";
+        if (column.equals("id")) {
+            args.add(after.id());
+            return "id" + op;
+        }
+        if (after.sortValue() == null) {
+            args.add(after.id());
+            return ascending
+                ? "(" + column + " IS NULL AND id > ?)"
+                : "((" + column + " IS NULL AND id < ?) OR " + column + " IS NOT NULL)";
+        }
+        args.add(after.sortValue());
+        args.add(after.sortValue());
+        args.add(after.id());
+        String seek = column + op + " OR (" + column + " = ? AND id" + op + ")";
+        return "(" + seek + (nullable && ascending ? " OR " + column + " IS NULL)" : ")");
+    }
+
+    public Page<R> page(List<String> tables, SqlFilter filter, Pageable pageable) {
+        String orderBy = orderBy(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(select(tables, filter.conditions(), filter.args(), orderBy, 0, -1));
+        }
+        List<R> rows = select(tables, filter.conditions(), filter.args(), orderBy,
+            pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(rows, pageable, () -> countExact(tables, filter));
+    }
+
+    public List<R> list(List<String> tables, SqlFilter filter, Sort sort) {
+        return select(tables, filter.conditions(), filter.args(), orderBy(sort), 0, -1);
+    }
+
+    /**
+     * @param limit maximum number of rows, negative for all
+     */
+    private List<R> select(List<String> tables, List<String> conditions, List<Object> args, String orderBy,
+                           long offset, int limit) {
+        String where = where(conditions);
+        String window = limit < 0 ? "" : (offset > 0 ? " OFFSET " + offset + " ROWS" : "") + " FETCH NEXT " + limit + " ROWS ONLY";
+        if (tables.size() == 1) {
+            return jdbcTemplate.query("SELECT " + selectList + " FROM " + tables.get(0) + where + " ORDER BY " + orderBy + window,
+                rowMapper, args.toArray());
+        }
+        // No table can contribute more than offset + limit rows to the merged window
+        String branchWindow = limit < 0 ? "" : " FETCH FIRST " + (offset + limit) + " ROWS ONLY";
+        StringJoiner branches = new StringJoiner(" UNION ALL ", "SELECT * FROM (", ") listing ORDER BY " + orderBy + window);
+        List<Object> allArgs = new ArrayList<>(args.size() * tables.size());
+        for (String table : tables) {
+            branches.add("(SELECT " + selectList + " FROM " + table + where + " ORDER BY " + orderBy + branchWindow + ")");
+            allArgs.addAll(args);
+        }
+        return jdbcTemplate.query(branches.toString(), rowMapper, allArgs.toArray());
+    }
+
+    private String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            String column = columns.get(defaultSort);
+            return column.equals("id") ? "id DESC" : column + " DESC, id DESC";
+        }
+        StringJoiner orderBy = new StringJoiner(", ");
+        boolean byId = false;
+        boolean lastAscending = false;
+        for (Sort.Order order : sort) {
+            String column = columns.get(order.getProperty());
+            if (column == null) {
+                throw new ValidationException("Cannot sort on " + order.getProperty() + ", supported: " + columns.keySet());
+            }
+            orderBy.add(column + (order.isAscending() ? " ASC" : " DESC"));
+            byId |= column.equals("id");
+            lastAscending = order.isAscending();
+        }
+        if (!byId) {
+            // Ties are broken by id so that pages neither repeat nor skip rows
+            orderBy.add(lastAscending ? "id ASC" : "id DESC");
+        }
+        return orderBy.toString();
+    }
+
+    private long countExact(List<String> tables, SqlFilter filter) {
+        String where = where(filter.conditions());
+        long total = 0;
+        for (String table : tables) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + where, Long.class,
+                filter.args().toArray());
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Counts matching rows but stops reading after {@link #ESTIMATE_CAP} + 1 of them.
+     */
+    private long countCapped(List<String> tables, SqlFilter filter) {
+        String where = where(filter.conditions());
+        long counted = 0;
+        for (String table : tables) {
+            if (counted > ESTIMATE_CAP) {
+                break;
+            }
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM " + table + where
+                + " FETCH FIRST " + (ESTIMATE_CAP + 1 - counted) + " ROWS ONLY) capped", Long.class,
+                filter.args().toArray());
+            counted += count != null ? count : 0;
+        }
+        return counted;
+    }
+
+    private Long estimateRowCount(List<String> tables) {
+        long total = 0;
+        for (String table : tables) {
+            Long estimate = tableStatistics.estimateRowCount(table);
+            if (estimate == null) {
+                return null;
+            }
+            total += estimate;
+        }
+        return total;
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+}
@@ -0,0 +1,131 @@
+package com.xml.processor.pagination;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * WHERE clause of a listing, built from the criteria of a filter that are set; null and empty
+ * values are skipped. Column names come from code, only values are bound as parameters.
+ * <p>
+ * The filter also remembers the range asked for on each timestamp column, so that a listing
+ * over partitioned tables can leave out the partitions outside of it.
+ */
+public final class SqlFilter {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> args = new ArrayList<>();
+    private final Map<String, LocalDateTime[]> ranges = new HashMap<>();
+
+    public SqlFilter equal(String column, Object value) {
+        if (value != null && !"".equals(value)) {
+            conditions.add(column + " = ?");
+            args.add(value);
+        }
+        return this;
+    }
+
+    public SqlFilter containsIgnoreCase(String column, String value) {
+        if (value != null && !value.isEmpty()) {
+            conditions.add("LOWER(" + column + ") LIKE ?");
+            args.add("%" + value.toLowerCase(Locale.ROOT) + "%");
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the column to the given values; a null or empty collection is not applied.
+     */
+    public SqlFilter in(String column, Collection<?> values) {
+        if (values != null && !values.isEmpty()) {
+            conditions.add(column + " IN (" + String.join(", ", Collections.nCopies(values.size(), "?")) + ")");
+            args.addAll(values);
+        }
+        return this;
+    }
+
+    public SqlFilter greaterThan(String column, Object value) {
+        if (value != null) {
+            conditions.add(column + " > ?");
+            args.add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Restricts a column that is not a timestamp to {@code [from, to]}; either bound may be null.
+     */
+    public SqlFilter range(String column, Object from, Object to) {
+        if (from != null) {
+            conditions.add(column + " >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            conditions.add(column + " <= ?");
+            args.add(to);
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the column to {@code [from, to]}; either bound may be null.
+     */
+    public SqlFilter between(String column, LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            conditions.add(column + " >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            conditions.add(column + " <= ?");
+            args.add(to);
+        }
+        if (from != null || to != null) {
+            ranges.put(column, new LocalDateTime[] {from, to});
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * The WHERE clause of the criteria that are set, with a leading space, or an empty string if none is.
+     */
+    public String toWhereClause() {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    public Object[] toArgs() {
+        return args.toArray();
+    }
+
+    List<String> conditions() {
+        return conditions;
+    }
+
+    List<Object> args() {
+        return args;
+    }
+
+    /**
+     * Lower bound asked for on the column, null if there is none.
+     */
+    public LocalDateTime from(String column) {
+        LocalDateTime[] range = ranges.get(column);
+        return range != null ? range[0] : null;
+    }
+
+    /**
+     * Upper bound asked for on the column, null if there is none.
+     */
+    public LocalDateTime to(String column) {
+        LocalDateTime[] range = ranges.get(column);
+        return range != null ? range[1] : null;
+    }
+}
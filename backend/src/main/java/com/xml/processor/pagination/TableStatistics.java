@@ -0,0 +1,36 @@
+package com.xml.processor.pagination;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Row estimates the database keeps per table, for {@link CountMode#ESTIMATE}. Read through
+ * JDBC so that a database without the statistic does not affect the surrounding JPA transaction.
+ */
+@Component
+public class TableStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableStatistics.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the estimated row count of the table, or null when the database has none.
+     */
+    public Long estimateRowCount(String tableName) {
+        try {
+            return jdbcTemplate.query(
+                "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = UPPER(?)",
+                rs -> rs.next() ? rs.getLong(1) : null,
+                tableName);
+        } catch (DataAccessException e) {
+            logger.debug("No row estimate for {}: {}", tableName, e.getMessage());
+            return null;
+        }
+    }
+}
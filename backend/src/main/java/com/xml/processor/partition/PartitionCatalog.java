@@ -0,0 +1,94 @@
+package com.xml.processor.partition;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The detached partitions recorded in {@code table_partitions}, kept in memory since every
+ * listing consults them to decide which tables to read.
+ */
+@Component
+public class PartitionCatalog {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, List<TablePartition>> partitions;
+
+    /**
+     * Detached partitions of the table, newest first.
+     */
+    public List<TablePartition> getPartitions(PartitionedTable table) {
+        Map<String, List<TablePartition>> current = partitions;
+        if (current == null) {
+            current = reload();
+        }
+        return current.getOrDefault(table.getTableName(), List.of());
+    }
+
+    /**
+     * The live table followed by the detached partitions that can hold rows whose key is in
+     * {@code [from, to]}, newest first; a null bound is open.
+     */
+    public List<String> tablesFor(PartitionedTable table, LocalDateTime from, LocalDateTime to) {
+        List<String> tables = new ArrayList<>();
+        tables.add(table.getTableName());
+        for (TablePartition partition : getPartitions(table)) {
+            if (partition.overlaps(from, to)) {
+                tables.add(partition.partitionName());
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Detached partitions whose id range covers the id.
+     */
+    public List<TablePartition> partitionsForId(PartitionedTable table, long id) {
+        return getPartitions(table).stream().filter(partition -> partition.mayContainId(id)).toList();
+    }
+
+    void add(TablePartition partition) {
+        jdbcTemplate.update("INSERT INTO table_partitions (partition_name, table_name, range_start, range_end, "
+                + "min_id, max_id, row_count, detached_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+            partition.partitionName(), partition.tableName(), partition.rangeStart(), partition.rangeEnd(),
+            partition.minId(), partition.maxId(), partition.rowCount(), partition.detachedAt());
+        reload();
+    }
+
+    void remove(TablePartition partition) {
+        jdbcTemplate.update("DELETE FROM table_partitions WHERE partition_name = ?", partition.partitionName());
+        reload();
+    }
+
+    synchronized Map<String, List<TablePartition>> reload() {
+        List<TablePartition> all = jdbcTemplate.query("SELECT table_name, partition_name, range_start, range_end, "
+                + "min_id, max_id, row_count, detached_at FROM table_partitions ORDER BY range_end DESC NULLS LAST",
+            (rs, rowNum) -> mapPartition(rs));
+        Map<String, List<TablePartition>> byTable = all.stream()
+            .collect(Collectors.groupingBy(TablePartition::tableName, Collectors.toUnmodifiableList()));
+        partitions = byTable;
+        return byTable;
+    }
+
+    private static TablePartition mapPartition(ResultSet rs) throws SQLException {
+        return new TablePartition(rs.getString("table_name"), rs.getString("partition_name"),
+            toLocalDateTime(rs.getTimestamp("range_start")), toLocalDateTime(rs.getTimestamp("range_end")),
+            rs.getObject("min_id", Long.class), rs.getObject("max_id", Long.class),
+            rs.getLong("row_count"), toLocalDateTime(rs.getTimestamp("detached_at")));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
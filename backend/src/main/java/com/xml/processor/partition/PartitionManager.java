@@ -0,0 +1,280 @@
+package com.xml.processor.partition;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Detaches the live tables of {@link PartitionedTable} into monthly partitions and drops the
+ * partitions that are past their retention.
+ * <p>
+ * Detaching renames instead of copying: early in a month the live table, holding the previous
+ * month and the first minutes of the current one, becomes {@code <table>_p<yyyyMM>} and an empty
+ * live table takes its place. The swap runs with the H2 database in exclusive mode, which pauses
+ * the other connections for the few DDL statements it takes, so no write can fall between the
+ * rename and the new table. Retention then drops whole partitions instead of deleting rows.
+ */
+@ConnectionPool(Workload.ADMIN)
+@Component
+public class PartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionManager.class);
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String NEXT_SUFFIX = "_next";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    @Value("${app.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.partitioning.retention-months.processed-files:12}")
+    private int processedFilesRetentionMonths;
+
+    @Value("${app.partitioning.retention-months.audit-logs:12}")
+    private int auditLogsRetentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Catches up on a month start the application was not running for
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.partitioning.cron:0 5 0 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (PartitionedTable table : PartitionedTable.values()) {
+            try {
+                detachIfDue(table, now);
+                int retentionMonths = table == PartitionedTable.AUDIT_LOGS
+                    ? auditLogsRetentionMonths : processedFilesRetentionMonths;
+                if (retentionMonths > 0) {
+                    dropBefore(table, now.minusMonths(retentionMonths));
+                }
+            } catch (RuntimeException e) {
+                logger.error("Partition maintenance of {} failed: {}", table.getTableName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Detaches the live table if it still holds rows from before the current month.
+     *
+     * @return the new partition, empty if nothing was due or the detached table was empty
+     */
+    public synchronized Optional<TablePartition> detachIfDue(PartitionedTable table, LocalDateTime now) {
+        LocalDateTime monthStart = now.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        LocalDateTime oldest = jdbcTemplate.queryForObject(
+            "SELECT MIN(" + table.getKeyColumn() + ") FROM " + table.getTableName(), LocalDateTime.class);
+        if (oldest == null || !oldest.isBefore(monthStart)) {
+            return Optional.empty();
+        }
+        String month = YearMonth.from(monthStart.minusMonths(1)).format(MONTH);
+        String partitionName = table.partitionName(month);
+        if (tableExists(partitionName)) {
+            logger.warn("Not detaching {}: it holds rows from before {} but partition {} already exists",
+                table.getTableName(), monthStart, partitionName);
+            return Optional.empty();
+        }
+
+        long started = System.currentTimeMillis();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            swapExclusively(connection, table, "_p" + month);
+            return null;
+        });
+        logger.info("Detached {} as {} in {} ms", table.getTableName(), partitionName, System.currentTimeMillis() - started);
+        return Optional.ofNullable(register(table, partitionName, now));
+    }
+
+    /**
+     * Drops the detached partitions of the table whose rows are all older than the cutoff.
+     */
+    public synchronized List<TablePartition> dropBefore(PartitionedTable table, LocalDateTime cutoff) {
+        List<TablePartition> dropped = new ArrayList<>();
+        for (TablePartition partition : partitionCatalog.getPartitions(table)) {
+            LocalDateTime newest = partition.rangeEnd() != null ? partition.rangeEnd() : partition.detachedAt();
+            if (!newest.isBefore(cutoff)) {
+                continue;
+            }
+            drop(table, partition);
+            dropped.add(partition);
+            logger.info("Dropped partition {} with {} rows up to {}", partition.partitionName(), partition.rowCount(), newest);
+        }
+        return dropped;
+    }
+
+    /**
+     * Drops a detached partition together with its companions.
+     */
+    public synchronized void drop(PartitionedTable table, TablePartition partition) {
+        for (String companion : table.getCompanions()) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.companionName(companion));
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.partitionName());
+        partitionCatalog.remove(partition);
+    }
+
+    private void swapExclusively(Connection connection, PartitionedTable table, String suffix) throws SQLException {
+        List<String> tableNames = new ArrayList<>();
+        tableNames.add(table.getTableName());
+        tableNames.addAll(table.getCompanions());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET EXCLUSIVE 1");
+            Deque<String> undo = new ArrayDeque<>();
+            try {
+                swap(connection, statement, table, tableNames, suffix, undo);
+            } catch (SQLException | RuntimeException e) {
+                while (!undo.isEmpty()) {
+                    String sql = undo.pop();
+                    try {
+                        statement.execute(sql);
+                    } catch (SQLException undoFailure) {
+                        logger.error("Could not undo partition swap step {}: {}", sql, undoFailure.getMessage());
+                    }
+                }
+                throw e;
+            } finally {
+                statement.execute("SET EXCLUSIVE 0");
+            }
+        }
+    }
+
+    /**
+     * Renames the live tables to their partition names and puts empty ones in their place, pushing
+     * the statement that reverts each step onto {@code undo}.
+     */
+    private void swap(Connection connection, Statement statement, PartitionedTable table, List<String> tableNames,
+                      String suffix, Deque<String> undo) throws SQLException {
+        // Companions reference the main table, so they are dropped first
+        for (int i = tableNames.size() - 1; i >= 0; i--) {
+            statement.execute("DROP TABLE IF EXISTS " + tableNames.get(i) + NEXT_SUFFIX);
+        }
+        long nextId;
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table.getTableName())) {
+            rs.next();
+            nextId = rs.getLong(1);
+        }
+
+        // Index names are unique per schema, the detached tables keep theirs under the partition suffix
+        String indexSuffix = suffix.toUpperCase(Locale.ROOT);
+        for (String tableName : tableNames) {
+            for (String index : indexNames(connection, tableName)) {
+                statement.execute("ALTER INDEX " + index + " RENAME TO " + index + indexSuffix);
+                undo.push("ALTER INDEX " + index + indexSuffix + " RENAME TO " + index);
+            }
+        }
+
+        for (String tableName : tableNames) {
+            undo.push("DROP TABLE IF EXISTS " + tableName + NEXT_SUFFIX);
+        }
+        for (String ddl : table.liveTableDdl()) {
+            for (String tableName : tableNames) {
+                ddl = ddl.replace("{" + tableName + "}", tableName + NEXT_SUFFIX);
+            }
+            statement.execute(ddl.replace("{next_id}", Long.toString(nextId)));
+        }
+
+        for (String tableName : tableNames) {
+            statement.execute("ALTER TABLE " + tableName + " RENAME TO " + tableName + suffix);
+            undo.push("ALTER TABLE " + tableName + suffix + " RENAME TO " + tableName);
+        }
+        for (String tableName : tableNames) {
+            statement.execute("ALTER TABLE " + tableName + NEXT_SUFFIX + " RENAME TO " + tableName);
+            undo.push("ALTER TABLE " + tableName + " RENAME TO " + tableName + NEXT_SUFFIX);
+        }
+    }
+
+    /**
+     * Records the ranges of a freshly detached partition, or drops it if it came out empty.
+     */
+    private TablePartition register(PartitionedTable table, String partitionName, LocalDateTime now) {
+        TablePartition partition = jdbcTemplate.queryForObject("SELECT COUNT(*), MIN(" + table.getKeyColumn() + "), MAX("
+                + table.getKeyColumn() + "), MIN(id), MAX(id) FROM " + partitionName,
+            (rs, rowNum) -> new TablePartition(table.getTableName(), partitionName,
+                rs.getObject(2, LocalDateTime.class), rs.getObject(3, LocalDateTime.class),
+                rs.getObject(4, Long.class), rs.getObject(5, Long.class), rs.getLong(1), now));
+        if (partition == null) {
+            return null;
+        }
+        if (partition.rowCount() == 0) {
+            for (String companion : table.getCompanions()) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.companionName(companion));
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName);
+            return null;
+        }
+        partitionCatalog.add(partition);
+
+        // Detached rows never change, and keeping their foreign keys would block deleting a client
+        dropForeignKeys(partitionName);
+        for (String companion : table.getCompanions()) {
+            dropForeignKeys(partition.companionName(companion));
+        }
+        return partition;
+    }
+
+    private void dropForeignKeys(String tableName) {
+        try {
+            List<String> constraints = jdbcTemplate.queryForList("SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS "
+                    + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+                String.class, tableName.toUpperCase(Locale.ROOT));
+            for (String constraint : constraints) {
+                jdbcTemplate.execute("ALTER TABLE " + tableName + " DROP CONSTRAINT " + constraint);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not drop the foreign keys of partition {}: {}", tableName, e.getMessage());
+        }
+    }
+
+    private static List<String> indexNames(Connection connection, String tableName) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND INDEX_TYPE_NAME = 'INDEX' AND INDEX_NAME LIKE 'IDX%'")) {
+            query.setString(1, tableName.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private boolean tableExists(String tableName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+            + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ?", Integer.class, tableName.toUpperCase(Locale.ROOT));
+        return count != null && count > 0;
+    }
+}
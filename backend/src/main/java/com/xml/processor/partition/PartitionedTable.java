@@ -0,0 +1,114 @@
+package com.xml.processor.partition;
+
+import java.util.List;
+
+/**
+ * Tables kept as one live table plus detached monthly partitions.
+ * <p>
+ * The live table keeps its name, so JPA keeps writing to it unchanged. Once a month it is renamed
+ * to {@code <table>_p<yyyyMM>} and recreated empty from {@link #liveTableDdl()}; tables whose rows
+ * belong to the partitioned table (its companions) are detached alongside under the same suffix.
+ * The DDL here must follow the table's migrations.
+ */
+public enum PartitionedTable {
+
+    PROCESSED_FILES("processed_files", "processed_at", List.of("processed_file_payloads"), List.of(
+        """
+        CREATE TABLE {processed_files} (
+            id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH {next_id}) PRIMARY KEY,
+            file_name VARCHAR(255) NOT NULL,
+            status VARCHAR(20) NOT NULL,
+            error_message VARCHAR(1000),
+            interface_id BIGINT,
+            client_id BIGINT NOT NULL,
+            processed_data JSON,
+            processed_at TIMESTAMP,
+            created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+            updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+            raw_payload_hash VARCHAR(64),
+            FOREIGN KEY (interface_id) REFERENCES interfaces(id),
+            FOREIGN KEY (client_id) REFERENCES clients(id)
+        )""",
+        "CREATE INDEX idx_processed_files_file_name ON {processed_files}(file_name)",
+        "CREATE INDEX idx_processed_files_client_id ON {processed_files}(client_id)",
+        "CREATE INDEX idx_processed_files_created_at_id ON {processed_files}(created_at, id)",
+        "CREATE INDEX idx_processed_files_client_created_at_id ON {processed_files}(client_id, created_at, id)",
+        "CREATE INDEX idx_processed_files_status_created_at_id ON {processed_files}(status, created_at, id)",
+        "CREATE INDEX idx_processed_files_processed_at ON {processed_files}(processed_at)",
+        "CREATE INDEX idx_processed_files_raw_payload_hash ON {processed_files}(raw_payload_hash)",
+        """
+        CREATE TABLE {processed_file_payloads} (
+            processed_file_id BIGINT PRIMARY KEY,
+            codec VARCHAR(16) NOT NULL,
+            original_size INT NOT NULL,
+            payload BLOB NOT NULL,
+            FOREIGN KEY (processed_file_id) REFERENCES {processed_files}(id) ON DELETE CASCADE
+        )""")),
+
+    AUDIT_LOGS("audit_logs", "created_at", List.of(), List.of(
+        """
+        CREATE TABLE {audit_logs} (
+            id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH {next_id}) PRIMARY KEY,
+            action VARCHAR(255) NOT NULL,
+            username VARCHAR(255) NOT NULL,
+            client_id BIGINT,
+            details VARCHAR(255) NOT NULL,
+            ip_address VARCHAR(255),
+            user_agent VARCHAR(255),
+            request_method VARCHAR(255),
+            request_url VARCHAR(255),
+            request_params VARCHAR(255),
+            response_status INTEGER,
+            error_message VARCHAR(255),
+            created_at TIMESTAMP(6) NOT NULL,
+            execution_time BIGINT
+        )""",
+        "CREATE INDEX idx_audit_logs_created_at_id ON {audit_logs}(created_at, id)",
+        "CREATE INDEX idx_audit_logs_client_created_at_id ON {audit_logs}(client_id, created_at, id)",
+        "CREATE INDEX idx_audit_logs_username_created_at_id ON {audit_logs}(username, created_at, id)"));
+
+    private final String tableName;
+    private final String keyColumn;
+    private final List<String> companions;
+    private final List<String> liveTableDdl;
+
+    PartitionedTable(String tableName, String keyColumn, List<String> companions, List<String> liveTableDdl) {
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        this.companions = companions;
+        this.liveTableDdl = liveTableDdl;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Timestamp column the partitions are cut on and date filters apply to.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * Tables detached together with this one, referencing it.
+     */
+    public List<String> getCompanions() {
+        return companions;
+    }
+
+    /**
+     * Statements creating an empty live table and its companions, with {@code {<table name>}}
+     * placeholders for the physical table names and {@code {next_id}} for the first identity value.
+     */
+    public List<String> liveTableDdl() {
+        return liveTableDdl;
+    }
+
+    /**
+     * Name of the partition detached in the given month, {@code yyyyMM}.
+     */
+    public String partitionName(String month) {
+        return tableName + "_p" + month;
+    }
+}
@@ -0,0 +1,39 @@
+package com.xml.processor.partition;
+
+import java.time.LocalDateTime;
+
+/**
+ * A detached partition as recorded in {@code table_partitions}. Its rows no longer change, so the
+ * recorded ranges are exact and queries outside them skip the partition.
+ *
+ * @param rangeStart smallest key column value in the partition, null if all are null
+ * @param rangeEnd   largest key column value in the partition, null if all are null
+ */
+public record TablePartition(String tableName, String partitionName, LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                             Long minId, Long maxId, long rowCount, LocalDateTime detachedAt) {
+
+    /**
+     * Whether the partition can hold rows with a key in {@code [from, to]}; a null bound is open.
+     */
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        if (rangeStart == null) {
+            // Rows without a key never match a date filter
+            return false;
+        }
+        return (to == null || !rangeStart.isAfter(to)) && (from == null || !rangeEnd.isBefore(from));
+    }
+
+    public boolean mayContainId(long id) {
+        return minId != null && minId <= id && id <= maxId;
+    }
+
+    /**
+     * Physical name of a companion table detached together with this partition.
+     */
+    public String companionName(String companion) {
+        return companion + partitionName.substring(tableName.length());
+    }
+}
@@ -0,0 +1,89 @@
+package com.xml.processor.repository;
+
+import com.xml.processor.dto.AsnDocument;
+import com.xml.processor.dto.AsnDocumentFilter;
+import com.xml.processor.pagination.SqlFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads ASN headers with their lines in two statements per page, whatever the page size: one for
+ * the headers and one {@code IN} list query for the lines of all of them.
+ */
+@Repository
+public class AsnDocumentRepository {
+
+    private static final String HEADER_COLUMNS = "id, document_number, document_type, sender_id, receiver_id, "
+        + "document_date, document_time, status, notes, client_id, created_at, updated_at";
+    private static final String LINE_COLUMNS = "id, header_id, line_number, item_number, item_description, quantity, "
+        + "unit_of_measure, lot_number, serial_number, status, notes";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Documents matching the filter with an id greater than {@code afterId}, in id order.
+     *
+     * @param afterId the last id of the previous page, null for the first page
+     */
+    public List<AsnDocument> findPage(AsnDocumentFilter filter, Long afterId, int limit) {
+        SqlFilter sqlFilter = filter.toSqlFilter().greaterThan("id", afterId);
+        List<Object> args = new ArrayList<>(List.of(sqlFilter.toArgs()));
+        args.add(limit);
+        List<HeaderRow> headers = jdbcTemplate.query("SELECT " + HEADER_COLUMNS + " FROM asn_headers"
+                + sqlFilter.toWhereClause() + " ORDER BY id LIMIT ?",
+            (rs, rowNum) -> mapHeader(rs), args.toArray());
+        if (headers.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<AsnDocument.Line>> lines = new HashMap<>();
+        List<Long> headerIds = headers.stream().map(HeaderRow::id).toList();
+        SqlFilter lineFilter = new SqlFilter().in("header_id", headerIds);
+        jdbcTemplate.query("SELECT " + LINE_COLUMNS + " FROM asn_lines" + lineFilter.toWhereClause()
+                + " ORDER BY header_id, line_number, id",
+            rs -> {
+                lines.computeIfAbsent(rs.getLong("header_id"), id -> new ArrayList<>()).add(mapLine(rs));
+            }, lineFilter.toArgs());
+
+        List<AsnDocument> documents = new ArrayList<>(headers.size());
+        for (HeaderRow header : headers) {
+            documents.add(header.withLines(lines.getOrDefault(header.id(), List.of())));
+        }
+        return documents;
+    }
+
+    private record HeaderRow(Long id, String documentNumber, String documentType, String senderId, String receiverId,
+                             String documentDate, String documentTime, String status, String notes, Long clientId,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        AsnDocument withLines(List<AsnDocument.Line> lines) {
+            return new AsnDocument(id, documentNumber, documentType, senderId, receiverId, documentDate, documentTime,
+                status, notes, clientId, createdAt, updatedAt, lines);
+        }
+    }
+
+    private static HeaderRow mapHeader(ResultSet rs) throws SQLException {
+        return new HeaderRow(rs.getLong("id"), rs.getString("document_number"), rs.getString("document_type"),
+            rs.getString("sender_id"), rs.getString("receiver_id"), rs.getString("document_date"),
+            rs.getString("document_time"), rs.getString("status"), rs.getString("notes"),
+            rs.getObject("client_id", Long.class), rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+    }
+
+    private static AsnDocument.Line mapLine(ResultSet rs) throws SQLException {
+        return new AsnDocument.Line(rs.getLong("id"), rs.getObject("line_number", Integer.class),
+            rs.getString("item_number"), rs.getString("item_description"), rs.getObject("quantity", Integer.class),
+            rs.getString("unit_of_measure"), rs.getString("lot_number"), rs.getString("serial_number"),
+            rs.getString("status"), rs.getString("notes"));
+    }
+}
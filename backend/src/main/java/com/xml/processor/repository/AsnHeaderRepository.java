@@ -1,6 +1,7 @@
 package com.xml.processor.repository;
 
 import com.xml.processor.model.AsnHeader;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -14,11 +15,14 @@ public interface AsnHeaderRepository extends BaseRepository<AsnHeader> {
     @Query("SELECT h FROM AsnHeader h WHERE h.client.id = ?1 AND h.documentNumber = ?2")
     Optional<AsnHeader> findByDocumentNumberAndClientId(String documentNumber, Long clientId);
     
+    @EntityGraph(attributePaths = "client")
     List<AsnHeader> findByClient_IdAndStatus(Long clientId, String status);
     
+    @EntityGraph(attributePaths = "client")
     @Query("SELECT h FROM AsnHeader h WHERE h.client.id = ?1 AND h.documentDate BETWEEN ?2 AND ?3")
     List<AsnHeader> findByClient_IdAndShipmentDateBetween(Long clientId, LocalDate startDate, LocalDate endDate);
     
+    @EntityGraph(attributePaths = "client")
     @Query("SELECT h FROM AsnHeader h WHERE h.client.id = ?1 ORDER BY h.createdAt DESC")
     List<AsnHeader> findLatestHeaders(Long clientId);
 
@@ -28,10 +32,16 @@ public interface AsnHeaderRepository extends BaseRepository<AsnHeader> {
      * @param clientId The ID of the client
      * @return List of ASN headers belonging to the client
      */
+    @EntityGraph(attributePaths = "client")
     List<AsnHeader> findByClient_Id(Long clientId);
 
     /**
      * Find ASN headers by client ID and document date
      */
+    @EntityGraph(attributePaths = "client")
     List<AsnHeader> findByClient_IdAndDocumentDate(Long clientId, String documentDate);
-} 
\ No newline at end of file
+
+    @Override
+    @EntityGraph(attributePaths = "client")
+    List<AsnHeader> findAll();
+}
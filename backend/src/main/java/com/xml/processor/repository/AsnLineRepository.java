@@ -1,6 +1,7 @@
 package com.xml.processor.repository;
 
 import com.xml.processor.model.AsnLine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -15,19 +16,32 @@ public interface AsnLineRepository extends BaseRepository<AsnLine> {
      * @param clientId The ID of the client
      * @return List of ASN lines belonging to the client
      */
+    @EntityGraph("AsnLine.listing")
     List<AsnLine> findByClient_Id(Long clientId);
     
+    @EntityGraph("AsnLine.listing")
     @Query("SELECT l FROM AsnLine l WHERE l.client.id = ?1 AND l.header.id = ?2")
     List<AsnLine> findByClient_IdAndHeaderId(Long clientId, Long headerId);
     
+    @EntityGraph("AsnLine.listing")
     @Query("SELECT l FROM AsnLine l WHERE l.client.id = ?1 AND l.itemNumber = ?2")
     List<AsnLine> findByClient_IdAndItemNumber(Long clientId, String itemNumber);
     
+    @EntityGraph("AsnLine.listing")
     @Query("SELECT l FROM AsnLine l WHERE l.client.id = ?1 AND l.lotNumber = ?2")
     List<AsnLine> findByClient_IdAndLotNumber(Long clientId, String lotNumber);
     
+    @EntityGraph("AsnLine.listing")
     List<AsnLine> findByClient_IdAndStatus(Long clientId, String status);
     
+    @EntityGraph("AsnLine.listing")
     @Query("SELECT l FROM AsnLine l WHERE l.client.id = ?1 AND l.quantity > ?2")
     List<AsnLine> findByClient_IdAndQuantityGreaterThan(Long clientId, Integer quantity);
-} 
\ No newline at end of file
+
+    @EntityGraph("AsnLine.listing")
+    List<AsnLine> findByHeader_Id(Long headerId);
+
+    @Override
+    @EntityGraph("AsnLine.listing")
+    List<AsnLine> findAll();
+}
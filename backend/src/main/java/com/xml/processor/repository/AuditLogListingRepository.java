@@ -0,0 +1,87 @@
+package com.xml.processor.repository;
+
+import com.xml.processor.dto.AuditLogFilter;
+import com.xml.processor.model.AuditLog;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
+import com.xml.processor.pagination.KeysetSort;
+import com.xml.processor.pagination.ListingQuery;
+import com.xml.processor.pagination.SqlFilter;
+import com.xml.processor.pagination.TableStatistics;
+import com.xml.processor.partition.PartitionCatalog;
+import com.xml.processor.partition.PartitionedTable;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Audit log listings over the live table and the detached partitions their date filter reaches.
+ * New entries are written through {@link AuditLogRepository}.
+ */
+@Repository
+public class AuditLogListingRepository {
+
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", "id");
+        COLUMNS.put("action", "action");
+        COLUMNS.put("username", "username");
+        COLUMNS.put("clientId", "client_id");
+        COLUMNS.put("details", "details");
+        COLUMNS.put("ipAddress", "ip_address");
+        COLUMNS.put("userAgent", "user_agent");
+        COLUMNS.put("requestMethod", "request_method");
+        COLUMNS.put("requestUrl", "request_url");
+        COLUMNS.put("requestParams", "request_params");
+        COLUMNS.put("responseStatus", "response_status");
+        COLUMNS.put("errorMessage", "error_message");
+        COLUMNS.put("createdAt", "created_at");
+        COLUMNS.put("executionTime", "execution_time");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableStatistics tableStatistics;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    private ListingQuery<AuditLog> listing;
+
+    @PostConstruct
+    void init() {
+        listing = new ListingQuery<>(jdbcTemplate, tableStatistics, COLUMNS,
+            BeanPropertyRowMapper.newInstance(AuditLog.class), AuditLog::getId,
+            KeysetSort.of("createdAt", LocalDateTime.class, AuditLog::getCreatedAt),
+            KeysetSort.nullable("username", String.class, AuditLog::getUsername),
+            KeysetSort.of("action", String.class, AuditLog::getAction),
+            KeysetSort.of("id", Long.class, AuditLog::getId));
+    }
+
+    public CursorPage<AuditLog> scroll(AuditLogFilter filter, KeysetRequest request) {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        return listing.scroll(tables(sqlFilter), sqlFilter, request);
+    }
+
+    public Page<AuditLog> findAll(AuditLogFilter filter, Pageable pageable) {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        return listing.page(tables(sqlFilter), sqlFilter, pageable);
+    }
+
+    private List<String> tables(SqlFilter filter) {
+        String key = PartitionedTable.AUDIT_LOGS.getKeyColumn();
+        return partitionCatalog.tablesFor(PartitionedTable.AUDIT_LOGS, filter.from(key), filter.to(key));
+    }
+}
@@ -1,20 +1,13 @@
 package com.xml.processor.repository;
 
 import com.xml.processor.model.AuditLog;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-
+/**
+ * Writes audit log entries to the live table; listings go through {@link AuditLogListingRepository}
+ * so that they also reach the detached monthly partitions.
+ */
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
-    Page<AuditLog> findByUsername(String username, Pageable pageable);
-    Page<AuditLog> findByClientId(Long clientId, Pageable pageable);
-    Page<AuditLog> findByAction(String action, Pageable pageable);
-    Page<AuditLog> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
-    Page<AuditLog> findByUsernameAndCreatedAtBetween(String username, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
-    Page<AuditLog> findByClientIdAndCreatedAtBetween(Long clientId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
-    Page<AuditLog> findByResponseStatus(Integer status, Pageable pageable);
-} 
\ No newline at end of file
+}
@@ -2,9 +2,12 @@ package com.xml.processor.repository;
     
 import com.xml.processor.model.Interface;
 import com.xml.processor.model.Client;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
     
 import java.util.List;
@@ -14,6 +17,7 @@ import java.util.Optional;
 public interface InterfaceRepository extends JpaRepository<Interface, Long> {
     List<Interface> findByClient_IdAndType(Long clientId, String type);
     Optional<Interface> findByClient_IdAndName(Long clientId, String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Interface> findByClient_IdAndIsActiveTrue(Long clientId);
     List<Interface> findByClient(Client client);
     List<Interface> findByClientId(Long clientId);
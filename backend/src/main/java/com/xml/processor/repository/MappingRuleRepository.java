@@ -1,10 +1,14 @@
 package com.xml.processor.repository;
 
 import com.xml.processor.model.MappingRule;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,6 +20,8 @@ public interface MappingRuleRepository extends JpaRepository<MappingRule, Long>
     @Query("SELECT m FROM MappingRule m WHERE m.client.id = ?1 AND m.name = ?2")
     Optional<MappingRule> findByClient_IdAndName(Long clientId, String name);
     
+    @EntityGraph("MappingRule.listing")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<MappingRule> findByClient_IdAndIsActive(Long clientId, Boolean isActive);
     
     @Query("SELECT m FROM MappingRule m WHERE m.client.id = ?1 AND m.sourceField = ?2")
@@ -42,18 +48,34 @@ public interface MappingRuleRepository extends JpaRepository<MappingRule, Long>
      * @param clientId The ID of the client
      * @return List of mapping rules belonging to the client
      */
+    @EntityGraph("MappingRule.listing")
     List<MappingRule> findByClient_Id(Long clientId);
 
     /**
      * Find mapping rules by client ID and interface ID
      */
+    @EntityGraph("MappingRule.listing")
     List<MappingRule> findByClient_IdAndInterfaceEntity_Id(Long clientId, Long interfaceId);
 
+    @EntityGraph("MappingRule.listing")
     List<MappingRule> findByInterfaceId(Long interfaceId);
+    @EntityGraph("MappingRule.listing")
     Page<MappingRule> findByInterfaceId(Long interfaceId, Pageable pageable);
+    @EntityGraph("MappingRule.listing")
     Page<MappingRule> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    @EntityGraph("MappingRule.listing")
     Page<MappingRule> findByIsActive(boolean isActive, Pageable pageable);
+    @EntityGraph("MappingRule.listing")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<MappingRule> findByInterfaceIdAndIsActiveTrue(Long interfaceId);
     boolean existsByNameAndInterfaceId(String name, Long interfaceId);
     boolean existsByNameAndInterfaceIdAndIdNot(String name, Long interfaceId, Long id);
-} 
\ No newline at end of file
+
+    @Override
+    @EntityGraph("MappingRule.listing")
+    List<MappingRule> findAll();
+
+    @Override
+    @EntityGraph("MappingRule.listing")
+    Page<MappingRule> findAll(Pageable pageable);
+}
@@ -0,0 +1,170 @@
+package com.xml.processor.repository;
+
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
+import com.xml.processor.pagination.KeysetSort;
+import com.xml.processor.pagination.ListingQuery;
+import com.xml.processor.pagination.SqlFilter;
+import com.xml.processor.pagination.TableStatistics;
+import com.xml.processor.partition.PartitionCatalog;
+import com.xml.processor.partition.PartitionedTable;
+import com.xml.processor.partition.TablePartition;
+import com.xml.processor.service.payload.ProcessedDataCodec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Processed file listings over the live table and the detached partitions their date filter
+ * reaches. Writes and reads of live rows stay on {@link ProcessedFileRepository}; detached
+ * partitions are read-only.
+ */
+@Repository
+public class ProcessedFileListingRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedFileListingRepository.class);
+
+    private static final Map<String, String> SUMMARY_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SUMMARY_COLUMNS.put("id", "id");
+        SUMMARY_COLUMNS.put("fileName", "file_name");
+        SUMMARY_COLUMNS.put("status", "status");
+        SUMMARY_COLUMNS.put("clientId", "client_id");
+        SUMMARY_COLUMNS.put("interfaceId", "interface_id");
+        SUMMARY_COLUMNS.put("processedAt", "processed_at");
+        SUMMARY_COLUMNS.put("errorMessage", "error_message");
+        SUMMARY_COLUMNS.put("createdAt", "created_at");
+        SUMMARY_COLUMNS.put("updatedAt", "updated_at");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableStatistics tableStatistics;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    private ListingQuery<ProcessedFileSummary> listing;
+
+    @PostConstruct
+    void init() {
+        listing = new ListingQuery<>(jdbcTemplate, tableStatistics, SUMMARY_COLUMNS,
+            (rs, rowNum) -> mapSummary(rs), ProcessedFileSummary::id,
+            KeysetSort.of("createdAt", LocalDateTime.class, ProcessedFileSummary::createdAt),
+            KeysetSort.of("fileName", String.class, ProcessedFileSummary::fileName),
+            KeysetSort.of("status", String.class, ProcessedFileSummary::status),
+            KeysetSort.nullable("processedAt", LocalDateTime.class, ProcessedFileSummary::processedAt),
+            KeysetSort.of("id", Long.class, ProcessedFileSummary::id));
+    }
+
+    public CursorPage<ProcessedFileSummary> scroll(ProcessedFileFilter filter, KeysetRequest request) {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        return listing.scroll(tables(sqlFilter), sqlFilter, request);
+    }
+
+    public Page<ProcessedFileSummary> findSummaries(ProcessedFileFilter filter, Pageable pageable) {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        return listing.page(tables(sqlFilter), sqlFilter, pageable);
+    }
+
+    public List<ProcessedFileSummary> findSummaries(ProcessedFileFilter filter, Sort sort) {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        return listing.list(tables(sqlFilter), sqlFilter, sort);
+    }
+
+    /**
+     * Finds a processed file in the detached partitions, together with its processed data.
+     *
+     * @param clientId restricts the lookup to the client, null for any client
+     */
+    public Optional<ProcessedFile> findDetachedById(Long id, Long clientId) {
+        for (TablePartition partition : partitionCatalog.partitionsForId(PartitionedTable.PROCESSED_FILES, id)) {
+            String sql = "SELECT id, file_name, status, error_message, interface_id, client_id, processed_data, "
+                + "raw_payload_hash, processed_at, created_at, updated_at FROM " + partition.partitionName() + " WHERE id = ?";
+            Object[] args = clientId != null ? new Object[] {id, clientId} : new Object[] {id};
+            List<ProcessedFile> files = jdbcTemplate.query(clientId != null ? sql + " AND client_id = ?" : sql,
+                (rs, rowNum) -> mapDetached(rs, partition), args);
+            if (!files.isEmpty()) {
+                return Optional.of(files.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private List<String> tables(SqlFilter filter) {
+        String key = PartitionedTable.PROCESSED_FILES.getKeyColumn();
+        return partitionCatalog.tablesFor(PartitionedTable.PROCESSED_FILES, filter.from(key), filter.to(key));
+    }
+
+    private ProcessedFile mapDetached(ResultSet rs, TablePartition partition) throws SQLException {
+        ProcessedFile file = new ProcessedFile();
+        file.setId(rs.getLong("id"));
+        file.setFileName(rs.getString("file_name"));
+        file.setStatus(rs.getString("status"));
+        file.setErrorMessage(rs.getString("error_message"));
+        file.setRawPayloadHash(rs.getString("raw_payload_hash"));
+        file.setProcessedAt(rs.getObject("processed_at", LocalDateTime.class));
+        file.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        file.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        Long interfaceId = rs.getObject("interface_id", Long.class);
+        if (interfaceId != null) {
+            Interface interfaceEntity = new Interface();
+            interfaceEntity.setId(interfaceId);
+            file.setInterfaceEntity(interfaceEntity);
+        }
+        Client client = new Client();
+        client.setId(rs.getLong("client_id"));
+        file.setClient(client);
+        file.setProcessedData(readProcessedData(file.getId(), rs.getString("processed_data"), partition));
+        return file;
+    }
+
+    private Map<String, Object> readProcessedData(Long id, String inlineJson, TablePartition partition) {
+        List<Map<String, Object>> payloads = jdbcTemplate.query("SELECT codec, original_size, payload FROM "
+                + partition.companionName("processed_file_payloads") + " WHERE processed_file_id = ?",
+            (rs, rowNum) -> ProcessedDataCodec.decode(rs.getString(1), rs.getInt(2), rs.getBytes(3)), id);
+        if (!payloads.isEmpty()) {
+            return payloads.get(0);
+        }
+        if (inlineJson == null) {
+            return null;
+        }
+        // Detached before the inline column was migrated
+        try {
+            return ProcessedDataCodec.decodeJson(inlineJson);
+        } catch (IOException e) {
+            logger.warn("Unreadable processed data of file {} in {}: {}", id, partition.partitionName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static ProcessedFileSummary mapSummary(ResultSet rs) throws SQLException {
+        return new ProcessedFileSummary(rs.getLong("id"), rs.getString("file_name"), rs.getString("status"),
+            rs.getObject("client_id", Long.class), rs.getObject("interface_id", Long.class),
+            rs.getObject("processed_at", LocalDateTime.class), rs.getString("error_message"),
+            rs.getObject("created_at", LocalDateTime.class), rs.getObject("updated_at", LocalDateTime.class));
+    }
+}
@@ -0,0 +1,9 @@
+package com.xml.processor.repository;
+
+import com.xml.processor.model.ProcessedFilePayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProcessedFilePayloadRepository extends JpaRepository<ProcessedFilePayload, Long> {
+}
@@ -3,12 +3,14 @@ package com.xml.processor.repository;
 import com.xml.processor.model.ProcessedFile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProcessedFileRepository extends JpaRepository<ProcessedFile, Long> {
@@ -18,27 +20,33 @@ public interface ProcessedFileRepository extends JpaRepository<ProcessedFile, Lo
      * @param clientId The ID of the client
      * @return List of processed files belonging to the client
      */
+    @EntityGraph("ProcessedFile.listing")
     List<ProcessedFile> findByClient_Id(Long clientId);
 
     /**
      * Find processed files by client ID and interface ID
      */
+    @EntityGraph("ProcessedFile.listing")
     @Query("SELECT p FROM ProcessedFile p WHERE p.client.id = ?1 AND p.interfaceEntity.id = ?2")
     List<ProcessedFile> findByClient_IdAndInterfaceEntity_Id(Long clientId, Long interfaceId);
 
     /**
      * Find processed files by client ID and status
      */
+    @EntityGraph("ProcessedFile.listing")
     @Query("SELECT p FROM ProcessedFile p WHERE p.client.id = ?1 AND p.status = ?2")
     List<ProcessedFile> findByClient_IdAndStatus(Long clientId, String status);
 
     /**
      * Find processed files by client ID and filename
      */
+    @EntityGraph("ProcessedFile.listing")
     List<ProcessedFile> findByClient_IdAndFileName(Long clientId, String fileName);
 
+    @EntityGraph("ProcessedFile.listing")
     List<ProcessedFile> findByStatus(String status);
 
+    @EntityGraph("ProcessedFile.listing")
     List<ProcessedFile> findByClientId(Long clientId);
     Page<ProcessedFile> findByClientId(Long clientId, Pageable pageable);
     Page<ProcessedFile> findByFileNameContainingIgnoreCase(String fileName, Pageable pageable);
@@ -46,4 +54,10 @@ public interface ProcessedFileRepository extends JpaRepository<ProcessedFile, Lo
     Page<ProcessedFile> findByProcessedDateBetween(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
     Page<ProcessedFile> findByClientIdAndStatus(Long clientId, String status, Pageable pageable);
     Page<ProcessedFile> findByClientIdAndProcessedDateBetween(Long clientId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
-} 
\ No newline at end of file
+
+    Optional<ProcessedFile> findByIdAndClient_Id(Long id, Long clientId);
+
+    @Override
+    @EntityGraph("ProcessedFile.listing")
+    List<ProcessedFile> findAll();
+}
@@ -1,6 +1,9 @@
 package com.xml.processor.service;
 
+import com.xml.processor.dto.AuditLogFilter;
 import com.xml.processor.model.AuditLog;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -25,5 +28,7 @@ public interface AuditLogService {
     
     Page<AuditLog> getAuditLogsByResponseStatus(Integer status, Pageable pageable);
     
+    CursorPage<AuditLog> scrollAuditLogs(AuditLogFilter filter, KeysetRequest request);
+    
     void deleteAuditLogsOlderThan(LocalDateTime date);
 } 
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.xml.processor.model.Client;
 import com.xml.processor.model.MappingRule;
 import com.xml.processor.repository.ClientRepository;
 import com.xml.processor.repository.MappingRuleRepository;
+import com.xml.processor.service.bulk.BulkJdbcWriter;
 import com.xml.processor.service.interfaces.ClientService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,11 +20,14 @@ public class ClientOnboardingService {
     private final ClientService clientService;
     private final ClientRepository clientRepository;
     private final MappingRuleRepository mappingRuleRepository;
+    private final BulkJdbcWriter bulkJdbcWriter;
 
-    public ClientOnboardingService(ClientService clientService, ClientRepository clientRepository, MappingRuleRepository mappingRuleRepository) {
+    public ClientOnboardingService(ClientService clientService, ClientRepository clientRepository, MappingRuleRepository mappingRuleRepository,
+                                   BulkJdbcWriter bulkJdbcWriter) {
         this.clientService = clientService;
         this.clientRepository = clientRepository;
         this.mappingRuleRepository = mappingRuleRepository;
+        this.bulkJdbcWriter = bulkJdbcWriter;
     }
 
     @Transactional
@@ -74,6 +78,9 @@ public class ClientOnboardingService {
     public Client onboardNewClient(Client client, List<MappingRule> defaultMappingRules) {
         // Validate client data
         validateClientData(client);
+        if (defaultMappingRules != null) {
+            defaultMappingRules.forEach(bulkJdbcWriter::checkTarget);
+        }
 
         // Create the client
         Client newClient = clientService.saveClient(client);
@@ -0,0 +1,78 @@
+package com.xml.processor.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports on and clears Hibernate's second-level and query cache. Writes through JPA keep the
+ * cache consistent on their own; {@link #evictAll()} is for rows changed outside the application.
+ */
+@Service
+public class EntityCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCacheService.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = sessionFactory().getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted().forEach(name -> {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.put(name, Map.of(
+                    "hits", region.getHitCount(),
+                    "misses", region.getMissCount(),
+                    "puts", region.getPutCount(),
+                    "entries", region.getElementCountInMemory()));
+            }
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("entityHitRatio", ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        result.put("queryHitRatio", ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()));
+        result.put("secondLevel", Map.of(
+            "hits", statistics.getSecondLevelCacheHitCount(),
+            "misses", statistics.getSecondLevelCacheMissCount(),
+            "puts", statistics.getSecondLevelCachePutCount()));
+        result.put("queries", Map.of(
+            "hits", statistics.getQueryCacheHitCount(),
+            "misses", statistics.getQueryCacheMissCount(),
+            "puts", statistics.getQueryCachePutCount()));
+        result.put("regions", regions);
+        result.put("since", statistics.getStartTime());
+        return result;
+    }
+
+    public void evictAll() {
+        SessionFactory sessionFactory = sessionFactory();
+        sessionFactory.getCache().evictAllRegions();
+        logger.info("Evicted all second-level and query cache regions");
+    }
+
+    public void resetStatistics() {
+        sessionFactory().getStatistics().clear();
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
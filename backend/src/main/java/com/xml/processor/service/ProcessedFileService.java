@@ -1,6 +1,10 @@
 package com.xml.processor.service;
 
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
@@ -55,12 +59,22 @@ public interface ProcessedFileService {
     @CacheEvict(value = "processedFiles", key = "#id")
     void deleteProcessedFile(Long id);
 
-    Page<ProcessedFile> getProcessedFiles(int page, int size, String sortBy, String direction, 
+    // List views return summaries, the processed data payload is only loaded by getProcessedFileById
+    Page<ProcessedFileSummary> getProcessedFiles(int page, int size, String sortBy, String direction, 
             String fileNameFilter, String statusFilter, LocalDateTime startDate, LocalDateTime endDate);
-    Page<ProcessedFile> getProcessedFilesByClient(Long clientId, int page, int size, String sortBy, String direction);
-    Page<ProcessedFile> getProcessedFilesByClientAndStatus(Long clientId, String status, 
+    Page<ProcessedFileSummary> getProcessedFilesByClient(Long clientId, int page, int size, String sortBy, String direction);
+    Page<ProcessedFileSummary> searchProcessedFiles(String fileName, int page, int size, String sortBy, String direction);
+    Page<ProcessedFileSummary> getProcessedFilesByStatus(String status, int page, int size, String sortBy, String direction);
+    Page<ProcessedFileSummary> getProcessedFilesByDateRange(LocalDateTime startDate, LocalDateTime endDate, 
             int page, int size, String sortBy, String direction);
-    Page<ProcessedFile> getProcessedFilesByClientAndDateRange(Long clientId, LocalDateTime startDate, 
+    Page<ProcessedFileSummary> getProcessedFilesByClientAndStatus(Long clientId, String status, 
+            int page, int size, String sortBy, String direction);
+    Page<ProcessedFileSummary> getProcessedFilesByClientAndDateRange(Long clientId, LocalDateTime startDate, 
             LocalDateTime endDate, int page, int size, String sortBy, String direction);
     List<ProcessedFile> getProcessedFilesByStatus(String status);
+
+    /**
+     * Keyset-paged listing, for deep pages and large tables where offset paging and COUNT(*) get slow.
+     */
+    CursorPage<ProcessedFileSummary> scrollProcessedFiles(ProcessedFileFilter filter, KeysetRequest request);
 } 
\ No newline at end of file
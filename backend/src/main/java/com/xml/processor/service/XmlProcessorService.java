@@ -1,38 +1,62 @@
 package com.xml.processor.service;
 
+import com.xml.processor.annotation.ConnectionPool;
 import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.config.ConnectionPoolMetrics;
+import com.xml.processor.config.Workload;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
+import com.xml.processor.exception.ResourceNotFoundException;
+import com.xml.processor.exception.ValidationException;
 import com.xml.processor.model.Interface;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileListingRepository;
 import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.bulk.AsnUpsertWriter;
+import com.xml.processor.service.bulk.BulkJdbcWriter;
+import com.xml.processor.service.bulk.MappedRecord;
+import com.xml.processor.service.bulk.ProcessedFileStatusBuffer;
+import com.xml.processor.service.detection.XmlDocumentSignature;
+import com.xml.processor.service.detection.XmlPrefixSniffer;
 import com.xml.processor.service.interfaces.InterfaceService;
+import com.xml.processor.service.payload.ProcessedDataStore;
+import com.xml.processor.service.payload.RawPayloadStore;
 import com.xml.processor.service.strategy.DocumentProcessingStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.w3c.dom.Document;
-import org.w3c.dom.DocumentType;
-import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+@ConnectionPool(Workload.INGEST)
 @Service
 public class XmlProcessorService {
     
     private static final Logger log = LoggerFactory.getLogger(XmlProcessorService.class);
     
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Key of the row counts per table in the processed data of a bulk written file.
+     */
+    private static final String ROWS_WRITTEN = "rowsWritten";
+    
     @Autowired
     private DocumentProcessingStrategyService strategyService;
     
@@ -41,104 +65,275 @@ public class XmlProcessorService {
     
     @Autowired
     private ProcessedFileRepository processedFileRepository;
+    
+    @Autowired
+    private ProcessedFileListingRepository processedFileListingRepository;
+    
+    @Autowired
+    private XmlPrefixSniffer xmlPrefixSniffer;
+    
+    @Autowired
+    private BulkJdbcWriter bulkJdbcWriter;
+    
+    @Autowired
+    private AsnUpsertWriter asnUpsertWriter;
+    
+    @Autowired
+    private ProcessedFileStatusBuffer processedFileStatusBuffer;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+    
+    @Autowired
+    private ProcessedDataStore processedDataStore;
+    
+    @Autowired
+    private RawPayloadStore rawPayloadStore;
+    
+    @Value("${app.bulk-writer.enabled:false}")
+    private boolean bulkWriterEnabled;
 
-    @Transactional
+    /**
+     * Stores, detects, parses and maps the file without a transaction; only saving the result and
+     * its rows borrows a connection, so a large file does not hold one for the length of its parse.
+     * The time connections were held is reported on the returned file.
+     */
     public ProcessedFile processXmlFile(MultipartFile file, Long interfaceId) {
-        try {
-            // Parse XML document
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(file.getInputStream());
-
-            log.info("Processing XML file: {}", file.getOriginalFilename());
-
-            // Get client ID from context
-            Long clientId = ClientContextHolder.getClientId();
-            if (clientId == null) {
-                throw new RuntimeException("Client context not available");
+        ProcessedFile processedFile = new ProcessedFile();
+        processedFile.setFileName(file.getOriginalFilename());
+        try (ConnectionPoolMetrics.ThreadUsage usage = connectionPoolMetrics.trackThreadUsage()) {
+            ProcessedFile result;
+            try {
+                // Keep the original first, so a file that fails to process can be reprocessed later
+                try (InputStream raw = file.getInputStream()) {
+                    processedFile.setRawPayloadHash(rawPayloadStore.store(raw));
+                }
+                try (BufferedInputStream input = new BufferedInputStream(file.getInputStream(), INPUT_BUFFER_SIZE)) {
+                    log.info("Processing XML file: {}", file.getOriginalFilename());
+                    result = process(processedFile, input);
+                }
+            } catch (Exception e) {
+                log.error("Error processing XML file: " + file.getOriginalFilename(), e);
+                // An id assigned by a failed save was rolled back with it, the error record is new
+                processedFile.setId(null);
+                result = saveProcessingStatus(processedFile, e.getMessage());
             }
-            
-            // Detect interface
-            String xmlContent = convertDocumentToString(document);
-            Interface detectedInterface = interfaceService.detectInterface(xmlContent, clientId);
-            
-            if (detectedInterface == null) {
-                throw new RuntimeException("Could not detect interface for XML document");
+            return withConnectionHoldTime(result, usage);
+        }
+    }
+
+    /**
+     * Processes a file again from its stored original, replacing its status and processed data.
+     * A file in a detached partition is read-only, so its original is processed as a new file and
+     * the detached one stays as it was. Like an upload, only saving the result runs in a transaction.
+     * <p>
+     * ASN headers and lines are upserted by document number, but rows the bulk writer inserted
+     * into other tables cannot be told apart from those of other files. A file that wrote such
+     * rows is therefore refused instead of inserting them a second time.
+     */
+    public ProcessedFile reprocessFile(Long fileId) {
+        try (ConnectionPoolMetrics.ThreadUsage usage = connectionPoolMetrics.trackThreadUsage()) {
+            ProcessedFile stored = getFileWithRawPayload(fileId);
+            boolean detached = !processedFileRepository.existsById(fileId);
+            requireNoBulkRows(detached ? stored : processedDataStore.load(stored));
+            ProcessedFile processedFile;
+            if (detached) {
+                processedFile = new ProcessedFile();
+                processedFile.setFileName(stored.getFileName());
+                processedFile.setRawPayloadHash(stored.getRawPayloadHash());
+                processedFile.setClient(stored.getClient());
+            } else {
+                processedFile = processedFileStatusBuffer.record(stored, "PROCESSING", null);
             }
-            
-            log.info("Detected interface: {}", detectedInterface.getName());
-            
-            // Get appropriate processing strategy
-            DocumentProcessingStrategy strategy = strategyService.getStrategy(detectedInterface);
-            
-            if (strategy == null) {
-                throw new RuntimeException("No processing strategy available for interface type: " 
-                    + detectedInterface.getType());
+            Long previousClientId = ClientContextHolder.getClientId();
+            ClientContextHolder.setClientId(processedFile.getClientId());
+            ProcessedFile result;
+            try (BufferedInputStream input = new BufferedInputStream(
+                    rawPayloadStore.open(processedFile.getRawPayloadHash()), INPUT_BUFFER_SIZE)) {
+                log.info("Reprocessing XML file {}: {}", fileId, processedFile.getFileName());
+                result = process(processedFile, input);
+            } catch (ResourceNotFoundException e) {
+                processedFileStatusBuffer.discard(fileId);
+                throw new ValidationException("The original of processed file " + fileId + " is past its retention");
+            } catch (Exception e) {
+                log.error("Error reprocessing XML file: " + processedFile.getFileName(), e);
+                if (detached) {
+                    processedFile.setId(null);
+                }
+                result = saveProcessingStatus(processedFile, e.getMessage());
+            } finally {
+                ClientContextHolder.setClientId(previousClientId);
             }
-            
-            // Process document using the selected strategy
-            Map<String, Object> processedData = strategy.processDocument(document, detectedInterface, clientId);
-            
-            // Create processed file record
-            ProcessedFile processedFile = new ProcessedFile();
-            processedFile.setFileName(file.getOriginalFilename());
-            processedFile.setStatus("SUCCESS");
-            processedFile.setInterfaceEntity(detectedInterface);
-            processedFile.setProcessedData(processedData);
-            
-            return processedFileRepository.save(processedFile);
-            
-        } catch (Exception e) {
-            log.error("Error processing XML file: " + file.getOriginalFilename(), e);
-            return saveProcessingStatus(file.getOriginalFilename(), false, e.getMessage());
+            return withConnectionHoldTime(result, usage);
         }
     }
 
-    private String convertDocumentToString(Document document) {
-        try {
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer transformer = tf.newTransformer();
-            StringWriter writer = new StringWriter();
-            transformer.transform(new DOMSource(document), new StreamResult(writer));
-            return writer.getBuffer().toString();
-        } catch (Exception e) {
-            log.error("Error converting document to string: {}", e.getMessage(), e);
-            return null;
+    /**
+     * Returns the processed file if its original is in the raw payload store, looking in the
+     * detached partitions when the file is no longer in the live table.
+     */
+    @Transactional(readOnly = true)
+    @ConnectionPool(Workload.QUERY)
+    public ProcessedFile getFileWithRawPayload(Long fileId) {
+        processedFileStatusBuffer.flushIfPending(fileId);
+        Long clientId = ClientContextHolder.getClientId();
+        ProcessedFile processedFile = (clientId != null
+                ? processedFileRepository.findByIdAndClient_Id(fileId, clientId)
+                : processedFileRepository.findById(fileId))
+            .or(() -> processedFileListingRepository.findDetachedById(fileId, clientId))
+            .orElseThrow(() -> new ResourceNotFoundException("Processed file", "id", fileId));
+        if (processedFile.getRawPayloadHash() == null) {
+            throw new ValidationException("The original of processed file " + fileId + " was not kept");
         }
+        return processedFile;
     }
 
-    private ProcessedFile saveProcessingStatus(String fileName, boolean success, String errorMessage) {
-        ProcessedFile processedFile = new ProcessedFile();
-        processedFile.setFileName(fileName);
-        processedFile.setStatus(success ? "SUCCESS" : "ERROR");
-        processedFile.setErrorMessage(errorMessage);
-        return processedFileRepository.save(processedFile);
+    private static void requireNoBulkRows(ProcessedFile processedFile) {
+        Object rowsWritten = processedFile.getProcessedData() != null ? processedFile.getProcessedData().get(ROWS_WRITTEN) : null;
+        if (!(rowsWritten instanceof Map<?, ?> rows)) {
+            return;
+        }
+        List<String> tables = rows.entrySet().stream()
+            .filter(entry -> !AsnUpsertWriter.HEADER_TABLE.equalsIgnoreCase(String.valueOf(entry.getKey()))
+                && !AsnUpsertWriter.LINE_TABLE.equalsIgnoreCase(String.valueOf(entry.getKey())))
+            .filter(entry -> entry.getValue() instanceof Number count && count.intValue() > 0)
+            .map(entry -> String.valueOf(entry.getKey()))
+            .toList();
+        if (!tables.isEmpty()) {
+            throw new ValidationException("Processed file " + processedFile.getId()
+                + " inserted rows into " + tables + ", reprocessing it would insert them again");
+        }
+    }
+
+    private ProcessedFile process(ProcessedFile processedFile, BufferedInputStream input) throws Exception {
+        // Get client ID from context
+        Long clientId = ClientContextHolder.getClientId();
+        if (clientId == null) {
+            throw new RuntimeException("Client context not available");
+        }
+        
+        // Detect interface from the start of the stream, before the document is parsed
+        XmlDocumentSignature signature = xmlPrefixSniffer.sniff(input, interfaceService.getDetectionFields(clientId));
+        Interface detectedInterface = interfaceService.detectInterface(signature, clientId);
+        
+        if (detectedInterface == null) {
+            throw new RuntimeException("Could not detect interface for XML document");
+        }
+        
+        log.info("Detected interface: {} after reading {} bytes", detectedInterface.getName(), signature.bytesRead());
+        
+        // Get appropriate processing strategy
+        DocumentProcessingStrategy strategy = strategyService.getStrategy(detectedInterface);
+        
+        if (strategy == null) {
+            throw new RuntimeException("No processing strategy available for interface type: " 
+                + detectedInterface.getType());
+        }
+        
+        // Parse the full document from the rewound stream
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(input);
+        
+        // Map the document before any connection is borrowed; only the writes run in a transaction
+        if (bulkWriterEnabled) {
+            List<MappedRecord> records = strategy.mapRecords(document, detectedInterface, clientId).toList();
+            return saveRecords(processedFile, detectedInterface, records, clientId);
+        }
+        Map<String, Object> processedData = strategy.processDocument(document, detectedInterface, clientId);
+        return new TransactionTemplate(transactionManager).execute(status ->
+            saveProcessedFile(processedFile, detectedInterface, processedData));
+    }
+
+    /**
+     * Writes mapped rows with the bulk writer, except ASN headers and lines: those are upserted by
+     * document number so a revised ASN only writes the lines that changed, and the line delta is
+     * kept with the row counts. The upsert commits on its own first, so a concurrent first insert of
+     * the same ASN can be retried; the other rows are written in one transaction with the file.
+     */
+    private ProcessedFile saveRecords(ProcessedFile processedFile, Interface detectedInterface,
+                                      List<MappedRecord> records, Long clientId) {
+        Map<Boolean, List<MappedRecord>> byAsn = records.stream().collect(Collectors.partitioningBy(record ->
+            AsnUpsertWriter.HEADER_TABLE.equalsIgnoreCase(record.tableName())
+                || AsnUpsertWriter.LINE_TABLE.equalsIgnoreCase(record.tableName())));
+        AsnUpsertWriter.Result asnResult = byAsn.get(true).isEmpty() ? null
+            : asnUpsertWriter.upsert(clientId, AsnUpsertWriter.toDocuments(byAsn.get(true)));
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Map<String, Integer> rowsWritten = new LinkedHashMap<>(
+                bulkJdbcWriter.write(byAsn.get(false).stream(), clientId));
+            // The processed file only keeps the row counts
+            Map<String, Object> processedData = new LinkedHashMap<>();
+            processedData.put(ROWS_WRITTEN, rowsWritten);
+            if (asnResult != null) {
+                rowsWritten.merge(AsnUpsertWriter.HEADER_TABLE, asnResult.headerIds().size(), Integer::sum);
+                rowsWritten.merge(AsnUpsertWriter.LINE_TABLE, asnResult.lines().written(), Integer::sum);
+                processedData.put("asnDelta", asnResult.lines());
+            }
+            log.info("Bulk wrote {} for file {}", processedData, processedFile.getFileName());
+            return saveProcessedFile(processedFile, detectedInterface, processedData);
+        });
+    }
+
+    private ProcessedFile saveProcessedFile(ProcessedFile processedFile, Interface detectedInterface,
+                                            Map<String, Object> processedData) {
+        boolean created = processedFile.getId() == null;
+        // The result replaces any status still waiting in the buffer
+        processedFileStatusBuffer.discard(processedFile.getId());
+        processedFile.setStatus("SUCCESS");
+        processedFile.setErrorMessage(null);
+        processedFile.setInterfaceEntity(detectedInterface);
+        ProcessedFile saved = processedFileRepository.save(processedFile);
+        if (created) {
+            processedDataStore.create(saved, processedData);
+        } else {
+            processedDataStore.update(saved, processedData);
+        }
+        return saved;
+    }
+
+    private ProcessedFile withConnectionHoldTime(ProcessedFile processedFile, ConnectionPoolMetrics.ThreadUsage usage) {
+        processedFile.setConnectionHoldMs(usage.getHeldMillis());
+        log.info("Processing {} held {} connections for {} ms", processedFile.getFileName(),
+            usage.getConnections(), usage.getHeldMillis());
+        return processedFile;
+    }
+
+    /**
+     * Records the error through the status buffer; the returned file already carries its id.
+     */
+    private ProcessedFile saveProcessingStatus(ProcessedFile processedFile, String errorMessage) {
+        return processedFileStatusBuffer.record(processedFile, "ERROR", errorMessage);
     }
 
     /**
      * Get all processed files
      * @return List of processed files
      */
-    public List<ProcessedFile> getProcessedFiles() {
-        return processedFileRepository.findByStatus("PROCESSED");
+    @Transactional(readOnly = true)
+    @ConnectionPool(Workload.QUERY)
+    public List<ProcessedFileSummary> getProcessedFiles() {
+        return processedFileListingRepository.findSummaries(
+            new ProcessedFileFilter(null, null, "PROCESSED", null, null, null), Sort.unsorted());
     }
 
     /**
      * Get all error files
      * @return List of error files
      */
-    public List<ProcessedFile> getErrorFiles() {
-        return processedFileRepository.findByStatus("ERROR");
+    @Transactional(readOnly = true)
+    @ConnectionPool(Workload.QUERY)
+    public List<ProcessedFileSummary> getErrorFiles() {
+        return processedFileListingRepository.findSummaries(
+            new ProcessedFileFilter(null, null, "ERROR", null, null, null), Sort.unsorted());
     }
 
     public CompletableFuture<ProcessedFile> processXmlFileAsync(MultipartFile file, Long interfaceId) {
         // Implementation of processXmlFileAsync method
         throw new UnsupportedOperationException("Method not implemented");
     }
-
-    public void reprocessFile(Long fileId) {
-        // Implementation of reprocessFile method
-        throw new UnsupportedOperationException("Method not implemented");
-    }
 } 
\ No newline at end of file
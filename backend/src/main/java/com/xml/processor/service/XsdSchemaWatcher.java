@@ -0,0 +1,134 @@
+package com.xml.processor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Watches the schema directory (including the per-client override folders) and evicts
+ * cached XSD structures from {@link XsdService} whenever a schema file changes.
+ */
+@Component
+public class XsdSchemaWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(XsdSchemaWatcher.class);
+
+    @Autowired
+    private XsdService xsdService;
+
+    @Value("${app.xsd.watch.enabled:true}")
+    private boolean watchEnabled;
+
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() {
+        if (!watchEnabled) {
+            logger.info("XSD schema watching is disabled");
+            return;
+        }
+
+        Path schemaRoot = xsdService.getSchemaDirectory();
+        if (!Files.isDirectory(schemaRoot)) {
+            logger.warn("XSD schema directory does not exist, not watching: {}", schemaRoot);
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerRecursively(schemaRoot);
+        } catch (IOException e) {
+            logger.error("Could not start XSD schema watcher: {}", e.getMessage(), e);
+            return;
+        }
+
+        watcherThread = new Thread(this::processEvents, "xsd-schema-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("Watching {} directories under {} for XSD changes", watchedDirectories.size(), schemaRoot);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing XSD schema watcher: {}", e.getMessage());
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    private void processEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    // Events were lost, we can no longer tell which schemas changed
+                    xsdService.invalidateAll();
+                    continue;
+                }
+
+                Path changed = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerRecursively(changed);
+                    } catch (IOException e) {
+                        logger.warn("Could not watch new schema directory {}: {}", changed, e.getMessage());
+                    }
+                    // A whole override folder may have been moved in at once
+                    xsdService.invalidateAll();
+                    continue;
+                }
+
+                xsdService.invalidate(changed);
+            }
+
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        try (Stream<Path> directories = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, directory.toAbsolutePath().normalize());
+            }
+        }
+    }
+}
@@ -1,23 +1,41 @@
 package com.xml.processor.service;
 
 import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.exception.ResourceNotFoundException;
+import com.xml.processor.exception.ValidationException;
 import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
 import com.xml.processor.model.MappingRule;
+import com.xml.processor.repository.InterfaceRepository;
 import com.xml.processor.repository.MappingRuleRepository;
+import com.xml.processor.service.bulk.BulkJdbcWriter;
+import com.xml.processor.service.xsd.XsdModel;
+import com.xml.processor.service.xsd.XsdModelCompiler;
+import com.xml.processor.service.xsd.XsdModelSnapshot;
+import com.xml.processor.service.xsd.XsdNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.xml.processor.service.interfaces.ClientService;
 
@@ -26,86 +44,294 @@ public class XsdService {
     
     private static final Logger logger = LoggerFactory.getLogger(XsdService.class);
     
+    private static final int DEFAULT_TREE_PAGE_SIZE = 100;
+    private static final int MAX_TREE_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SUGGESTION_LIMIT = 20;
+    
     @Autowired
     private MappingRuleRepository mappingRuleRepository;
     
     @Autowired
     private ClientService clientService;
     
+    @Autowired
+    private InterfaceRepository interfaceRepository;
+    
+    @Autowired
+    private XsdSnapshotStore xsdSnapshotStore;
+    
+    @Autowired
+    private BulkJdbcWriter bulkJdbcWriter;
+    
+    @Value("${app.xsd.schema-dir:${user.dir}/src/main/resources}")
+    private String schemaDir;
+    
+    /**
+     * Parsed XSD structures keyed by client and XSD path. Each value is a future so that
+     * concurrent first requests for the same key wait on a single parse.
+     */
+    private final Map<String, CompletableFuture<CachedXsdStructure>> structureCache = new ConcurrentHashMap<>();
+    
     public List<Map<String, Object>> getXsdStructure(String xsdPath) {
         return getXsdStructure(xsdPath, ClientContextHolder.getClientId());
     }
     
     public List<Map<String, Object>> getXsdStructure(String xsdPath, Long clientId) {
-        List<Map<String, Object>> elements = new ArrayList<>();
+        return getXsdModel(xsdPath, clientId).getFlattened();
+    }
+    
+    public XsdModel getXsdModel(String xsdPath) {
+        return getXsdModel(xsdPath, ClientContextHolder.getClientId());
+    }
+    
+    public XsdModel getXsdModel(String xsdPath, Long clientId) {
+        return getCachedStructure(xsdPath, clientId).model();
+    }
+    
+    private CachedXsdStructure getCachedStructure(String xsdPath, Long clientId) {
+        String cacheKey = clientId + ":" + xsdPath;
+        CompletableFuture<CachedXsdStructure> future = structureCache.get(cacheKey);
+        if (future == null) {
+            CompletableFuture<CachedXsdStructure> loading = new CompletableFuture<>();
+            future = structureCache.putIfAbsent(cacheKey, loading);
+            if (future == null) {
+                future = loading;
+                try {
+                    loading.complete(loadXsdStructure(xsdPath, clientId));
+                } catch (RuntimeException e) {
+                    // Do not cache failures, the next request retries the parse
+                    structureCache.remove(cacheKey, loading);
+                    loading.completeExceptionally(e);
+                }
+            }
+        }
+        
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns one level of the XSD tree: the children of {@code parentPath} (or the top-level
+     * elements when it is empty), each with its child count so the UI can render expanders
+     * without loading the subtree. Large sequences are paged with an opaque cursor.
+     */
+    public Map<String, Object> getXsdChildren(String xsdPath, String parentPath, String cursor, Integer limit) {
+        XsdModel model = getXsdModel(xsdPath);
+        String parent = parentPath == null ? XsdModel.ROOT : parentPath.trim();
+        if (!parent.isEmpty() && !model.contains(parent)) {
+            throw new ResourceNotFoundException("XSD element", "path", parent);
+        }
+        
+        List<XsdNode> children = model.getChildren(parent);
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_TREE_PAGE_SIZE : Math.min(limit, MAX_TREE_PAGE_SIZE);
+        int offset = Math.min(decodeTreeCursor(cursor), children.size());
+        int end = Math.min(offset + pageSize, children.size());
+        
+        List<Map<String, Object>> nodes = new ArrayList<>(end - offset);
+        for (XsdNode child : children.subList(offset, end)) {
+            nodes.add(child.toTreeMap(model.getChildCount(child.getPath())));
+        }
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("parentPath", parent);
+        response.put("nodes", nodes);
+        response.put("totalChildren", children.size());
+        response.put("nextCursor", end < children.size() ? encodeTreeCursor(end) : null);
+        return response;
+    }
+    
+    /**
+     * Autocomplete for mapping rule paths: schema paths starting with the given prefix,
+     * matched case-insensitively. Both dotted and slash-separated prefixes are accepted.
+     */
+    public List<String> suggestPaths(String xsdPath, String prefix, Integer limit) {
+        XsdModel model = getXsdModel(xsdPath);
+        String normalized = prefix == null ? "" : prefix.trim();
+        if (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        normalized = normalized.replace('/', '.');
+        int max = limit == null || limit <= 0 ? DEFAULT_SUGGESTION_LIMIT : Math.min(limit, MAX_TREE_PAGE_SIZE);
+        return model.getPathIndex().findByPrefixIgnoreCase(normalized, max);
+    }
+    
+    /**
+     * Checks a mapping rule path (dotted or XPath) against the schema.
+     */
+    public Map<String, Object> validateXmlPath(String xsdPath, String xmlPath) {
+        XsdModel model = getXsdModel(xsdPath);
+        List<String> matches = model.resolveXmlPath(xmlPath);
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("xmlPath", xmlPath);
+        response.put("valid", !matches.isEmpty());
+        response.put("matches", matches);
+        return response;
+    }
+    
+    private static String encodeTreeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(("o:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static int decodeTreeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int offset = decoded.startsWith("o:") ? Integer.parseInt(decoded.substring(2)) : -1;
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed base64 or offset, reported below
+        }
+        throw new ValidationException("Invalid cursor: " + cursor);
+    }
+    
+    /**
+     * Drops every cached structure that was compiled from the given file, including schemas it was
+     * included or imported into, or that would now resolve to it (e.g. a client-specific override
+     * that was just created, or an include that was missing).
+     */
+    public void invalidate(Path changedFile) {
+        Path normalized = changedFile.toAbsolutePath().normalize();
+        Path canonical = canonical(normalized);
+        structureCache.entrySet().removeIf(entry -> {
+            CompletableFuture<CachedXsdStructure> future = entry.getValue();
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return false;
+            }
+            CachedXsdStructure cached = future.join();
+            return cached.dependsOn(normalized) || cached.dependsOn(canonical);
+        });
+        logger.debug("Invalidated cached XSD structures for: {}", normalized);
+    }
+    
+    private static Path canonical(Path file) {
+        try {
+            return file.toFile().getCanonicalFile().toPath();
+        } catch (IOException e) {
+            return file;
+        }
+    }
+    
+    /**
+     * Compiles the schemas of all interfaces (and anything else currently cached) and writes them to
+     * the binary snapshot loaded at startup.
+     */
+    public Map<String, Object> buildSnapshot() {
+        List<XsdModelSnapshot.Entry> entries = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        Set<String> included = new HashSet<>();
+        
+        for (Interface interfaceEntity : interfaceRepository.findAll()) {
+            Long clientId = interfaceEntity.getClient() != null ? interfaceEntity.getClient().getId() : null;
+            String schemaPath = interfaceEntity.getSchemaPath();
+            if (schemaPath == null || schemaPath.isEmpty() || !included.add(clientId + ":" + schemaPath)) {
+                continue;
+            }
+            try {
+                entries.add(toSnapshotEntry(getCachedStructure(schemaPath, clientId)));
+            } catch (RuntimeException e) {
+                logger.warn("Skipping schema {} of interface {} in snapshot: {}", schemaPath, interfaceEntity.getName(), e.getMessage());
+                failures.add(schemaPath + ": " + e.getMessage());
+            }
+        }
+        
+        // Schemas opened in the mapping UI that are not (yet) attached to an interface
+        structureCache.forEach((key, future) -> {
+            if (future.isDone() && !future.isCompletedExceptionally() && included.add(key)) {
+                entries.add(toSnapshotEntry(future.join()));
+            }
+        });
+        
+        try {
+            XsdModelSnapshot snapshot = xsdSnapshotStore.write(entries);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("path", snapshot.getFile().toString());
+            response.put("models", entries.size());
+            response.put("sizeBytes", Files.size(snapshot.getFile()));
+            response.put("failures", failures);
+            return response;
+        } catch (IOException e) {
+            logger.error("Error writing XSD model snapshot: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to write XSD model snapshot: " + e.getMessage(), e);
+        }
+    }
+    
+    private static XsdModelSnapshot.Entry toSnapshotEntry(CachedXsdStructure cached) {
+        return new XsdModelSnapshot.Entry(cached.clientId(), cached.xsdPath(), cached.source(),
+            cached.candidates(), cached.files(), cached.missingFiles(), cached.model());
+    }
+    
+    public void invalidateAll() {
+        structureCache.clear();
+        logger.debug("Invalidated all cached XSD structures");
+    }
+    
+    public Path getSchemaDirectory() {
+        return Paths.get(schemaDir).toAbsolutePath().normalize();
+    }
+    
+    private CachedXsdStructure loadXsdStructure(String xsdPath, Long clientId) {
+        Optional<XsdModelSnapshot.Restored> restored = xsdSnapshotStore.restore(clientId, xsdPath);
+        if (restored.isPresent()) {
+            XsdModelSnapshot.Restored snapshot = restored.get();
+            logger.debug("Restored XSD {} for client {} from snapshot", xsdPath, clientId);
+            return new CachedXsdStructure(clientId, xsdPath, snapshot.source(), snapshot.candidates(),
+                snapshot.model(), snapshot.files(), snapshot.missingFiles());
+        }
+        
         try {
             logger.info("Loading XSD from path: {} for client: {}", xsdPath, clientId);
             
-            // Get the project root directory
-            String projectRoot = System.getProperty("user.dir");
+            Path schemaRoot = getSchemaDirectory();
+            List<Path> candidates = new ArrayList<>();
             
             // Check for client-specific XSD first
-            String clientSpecificPath = null;
             if (clientId != null) {
-                clientSpecificPath = projectRoot + "/src/main/resources/clients/" + clientId + "/" + xsdPath;
-                File clientSpecificFile = new File(clientSpecificPath);
+                Path clientSpecificPath = schemaRoot.resolve("clients").resolve(String.valueOf(clientId)).resolve(xsdPath).normalize();
+                candidates.add(clientSpecificPath);
+                File clientSpecificFile = clientSpecificPath.toFile();
                 if (clientSpecificFile.exists()) {
                     logger.info("Using client-specific XSD at: {}", clientSpecificPath);
-                    return parseXsdFile(clientSpecificFile, elements);
+                    return compileStructure(clientId, xsdPath, clientSpecificPath, candidates);
                 }
             }
             
             // Fall back to default XSD
-            String fullPath = projectRoot + "/src/main/resources/" + xsdPath;
-            File xsdFile = new File(fullPath);
+            Path fullPath = schemaRoot.resolve(xsdPath).normalize();
+            candidates.add(fullPath);
+            File xsdFile = fullPath.toFile();
             
             if (!xsdFile.exists()) {
                 logger.error("XSD file not found at: {}", fullPath);
                 throw new RuntimeException("XSD file not found: " + fullPath);
             }
             
-            return parseXsdFile(xsdFile, elements);
+            return compileStructure(clientId, xsdPath, fullPath, candidates);
         } catch (Exception e) {
             logger.error("Error parsing XSD: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to parse XSD: " + e.getMessage(), e);
         }
     }
     
-    private List<Map<String, Object>> parseXsdFile(File xsdFile, List<Map<String, Object>> elements) throws Exception {
-        logger.info("Reading XSD from file: {}", xsdFile.getAbsolutePath());
-        
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(xsdFile);
-        
-        Element root = document.getDocumentElement();
-        logger.info("Root element: {}", root.getLocalName());
-        
-        parseElements(root, "", elements);
-        logger.info("Found {} elements in XSD", elements.size());
-        return elements;
-    }
-    
-    private void parseElements(Element element, String path, List<Map<String, Object>> elements) {
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Element child = (Element) childNodes.item(i);
-            if (child.getLocalName().equals("element")) {
-                String name = child.getAttribute("name");
-                String type = child.getAttribute("type");
-                String fullPath = path.isEmpty() ? name : path + "." + name;
-                
-                Map<String, Object> elementInfo = Map.of(
-                    "name", name,
-                    "type", type,
-                    "path", fullPath
-                );
-                elements.add(elementInfo);
-                
-                parseElements(child, fullPath, elements);
-            }
-        }
+    private CachedXsdStructure compileStructure(Long clientId, String xsdPath, Path source, List<Path> candidates)
+            throws Exception {
+        logger.info("Reading XSD from file: {}", source);
+        XsdModelCompiler.Compilation compilation = XsdModelCompiler.compileWithFiles(source.toFile());
+        logger.info("Found {} elements in XSD read from {} files", compilation.model().size(),
+            compilation.files().size());
+        return new CachedXsdStructure(clientId, xsdPath, source, candidates, compilation.model(),
+            compilation.files(), compilation.missingFiles());
     }
     
     public List<MappingRule> getAllMappingRules() {
@@ -117,6 +343,7 @@ public class XsdService {
     }
     
     public MappingRule saveMappingRule(MappingRule rule) {
+        bulkJdbcWriter.checkTarget(rule);
         // Set client from context if not explicitly set
         if (rule.getClient() == null && ClientContextHolder.getClientId() != null) {
             Client client = clientService.getClientById(ClientContextHolder.getClientId())
@@ -138,6 +365,8 @@ public class XsdService {
     }
 
     public void saveMappingConfiguration(List<MappingRule> rules) {
+        // Checked before the current rules are deleted
+        rules.forEach(bulkJdbcWriter::checkTarget);
         Long clientId = ClientContextHolder.getClientId();
         if (clientId != null) {
             // Delete only this client's rules
@@ -157,4 +386,17 @@ public class XsdService {
         mappingRuleRepository.saveAll(rules);
         logger.info("Saved {} mapping rules to configuration", rules.size());
     }
+    
+    /**
+     * A compiled schema with the paths it was resolved from: the candidates in order of precedence,
+     * the source picked among them, every file the compiler read and the includes it did not find.
+     */
+    private record CachedXsdStructure(Long clientId, String xsdPath, Path source, List<Path> candidates,
+                                      XsdModel model, Map<Path, byte[]> files, List<Path> missingFiles) {
+        
+        boolean dependsOn(Path file) {
+            return source.equals(file) || candidates.contains(file) || files.containsKey(file)
+                || missingFiles.contains(file);
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.xml.processor.service;
+
+import com.xml.processor.service.xsd.XsdModelSnapshot;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Holds the memory-mapped XSD model snapshot, if one exists, so that a freshly started node can
+ * serve schema models without recompiling them. Entries are checked against the current schema
+ * files on every lookup, so a stale snapshot only costs a recompile.
+ */
+@Component
+public class XsdSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(XsdSnapshotStore.class);
+
+    @Value("${app.xsd.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${app.xsd.snapshot.path:./data/xsd-models.snapshot}")
+    private String snapshotPath;
+
+    private volatile XsdModelSnapshot snapshot;
+
+    @PostConstruct
+    public void open() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        Path file = getSnapshotFile();
+        if (!Files.isRegularFile(file)) {
+            logger.info("No XSD model snapshot at {}, schemas will be compiled on first use", file);
+            return;
+        }
+        try {
+            snapshot = XsdModelSnapshot.open(file);
+            logger.info("Mapped XSD model snapshot {} with {} models", file, snapshot.getModelCount());
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable XSD model snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    public Optional<XsdModelSnapshot.Restored> restore(Long clientId, String xsdPath) {
+        XsdModelSnapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        try {
+            return current.restore(clientId, xsdPath);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restore XSD model {} from snapshot: {}", xsdPath, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes a new snapshot and maps it in place of the current one.
+     */
+    public XsdModelSnapshot write(List<XsdModelSnapshot.Entry> entries) throws IOException {
+        Path file = getSnapshotFile();
+        XsdModelSnapshot.write(file, entries);
+        XsdModelSnapshot written = XsdModelSnapshot.open(file);
+        if (snapshotEnabled) {
+            snapshot = written;
+        }
+        logger.info("Wrote XSD model snapshot {} with {} models", file, entries.size());
+        return written;
+    }
+
+    public Optional<XsdModelSnapshot> getSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    public Path getSnapshotFile() {
+        return Paths.get(snapshotPath).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,386 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inserts or updates ASN documents keyed by client and document number, so a resent or revised
+ * delivery replaces the document instead of adding a second one.
+ * <p>
+ * One call is one transaction: a {@code MERGE} of all headers on the unique
+ * {@code (client_id, document_number)} index, a read of the resulting header ids and of the
+ * fingerprints of their current lines, and then batches that insert, update and delete only the
+ * lines that differ. Lines are matched on their line number (and order, when a number repeats);
+ * a matched line whose content fingerprint is unchanged is not written at all, so a revision that
+ * touches a few lines of a large document costs a few row writes.
+ * <p>
+ * The merge locks every header row it touches, so concurrent upserts of the same document apply
+ * one after the other; headers are merged in document number order so two batches never wait on
+ * each other in opposite order. When two transactions insert the same new document at once, the
+ * loser fails on the unique index and the whole call is retried, which then takes the update
+ * path. Retrying only works when the call starts its own transaction, not when it joins one of
+ * the caller.
+ */
+@ConnectionPool(Workload.INGEST)
+@Component
+public class AsnUpsertWriter {
+
+    public static final String HEADER_TABLE = "asn_headers";
+    public static final String LINE_TABLE = "asn_lines";
+
+    private static final Logger logger = LoggerFactory.getLogger(AsnUpsertWriter.class);
+
+    private static final String MERGE_HEADER_SQL = "MERGE INTO asn_headers t USING (VALUES ("
+        + "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), "
+        + "CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), "
+        + "CAST(? AS TIMESTAMP))) s(id, client_id, document_number, document_type, sender_id, receiver_id, "
+        + "document_date, document_time, status, notes, updated_at)"
+        + " ON t.client_id = s.client_id AND t.document_number = s.document_number"
+        + " WHEN MATCHED THEN UPDATE SET document_type = s.document_type, sender_id = s.sender_id,"
+        + " receiver_id = s.receiver_id, document_date = s.document_date, document_time = s.document_time,"
+        + " status = s.status, notes = s.notes, updated_at = s.updated_at"
+        + " WHEN NOT MATCHED THEN INSERT (id, client_id, document_number, document_type, sender_id, receiver_id,"
+        + " document_date, document_time, status, notes, created_at, updated_at)"
+        + " VALUES (s.id, s.client_id, s.document_number, s.document_type, s.sender_id, s.receiver_id,"
+        + " s.document_date, s.document_time, s.status, s.notes, s.updated_at, s.updated_at)";
+
+    private static final String INSERT_LINE_SQL = "INSERT INTO asn_lines (line_number, item_number,"
+        + " item_description, quantity, unit_of_measure, lot_number, serial_number, status, notes,"
+        + " line_fingerprint, updated_at, id, header_id, client_id, created_at)"
+        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_LINE_SQL = "UPDATE asn_lines SET line_number = ?, item_number = ?,"
+        + " item_description = ?, quantity = ?, unit_of_measure = ?, lot_number = ?, serial_number = ?,"
+        + " status = ?, notes = ?, line_fingerprint = ?, updated_at = ? WHERE id = ?";
+
+    private static final String DELETE_LINE_SQL = "DELETE FROM asn_lines WHERE id = ?";
+
+    /** Types of the content columns, in the order both line statements start with. */
+    private static final int[] CONTENT_TYPES = {
+        Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.VARCHAR,
+        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP
+    };
+    private static final int[] INSERT_LINE_TYPES = withTypes(Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP);
+    private static final int[] UPDATE_LINE_TYPES = withTypes(Types.BIGINT);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceBlockAllocator sequenceBlockAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bulk-writer.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.asn.upsert.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * A header with the complete set of lines it should have after the upsert.
+     */
+    public record Document(AsnHeader header, List<AsnLine> lines) {
+    }
+
+    /**
+     * What an upsert did to the lines of its documents. Only inserted, updated and deleted lines
+     * were written.
+     */
+    public record LineDelta(int inserted, int updated, int deleted, int unchanged) {
+
+        public static final LineDelta NONE = new LineDelta(0, 0, 0, 0);
+
+        public int written() {
+            return inserted + updated + deleted;
+        }
+    }
+
+    /**
+     * @param headerIds header id of every document number
+     */
+    public record Result(Map<String, Long> headerIds, LineDelta lines) {
+    }
+
+    /**
+     * Upserts the documents of one client. When a document number occurs more than once, the last
+     * occurrence wins.
+     */
+    public Result upsert(Long clientId, List<Document> documents) {
+        if (clientId == null) {
+            throw new ValidationException("Client is required to upsert ASN documents");
+        }
+        // Sorted, so concurrent batches lock header rows in the same order
+        TreeMap<String, Document> byNumber = new TreeMap<>();
+        for (Document document : documents) {
+            String documentNumber = document.header().getDocumentNumber();
+            if (documentNumber == null || documentNumber.isBlank()) {
+                throw new ValidationException("Document number is required to upsert an ASN");
+            }
+            byNumber.put(documentNumber, document);
+        }
+        if (byNumber.isEmpty()) {
+            return new Result(Map.of(), LineDelta.NONE);
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> write(clientId, byNumber));
+            } catch (DuplicateKeyException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.debug("Concurrent insert of an ASN of client {}, retrying upsert (attempt {})", clientId, attempt);
+            }
+        }
+    }
+
+    /**
+     * Builds documents from mapped {@code asn_headers} and {@code asn_lines} records. Like the bulk
+     * writer, a line belongs to the header among its parents, or else to the header mapped last
+     * before it.
+     */
+    public static List<Document> toDocuments(List<MappedRecord> records) {
+        List<Document> documents = new ArrayList<>();
+        Map<MappedRecord, Document> byHeader = new IdentityHashMap<>();
+        for (MappedRecord record : records) {
+            Map<String, Object> values = new HashMap<>();
+            record.values().forEach((column, value) -> values.put(column.trim().toLowerCase(Locale.ROOT), value));
+            if (HEADER_TABLE.equalsIgnoreCase(record.tableName())) {
+                AsnHeader header = new AsnHeader();
+                header.setDocumentNumber(text(values.get("document_number")));
+                header.setDocumentType(text(values.get("document_type")));
+                header.setSenderId(text(values.get("sender_id")));
+                header.setReceiverId(text(values.get("receiver_id")));
+                header.setDocumentDate(text(values.get("document_date")));
+                header.setDocumentTime(text(values.get("document_time")));
+                header.setStatus(text(values.get("status")));
+                header.setNotes(text(values.get("notes")));
+                Document document = new Document(header, new ArrayList<>());
+                documents.add(document);
+                byHeader.put(record, document);
+            } else if (LINE_TABLE.equalsIgnoreCase(record.tableName())) {
+                Document document = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                for (MappedRecord parent = record.parent(); parent != null; parent = parent.parent()) {
+                    if (HEADER_TABLE.equalsIgnoreCase(parent.tableName())) {
+                        document = byHeader.get(parent);
+                        break;
+                    }
+                }
+                if (document == null) {
+                    throw new ValidationException("ASN line mapped without an ASN header");
+                }
+                AsnLine line = new AsnLine();
+                Integer lineNumber = number(values.get("line_number"));
+                if (lineNumber != null) {
+                    line.setLineNumber(lineNumber.toString());
+                }
+                line.setItemNumber(text(values.get("item_number")));
+                line.setItemDescription(text(values.get("item_description")));
+                line.setQuantity(number(values.get("quantity")));
+                line.setUnitOfMeasure(text(values.get("unit_of_measure")));
+                line.setLotNumber(text(values.get("lot_number")));
+                line.setSerialNumber(text(values.get("serial_number")));
+                line.setStatus(text(values.get("status")));
+                line.setNotes(text(values.get("notes")));
+                document.lines().add(line);
+            } else {
+                throw new IllegalArgumentException("Not an ASN table: " + record.tableName());
+            }
+        }
+        return documents;
+    }
+
+    private Result write(Long clientId, TreeMap<String, Document> documents) {
+        long start = System.currentTimeMillis();
+        Timestamp now = new Timestamp(start);
+
+        List<Object[]> headerRows = new ArrayList<>(documents.size());
+        for (Document document : documents.values()) {
+            AsnHeader header = document.header();
+            headerRows.add(new Object[] {
+                sequenceBlockAllocator.nextId(), clientId, header.getDocumentNumber(), header.getDocumentType(),
+                header.getSenderId(), header.getReceiverId(), header.getDocumentDate(), header.getDocumentTime(),
+                header.getStatus(), header.getNotes(), now
+            });
+        }
+        jdbcTemplate.batchUpdate(MERGE_HEADER_SQL, headerRows);
+
+        Map<String, Long> headerIds = readHeaderIds(clientId, new ArrayList<>(documents.keySet()));
+        Map<Long, Map<String, StoredLine>> storedLines = readStoredLines(headerIds.values());
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, Document> entry : documents.entrySet()) {
+            Long headerId = headerIds.get(entry.getKey());
+            Map<String, StoredLine> stored = storedLines.getOrDefault(headerId, new HashMap<>());
+            Map<String, Integer> occurrences = new HashMap<>();
+            for (AsnLine line : entry.getValue().lines()) {
+                Object[] content = content(line, now);
+                StoredLine match = stored.remove(lineKey(line.getLineNumber(), occurrences));
+                if (match == null) {
+                    inserts.add(append(content, sequenceBlockAllocator.nextId(), headerId, clientId, now));
+                } else if (!content[9].equals(match.fingerprint())) {
+                    updates.add(append(content, match.id()));
+                } else {
+                    unchanged++;
+                }
+            }
+            stored.values().forEach(line -> deletes.add(new Object[] {line.id()}));
+        }
+        batch(DELETE_LINE_SQL, deletes, new int[] {Types.BIGINT});
+        batch(UPDATE_LINE_SQL, updates, UPDATE_LINE_TYPES);
+        batch(INSERT_LINE_SQL, inserts, INSERT_LINE_TYPES);
+
+        LineDelta delta = new LineDelta(inserts.size(), updates.size(), deletes.size(), unchanged);
+        logger.debug("Upserted {} ASN documents for client {} in {} ms: {}",
+            documents.size(), clientId, System.currentTimeMillis() - start, delta);
+        return new Result(headerIds, delta);
+    }
+
+    private Map<String, Long> readHeaderIds(Long clientId, List<String> documentNumbers) {
+        Map<String, Long> headerIds = new HashMap<>();
+        for (int from = 0; from < documentNumbers.size(); from += chunkSize) {
+            List<String> chunk = documentNumbers.subList(from, Math.min(from + chunkSize, documentNumbers.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(clientId);
+            args.addAll(chunk);
+            jdbcTemplate.query("SELECT id, document_number FROM asn_headers WHERE client_id = ? AND document_number IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?)",
+                (RowCallbackHandler) rs -> headerIds.put(rs.getString("document_number"), rs.getLong("id")),
+                args.toArray());
+        }
+        return headerIds;
+    }
+
+    /**
+     * Reads the id and fingerprint of the current lines of each header, keyed like incoming lines.
+     */
+    private Map<Long, Map<String, StoredLine>> readStoredLines(Collection<Long> headerIds) {
+        Map<Long, Map<String, StoredLine>> lines = new HashMap<>();
+        Map<Long, Map<String, Integer>> occurrences = new HashMap<>();
+        List<Long> ids = new ArrayList<>(headerIds);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            jdbcTemplate.query("SELECT id, header_id, line_number, line_fingerprint FROM asn_lines WHERE header_id IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?) ORDER BY header_id, id",
+                (RowCallbackHandler) rs -> {
+                    long headerId = rs.getLong("header_id");
+                    Integer lineNumber = rs.getObject("line_number") != null ? rs.getInt("line_number") : null;
+                    String key = lineKey(lineNumber, occurrences.computeIfAbsent(headerId, id -> new HashMap<>()));
+                    lines.computeIfAbsent(headerId, id -> new LinkedHashMap<>())
+                        .put(key, new StoredLine(rs.getLong("id"), rs.getString("line_fingerprint")));
+                }, chunk.toArray());
+        }
+        return lines;
+    }
+
+    private void batch(String sql, List<Object[]> rows, int[] types) {
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + chunkSize, rows.size())), types);
+        }
+    }
+
+    /**
+     * Line number plus how often it occurred before, so repeated or missing numbers still pair up
+     * in document order.
+     */
+    static String lineKey(Integer lineNumber, Map<String, Integer> occurrences) {
+        String number = String.valueOf(lineNumber);
+        return number + "#" + occurrences.merge(number, 1, Integer::sum);
+    }
+
+    /**
+     * The content columns of a line followed by its fingerprint and update time.
+     */
+    private static Object[] content(AsnLine line, Timestamp now) {
+        Object[] values = {
+            line.getLineNumber(), line.getItemNumber(), line.getItemDescription(), line.getQuantity(),
+            line.getUnitOfMeasure(), line.getLotNumber(), line.getSerialNumber(), line.getStatus(), line.getNotes(),
+            null, now
+        };
+        values[9] = fingerprint(values, 9);
+        return values;
+    }
+
+    private static String fingerprint(Object[] values, int count) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < count; i++) {
+                // Separators keep ("ab", "c") and ("a", "bc") apart, the prefix keeps null apart from ""
+                String value = values[i] == null ? "" : "=" + values[i];
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0x1f);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Object[] append(Object[] values, Object... more) {
+        Object[] row = new Object[values.length + more.length];
+        System.arraycopy(values, 0, row, 0, values.length);
+        System.arraycopy(more, 0, row, values.length, more.length);
+        return row;
+    }
+
+    private static int[] withTypes(int... more) {
+        int[] types = new int[CONTENT_TYPES.length + more.length];
+        System.arraycopy(CONTENT_TYPES, 0, types, 0, CONTENT_TYPES.length);
+        System.arraycopy(more, 0, types, CONTENT_TYPES.length, more.length);
+        return types;
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static Integer number(Object value) {
+        if (value == null || value.toString().isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.toString().trim()).intValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new ValidationException("Not a whole number in an ASN: " + value);
+        }
+    }
+
+    private record StoredLine(long id, String fingerprint) {
+    }
+}
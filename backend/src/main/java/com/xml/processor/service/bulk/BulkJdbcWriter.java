@@ -0,0 +1,331 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.model.MappingRule;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes mapped records straight to their tables with JDBC batches, bypassing JPA.
+ * <p>
+ * Records are buffered per table and flushed in chunks of {@code app.bulk-writer.chunk-size}
+ * rows, always in the order the tables were first written so parent rows reach the database
+ * before their children. Nothing is kept once a chunk is flushed, so memory stays bounded
+ * however large the input. Within a {@link Session}:
+ * <ul>
+ *   <li>{@code id} is always assigned from {@link SequenceBlockAllocator},</li>
+ *   <li>{@code client_id} is always the session's client, {@code created_at} and
+ *       {@code updated_at} are filled in when not mapped,</li>
+ *   <li>a foreign key column (e.g. {@code asn_lines.header_id}) takes the id of the record's
+ *       {@link MappedRecord#parent() parent} in the referenced table, or of the last row written
+ *       to that table when the record has no such parent.</li>
+ * </ul>
+ * Table and column names come from mapping rules. Only the tables listed in
+ * {@code app.bulk-writer.tables} can be written, never the application's own tables, and
+ * {@code id}, {@code client_id} and foreign keys cannot be mapped; {@link #checkTarget} applies
+ * the same checks when a rule is saved.
+ */
+@ConnectionPool(Workload.INGEST)
+@Component
+public class BulkJdbcWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJdbcWriter.class);
+
+    /**
+     * Tables of the application itself. Rows written around JPA would also bypass the second
+     * level cache of their entities, so they stay off the target list whatever is configured.
+     */
+    private static final Set<String> PROTECTED_TABLES = Set.of("users", "user_roles", "clients", "interfaces",
+        "mapping_rules", "processed_files", "processed_file_payloads", "audit_logs", "archive_segments",
+        "table_partitions", "flyway_schema_history");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceBlockAllocator sequenceBlockAllocator;
+
+    @Value("${app.bulk-writer.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.bulk-writer.tables:asn_headers,asn_lines}")
+    private Set<String> targetTables;
+
+    private final Map<String, TableMetadata> tables = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        targetTables = targetTables.stream()
+            .map(table -> table.trim().toLowerCase(Locale.ROOT))
+            .filter(table -> !table.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+        Set<String> protectedTargets = targetTables.stream().filter(PROTECTED_TABLES::contains).collect(Collectors.toSet());
+        if (!protectedTargets.isEmpty()) {
+            throw new IllegalStateException("app.bulk-writer.tables lists application tables: " + protectedTargets);
+        }
+    }
+
+    /**
+     * Writes all records in one session and returns the number of rows written per table.
+     */
+    public Map<String, Integer> write(Stream<MappedRecord> records, Long clientId) {
+        try (Session session = open(clientId)) {
+            records.forEachOrdered(session::write);
+            session.flush();
+            return session.getRowCounts();
+        }
+    }
+
+    public Session open(Long clientId) {
+        return new Session(clientId);
+    }
+
+    /**
+     * Rejects a mapping rule target the writer would refuse: a table that is not a bulk write
+     * target, an unknown column, or a column the writer sets itself.
+     */
+    public void checkTarget(String tableName, String columnName) {
+        TableMetadata table = getTable(tableName);
+        TableMetadata.Column column = columnName == null ? null : table.column(columnName);
+        if (column == null) {
+            throw new ValidationException("Unknown column " + columnName + " in table " + tableName);
+        }
+        if (!table.isMappable(column.key())) {
+            throw new ValidationException("Column " + columnName + " of table " + tableName
+                + " is set by the bulk writer and cannot be mapped");
+        }
+    }
+
+    /**
+     * Checks the target of a rule that writes to a table; rules without one only feed the
+     * processed data of a file.
+     */
+    public void checkTarget(MappingRule rule) {
+        if (rule.getTableName() != null && !rule.getTableName().isBlank()) {
+            checkTarget(rule.getTableName(), rule.getDatabaseField());
+        }
+    }
+
+    private TableMetadata getTable(String tableName) {
+        String key = tableName.trim().toLowerCase(Locale.ROOT);
+        if (!targetTables.contains(key)) {
+            throw new ValidationException("Table " + tableName + " is not a bulk write target");
+        }
+        return tables.computeIfAbsent(key, k -> {
+            TableMetadata table = jdbcTemplate.execute((ConnectionCallback<TableMetadata>) connection ->
+                TableMetadata.read(connection.getMetaData(), k));
+            if (table == null) {
+                throw new ValidationException("Unknown table for bulk write: " + tableName);
+            }
+            return table;
+        });
+    }
+
+    /**
+     * A unit of bulk writing. Not thread-safe; closing it flushes what is still buffered.
+     */
+    public final class Session implements AutoCloseable {
+
+        private final Long clientId;
+        private final Map<String, List<Map<String, Object>>> buffers = new LinkedHashMap<>();
+        private final Map<String, LastRow> lastRows = new HashMap<>();
+        private final Map<String, Integer> rowCounts = new LinkedHashMap<>();
+        private int buffered;
+
+        private Session(Long clientId) {
+            this.clientId = clientId;
+        }
+
+        /**
+         * Buffers a record and returns the id it will be inserted with, or null if the table has
+         * no {@code id} column.
+         */
+        public Object write(MappedRecord record) {
+            TableMetadata table = getTable(record.tableName());
+            Map<String, Object> row = new LinkedHashMap<>();
+            record.values().forEach((name, value) -> {
+                TableMetadata.Column column = table.column(name);
+                if (column == null) {
+                    throw new ValidationException("Unknown column " + name + " in table " + record.tableName());
+                }
+                if (!table.isMappable(column.key())) {
+                    throw new ValidationException("Column " + name + " of table " + record.tableName()
+                        + " is set by the bulk writer and cannot be mapped");
+                }
+                row.put(column.key(), value);
+            });
+
+            if (row.isEmpty()) {
+                throw new ValidationException("Mapped record for table " + record.tableName() + " has no values");
+            }
+
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            if (table.column("id") != null) {
+                row.put("id", sequenceBlockAllocator.nextId());
+            }
+            if (table.column("client_id") != null) {
+                row.put("client_id", clientId);
+            }
+            if (table.column("created_at") != null) {
+                row.putIfAbsent("created_at", now);
+            }
+            if (table.column("updated_at") != null) {
+                row.putIfAbsent("updated_at", now);
+            }
+            table.foreignKeys().forEach((column, parentTable) -> {
+                Object parentId = column.equals("client_id") ? null : parentId(record, parentTable);
+                if (parentId != null) {
+                    row.put(column, parentId);
+                }
+            });
+
+            Object id = row.get("id");
+            if (id != null) {
+                lastRows.put(table.key(), new LastRow(record, id));
+            }
+            buffers.computeIfAbsent(table.key(), key -> new ArrayList<>()).add(row);
+            if (++buffered >= chunkSize) {
+                flush();
+            }
+            return id;
+        }
+
+        /**
+         * The id of the record's ancestor in the given table. Records arrive in document order,
+         * so an ancestor is the last row written to its table before its descendants; without
+         * one the record belongs to the last row of that table before it.
+         */
+        private Object parentId(MappedRecord record, String parentTable) {
+            LastRow last = lastRows.get(parentTable);
+            for (MappedRecord parent = record.parent(); parent != null; parent = parent.parent()) {
+                if (parentTable.equalsIgnoreCase(parent.tableName())) {
+                    if (last == null || last.record() != parent) {
+                        throw new IllegalStateException("Parent row in " + parentTable + " of a "
+                            + record.tableName() + " row was not the last one written to its table");
+                    }
+                    return last.id();
+                }
+            }
+            return last != null ? last.id() : null;
+        }
+
+        public void flush() {
+            if (buffered == 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            for (Map.Entry<String, List<Map<String, Object>>> buffer : buffers.entrySet()) {
+                TableMetadata table = tables.get(buffer.getKey());
+                // Rows of one table can map different columns, each shape is its own statement
+                Map<List<String>, List<Object[]>> byShape = new LinkedHashMap<>();
+                for (Map<String, Object> row : buffer.getValue()) {
+                    byShape.computeIfAbsent(new ArrayList<>(row.keySet()), shape -> new ArrayList<>())
+                        .add(row.values().toArray());
+                }
+                byShape.forEach((columns, rows) ->
+                    jdbcTemplate.batchUpdate(table.insertSql(columns), rows, table.sqlTypes(columns)));
+                rowCounts.merge(table.key(), buffer.getValue().size(), Integer::sum);
+            }
+            logger.debug("Flushed {} rows in {} ms", buffered, System.currentTimeMillis() - start);
+            buffers.clear();
+            buffered = 0;
+        }
+
+        public Map<String, Integer> getRowCounts() {
+            return Collections.unmodifiableMap(rowCounts);
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    private record LastRow(MappedRecord record, Object id) {
+    }
+
+    /**
+     * Columns and foreign keys of a table as reported by the JDBC driver. Keys are lower case,
+     * SQL uses the names exactly as the database stores them.
+     */
+    record TableMetadata(String key, String name, String quote, Map<String, Column> columns,
+                         Map<String, String> foreignKeys) {
+
+        record Column(String key, String name, int sqlType) {
+        }
+
+        static TableMetadata read(DatabaseMetaData metaData, String tableKey) throws SQLException {
+            String tableName = metaData.storesUpperCaseIdentifiers() ? tableKey.toUpperCase(Locale.ROOT) : tableKey;
+            Map<String, Column> columns = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getColumns(null, null, tableName, null)) {
+                while (rs.next()) {
+                    String name = rs.getString("COLUMN_NAME");
+                    String key = name.toLowerCase(Locale.ROOT);
+                    columns.putIfAbsent(key, new Column(key, name, rs.getInt("DATA_TYPE")));
+                }
+            }
+            if (columns.isEmpty()) {
+                return null;
+            }
+            Map<String, String> foreignKeys = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getImportedKeys(null, null, tableName)) {
+                while (rs.next()) {
+                    foreignKeys.put(rs.getString("FKCOLUMN_NAME").toLowerCase(Locale.ROOT),
+                        rs.getString("PKTABLE_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+            String quote = metaData.getIdentifierQuoteString();
+            return new TableMetadata(tableKey, tableName, quote == null || quote.isBlank() ? "" : quote,
+                Map.copyOf(columns), Map.copyOf(foreignKeys));
+        }
+
+        Column column(String name) {
+            return columns.get(name.trim().toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * Whether a mapping rule may set the column; the writer owns ids, the client and the links
+         * between rows.
+         */
+        boolean isMappable(String columnKey) {
+            return !columnKey.equals("id") && !columnKey.equals("client_id") && !foreignKeys.containsKey(columnKey);
+        }
+
+        String insertSql(List<String> columnKeys) {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(quote).append(name).append(quote).append(" (");
+            for (int i = 0; i < columnKeys.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(quote).append(columns.get(columnKeys.get(i)).name()).append(quote);
+            }
+            sql.append(") VALUES (").append("?, ".repeat(columnKeys.size() - 1)).append("?)");
+            return sql.toString();
+        }
+
+        int[] sqlTypes(List<String> columnKeys) {
+            return columnKeys.stream().mapToInt(column -> columns.get(column).sqlType()).toArray();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.xml.processor.service.bulk;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row produced by the mapping engine: the target table and its column values, keyed by
+ * column name as configured in {@code MappingRule.databaseField}. The parent is the record mapped
+ * from the nearest enclosing element of another table (e.g. the ASN header of a line), or null.
+ */
+public record MappedRecord(String tableName, Map<String, Object> values, MappedRecord parent) {
+
+    public MappedRecord {
+        if (tableName == null || tableName.isBlank()) {
+            throw new IllegalArgumentException("Mapped record without table name");
+        }
+        values = values == null ? new LinkedHashMap<>() : new LinkedHashMap<>(values);
+    }
+
+    public MappedRecord(String tableName, Map<String, Object> values) {
+        this(tableName, values, null);
+    }
+
+    @Override
+    public String toString() {
+        // The parent chain is left out, it repeats every ancestor's values
+        return "MappedRecord[tableName=" + tableName + ", values=" + values + "]";
+    }
+}
@@ -0,0 +1,270 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.config.Workload;
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.model.ProcessedFile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for status changes of processed files that come without processed data: the
+ * {@code PROCESSING} marker of a file being reprocessed and {@code ERROR} outcomes.
+ * <p>
+ * Changes to the same file are coalesced, so only the latest one is written, and pending changes
+ * are flushed as JDBC batches every {@code app.processed-files.status-buffer.flush-interval-ms}, or
+ * as soon as {@code max-pending} are waiting. A new file gets its id when its change is recorded,
+ * so the caller can hand it out right away. A buffered change never overwrites a later synchronous
+ * save of the file: it only applies while the row's {@code updated_at} is not newer than the change.
+ * <p>
+ * A batch that fails is retried up to {@code max-attempts} times, then each of its changes is written
+ * on its own. A new file is never dropped, since it was already handed out: if its own write fails
+ * too it stays buffered for the next flush. Only status changes of existing files are given up.
+ * <p>
+ * The caller keeps the changed entity. Reads of a single file call {@link #flushIfPending(Long)}
+ * first, so they see a recorded change; listings may lag by one flush interval.
+ */
+@ConnectionPool(Workload.INGEST)
+@Component
+public class ProcessedFileStatusBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedFileStatusBuffer.class);
+
+    private static final String INSERT_SQL = "INSERT INTO processed_files (status, error_message, updated_at, id,"
+        + " file_name, interface_id, client_id, raw_payload_hash, processed_at, created_at)"
+        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE processed_files SET status = ?, error_message = ?, updated_at = ?"
+        + " WHERE id = ? AND updated_at <= ?";
+
+    private static final int[] INSERT_TYPES = {
+        Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT,
+        Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    private static final int[] UPDATE_TYPES = {
+        Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceBlockAllocator sequenceBlockAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.processed-files.status-buffer.max-pending:500}")
+    private int maxPending;
+
+    @Value("${app.processed-files.status-buffer.max-attempts:3}")
+    private int maxAttempts;
+
+    private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+    private final Set<Long> flushing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Sets the status of the file and buffers the change, assigning an id first if the file is new.
+     */
+    public ProcessedFile record(ProcessedFile file, String status, String errorMessage) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean created = file.getId() == null;
+        if (created) {
+            if (file.getClient() == null) {
+                file.setClient(ClientContextHolder.getClient());
+            }
+            if (file.getClientId() == null && ClientContextHolder.getClientId() == null) {
+                throw new ValidationException("Client context not available");
+            }
+            file.setId(sequenceBlockAllocator.nextId());
+            file.setCreatedAt(now);
+            file.setProcessedAt(now);
+        }
+        file.setStatus(status);
+        file.setErrorMessage(errorMessage);
+        file.setUpdatedAt(now);
+
+        PendingStatus change = new PendingStatus(file.getId(), created, status, errorMessage, now, file.getFileName(),
+            file.getInterfaceEntity() != null ? file.getInterfaceEntity().getId() : null,
+            file.getClientId() != null ? file.getClientId() : ClientContextHolder.getClientId(),
+            file.getRawPayloadHash(), file.getProcessedAt(), file.getCreatedAt(), 0);
+        pending.merge(file.getId(), change, PendingStatus::supersededBy);
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+        return file;
+    }
+
+    /**
+     * Drops a buffered change of an existing file that is about to be saved synchronously.
+     */
+    public void discard(Long fileId) {
+        if (fileId != null) {
+            pending.computeIfPresent(fileId, (id, change) -> change.created() ? change : null);
+        }
+    }
+
+    /**
+     * Writes the buffered changes now if one of them is for the given file.
+     */
+    public void flushIfPending(Long fileId) {
+        if (fileId != null && (pending.containsKey(fileId) || flushing.contains(fileId))) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.processed-files.status-buffer.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingStatus> changes = new ArrayList<>();
+        for (Long id : List.copyOf(pending.keySet())) {
+            PendingStatus change = pending.remove(id);
+            if (change != null) {
+                flushing.add(id);
+                changes.add(change);
+            }
+        }
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (PendingStatus change : changes) {
+            Timestamp changedAt = Timestamp.valueOf(change.changedAt());
+            if (change.created()) {
+                inserts.add(new Object[] {
+                    change.status(), change.errorMessage(), changedAt, change.id(), change.fileName(),
+                    change.interfaceId(), change.clientId(), change.rawPayloadHash(),
+                    change.processedAt() != null ? Timestamp.valueOf(change.processedAt()) : null,
+                    Timestamp.valueOf(change.createdAt())
+                });
+            } else {
+                updates.add(new Object[] {change.status(), change.errorMessage(), changedAt, change.id(), changedAt});
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            newTransaction().executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, INSERT_TYPES);
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates, UPDATE_TYPES);
+                }
+            });
+            logger.debug("Flushed {} processed file status changes in {} ms", changes.size(),
+                System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            requeue(changes, e);
+        } finally {
+            changes.forEach(change -> flushing.remove(change.id()));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Puts failed changes back for the next flush, behind any newer change of the same file. Changes
+     * that ran out of batch attempts are written one by one instead.
+     */
+    private void requeue(List<PendingStatus> changes, RuntimeException cause) {
+        logger.error("Could not write {} processed file status changes", changes.size(), cause);
+        int dropped = 0;
+        for (PendingStatus change : changes) {
+            if (change.attempts() + 1 < maxAttempts) {
+                pending.merge(change.id(), change.retried(), (newer, retried) -> retried.supersededBy(newer));
+            } else if (!writeAlone(change)) {
+                if (change.created()) {
+                    pending.merge(change.id(), change, (newer, failed) -> failed.supersededBy(newer));
+                } else {
+                    dropped++;
+                }
+            }
+        }
+        if (dropped > 0) {
+            logger.error("Dropped {} status changes of existing processed files after {} attempts", dropped, maxAttempts);
+        }
+    }
+
+    /**
+     * Writes a single change in its own transaction, so the other changes of its batch cannot fail it.
+     */
+    private boolean writeAlone(PendingStatus change) {
+        Timestamp changedAt = Timestamp.valueOf(change.changedAt());
+        Object[] update = {change.status(), change.errorMessage(), changedAt, change.id(), changedAt};
+        try {
+            if (change.created()) {
+                try {
+                    Object[] insert = {
+                        change.status(), change.errorMessage(), changedAt, change.id(), change.fileName(),
+                        change.interfaceId(), change.clientId(), change.rawPayloadHash(),
+                        change.processedAt() != null ? Timestamp.valueOf(change.processedAt()) : null,
+                        Timestamp.valueOf(change.createdAt())
+                    };
+                    newTransaction().executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, insert, INSERT_TYPES));
+                    return true;
+                } catch (DuplicateKeyException e) {
+                    // An earlier attempt committed the row after all
+                }
+            }
+            newTransaction().executeWithoutResult(status -> jdbcTemplate.update(UPDATE_SQL, update, UPDATE_TYPES));
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not write the status {} of processed file {}", change.status(), change.id(), e);
+            return false;
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction;
+    }
+
+    /**
+     * The latest status of a file and, for a file not written yet, the rest of its row.
+     */
+    private record PendingStatus(Long id, boolean created, String status, String errorMessage,
+                                 LocalDateTime changedAt, String fileName, Long interfaceId, Long clientId,
+                                 String rawPayloadHash, LocalDateTime processedAt, LocalDateTime createdAt,
+                                 int attempts) {
+
+        /**
+         * Coalesces with a newer change of the same file; a file not written yet stays an insert.
+         */
+        PendingStatus supersededBy(PendingStatus newer) {
+            return new PendingStatus(id, created || newer.created, newer.status, newer.errorMessage, newer.changedAt,
+                newer.fileName, newer.interfaceId, newer.clientId, newer.rawPayloadHash, newer.processedAt,
+                created ? createdAt : newer.createdAt, 0);
+        }
+
+        PendingStatus retried() {
+            return new PendingStatus(id, created, status, errorMessage, changedAt, fileName, interfaceId, clientId,
+                rawPayloadHash, processedAt, createdAt, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.xml.processor.service.detection;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
+import com.xml.processor.repository.InterfaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory interface detection index, one immutable {@link ClientIndex} per client.
+ * <p>
+ * A client's index is loaded from the database the first time one of its files is detected
+ * and is afterwards maintained from interface create/update/delete calls, so detection does
+ * not touch the database. Matching follows the original three tiers, each answered with a
+ * lookup instead of a scan: exact (rootElement, namespace), rootElement only, and partial
+ * match where the interface's root element is a substring of the document's root element.
+ * <p>
+ * Interfaces may add {@code detectionCriteria} on early element values (e.g. the IDoc control
+ * record's MESTYP or SNDPRN). Within a tier an interface only matches when all its criteria
+ * hold; among matching interfaces the one with the most criteria wins, then the highest
+ * priority, then the lowest id.
+ * <p>
+ * Loading runs outside the map so that updates are never blocked behind a database read. Every
+ * update bumps a generation counter; a loaded index is only kept when no update happened while
+ * it was being read, otherwise the next detection loads the client again.
+ */
+@Component
+public class InterfaceDetectionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(InterfaceDetectionIndex.class);
+
+    private static final Long NO_CLIENT = -1L;
+
+    private static final Comparator<DetectionEntry> SPECIFICITY_ORDER = Comparator
+        .comparingInt((DetectionEntry entry) -> entry.criteria().size()).reversed()
+        .thenComparing(entry -> entry.priority() != null ? entry.priority() : 0, Comparator.reverseOrder())
+        .thenComparing(DetectionEntry::id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Autowired
+    private InterfaceRepository interfaceRepository;
+
+    private final Map<Long, ClientIndex> indexes = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Returns a detached copy of the matching interface, or null when nothing matches.
+     */
+    public Interface detect(Long clientId, XmlDocumentSignature signature) {
+        if (!signature.hasRootElement()) {
+            return null;
+        }
+        DetectionEntry entry = getIndex(clientId).match(signature.rootElement(), signature.namespace(), signature.fields());
+        return entry != null ? entry.toInterface() : null;
+    }
+
+    public Interface detect(Long clientId, String rootElement, String namespace) {
+        return detect(clientId, new XmlDocumentSignature(rootElement, namespace, null, 0));
+    }
+
+    /**
+     * Local names of the elements the client's detection rules refer to; these are the fields
+     * the prefix sniffer has to capture.
+     */
+    public Set<String> getCriteriaFields(Long clientId) {
+        return getIndex(clientId).criteriaFields;
+    }
+
+    /**
+     * Reflects a created or updated interface in the index once the surrounding transaction
+     * (if any) has committed.
+     */
+    public void interfaceSaved(Interface interfaceEntity) {
+        DetectionEntry entry = DetectionEntry.of(interfaceEntity);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            indexes.replaceAll((client, index) -> index.without(entry.id()));
+            if (entry.active()) {
+                // Only clients that were already loaded are updated, the others load on first use
+                indexes.computeIfPresent(key(entry.clientId()), (client, index) -> index.with(entry));
+            }
+        });
+    }
+
+    public void interfaceDeleted(Long interfaceId) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            indexes.replaceAll((client, index) -> index.without(interfaceId));
+        });
+    }
+
+    public void invalidateClient(Long clientId) {
+        generation.incrementAndGet();
+        indexes.remove(key(clientId));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        indexes.clear();
+    }
+
+    private ClientIndex getIndex(Long clientId) {
+        Long key = key(clientId);
+        ClientIndex index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        long loadedAt = generation.get();
+        ClientIndex loaded = load(clientId);
+        if (generation.get() != loadedAt) {
+            // An update arrived during the load and may not be part of it; serve it once, don't keep it
+            return loaded;
+        }
+        ClientIndex existing = indexes.putIfAbsent(key, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (generation.get() != loadedAt) {
+            // An update raced with the install and may have missed it
+            indexes.remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    private ClientIndex load(Long clientId) {
+        List<Interface> interfaces = clientId != null
+            ? interfaceRepository.findByClient_IdAndIsActiveTrue(clientId)
+            : Collections.emptyList();
+        List<DetectionEntry> entries = new ArrayList<>(interfaces.size());
+        for (Interface interfaceEntity : interfaces) {
+            entries.add(DetectionEntry.of(interfaceEntity));
+        }
+        logger.debug("Loaded detection index for client {} with {} interfaces", clientId, entries.size());
+        return ClientIndex.build(entries);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Long key(Long clientId) {
+        return clientId != null ? clientId : NO_CLIENT;
+    }
+
+    /**
+     * The detection-relevant fields of an interface, copied out of the persistence context.
+     */
+    record DetectionEntry(Long id, Long clientId, String name, String type, String description,
+                          String schemaPath, String rootElement, String namespace, boolean active,
+                          Integer priority, Map<String, Set<String>> criteria,
+                          Map<String, Object> rawCriteria, Client client) {
+
+        static DetectionEntry of(Interface source) {
+            Map<String, Object> raw = source.getDetectionCriteria();
+            return new DetectionEntry(source.getId(), source.getClientId(), source.getName(), source.getType(),
+                source.getDescription(), source.getSchemaPath(), source.getRootElement(), source.getNamespace(),
+                !Boolean.FALSE.equals(source.getIsActive()), source.getPriority(), normalizeCriteria(raw),
+                raw != null ? new LinkedHashMap<>(raw) : null, source.getClient());
+        }
+
+        /**
+         * Accepts a single value or a list of alternatives per field.
+         */
+        private static Map<String, Set<String>> normalizeCriteria(Map<String, Object> raw) {
+            if (raw == null || raw.isEmpty()) {
+                return Map.of();
+            }
+            Map<String, Set<String>> criteria = new HashMap<>();
+            raw.forEach((field, value) -> {
+                if (field == null || value == null) {
+                    return;
+                }
+                Set<String> allowed = new HashSet<>();
+                if (value instanceof Collection<?> values) {
+                    values.forEach(v -> allowed.add(String.valueOf(v).trim()));
+                } else {
+                    allowed.add(String.valueOf(value).trim());
+                }
+                criteria.put(field.trim(), Set.copyOf(allowed));
+            });
+            return Map.copyOf(criteria);
+        }
+
+        /**
+         * A fresh detached instance per call, so callers cannot alter the indexed state.
+         */
+        Interface toInterface() {
+            Interface copy = new Interface();
+            copy.setId(id);
+            copy.setClient(client);
+            copy.setName(name);
+            copy.setType(type);
+            copy.setDescription(description);
+            copy.setSchemaPath(schemaPath);
+            copy.setRootElement(rootElement);
+            copy.setNamespace(namespace);
+            copy.setIsActive(active);
+            copy.setPriority(priority);
+            copy.setDetectionCriteria(rawCriteria != null ? new LinkedHashMap<>(rawCriteria) : null);
+            return copy;
+        }
+    }
+
+    /**
+     * Interfaces sharing a detection key, compiled into a decision table: for every field a
+     * bitmap of the candidates that accept each value plus a bitmap of the candidates that do
+     * not constrain the field. A document is resolved with one AND per referenced field and
+     * the best candidate is the lowest set bit, independent of the number of interfaces.
+     */
+    static final class Bucket {
+
+        private final List<DetectionEntry> candidates;
+        private final Map<String, Map<String, BitSet>> acceptedValues = new HashMap<>();
+        private final Map<String, BitSet> unconstrained = new HashMap<>();
+
+        Bucket(List<DetectionEntry> candidates) {
+            this.candidates = candidates;
+            Set<String> fields = new HashSet<>();
+            candidates.forEach(candidate -> fields.addAll(candidate.criteria().keySet()));
+            for (String field : fields) {
+                BitSet free = new BitSet(candidates.size());
+                Map<String, BitSet> byValue = new HashMap<>();
+                for (int i = 0; i < candidates.size(); i++) {
+                    Set<String> allowed = candidates.get(i).criteria().get(field);
+                    if (allowed == null) {
+                        free.set(i);
+                        continue;
+                    }
+                    for (String value : allowed) {
+                        byValue.computeIfAbsent(value, v -> new BitSet(candidates.size())).set(i);
+                    }
+                }
+                unconstrained.put(field, free);
+                acceptedValues.put(field, byValue);
+            }
+        }
+
+        DetectionEntry match(Map<String, String> fields) {
+            BitSet matching = new BitSet(candidates.size());
+            matching.set(0, candidates.size());
+            for (Map.Entry<String, BitSet> field : unconstrained.entrySet()) {
+                BitSet allowed = (BitSet) field.getValue().clone();
+                String value = fields.get(field.getKey());
+                if (value != null) {
+                    BitSet accepting = acceptedValues.get(field.getKey()).get(value);
+                    if (accepting != null) {
+                        allowed.or(accepting);
+                    }
+                }
+                matching.and(allowed);
+                if (matching.isEmpty()) {
+                    return null;
+                }
+            }
+            int best = matching.nextSetBit(0);
+            return best >= 0 ? candidates.get(best) : null;
+        }
+    }
+
+    static final class ClientIndex {
+
+        private final List<DetectionEntry> entries;
+        private final Map<String, Bucket> byRootAndNamespace = new HashMap<>();
+        private final Map<String, Bucket> byRoot = new HashMap<>();
+        private final List<Bucket> partialBuckets = new ArrayList<>();
+        private final SubstringMatcher partialMatcher;
+        private final Set<String> criteriaFields;
+
+        private ClientIndex(List<DetectionEntry> entries) {
+            this.entries = entries;
+            Map<String, List<DetectionEntry>> rootGroups = new LinkedHashMap<>();
+            Map<String, List<DetectionEntry>> namespaceGroups = new HashMap<>();
+            Set<String> fields = new HashSet<>();
+            for (DetectionEntry entry : entries) {
+                fields.addAll(entry.criteria().keySet());
+                if (entry.rootElement() == null) {
+                    continue;
+                }
+                rootGroups.computeIfAbsent(entry.rootElement(), key -> new ArrayList<>()).add(entry);
+                if (entry.namespace() != null) {
+                    namespaceGroups.computeIfAbsent(entry.rootElement() + '|' + entry.namespace(),
+                        key -> new ArrayList<>()).add(entry);
+                }
+            }
+            namespaceGroups.forEach((key, group) -> byRootAndNamespace.put(key, new Bucket(group)));
+
+            List<String> patterns = new ArrayList<>(rootGroups.size());
+            rootGroups.forEach((root, group) -> {
+                Bucket bucket = new Bucket(group);
+                byRoot.put(root, bucket);
+                partialBuckets.add(bucket);
+                patterns.add(root);
+            });
+            this.partialMatcher = new SubstringMatcher(patterns);
+            this.criteriaFields = Set.copyOf(fields);
+        }
+
+        static ClientIndex build(List<DetectionEntry> entries) {
+            List<DetectionEntry> sorted = new ArrayList<>(entries);
+            sorted.sort(SPECIFICITY_ORDER);
+            return new ClientIndex(List.copyOf(sorted));
+        }
+
+        ClientIndex with(DetectionEntry entry) {
+            List<DetectionEntry> updated = new ArrayList<>(entries.size() + 1);
+            for (DetectionEntry existing : entries) {
+                if (!existing.id().equals(entry.id())) {
+                    updated.add(existing);
+                }
+            }
+            updated.add(entry);
+            return build(updated);
+        }
+
+        ClientIndex without(Long interfaceId) {
+            if (entries.stream().noneMatch(entry -> entry.id().equals(interfaceId))) {
+                return this;
+            }
+            List<DetectionEntry> updated = new ArrayList<>(entries);
+            updated.removeIf(entry -> entry.id().equals(interfaceId));
+            return build(updated);
+        }
+
+        DetectionEntry match(String rootElement, String namespace, Map<String, String> fields) {
+            // A document without a namespace matches on the root element alone
+            Bucket exact = namespace == null
+                ? byRoot.get(rootElement)
+                : byRootAndNamespace.get(rootElement + '|' + namespace);
+            DetectionEntry match = exact != null ? exact.match(fields) : null;
+            if (match != null) {
+                return match;
+            }
+
+            Bucket root = byRoot.get(rootElement);
+            match = root != null && root != exact ? root.match(fields) : null;
+            if (match != null) {
+                return match;
+            }
+
+            // Several root elements may be contained in the document's, take the best match overall
+            DetectionEntry best = null;
+            BitSet patterns = partialMatcher.findAll(rootElement);
+            for (int rank = patterns.nextSetBit(0); rank >= 0; rank = patterns.nextSetBit(rank + 1)) {
+                match = partialBuckets.get(rank).match(fields);
+                if (match != null && (best == null || SPECIFICITY_ORDER.compare(match, best) < 0)) {
+                    best = match;
+                }
+            }
+            return best;
+        }
+    }
+}
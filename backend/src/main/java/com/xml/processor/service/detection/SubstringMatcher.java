@@ -0,0 +1,98 @@
+package com.xml.processor.service.detection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton answering "which patterns occur in this text", in rank order.
+ * Built once per index, it replaces a linear {@code text.contains(pattern)} scan over all
+ * patterns with a single pass over the text.
+ */
+final class SubstringMatcher {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> fail = new ArrayList<>();
+    /** Ranks of the patterns ending in this state or reachable through its failure links. */
+    private final List<BitSet> outputs = new ArrayList<>();
+
+    /**
+     * @param patterns patterns in rank order; the index of a pattern is its rank
+     */
+    SubstringMatcher(List<String> patterns) {
+        newState();
+        for (int rank = 0; rank < patterns.size(); rank++) {
+            String pattern = patterns.get(rank);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                if (next == null) {
+                    next = newState();
+                    transitions.get(state).put(c, next);
+                }
+                state = next;
+            }
+            outputs.get(state).set(rank);
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Returns the lowest rank of a pattern contained in {@code text}, or -1 if none is.
+     */
+    int findLowestRank(String text) {
+        return findAll(text).nextSetBit(0);
+    }
+
+    /**
+     * Returns the ranks of all patterns contained in {@code text}.
+     */
+    BitSet findAll(String text) {
+        BitSet found = (BitSet) outputs.get(0).clone();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != 0) {
+                state = fail.get(state);
+                next = transitions.get(state).get(c);
+            }
+            state = next == null ? 0 : next;
+            found.or(outputs.get(state));
+        }
+        return found;
+    }
+
+    private int newState() {
+        transitions.add(new HashMap<>(4));
+        fail.add(0);
+        outputs.add(new BitSet());
+        return transitions.size() - 1;
+    }
+
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int fallback = fail.get(state);
+                Integer target = transitions.get(fallback).get(c);
+                while (target == null && fallback != 0) {
+                    fallback = fail.get(fallback);
+                    target = transitions.get(fallback).get(c);
+                }
+                int link = target == null || target == child ? 0 : target;
+                fail.set(child, link);
+                outputs.get(child).or(outputs.get(link));
+                queue.add(child);
+            }
+        }
+    }
+}
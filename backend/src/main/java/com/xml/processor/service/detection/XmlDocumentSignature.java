@@ -0,0 +1,23 @@
+package com.xml.processor.service.detection;
+
+import java.util.Map;
+
+/**
+ * What detection needs to know about a document, taken from the start of the stream.
+ *
+ * @param rootElement  local name of the root element, null if it was not reached within the prefix
+ * @param namespace    namespace URI of the root element, null if it has none
+ * @param fields       text of the first occurrence of each requested element within the prefix,
+ *                     keyed by local name (e.g. the EDI_DC40 fields {@code MESTYP}, {@code SNDPRN})
+ * @param bytesRead    number of bytes the streaming reader pulled from the input, including read-ahead
+ */
+public record XmlDocumentSignature(String rootElement, String namespace, Map<String, String> fields, long bytesRead) {
+
+    public XmlDocumentSignature {
+        fields = fields == null ? Map.of() : Map.copyOf(fields);
+    }
+
+    public boolean hasRootElement() {
+        return rootElement != null;
+    }
+}
@@ -0,0 +1,193 @@
+package com.xml.processor.service.detection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reads just enough of an XML document to detect its interface.
+ * <p>
+ * {@link #sniff(BufferedInputStream, Set)} marks the stream, pulls at most {@code app.detection.sniff-bytes}
+ * through a StAX reader and resets the stream afterwards, so the caller can hand the very same
+ * stream to the parser of the engine it selected. Besides the root element it captures the
+ * early header fields that detection rules refer to, such as the IDoc control record.
+ */
+@Component
+public class XmlPrefixSniffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(XmlPrefixSniffer.class);
+
+    private final XMLInputFactory inputFactory;
+
+    @Value("${app.detection.sniff-bytes:65536}")
+    private int sniffBytes;
+
+    public XmlPrefixSniffer() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    }
+
+    /**
+     * Sniffs the prefix of the stream and rewinds it to where it was when called.
+     */
+    public XmlDocumentSignature sniff(BufferedInputStream input) throws IOException {
+        return sniff(input, Set.of());
+    }
+
+    /**
+     * Sniffs the prefix of the stream, capturing the first value of each of the given elements
+     * that occurs within the prefix, and rewinds the stream to where it was when called.
+     */
+    public XmlDocumentSignature sniff(BufferedInputStream input, Set<String> fieldNames) throws IOException {
+        input.mark(sniffBytes + 1);
+        BoundedInputStream prefix = new BoundedInputStream(input, sniffBytes);
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(prefix);
+            return read(reader, fieldNames, prefix);
+        } catch (XMLStreamException e) {
+            logger.debug("Could not sniff XML prefix: {}", e.getMessage());
+            return new XmlDocumentSignature(null, null, null, prefix.getCount());
+        } finally {
+            input.reset();
+        }
+    }
+
+    /**
+     * Sniffs a document that is already held in memory, looking at the same bounded prefix.
+     */
+    public XmlDocumentSignature sniff(String xmlContent, Set<String> fieldNames) {
+        String prefix = xmlContent.length() > sniffBytes ? xmlContent.substring(0, sniffBytes) : xmlContent;
+        try (Reader source = new StringReader(prefix)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(source);
+            return read(reader, fieldNames, null);
+        } catch (XMLStreamException | IOException e) {
+            logger.debug("Could not sniff XML content: {}", e.getMessage());
+            return new XmlDocumentSignature(null, null, null, 0);
+        }
+    }
+
+    public int getSniffBytes() {
+        return sniffBytes;
+    }
+
+    private XmlDocumentSignature read(XMLStreamReader reader, Set<String> fieldNames,
+                                      BoundedInputStream prefix) throws XMLStreamException {
+        String rootElement = null;
+        String namespace = null;
+        Map<String, String> fields = new HashMap<>();
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (rootElement == null) {
+                    rootElement = reader.getLocalName();
+                    String uri = reader.getNamespaceURI();
+                    namespace = uri == null || uri.isEmpty() ? null : uri;
+                } else if (fieldNames.contains(reader.getLocalName()) && !fields.containsKey(reader.getLocalName())) {
+                    String name = reader.getLocalName();
+                    try {
+                        fields.put(name, reader.getElementText().trim());
+                    } catch (XMLStreamException e) {
+                        // Not a simple text element, treat it as absent
+                        fields.put(name, null);
+                    }
+                }
+                if (fields.size() == fieldNames.size()) {
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            if (rootElement == null) {
+                throw e;
+            }
+            // The prefix ended inside the document; use what was found before the cut
+        } finally {
+            reader.close();
+        }
+        fields.values().removeIf(Objects::isNull);
+        return new XmlDocumentSignature(rootElement, namespace, fields, prefix != null ? prefix.getCount() : 0);
+    }
+
+    /**
+     * Ends the stream after {@code limit} bytes and never closes the underlying stream.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (count >= limit) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (count >= limit) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, limit - count));
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, limit - count));
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), limit - count);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // The caller keeps using the underlying stream
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
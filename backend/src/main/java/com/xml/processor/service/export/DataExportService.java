@@ -0,0 +1,227 @@
+package com.xml.processor.service.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.pagination.SqlFilter;
+import com.xml.processor.partition.PartitionCatalog;
+import com.xml.processor.partition.PartitionedTable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams ASN documents and processed file metadata straight from a forward-only JDBC cursor to the
+ * response. Rows are fetched {@code app.export.fetch-size} at a time and written as they arrive, so
+ * memory stays flat however many rows an export covers; an ASN header is the largest unit held.
+ * <p>
+ * Exports run in a read-only transaction, which lets drivers such as PostgreSQL stream with a
+ * server-side cursor and sends them to the replica when one is configured. They hold their
+ * connection for the whole download and therefore have a pool of their own.
+ */
+@Service
+@ConnectionPool(Workload.EXPORT)
+public class DataExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportService.class);
+
+    private static final List<String> HEADER_COLUMNS = List.of(
+        "id", "document_number", "document_type", "sender_id", "receiver_id", "document_date",
+        "document_time", "status", "notes", "client_id", "created_at", "updated_at");
+
+    private static final List<String> LINE_COLUMNS = List.of(
+        "id", "line_number", "item_number", "item_description", "quantity", "unit_of_measure",
+        "lot_number", "serial_number", "status", "notes");
+
+    private static final List<String> PROCESSED_FILE_COLUMNS = List.of(
+        "id", "file_name", "status", "error_message", "client_id", "interface_id", "processed_at",
+        "created_at", "updated_at");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate streamingTemplate;
+
+    @PostConstruct
+    void init() {
+        streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Writes ASN headers created within the range, each with its lines, ordered by header id.
+     *
+     * @param clientId restricts the export to the client, null for all clients
+     * @return the number of headers written
+     */
+    @Transactional(readOnly = true)
+    public long exportAsn(Long clientId, LocalDateTime from, LocalDateTime to, ExportFormat format,
+                          OutputStream out) throws IOException {
+        SqlFilter filter = new SqlFilter()
+            .equal("h.client_id", clientId)
+            .between("h.created_at", from, to);
+        String sql = "SELECT " + selectList("h", "", HEADER_COLUMNS) + ", " + selectList("l", "line_", LINE_COLUMNS)
+            + " FROM asn_headers h LEFT JOIN asn_lines l ON l.header_id = h.id"
+            + filter.toWhereClause()
+            + " ORDER BY h.id, l.line_number, l.id";
+
+        List<String> csvColumns = new ArrayList<>(HEADER_COLUMNS);
+        LINE_COLUMNS.forEach(column -> csvColumns.add("line_" + column));
+
+        long start = System.currentTimeMillis();
+        try (ExportWriter writer = ExportWriter.open(format, out, objectMapper, csvColumns)) {
+            AsnHandler handler = new AsnHandler(writer, format);
+            query(sql, filter, handler);
+            handler.finish();
+            logger.info("Exported {} ASN headers as {} in {} ms", handler.headers, format, System.currentTimeMillis() - start);
+            return handler.headers;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the metadata of the processed files matching the filter, without their processed data.
+     * Detached partitions the date range reaches are read after the live table's older months, oldest first.
+     *
+     * @return the number of files written
+     */
+    @Transactional(readOnly = true)
+    public long exportProcessedFiles(ProcessedFileFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        SqlFilter sqlFilter = filter.toSqlFilter();
+        String key = PartitionedTable.PROCESSED_FILES.getKeyColumn();
+        List<String> tables = new ArrayList<>(
+            partitionCatalog.tablesFor(PartitionedTable.PROCESSED_FILES, sqlFilter.from(key), sqlFilter.to(key)));
+        // Live table first, then partitions newest first: reversed, the export runs oldest to newest
+        Collections.reverse(tables);
+
+        long start = System.currentTimeMillis();
+        long[] count = {0};
+        try (ExportWriter writer = ExportWriter.open(format, out, objectMapper, PROCESSED_FILE_COLUMNS)) {
+            for (String table : tables) {
+                String sql = "SELECT " + String.join(", ", PROCESSED_FILE_COLUMNS) + " FROM " + table
+                    + sqlFilter.toWhereClause() + " ORDER BY id";
+                query(sql, sqlFilter, rs -> {
+                    write(writer, readColumns(rs, "", PROCESSED_FILE_COLUMNS));
+                    count[0]++;
+                });
+            }
+            logger.info("Exported {} processed files from {} tables as {} in {} ms",
+                count[0], tables.size(), format, System.currentTimeMillis() - start);
+            return count[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void query(String sql, SqlFilter filter, RowCallbackHandler handler) {
+        streamingTemplate.query(sql, handler, filter.toArgs());
+    }
+
+    private static String selectList(String alias, String prefix, List<String> columns) {
+        List<String> select = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            select.add(alias + "." + column + " AS " + prefix + column);
+        }
+        return String.join(", ", select);
+    }
+
+    private static Map<String, Object> readColumns(ResultSet rs, String prefix, List<String> columns) throws SQLException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (String column : columns) {
+            Object value = column.endsWith("_at")
+                ? rs.getObject(prefix + column, LocalDateTime.class)
+                : rs.getObject(prefix + column);
+            record.put(column, value);
+        }
+        return record;
+    }
+
+    private static void write(ExportWriter writer, Map<String, Object> record) {
+        try {
+            writer.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Folds the header-line join back into one record per header. NDJSON nests the lines; CSV
+     * writes the join rows as they are.
+     */
+    private static final class AsnHandler implements RowCallbackHandler {
+
+        private final ExportWriter writer;
+        private final boolean nested;
+        private Map<String, Object> header;
+        private List<Map<String, Object>> lines;
+        private long headers;
+
+        AsnHandler(ExportWriter writer, ExportFormat format) {
+            this.writer = writer;
+            this.nested = format == ExportFormat.NDJSON;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            Map<String, Object> row = readColumns(rs, "", HEADER_COLUMNS);
+            boolean hasLine = rs.getObject("line_id") != null;
+            if (!nested) {
+                if (hasLine) {
+                    readColumns(rs, "line_", LINE_COLUMNS).forEach((column, value) -> row.put("line_" + column, value));
+                }
+                if (header == null || !header.get("id").equals(row.get("id"))) {
+                    headers++;
+                }
+                header = row;
+                write(writer, row);
+                return;
+            }
+            if (header == null || !header.get("id").equals(row.get("id"))) {
+                finish();
+                header = row;
+                lines = new ArrayList<>();
+                headers++;
+            }
+            if (hasLine) {
+                lines.add(readColumns(rs, "line_", LINE_COLUMNS));
+            }
+        }
+
+        void finish() {
+            if (nested && header != null) {
+                header.put("lines", lines);
+                write(writer, header);
+                header = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.xml.processor.service.export;
+
+import com.xml.processor.exception.ValidationException;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the streaming exports.
+ */
+public enum ExportFormat {
+
+    /** One JSON object per line; ASN headers carry their lines nested. */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /** RFC 4180 CSV with a header row; ASN headers are repeated on each of their lines. */
+    CSV("text/csv", "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String value) {
+        if (value == null || value.isBlank()) {
+            return NDJSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unsupported export format: " + value + " (expected ndjson or csv)");
+        }
+    }
+}
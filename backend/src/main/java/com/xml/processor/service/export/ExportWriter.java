@@ -0,0 +1,99 @@
+package com.xml.processor.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes export records one at a time to a stream, holding nothing but the current record.
+ * Closing a writer flushes it but leaves the stream open for the caller to finish.
+ */
+abstract class ExportWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param columns the record keys in output order; CSV writes them as its header row
+     */
+    static ExportWriter open(ExportFormat format, OutputStream out, ObjectMapper objectMapper,
+                             List<String> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return format == ExportFormat.CSV ? new Csv(writer, columns) : new Ndjson(writer, objectMapper);
+    }
+
+    abstract void write(Map<String, Object> record) throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+
+    private static final class Ndjson extends ExportWriter {
+
+        private final JsonGenerator generator;
+
+        Ndjson(Writer writer, ObjectMapper objectMapper) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(Map<String, Object> record) throws IOException {
+            generator.writeObject(record);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class Csv extends ExportWriter {
+
+        private final Writer writer;
+        private final List<String> columns;
+
+        Csv(Writer writer, List<String> columns) throws IOException {
+            this.writer = writer;
+            this.columns = columns;
+            writeRow(columns);
+        }
+
+        @Override
+        void write(Map<String, Object> record) throws IOException {
+            writeRow(columns.stream().map(record::get).toList());
+        }
+
+        private void writeRow(List<?> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = values.get(i);
+                if (value != null) {
+                    writer.write(escape(value.toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private static String escape(String value) {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
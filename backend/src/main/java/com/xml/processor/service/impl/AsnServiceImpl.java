@@ -1,12 +1,23 @@
 package com.xml.processor.service.impl;
 
+import com.xml.processor.annotation.ConnectionPool;
 import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.config.Workload;
+import com.xml.processor.dto.AsnDocument;
+import com.xml.processor.dto.AsnDocumentFilter;
 import com.xml.processor.model.AsnHeader;
 import com.xml.processor.model.AsnLine;
+import com.xml.processor.repository.AsnDocumentRepository;
 import com.xml.processor.repository.AsnHeaderRepository;
 import com.xml.processor.repository.AsnLineRepository;
+import com.xml.processor.service.bulk.AsnUpsertWriter;
 import com.xml.processor.service.interfaces.AsnService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,12 +28,29 @@ import java.util.Optional;
 @Service
 public class AsnServiceImpl implements AsnService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AsnServiceImpl.class);
+
     @Autowired
     private AsnHeaderRepository asnHeaderRepository;
 
     @Autowired
     private AsnLineRepository asnLineRepository;
 
+    @Autowired
+    private AsnDocumentRepository asnDocumentRepository;
+
+    @Autowired
+    private AsnUpsertWriter asnUpsertWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${app.asn.documents.max-page-size:500}")
+    private int maxDocumentPageSize;
+
     // ASN Header operations
     @Override
     @Transactional
@@ -144,9 +172,7 @@ public class AsnServiceImpl implements AsnService {
         
         // This is a simplified implementation; in a real system, you'd need to 
         // ensure proper security checks for non-client-specific access
-        return asnLineRepository.findAll().stream()
-            .filter(line -> line.getHeader() != null && line.getHeader().getId().equals(headerId))
-            .toList();
+        return asnLineRepository.findByHeader_Id(headerId);
     }
 
     @Override
@@ -231,4 +257,64 @@ public class AsnServiceImpl implements AsnService {
             asnLineRepository.deleteById(id);
         }
     }
-} 
\ No newline at end of file
+
+    // Bulk operations
+    /**
+     * Persists a header and all of its lines in one transaction. Lines are written in JDBC
+     * batches of {@code hibernate.jdbc.batch_size}; the persistence context is flushed and
+     * cleared after every batch so memory stays flat for large deliveries.
+     */
+    @Override
+    @Transactional
+    @ConnectionPool(Workload.INGEST)
+    public AsnHeader createAsnWithLines(AsnHeader header, List<AsnLine> lines) {
+        long start = System.currentTimeMillis();
+        entityManager.persist(header);
+
+        int count = 0;
+        for (AsnLine line : lines) {
+            line.setHeader(header);
+            if (line.getClient() == null) {
+                line.setClient(header.getClient());
+            }
+            entityManager.persist(line);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        logger.debug("Persisted ASN {} with {} lines in {} ms",
+            header.getDocumentNumber(), count, System.currentTimeMillis() - start);
+        return header;
+    }
+
+    /**
+     * Inserts the ASN or, when the client already has a document with this number, updates its
+     * header and brings its lines in line with {@code lines}, writing only those that changed. Runs in
+     * its own transaction so a concurrent first insert of the same document can be retried; see
+     * {@link AsnUpsertWriter}.
+     */
+    @Override
+    public AsnHeader upsertAsnWithLines(AsnHeader header, List<AsnLine> lines) {
+        Long clientId = header.getClientId() != null ? header.getClientId() : ClientContextHolder.getClientId();
+        AsnUpsertWriter.Result result = asnUpsertWriter.upsert(clientId,
+            List.of(new AsnUpsertWriter.Document(header, lines)));
+        header.setId(result.headerIds().get(header.getDocumentNumber()));
+        return header;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AsnDocument> getAsnDocuments(AsnDocumentFilter filter, Long afterId, int limit) {
+        Long clientId = ClientContextHolder.getClientId();
+        if (clientId != null) {
+            filter = new AsnDocumentFilter(clientId, filter.shipmentDateFrom(), filter.shipmentDateTo(),
+                filter.documentNumbers());
+        }
+        int pageSize = limit > 0 ? Math.min(limit, maxDocumentPageSize) : maxDocumentPageSize;
+        return asnDocumentRepository.findPage(filter, afterId, pageSize);
+    }
+}
@@ -1,23 +1,37 @@
 package com.xml.processor.service.impl;
 
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.dto.AuditLogFilter;
 import com.xml.processor.model.AuditLog;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
+import com.xml.processor.partition.PartitionManager;
+import com.xml.processor.partition.PartitionedTable;
+import com.xml.processor.repository.AuditLogListingRepository;
 import com.xml.processor.repository.AuditLogRepository;
 import com.xml.processor.service.AuditLogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
+@ConnectionPool(Workload.ADMIN)
 @Service
 public class AuditLogServiceImpl implements AuditLogService {
 
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private AuditLogListingRepository auditLogListingRepository;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
     @Override
     @Transactional
     public AuditLog createAuditLog(AuditLog auditLog) {
@@ -25,51 +39,66 @@ public class AuditLogServiceImpl implements AuditLogService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogs(Pageable pageable) {
-        return auditLogRepository.findAll(pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, null, null, null, null, null), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByUsername(String username, Pageable pageable) {
-        return auditLogRepository.findByUsername(username, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(username, null, null, null, null, null), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByClientId(Long clientId, Pageable pageable) {
-        return auditLogRepository.findByClientId(clientId, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, clientId, null, null, null, null), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByAction(String action, Pageable pageable) {
-        return auditLogRepository.findByAction(action, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, null, action, null, null, null), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-        return auditLogRepository.findByCreatedAtBetween(startDate, endDate, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, null, null, null, startDate, endDate), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByUsernameAndDateRange(String username, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-        return auditLogRepository.findByUsernameAndCreatedAtBetween(username, startDate, endDate, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(username, null, null, null, startDate, endDate), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByClientIdAndDateRange(Long clientId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-        return auditLogRepository.findByClientIdAndCreatedAtBetween(clientId, startDate, endDate, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, clientId, null, null, startDate, endDate), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsByResponseStatus(Integer status, Pageable pageable) {
-        return auditLogRepository.findByResponseStatus(status, pageable);
+        return auditLogListingRepository.findAll(new AuditLogFilter(null, null, null, status, null, null), pageable);
     }
 
     @Override
-    @Transactional
-    @Scheduled(cron = "0 0 0 * * *") // Run at midnight every day
+    @Transactional(readOnly = true)
+    public CursorPage<AuditLog> scrollAuditLogs(AuditLogFilter filter, KeysetRequest request) {
+        return auditLogListingRepository.scroll(filter, request);
+    }
+
+    /**
+     * Drops the detached monthly partitions whose entries are all older than the date. Entries in
+     * the live table and in a partition that straddles the date are kept; the scheduled
+     * {@link PartitionManager} retention calls the same drop.
+     */
+    @Override
     public void deleteAuditLogsOlderThan(LocalDateTime date) {
-        // TODO: Implement deletion of old audit logs
-        // This could be implemented by adding a delete method to the repository
-        // and calling it with a date parameter (e.g., 30 days ago)
+        partitionManager.dropBefore(PartitionedTable.AUDIT_LOGS, date);
     }
-} 
\ No newline at end of file
+}
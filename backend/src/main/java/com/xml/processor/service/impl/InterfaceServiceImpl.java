@@ -4,6 +4,9 @@ import com.xml.processor.config.ClientContextHolder;
 import com.xml.processor.model.Client;
 import com.xml.processor.model.Interface;
 import com.xml.processor.repository.InterfaceRepository;
+import com.xml.processor.service.detection.InterfaceDetectionIndex;
+import com.xml.processor.service.detection.XmlDocumentSignature;
+import com.xml.processor.service.detection.XmlPrefixSniffer;
 import com.xml.processor.service.interfaces.ClientService;
 import com.xml.processor.service.interfaces.InterfaceService;
 import org.slf4j.Logger;
@@ -14,14 +17,10 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
     
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.StringReader;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
     
 @Service
 public class InterfaceServiceImpl implements InterfaceService {
@@ -34,6 +33,12 @@ public class InterfaceServiceImpl implements InterfaceService {
     @Autowired
     private ClientService clientService;
     
+    @Autowired
+    private InterfaceDetectionIndex interfaceDetectionIndex;
+    
+    @Autowired
+    private XmlPrefixSniffer xmlPrefixSniffer;
+    
     @Override
     public List<Interface> getAllInterfaces() {
         Long clientId = ClientContextHolder.getClientId();
@@ -70,7 +75,9 @@ public class InterfaceServiceImpl implements InterfaceService {
                 .orElseThrow(() -> new RuntimeException("Client not found"));
             interfaceEntity.setClient(client);
         }
-        return interfaceRepository.save(interfaceEntity);
+        Interface saved = interfaceRepository.save(interfaceEntity);
+        interfaceDetectionIndex.interfaceSaved(saved);
+        return saved;
     }
     
     @Override
@@ -95,8 +102,11 @@ public class InterfaceServiceImpl implements InterfaceService {
         existingInterface.setNamespace(interfaceEntity.getNamespace());
         existingInterface.setIsActive(interfaceEntity.getIsActive());
         existingInterface.setPriority(interfaceEntity.getPriority());
+        existingInterface.setDetectionCriteria(interfaceEntity.getDetectionCriteria());
         
-        return interfaceRepository.save(existingInterface);
+        Interface saved = interfaceRepository.save(existingInterface);
+        interfaceDetectionIndex.interfaceSaved(saved);
+        return saved;
     }
     
     @Override
@@ -104,9 +114,13 @@ public class InterfaceServiceImpl implements InterfaceService {
         Long clientId = ClientContextHolder.getClientId();
         if (clientId != null) {
             interfaceRepository.findByIdAndClient_Id(id, clientId)
-                .ifPresent(interfaceEntity -> interfaceRepository.deleteById(id));
+                .ifPresent(interfaceEntity -> {
+                    interfaceRepository.deleteById(id);
+                    interfaceDetectionIndex.interfaceDeleted(id);
+                });
         } else {
             interfaceRepository.deleteById(id);
+            interfaceDetectionIndex.interfaceDeleted(id);
         }
     }
     
@@ -117,54 +131,35 @@ public class InterfaceServiceImpl implements InterfaceService {
     
     @Override
     public Interface detectInterface(String xmlContent, Long clientId) {
-        try {
-            // Parse XML content
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(new StringReader(xmlContent)));
-            
-            // Get root element name and namespace
-            String rootElement = document.getDocumentElement().getLocalName();
-            String namespace = document.getDocumentElement().getNamespaceURI();
-            
-            logger.info("Detecting interface for root element: {}, namespace: {}", rootElement, namespace);
-            
-            // Get all active interfaces for the client
-            List<Interface> interfaces = interfaceRepository.findByClient_IdAndIsActiveTrue(clientId);
-            
-            // First try exact match on root element and namespace
-            for (Interface interfaceEntity : interfaces) {
-                if (rootElement.equals(interfaceEntity.getRootElement()) && 
-                    (namespace == null || namespace.equals(interfaceEntity.getNamespace()))) {
-                    logger.info("Found exact match for interface: {}", interfaceEntity.getName());
-                    return interfaceEntity;
-                }
-            }
-            
-            // Try match on root element only
-            for (Interface interfaceEntity : interfaces) {
-                if (rootElement.equals(interfaceEntity.getRootElement())) {
-                    logger.info("Found root element match for interface: {}", interfaceEntity.getName());
-                    return interfaceEntity;
-                }
-            }
-            
-            // Try partial match
-            for (Interface interfaceEntity : interfaces) {
-                if (interfaceEntity.getRootElement() != null && 
-                    rootElement.contains(interfaceEntity.getRootElement())) {
-                    logger.info("Found partial match for interface: {}", interfaceEntity.getName());
-                    return interfaceEntity;
-                }
-            }
-            
-            logger.warn("No matching interface found for root element: {}", rootElement);
-            return null;
-        } catch (Exception e) {
-            logger.error("Error detecting interface: {}", e.getMessage(), e);
+        return detectInterface(xmlPrefixSniffer.sniff(xmlContent, getDetectionFields(clientId)), clientId);
+    }
+    
+    @Override
+    public Set<String> getDetectionFields(Long clientId) {
+        return interfaceDetectionIndex.getCriteriaFields(clientId);
+    }
+    
+    @Override
+    public Interface detectInterface(XmlDocumentSignature signature, Long clientId) {
+        if (!signature.hasRootElement()) {
+            logger.warn("No root element found in the first {} bytes, cannot detect interface", signature.bytesRead());
             return null;
         }
+        
+        String rootElement = signature.rootElement();
+        String namespace = signature.namespace();
+        logger.info("Detecting interface for root element: {}, namespace: {}, fields: {}",
+            rootElement, namespace, signature.fields());
+        
+        // Exact, root-only and partial matching, refined by detection criteria, are answered by the in-memory index
+        Interface detected = interfaceDetectionIndex.detect(clientId, signature);
+        if (detected != null) {
+            logger.info("Detected interface: {}", detected.getName());
+            return detected;
+        }
+        
+        logger.warn("No matching interface found for root element: {}", rootElement);
+        return null;
     }
 
     @Override
@@ -199,7 +194,9 @@ public class InterfaceServiceImpl implements InterfaceService {
     @Override
     @Transactional
     public Interface createInterface(Interface interfaceEntity) {
-        return interfaceRepository.save(interfaceEntity);
+        Interface saved = interfaceRepository.save(interfaceEntity);
+        interfaceDetectionIndex.interfaceSaved(saved);
+        return saved;
     }
 
     @Override
@@ -215,13 +212,17 @@ public class InterfaceServiceImpl implements InterfaceService {
         existingInterface.setRootElement(interfaceEntity.getRootElement());
         existingInterface.setNamespace(interfaceEntity.getNamespace());
         existingInterface.setSchemaPath(interfaceEntity.getSchemaPath());
-        return interfaceRepository.save(existingInterface);
+        existingInterface.setDetectionCriteria(interfaceEntity.getDetectionCriteria());
+        Interface saved = interfaceRepository.save(existingInterface);
+        interfaceDetectionIndex.interfaceSaved(saved);
+        return saved;
     }
 
     @Override
     @Transactional
     public void deleteInterface(Long id) {
         interfaceRepository.deleteById(id);
+        interfaceDetectionIndex.interfaceDeleted(id);
     }
 
     @Override
@@ -6,6 +6,7 @@ import com.xml.processor.model.Interface;
 import com.xml.processor.model.MappingRule;
 import com.xml.processor.repository.InterfaceRepository;
 import com.xml.processor.repository.MappingRuleRepository;
+import com.xml.processor.service.bulk.BulkJdbcWriter;
 import com.xml.processor.service.interfaces.MappingRuleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -26,10 +27,14 @@ public class MappingRuleServiceImpl implements MappingRuleService {
     
     @Autowired
     private InterfaceRepository interfaceRepository;
+    
+    @Autowired
+    private BulkJdbcWriter bulkJdbcWriter;
 
     @Override
     @Transactional
     public MappingRule createMappingRule(MappingRule mappingRule) {
+        bulkJdbcWriter.checkTarget(mappingRule);
         // Set client from context if not provided
         if (mappingRule.getClient() == null && ClientContextHolder.getClient() != null) {
             mappingRule.setClient(ClientContextHolder.getClient());
@@ -99,6 +104,7 @@ public class MappingRuleServiceImpl implements MappingRuleService {
             mappingRule.setInterfaceEntity(mappingRuleDetails.getInterfaceEntity());
         }
         
+        bulkJdbcWriter.checkTarget(mappingRule);
         return mappingRuleRepository.save(mappingRule);
     }
 
@@ -122,6 +128,7 @@ public class MappingRuleServiceImpl implements MappingRuleService {
     @Override
     @Transactional
     public void saveMappingConfiguration(List<MappingRule> rules) {
+        rules.forEach(bulkJdbcWriter::checkTarget);
         mappingRuleRepository.saveAll(rules);
     }
     
@@ -1,9 +1,16 @@
 package com.xml.processor.service.impl;
 
 import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
+import com.xml.processor.repository.ProcessedFileListingRepository;
 import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.bulk.ProcessedFileStatusBuffer;
 import com.xml.processor.service.interfaces.ProcessedFileService;
+import com.xml.processor.service.payload.ProcessedDataStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -23,20 +31,37 @@ public class ProcessedFileServiceImpl implements ProcessedFileService {
     @Autowired
     private ProcessedFileRepository processedFileRepository;
 
+    @Autowired
+    private ProcessedFileListingRepository processedFileListingRepository;
+
+    @Autowired
+    private ProcessedDataStore processedDataStore;
+
+    @Autowired
+    private ProcessedFileStatusBuffer processedFileStatusBuffer;
+
     @Override
     @Transactional
     public ProcessedFile createProcessedFile(ProcessedFile file) {
-        return processedFileRepository.save(file);
+        Map<String, Object> processedData = file.getProcessedData();
+        ProcessedFile saved = processedFileRepository.save(file);
+        processedDataStore.create(saved, processedData);
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<ProcessedFile> getProcessedFileById(Long id) {
+        processedFileStatusBuffer.flushIfPending(id);
         Long clientId = ClientContextHolder.getClientId();
-        if (clientId != null) {
-            return processedFileRepository.findByIdAndClient_Id(id, clientId);
+        Optional<ProcessedFile> file = clientId != null
+            ? processedFileRepository.findByIdAndClient_Id(id, clientId)
+            : processedFileRepository.findById(id);
+        if (file.isPresent()) {
+            return file.map(processedDataStore::load);
         }
-        return processedFileRepository.findById(id);
+        // Files of past months live in read-only partitions
+        return processedFileListingRepository.findDetachedById(id, clientId);
     }
 
     @Override
@@ -139,7 +164,7 @@ public class ProcessedFileServiceImpl implements ProcessedFileService {
         file.setStatus(fileDetails.getStatus());
         file.setErrorMessage(fileDetails.getErrorMessage());
         file.setInterfaceEntity(fileDetails.getInterfaceEntity());
-        file.setProcessedData(fileDetails.getProcessedData());
+        processedDataStore.update(file, fileDetails.getProcessedData());
         
         return processedFileRepository.save(file);
     }
@@ -158,87 +183,63 @@ public class ProcessedFileServiceImpl implements ProcessedFileService {
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFiles(int page, int size, String sortBy, String direction, 
+    public Page<ProcessedFileSummary> getProcessedFiles(int page, int size, String sortBy, String direction, 
             String fileNameFilter, String statusFilter, LocalDateTime startDate, LocalDateTime endDate) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        
-        // Apply filters if provided
-        if (fileNameFilter != null && !fileNameFilter.isEmpty()) {
-            return processedFileRepository.findByFileNameContainingIgnoreCase(fileNameFilter, pageRequest);
-        } else if (statusFilter != null && !statusFilter.isEmpty()) {
-            return processedFileRepository.findByStatus(statusFilter, pageRequest);
-        } else if (startDate != null && endDate != null) {
-            return processedFileRepository.findByProcessedDateBetween(startDate, endDate, pageRequest);
-        }
-        
-        // No filters, return all with pagination
-        return processedFileRepository.findAll(pageRequest);
+        ProcessedFileFilter filter = new ProcessedFileFilter(null, null, statusFilter, fileNameFilter, startDate, endDate);
+        return processedFileListingRepository.findSummaries(filter, summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFilesByClient(Long clientId, int page, int size, String sortBy, String direction) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByClientId(clientId, pageRequest);
+    public Page<ProcessedFileSummary> getProcessedFilesByClient(Long clientId, int page, int size, String sortBy, String direction) {
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(clientId, null, null, null, null, null),
+            summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> searchProcessedFiles(String fileName, int page, int size, String sortBy, String direction) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByFileNameContainingIgnoreCase(fileName, pageRequest);
+    public Page<ProcessedFileSummary> searchProcessedFiles(String fileName, int page, int size, String sortBy, String direction) {
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(null, null, null, fileName, null, null),
+            summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFilesByStatus(String status, int page, int size, String sortBy, String direction) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByStatus(status, pageRequest);
+    public Page<ProcessedFileSummary> getProcessedFilesByStatus(String status, int page, int size, String sortBy, String direction) {
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(null, null, status, null, null, null),
+            summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFilesByDateRange(LocalDateTime startDate, LocalDateTime endDate, 
+    public Page<ProcessedFileSummary> getProcessedFilesByDateRange(LocalDateTime startDate, LocalDateTime endDate, 
             int page, int size, String sortBy, String direction) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByProcessedDateBetween(startDate, endDate, pageRequest);
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(null, null, null, null, startDate, endDate),
+            summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFilesByClientAndStatus(Long clientId, String status, 
+    public Page<ProcessedFileSummary> getProcessedFilesByClientAndStatus(Long clientId, String status, 
             int page, int size, String sortBy, String direction) {
-        Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByClientIdAndStatus(clientId, status, pageRequest);
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(clientId, null, status, null, null, null),
+            summaryPageRequest(page, size, sortBy, direction));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<ProcessedFile> getProcessedFilesByClientAndDateRange(Long clientId, LocalDateTime startDate, 
+    public Page<ProcessedFileSummary> getProcessedFilesByClientAndDateRange(Long clientId, LocalDateTime startDate, 
             LocalDateTime endDate, int page, int size, String sortBy, String direction) {
+        return processedFileListingRepository.findSummaries(new ProcessedFileFilter(clientId, null, null, null, startDate, endDate),
+            summaryPageRequest(page, size, sortBy, direction));
+    }
+
+    private static PageRequest summaryPageRequest(int page, int size, String sortBy, String direction) {
+        // The list endpoints default to "processedDate", the entity attribute is processedAt
+        String property = "processedDate".equals(sortBy) ? "processedAt" : sortBy;
         Sort sort = direction.equalsIgnoreCase("asc") ? 
-            Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        
-        PageRequest pageRequest = PageRequest.of(page, size, sort);
-        return processedFileRepository.findByClientIdAndProcessedDateBetween(clientId, startDate, endDate, pageRequest);
+            Sort.by(property).ascending() : Sort.by(property).descending();
+        return PageRequest.of(page, size, sort);
     }
 
     @Override
@@ -246,4 +247,10 @@ public class ProcessedFileServiceImpl implements ProcessedFileService {
     public List<ProcessedFile> getProcessedFilesByStatus(String status) {
         return processedFileRepository.findByStatus(status);
     }
-} 
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ProcessedFileSummary> scrollProcessedFiles(ProcessedFileFilter filter, KeysetRequest request) {
+        return processedFileListingRepository.scroll(filter, request);
+    }
+}
@@ -1,5 +1,7 @@
 package com.xml.processor.service.interfaces;
     
+import com.xml.processor.dto.AsnDocument;
+import com.xml.processor.dto.AsnDocumentFilter;
 import com.xml.processor.model.AsnHeader;
 import com.xml.processor.model.AsnLine;
 import java.time.LocalDate;
@@ -30,4 +32,11 @@ public interface AsnService {
     List<AsnLine> findByClient_IdAndQuantityGreaterThan(Long clientId, Integer quantity);
     AsnLine updateAsnLine(Long id, AsnLine line);
     void deleteAsnLine(Long id);
+    
+    // Bulk operations
+    AsnHeader createAsnWithLines(AsnHeader header, List<AsnLine> lines);
+    AsnHeader upsertAsnWithLines(AsnHeader header, List<AsnLine> lines);
+    
+    // Aggregate reads: headers with their lines in two queries per page
+    List<AsnDocument> getAsnDocuments(AsnDocumentFilter filter, Long afterId, int limit);
 } 
\ No newline at end of file
@@ -2,8 +2,10 @@ package com.xml.processor.service.interfaces;
     
 import com.xml.processor.model.Interface;
 import com.xml.processor.model.Client;
+import com.xml.processor.service.detection.XmlDocumentSignature;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
     
 public interface InterfaceService {
     List<Interface> getAllInterfaces();
@@ -14,5 +16,7 @@ public interface InterfaceService {
     Interface updateInterface(Long id, Interface interfaceEntity);
     void deleteInterface(Long id);
     Interface detectInterface(String xmlContent, Long clientId);
+    Interface detectInterface(XmlDocumentSignature signature, Long clientId);
+    Set<String> getDetectionFields(Long clientId);
     List<Interface> getInterfacesByClient(Client client);
 } 
\ No newline at end of file
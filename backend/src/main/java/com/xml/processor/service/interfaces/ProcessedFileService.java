@@ -1,6 +1,10 @@
 package com.xml.processor.service.interfaces;
     
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
 import java.util.List;
 import java.util.Optional;
     
@@ -17,4 +21,5 @@ public interface ProcessedFileService {
     List<ProcessedFile> findLatestProcessedFiles(Long clientId);
     ProcessedFile updateProcessedFile(Long id, ProcessedFile file);
     void deleteProcessedFile(Long id);
+    CursorPage<ProcessedFileSummary> scrollProcessedFiles(ProcessedFileFilter filter, KeysetRequest request);
 } 
\ No newline at end of file
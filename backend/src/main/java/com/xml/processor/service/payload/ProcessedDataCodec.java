@@ -0,0 +1,118 @@
+package com.xml.processor.service.payload;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Turns processed data into the compressed bytes kept in {@code processed_file_payloads} and back.
+ * The JSON text is deflated; the codec name is stored next to the bytes so that another codec
+ * can be introduced without rewriting existing rows.
+ */
+public final class ProcessedDataCodec {
+
+    public static final String DEFLATE = "deflate";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private ProcessedDataCodec() {
+    }
+
+    /**
+     * Serialized processed data together with its uncompressed length.
+     */
+    public record Encoded(String codec, int originalSize, byte[] payload) {
+    }
+
+    public static Encoded encode(Map<String, Object> data) {
+        try {
+            return compress(objectMapper.writeValueAsBytes(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize processed data", e);
+        }
+    }
+
+    /**
+     * Encodes processed data that is already JSON text, as found in the legacy inline column.
+     * A JSON string wrapping an object (how a plain string bound to a JSON column ends up) is
+     * unwrapped first.
+     */
+    public static Encoded encodeJson(String json) throws IOException {
+        return compress(objectMapper.writeValueAsBytes(readObject(json)));
+    }
+
+    /**
+     * Reads processed data that is stored as JSON text, see {@link #encodeJson(String)}.
+     */
+    public static Map<String, Object> decodeJson(String json) throws IOException {
+        return objectMapper.convertValue(readObject(json), MAP_TYPE);
+    }
+
+    public static Map<String, Object> decode(String codec, int originalSize, byte[] payload) {
+        if (!DEFLATE.equals(codec)) {
+            throw new IllegalArgumentException("Unsupported processed data codec: " + codec);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            byte[] json = new byte[originalSize];
+            int length = 0;
+            while (length < originalSize && !inflater.finished()) {
+                int read = inflater.inflate(json, length, originalSize - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != originalSize) {
+                throw new IllegalStateException("Truncated processed data payload");
+            }
+            if (!inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+                throw new IllegalStateException("Corrupt processed data payload, longer than its recorded size");
+            }
+            return objectMapper.readValue(json, MAP_TYPE);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt processed data payload", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read processed data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static JsonNode readObject(String json) throws IOException {
+        JsonNode node = objectMapper.readTree(json);
+        if (node != null && node.isTextual()) {
+            node = objectMapper.readTree(node.asText());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IOException("Processed data is not a JSON object");
+        }
+        return node;
+    }
+
+    private static Encoded compress(byte[] json) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return new Encoded(DEFLATE, json.length, out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+}
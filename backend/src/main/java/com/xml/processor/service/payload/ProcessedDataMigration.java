@@ -0,0 +1,119 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves processed data still stored inline in {@code processed_files.processed_data} into
+ * {@code processed_file_payloads}, one small batch per run, while the application keeps serving
+ * requests. Each batch commits on its own, so the migration can be interrupted at any point and
+ * picks up where the column is still populated after a restart.
+ * <p>
+ * A payload written by the application since the upgrade is never overwritten by the inline
+ * value. Rows whose inline value cannot be parsed are logged and left in place.
+ */
+@ConnectionPool(Workload.ADMIN)
+@Component
+public class ProcessedDataMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedDataMigration.class);
+
+    private static final String SELECT_BATCH =
+        "SELECT id, processed_data FROM processed_files WHERE processed_data IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String INSERT_PAYLOAD =
+        "INSERT INTO processed_file_payloads (processed_file_id, codec, original_size, payload) " +
+        "SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM processed_file_payloads WHERE processed_file_id = ?)";
+    // Assigning updated_at to itself keeps ON UPDATE CURRENT_TIMESTAMP from touching the row's timestamp
+    private static final String CLEAR_INLINE =
+        "UPDATE processed_files SET processed_data = NULL, updated_at = updated_at WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.processed-data.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.processed-data.migration.batch-size:500}")
+    private int batchSize;
+
+    private volatile boolean finished;
+    private long lastId;
+    private long migrated;
+
+    @Scheduled(initialDelayString = "${app.processed-data.migration.initial-delay-ms:30000}",
+               fixedDelayString = "${app.processed-data.migration.delay-ms:5000}")
+    public void migrateNextBatch() {
+        if (!enabled || finished) {
+            return;
+        }
+        try {
+            Batch batch = new TransactionTemplate(transactionManager).execute(status -> migrateBatch());
+            if (batch != null) {
+                // Only advance once the batch is committed; a failed batch is read again on the next run
+                lastId = batch.lastId();
+                migrated += batch.moved();
+            } else {
+                finished = true;
+                if (migrated > 0) {
+                    logger.info("Moved the processed data of {} files out of processed_files", migrated);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Processed data migration batch after id {} failed, retrying on the next run: {}",
+                lastId, e.getMessage());
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return what the batch did, null once no inline data is left
+     */
+    private Batch migrateBatch() {
+        List<InlineRow> rows = jdbcTemplate.query(SELECT_BATCH,
+            (rs, rowNum) -> new InlineRow(rs.getLong(1), rs.getString(2)), lastId, batchSize);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<Object[]> inserts = new ArrayList<>(rows.size());
+        List<Object[]> clears = new ArrayList<>(rows.size());
+        for (InlineRow row : rows) {
+            try {
+                ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encodeJson(row.json());
+                inserts.add(new Object[] {row.id(), encoded.codec(), encoded.originalSize(), encoded.payload(), row.id()});
+                clears.add(new Object[] {row.id()});
+            } catch (IOException e) {
+                logger.warn("Leaving unreadable processed data of file {} inline: {}", row.id(), e.getMessage());
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PAYLOAD, inserts);
+        jdbcTemplate.batchUpdate(CLEAR_INLINE, clears);
+        long batchLastId = rows.get(rows.size() - 1).id();
+        logger.debug("Moved processed data of {} files up to id {}", clears.size(), batchLastId);
+        return new Batch(batchLastId, clears.size());
+    }
+
+    private record InlineRow(long id, String json) {
+    }
+
+    private record Batch(long lastId, int moved) {
+    }
+}
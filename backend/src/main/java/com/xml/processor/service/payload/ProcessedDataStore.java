@@ -0,0 +1,74 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.model.ProcessedFilePayload;
+import com.xml.processor.repository.ProcessedFilePayloadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Reads and writes the compressed processed data of processed files. Only the single-file read
+ * path loads it; the metadata row in {@code processed_files} never carries the payload.
+ */
+@Component
+public class ProcessedDataStore {
+
+    @Autowired
+    private ProcessedFilePayloadRepository payloadRepository;
+
+    /**
+     * Stores the processed data of a file persisted in the current transaction.
+     */
+    @Transactional
+    public void create(ProcessedFile file, Map<String, Object> data) {
+        file.setProcessedData(data);
+        if (data == null) {
+            return;
+        }
+        ProcessedFilePayload payload = new ProcessedFilePayload();
+        payload.setProcessedFile(file);
+        fill(payload, data);
+        payloadRepository.save(payload);
+    }
+
+    /**
+     * Replaces the processed data of an existing file, removing it when {@code data} is null.
+     */
+    @Transactional
+    public void update(ProcessedFile file, Map<String, Object> data) {
+        file.setProcessedData(data);
+        ProcessedFilePayload payload = payloadRepository.findById(file.getId()).orElse(null);
+        if (data == null) {
+            if (payload != null) {
+                payloadRepository.delete(payload);
+            }
+            return;
+        }
+        if (payload == null) {
+            payload = new ProcessedFilePayload();
+            payload.setProcessedFile(file);
+        }
+        fill(payload, data);
+        payloadRepository.save(payload);
+    }
+
+    /**
+     * Populates the processed data of the file from its stored payload, if it has one.
+     */
+    @Transactional(readOnly = true)
+    public ProcessedFile load(ProcessedFile file) {
+        payloadRepository.findById(file.getId()).ifPresent(payload -> file.setProcessedData(
+            ProcessedDataCodec.decode(payload.getCodec(), payload.getOriginalSize(), payload.getPayload())));
+        return file;
+    }
+
+    private void fill(ProcessedFilePayload payload, Map<String, Object> data) {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(data);
+        payload.setCodec(encoded.codec());
+        payload.setOriginalSize(encoded.originalSize());
+        payload.setPayload(encoded.payload());
+    }
+}
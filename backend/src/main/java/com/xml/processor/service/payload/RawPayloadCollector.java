@@ -0,0 +1,143 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.annotation.ConnectionPool;
+import com.xml.processor.config.Workload;
+import com.xml.processor.partition.PartitionCatalog;
+import com.xml.processor.partition.PartitionedTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Deletes the blobs of {@link RawPayloadStore} that no processed file refers to any more, or only
+ * files processed longer than {@code app.raw-payloads.retention-days} ago.
+ * <p>
+ * The store is swept one shard at a time: the blobs of a shard are listed, then the references to
+ * that hash prefix are read from {@code processed_files} and its detached partitions, so memory is
+ * bounded by the size of a shard. Blobs written within the grace period are skipped, since the
+ * processed file referring to them may not be committed yet; that includes blobs stored again while
+ * the shard is swept, which the store checks right before deleting.
+ */
+@ConnectionPool(Workload.ADMIN)
+@Component
+public class RawPayloadCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawPayloadCollector.class);
+
+    private static final String HASH_COLUMN = "raw_payload_hash";
+
+    @Autowired
+    private RawPayloadStore rawPayloadStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    @Value("${app.raw-payloads.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.raw-payloads.gc-grace-minutes:60}")
+    private long graceMinutes;
+
+    /**
+     * Outcome of a collection.
+     */
+    public record Collection(int scanned, int deleted, long bytesFreed) {
+    }
+
+    @Scheduled(cron = "${app.raw-payloads.gc-cron:0 30 1 * * *}")
+    public void collectScheduled() {
+        if (!rawPayloadStore.isEnabled()) {
+            return;
+        }
+        try {
+            collect();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Raw payload collection failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public synchronized Collection collect() throws IOException {
+        long started = System.currentTimeMillis();
+        Instant graceCutoff = Instant.now().minus(Duration.ofMinutes(graceMinutes));
+        LocalDateTime retentionCutoff = retentionDays > 0 ? LocalDateTime.now().minusDays(retentionDays) : null;
+        List<String> tables = referencingTables(retentionCutoff);
+
+        int scanned = 0;
+        int deleted = 0;
+        long bytesFreed = 0;
+        for (String shard : rawPayloadStore.shards()) {
+            List<RawPayloadStore.StoredBlob> candidates = new ArrayList<>();
+            for (RawPayloadStore.StoredBlob blob : rawPayloadStore.list(shard)) {
+                scanned++;
+                if (blob.lastModified().isBefore(graceCutoff)) {
+                    candidates.add(blob);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            Set<String> referenced = referencedHashes(tables, shard, retentionCutoff);
+            for (RawPayloadStore.StoredBlob blob : candidates) {
+                // A blob stored again since it was listed may belong to a file not committed yet
+                if (!referenced.contains(blob.hash())
+                        && rawPayloadStore.deleteIfUnmodifiedSince(blob.hash(), graceCutoff)) {
+                    deleted++;
+                    bytesFreed += blob.size();
+                }
+            }
+        }
+        int tempFiles = rawPayloadStore.deleteTempFilesBefore(graceCutoff);
+        logger.info("Raw payload collection scanned {} blobs and deleted {} ({} bytes) and {} stale temporary files in {} ms",
+            scanned, deleted, bytesFreed, tempFiles, System.currentTimeMillis() - started);
+        return new Collection(scanned, deleted, bytesFreed);
+    }
+
+    /**
+     * The live table and the partitions that can hold files processed after the cutoff. Partitions
+     * detached before the hash column was added cannot refer to a blob and are left out.
+     */
+    private List<String> referencingTables(LocalDateTime retentionCutoff) {
+        Set<String> withColumn = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT LOWER(TABLE_NAME) FROM INFORMATION_SCHEMA.COLUMNS WHERE LOWER(COLUMN_NAME) = ?",
+            String.class, HASH_COLUMN));
+        List<String> tables = new ArrayList<>();
+        for (String table : partitionCatalog.tablesFor(PartitionedTable.PROCESSED_FILES, retentionCutoff, null)) {
+            if (withColumn.contains(table.toLowerCase(Locale.ROOT))) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    private Set<String> referencedHashes(List<String> tables, String shard, LocalDateTime retentionCutoff) {
+        String key = PartitionedTable.PROCESSED_FILES.getKeyColumn();
+        Set<String> referenced = new HashSet<>();
+        for (String table : tables) {
+            String sql = "SELECT DISTINCT " + HASH_COLUMN + " FROM " + table + " WHERE " + HASH_COLUMN + " LIKE ?";
+            if (retentionCutoff != null) {
+                referenced.addAll(jdbcTemplate.queryForList(sql + " AND (" + key + " IS NULL OR " + key + " >= ?)",
+                    String.class, shard + "%", retentionCutoff));
+            } else {
+                referenced.addAll(jdbcTemplate.queryForList(sql, String.class, shard + "%"));
+            }
+        }
+        return referenced;
+    }
+}
@@ -0,0 +1,303 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the original XML of inbound files on local disk, addressed by the SHA-256 of its content,
+ * so a file can be reprocessed or downloaded without asking the partner to resend it.
+ * <p>
+ * Blobs are gzip-compressed and sharded by the leading hash digits into
+ * {@code <directory>/ab/cd/<hash>.xml.gz}; identical uploads share one blob. A blob is written to a
+ * temporary file and moved into place, so readers never see a partial one. Reads map the blob into
+ * memory instead of copying it through heap buffers, and downloads that accept gzip get the stored
+ * bytes as they are through {@link FileChannel#transferTo}. Nothing here tracks references;
+ * {@link RawPayloadCollector} removes the blobs no processed file needs any more. Storing a blob
+ * that exists touches it instead, and the collector only deletes blobs that were not touched since
+ * it read the references, so the two never race on one blob.
+ */
+@Component
+public class RawPayloadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawPayloadStore.class);
+
+    private static final String SUFFIX = ".xml.gz";
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * A stored blob, as seen by the collector.
+     */
+    public record StoredBlob(String hash, long size, Instant lastModified) {
+    }
+
+    @Value("${app.raw-payloads.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.raw-payloads.directory:./data/raw-payloads}")
+    private String directory;
+
+    private Path root;
+
+    /** Guards moving a blob into place or touching it against deleting it, striped by hash. */
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public RawPayloadStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath().normalize();
+        if (enabled) {
+            Files.createDirectories(root.resolve(TEMP_DIRECTORY));
+            logger.info("Storing raw payloads in {}", root);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stores the content of the stream, reading it to the end without closing it.
+     *
+     * @return the hash to reference the payload by, null when the store is disabled
+     */
+    public String store(InputStream input) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(root.resolve(TEMP_DIRECTORY), "payload-", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Channels.newOutputStream(
+                    FileChannel.open(temp, StandardOpenOption.WRITE)), BUFFER_SIZE)) {
+                new DigestInputStream(input, digest).transferTo(out);
+            }
+            String hash = HEX.formatHex(digest.digest());
+            Path target = pathOf(hash);
+            synchronized (lockOf(hash)) {
+                if (Files.exists(target)) {
+                    // Stored before; touching it keeps a collection running right now from removing it
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Opens the uncompressed payload, read from a memory mapping of the blob.
+     */
+    public InputStream open(String hash) throws IOException {
+        Path path = existing(hash);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE);
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GZIPInputStream(new ByteBufferInputStream(mapped), BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Size of the stored, compressed blob.
+     */
+    public long compressedSize(String hash) throws IOException {
+        return Files.size(existing(hash));
+    }
+
+    /**
+     * Copies the compressed blob to the target as stored, a gzip stream of the payload.
+     *
+     * @return the number of bytes written
+     */
+    public long transferCompressed(String hash, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(existing(hash), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Names of the top-level shard directories.
+     */
+    public List<String> shards() throws IOException {
+        List<String> shards = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return shards;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, entry ->
+                Files.isDirectory(entry) && !entry.getFileName().toString().equals(TEMP_DIRECTORY))) {
+            entries.forEach(entry -> shards.add(entry.getFileName().toString()));
+        }
+        return shards;
+    }
+
+    /**
+     * Blobs whose hash starts with the shard name.
+     */
+    public List<StoredBlob> list(String shard) throws IOException {
+        List<StoredBlob> blobs = new ArrayList<>();
+        try (var files = Files.walk(root.resolve(shard), 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(SUFFIX) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                String hash = name.substring(0, name.length() - SUFFIX.length());
+                if (HASH.matcher(hash).matches()) {
+                    blobs.add(new StoredBlob(hash, Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+                }
+            }
+        }
+        return blobs;
+    }
+
+    /**
+     * Deletes the blob unless it was stored or touched at or after the cutoff.
+     *
+     * @return whether the blob was deleted
+     */
+    public boolean deleteIfUnmodifiedSince(String hash, Instant cutoff) throws IOException {
+        Path path = pathOf(hash);
+        synchronized (lockOf(hash)) {
+            if (!Files.isRegularFile(path) || !Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                return false;
+            }
+            return Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Deletes temporary files left behind by writes that did not finish before the cutoff.
+     *
+     * @return the number of files deleted
+     */
+    public int deleteTempFilesBefore(Instant cutoff) throws IOException {
+        int deleted = 0;
+        Path temp = root.resolve(TEMP_DIRECTORY);
+        if (!Files.isDirectory(temp)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(temp)) {
+            for (Path entry : entries) {
+                if (Files.getLastModifiedTime(entry).toInstant().isBefore(cutoff) && Files.deleteIfExists(entry)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private Path existing(String hash) throws IOException {
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Raw payload", "hash", hash);
+        }
+        return path;
+    }
+
+    private Path pathOf(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + SUFFIX);
+    }
+
+    private Object lockOf(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % locks.length];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Reads a buffer from its position to its limit.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.xml.processor.service.strategy;
 
 import com.xml.processor.model.Interface;
 import com.xml.processor.model.MappingRule;
+import com.xml.processor.service.bulk.MappedRecord;
 import com.xml.processor.service.interfaces.MappingRuleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,12 +13,19 @@ import org.w3c.dom.NodeList;
 
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathFactory;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public abstract class AbstractDocumentProcessingStrategy implements DocumentProcessingStrategy {
     
@@ -79,6 +87,232 @@ public abstract class AbstractDocumentProcessingStrategy implements DocumentProc
         return result;
     }
     
+    /**
+     * Rules are grouped by table name. The rows of a table are the elements matched by the path
+     * its rules share, e.g. {@code //E1EDL24} for {@code //E1EDL24/MATNR} and
+     * {@code //E1EDL24/LFIMG}, and every rule is evaluated relative to its row element, so a
+     * missing optional element only leaves that row's value empty. Records come in document
+     * order, each with the record of the nearest enclosing row of another table as parent, which
+     * is how the bulk writer links a line to its own header.
+     */
+    @Override
+    public Stream<MappedRecord> mapRecords(Document document, Interface interfaceEntity, Long clientId) {
+        List<MappingRule> rules = mappingRuleService.getActiveMappingRules(interfaceEntity.getId());
+        XPath xPath = XPathFactory.newInstance().newXPath();
+        
+        Map<String, List<MappingRule>> rulesByTable = new LinkedHashMap<>();
+        for (MappingRule rule : rules) {
+            if (rule.getTableName() != null && !rule.getTableName().isEmpty()) {
+                rulesByTable.computeIfAbsent(rule.getTableName(), table -> new ArrayList<>()).add(rule);
+            }
+        }
+        
+        // A node can be the row of more than one table, those keep the order of the rules
+        Map<Node, List<TableRows>> tablesByRow = new IdentityHashMap<>();
+        for (Map.Entry<String, List<MappingRule>> entry : rulesByTable.entrySet()) {
+            TableRows table = compileTable(xPath, entry.getKey(), entry.getValue());
+            for (Node row : findRows(xPath, document, table)) {
+                tablesByRow.computeIfAbsent(row, node -> new ArrayList<>()).add(table);
+            }
+        }
+        
+        // One pre-order walk: rows in document order, the open rows on the stack are the ancestors
+        List<MappedRecord> records = new ArrayList<>();
+        Deque<OpenRow> open = new ArrayDeque<>();
+        Node node = document;
+        while (node != null && !tablesByRow.isEmpty()) {
+            List<TableRows> tables = tablesByRow.remove(node);
+            if (tables != null) {
+                MappedRecord parent = open.isEmpty() ? null : open.peek().record();
+                MappedRecord first = null;
+                for (TableRows table : tables) {
+                    MappedRecord record = new MappedRecord(table.tableName(), mapRow(table, node), parent);
+                    records.add(record);
+                    first = first == null ? record : first;
+                }
+                open.push(new OpenRow(node, first));
+            }
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != null && node.getNextSibling() == null) {
+                closeRow(open, node);
+                node = node.getParentNode();
+            }
+            if (node != null) {
+                closeRow(open, node);
+                node = node.getNextSibling();
+            }
+        }
+        return records.stream();
+    }
+    
+    private static void closeRow(Deque<OpenRow> open, Node node) {
+        if (!open.isEmpty() && open.peek().node() == node) {
+            open.pop();
+        }
+    }
+    
+    private TableRows compileTable(XPath xPath, String tableName, List<MappingRule> rules) {
+        List<String> rowSteps = rowSteps(rules);
+        List<XPathExpression> values = new ArrayList<>(rules.size());
+        for (MappingRule rule : rules) {
+            try {
+                values.add(xPath.compile(relativePath(rule.getXmlPath(), rowSteps)));
+            } catch (Exception e) {
+                logger.error("Error processing mapping rule {}: {}", rule.getName(), e.getMessage(), e);
+                if (rule.isRequired()) {
+                    throw new RuntimeException("Failed to process required mapping rule: " + rule.getName(), e);
+                }
+                values.add(null);
+            }
+        }
+        return new TableRows(tableName, rules, rowSteps.isEmpty() ? null : String.join("/", rowSteps), values);
+    }
+    
+    private List<Node> findRows(XPath xPath, Document document, TableRows table) {
+        if (table.rowPath() == null) {
+            return List.of(document);
+        }
+        try {
+            NodeList nodes = (NodeList) xPath.evaluate(table.rowPath(), document, XPathConstants.NODESET);
+            List<Node> rows = new ArrayList<>(nodes.getLength());
+            for (int i = 0; i < nodes.getLength(); i++) {
+                rows.add(nodes.item(i));
+            }
+            return rows;
+        } catch (Exception e) {
+            logger.error("Error finding the {} rows at {}: {}", table.tableName(), table.rowPath(), e.getMessage(), e);
+            if (table.rules().stream().anyMatch(MappingRule::isRequired)) {
+                throw new RuntimeException("Failed to find the rows of table: " + table.tableName(), e);
+            }
+            return List.of();
+        }
+    }
+    
+    private Map<String, Object> mapRow(TableRows table, Node row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < table.rules().size(); i++) {
+            MappingRule rule = table.rules().get(i);
+            XPathExpression expression = table.values().get(i);
+            String value = null;
+            
+            Node matched = null;
+            if (expression != null) {
+                try {
+                    matched = (Node) expression.evaluate(row, XPathConstants.NODE);
+                } catch (Exception e) {
+                    logger.error("Error processing mapping rule {}: {}", rule.getName(), e.getMessage(), e);
+                    if (rule.isRequired()) {
+                        throw new RuntimeException("Failed to process required mapping rule: " + rule.getName(), e);
+                    }
+                }
+            }
+            if (matched != null) {
+                value = matched.getTextContent();
+                if (rule.getTransformation() != null && !rule.getTransformation().isEmpty()) {
+                    value = applyTransformation(value, rule.getTransformation());
+                }
+            } else if (rule.getDefaultValue() != null && !rule.getDefaultValue().isEmpty()) {
+                value = rule.getDefaultValue();
+            }
+            
+            if (value == null && rule.isRequired()) {
+                logger.warn("Required field {} not found in XML for rule {} (row {})", rule.getDatabaseField(), rule.getName(), row.getNodeName());
+            }
+            values.put(rule.getDatabaseField(), value);
+        }
+        return values;
+    }
+    
+    /**
+     * The location steps all rule paths of a table share, without the last step of any of
+     * them; empty when the document itself is the only row.
+     */
+    static List<String> rowSteps(List<MappingRule> rules) {
+        List<String> common = null;
+        for (MappingRule rule : rules) {
+            List<String> steps = steps(rule.getXmlPath());
+            if (steps == null || steps.size() < 2) {
+                return List.of();
+            }
+            List<String> parent = steps.subList(0, steps.size() - 1);
+            if (common == null) {
+                common = parent;
+            } else {
+                int shared = 0;
+                while (shared < common.size() && shared < parent.size() && common.get(shared).equals(parent.get(shared))) {
+                    shared++;
+                }
+                common = common.subList(0, shared);
+            }
+        }
+        // A prefix ending in "/" or "//" is not a location of its own
+        int end = common == null ? 0 : common.size();
+        while (end > 0 && common.get(end - 1).isEmpty()) {
+            end--;
+        }
+        return end == 0 ? List.of() : List.copyOf(common.subList(0, end));
+    }
+    
+    /**
+     * The rule path relative to a row matched by the given steps.
+     */
+    static String relativePath(String xmlPath, List<String> rowSteps) {
+        if (rowSteps.isEmpty()) {
+            return xmlPath;
+        }
+        List<String> steps = steps(xmlPath);
+        List<String> rest = steps.subList(rowSteps.size(), steps.size());
+        String relative = String.join("/", rest);
+        // "//x" below the row must stay below it
+        return rest.get(0).isEmpty() ? "./" + relative : relative;
+    }
+    
+    /**
+     * Splits a location path on the slashes outside predicates, function calls and literals, so
+     * {@code //A/B[C/D]} gives {@code "", "", "A", "B[C/D]"}. Returns null for a union, which has
+     * no single location.
+     */
+    static List<String> steps(String xmlPath) {
+        if (xmlPath == null || xmlPath.isBlank()) {
+            return null;
+        }
+        List<String> steps = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < xmlPath.length(); i++) {
+            char c = xmlPath.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return null;
+            } else if (c == '/' && depth == 0) {
+                steps.add(xmlPath.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        steps.add(xmlPath.substring(start).trim());
+        return steps;
+    }
+    
+    /**
+     * The rules of one table, compiled relative to its rows.
+     */
+    private record TableRows(String tableName, List<MappingRule> rules, String rowPath, List<XPathExpression> values) {
+    }
+    
+    private record OpenRow(Node node, MappedRecord record) {
+    }
+    
     protected String applyTransformation(String value, String transformation) {
         if (value == null || value.trim().isEmpty()) {
             return value;
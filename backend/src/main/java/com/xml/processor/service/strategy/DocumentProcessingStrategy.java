@@ -2,9 +2,11 @@ package com.xml.processor.service.strategy;
 
 import com.xml.processor.model.Interface;
 import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.service.bulk.MappedRecord;
 import org.w3c.dom.Document;
 
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface DocumentProcessingStrategy {
     /**
@@ -16,6 +18,15 @@ public interface DocumentProcessingStrategy {
      */
     Map<String, Object> processDocument(Document document, Interface interfaceEntity, Long clientId);
 
+    /**
+     * Map the XML document to table rows, following the table name of each mapping rule
+     * @param document The XML document to process
+     * @param interfaceEntity The interface configuration
+     * @param clientId The client ID
+     * @return The mapped rows, produced lazily
+     */
+    Stream<MappedRecord> mapRecords(Document document, Interface interfaceEntity, Long clientId);
+
     /**
      * Validate if this strategy can handle the given interface type
      * @param interfaceType The type of interface to check
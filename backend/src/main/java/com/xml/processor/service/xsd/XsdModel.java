@@ -0,0 +1,238 @@
+package com.xml.processor.service.xsd;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, indexed view of a parsed XSD. Nodes are kept by path and every parent keeps
+ * its children in document order, so expanding a node in the mapping UI is a single hash
+ * lookup followed by a sublist.
+ */
+public final class XsdModel {
+
+    /** Parent key used for the top-level elements of the schema. */
+    public static final String ROOT = "";
+
+    private final Map<String, XsdNode> nodesByPath;
+    private final Map<String, List<XsdNode>> childrenByParent;
+    private final List<Map<String, Object>> flattened;
+    private final XsdPathIndex pathIndex;
+
+    private XsdModel(Map<String, XsdNode> nodesByPath, Map<String, List<XsdNode>> childrenByParent,
+                     List<Map<String, Object>> flattened) {
+        this.nodesByPath = nodesByPath;
+        this.childrenByParent = childrenByParent;
+        this.flattened = flattened;
+        this.pathIndex = XsdPathIndex.build(nodesByPath.values());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public XsdNode getNode(String path) {
+        return nodesByPath.get(path);
+    }
+
+    public boolean contains(String path) {
+        return nodesByPath.containsKey(path);
+    }
+
+    /**
+     * Children of the given node in document order, or the top-level elements when
+     * {@code parentPath} is null or empty.
+     */
+    public List<XsdNode> getChildren(String parentPath) {
+        String key = parentPath == null ? ROOT : parentPath;
+        return childrenByParent.getOrDefault(key, Collections.emptyList());
+    }
+
+    public int getChildCount(String path) {
+        return getChildren(path).size();
+    }
+
+    /**
+     * All nodes in depth-first document order; a parent always precedes its children.
+     */
+    public Collection<XsdNode> getNodes() {
+        return nodesByPath.values();
+    }
+
+    public int size() {
+        return nodesByPath.size();
+    }
+
+    /**
+     * All nodes in depth-first document order, in the format of the flat structure endpoint.
+     */
+    public List<Map<String, Object>> getFlattened() {
+        return flattened;
+    }
+
+    public XsdPathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+    /**
+     * Resolves a mapping rule path against the schema and returns the dotted paths it can
+     * select; an empty list means the path does not exist in the schema.
+     * <p>
+     * Both dotted paths ({@code DELVRY07.IDOC.E1EDL20}) and the XPath subset used by mapping
+     * rules are accepted: absolute and relative location paths, {@code //} descendant steps,
+     * {@code *} wildcards, {@code @attribute} steps and namespace prefixes. Predicates and a
+     * trailing {@code text()} are ignored since they do not change which element is addressed.
+     */
+    public List<String> resolveXmlPath(String xmlPath) {
+        if (xmlPath == null || xmlPath.isBlank()) {
+            return Collections.emptyList();
+        }
+        String expression = stripPredicates(xmlPath.trim());
+        if (expression.indexOf('/') < 0 && nodesByPath.containsKey(expression)) {
+            return List.of(expression);
+        }
+
+        // Location paths are evaluated against the document node, so relative and absolute
+        // paths both start at the schema's global elements
+        boolean absolute = expression.startsWith("/");
+        String[] steps = expression.split("/", -1);
+        Set<String> current = new LinkedHashSet<>();
+        current.add(ROOT);
+        boolean descendant = false;
+        for (int i = absolute ? 1 : 0; i < steps.length; i++) {
+            String step = steps[i];
+            if (step.isEmpty()) {
+                descendant = true;
+                continue;
+            }
+            if (step.equals(".") || step.equals("text()") || step.equals("node()")) {
+                continue;
+            }
+            String name = localStepName(step);
+            current = descendant ? descendants(current, name) : children(current, name);
+            descendant = false;
+            if (current.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        current.remove(ROOT);
+        return new ArrayList<>(current);
+    }
+
+    private Set<String> children(Set<String> parents, String name) {
+        Set<String> next = new LinkedHashSet<>();
+        for (String parent : parents) {
+            if ("*".equals(name)) {
+                for (XsdNode child : getChildren(parent)) {
+                    if (!child.getName().startsWith("@")) {
+                        next.add(child.getPath());
+                    }
+                }
+            } else {
+                String path = parent.isEmpty() ? name : parent + "." + name;
+                if (nodesByPath.containsKey(path)) {
+                    next.add(path);
+                }
+            }
+        }
+        return next;
+    }
+
+    private Set<String> descendants(Set<String> ancestors, String name) {
+        List<String> candidates;
+        if ("*".equals(name)) {
+            candidates = new ArrayList<>();
+            for (String path : nodesByPath.keySet()) {
+                if (!nodesByPath.get(path).getName().startsWith("@")) {
+                    candidates.add(path);
+                }
+            }
+        } else {
+            candidates = pathIndex.findByLeafName(name);
+        }
+
+        Set<String> next = new LinkedHashSet<>();
+        for (String candidate : candidates) {
+            for (String ancestor : ancestors) {
+                if (ancestor.isEmpty() || candidate.startsWith(ancestor + ".")) {
+                    next.add(candidate);
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    private static String localStepName(String step) {
+        String name = step.startsWith("child::") ? step.substring("child::".length()) : step;
+        if (name.startsWith("attribute::")) {
+            name = "@" + name.substring("attribute::".length());
+        }
+        boolean attribute = name.startsWith("@");
+        String local = attribute ? name.substring(1) : name;
+        int colon = local.indexOf(':');
+        if (colon >= 0) {
+            local = local.substring(colon + 1);
+        }
+        return attribute ? "@" + local : local;
+    }
+
+    private static String stripPredicates(String expression) {
+        StringBuilder result = new StringBuilder(expression.length());
+        int depth = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    public static final class Builder {
+
+        private final Map<String, XsdNode> nodesByPath = new LinkedHashMap<>();
+        private final Map<String, List<XsdNode>> childrenByParent = new HashMap<>();
+        private final List<Map<String, Object>> flattened = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a node. Nodes must be added in depth-first document order; a path that was
+         * already added (e.g. the same element reachable through a repeated group) is ignored.
+         */
+        public Builder add(XsdNode node) {
+            if (nodesByPath.putIfAbsent(node.getPath(), node) != null) {
+                return this;
+            }
+            String parent = node.getParentPath() == null ? ROOT : node.getParentPath();
+            childrenByParent.computeIfAbsent(parent, key -> new ArrayList<>()).add(node);
+            flattened.add(node.toFlatMap());
+            return this;
+        }
+
+        public boolean contains(String path) {
+            return nodesByPath.containsKey(path);
+        }
+
+        public XsdModel build() {
+            Map<String, List<XsdNode>> children = new HashMap<>(childrenByParent.size() * 2);
+            childrenByParent.forEach((parent, list) -> children.put(parent, List.copyOf(list)));
+            return new XsdModel(
+                Collections.unmodifiableMap(new LinkedHashMap<>(nodesByPath)),
+                Collections.unmodifiableMap(children),
+                Collections.unmodifiableList(new ArrayList<>(flattened)));
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.xml.processor.service.xsd;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles an XSD (plus its includes/imports) into an {@link XsdModel} of element paths.
+ * <p>
+ * Global elements become the roots of the tree. Named complex and simple types, element
+ * and attribute refs, model groups, attribute groups and complexContent/simpleContent
+ * extensions and restrictions are all resolved, so the model contains every path an
+ * instance document can have. Attributes are emitted as {@code @name} children of their
+ * element. Recursive types are expanded once per branch; the recursive element itself is
+ * still listed but not expanded again.
+ * <p>
+ * Components are matched by local name, which is sufficient for the single-namespace
+ * schemas the middleware works with.
+ */
+public class XsdModelCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(XsdModelCompiler.class);
+
+    private static final String XSD_NS = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+    private static final int MAX_DEPTH = 64;
+
+    private final Map<String, Element> elements = new LinkedHashMap<>();
+    private final Map<String, Element> complexTypes = new HashMap<>();
+    private final Map<String, Element> simpleTypes = new HashMap<>();
+    private final Map<String, Element> groups = new HashMap<>();
+    private final Map<String, Element> attributeGroups = new HashMap<>();
+    private final Map<String, Element> attributes = new HashMap<>();
+    private final Map<Path, byte[]> loadedFiles = new LinkedHashMap<>();
+    private final Set<Path> missingFiles = new LinkedHashSet<>();
+
+    private final XsdModel.Builder model = XsdModel.builder();
+    private final Deque<String> expanding = new ArrayDeque<>();
+
+    private XsdModelCompiler() {
+    }
+
+    /**
+     * A compiled model with the schema files it was read from and the SHA-256 of the content read,
+     * the given file first, and the referenced schemas that did not exist.
+     */
+    public record Compilation(XsdModel model, Map<Path, byte[]> files, List<Path> missingFiles) {
+    }
+
+    public static XsdModel compile(File xsdFile) throws Exception {
+        return compileWithFiles(xsdFile).model();
+    }
+
+    public static Compilation compileWithFiles(File xsdFile) throws Exception {
+        XsdModelCompiler compiler = new XsdModelCompiler();
+        compiler.load(xsdFile);
+        return new Compilation(compiler.compileModel(), Collections.unmodifiableMap(compiler.loadedFiles),
+            List.copyOf(compiler.missingFiles));
+    }
+
+    private void load(File xsdFile) throws Exception {
+        File canonical = xsdFile.getCanonicalFile();
+        if (loadedFiles.containsKey(canonical.toPath())) {
+            return;
+        }
+        // Hash exactly the bytes parsed, so a snapshot can tell whether the file changed since
+        byte[] content = Files.readAllBytes(canonical.toPath());
+        loadedFiles.put(canonical.toPath(), MessageDigest.getInstance("SHA-256").digest(content));
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(content), canonical.toURI().toString());
+
+        for (Element child : xsdChildren(document.getDocumentElement())) {
+            String name = child.getAttribute("name");
+            switch (child.getLocalName()) {
+                case "element" -> elements.putIfAbsent(name, child);
+                case "complexType" -> complexTypes.putIfAbsent(name, child);
+                case "simpleType" -> simpleTypes.putIfAbsent(name, child);
+                case "group" -> groups.putIfAbsent(name, child);
+                case "attributeGroup" -> attributeGroups.putIfAbsent(name, child);
+                case "attribute" -> attributes.putIfAbsent(name, child);
+                case "include", "import", "redefine" -> {
+                    String location = child.getAttribute("schemaLocation");
+                    if (!location.isEmpty()) {
+                        File included = new File(canonical.getParentFile(), location);
+                        if (included.exists()) {
+                            load(included);
+                        } else {
+                            logger.warn("Referenced schema not found: {}", included);
+                            missingFiles.add(included.toPath().toAbsolutePath().normalize());
+                        }
+                    }
+                }
+                default -> {
+                    // annotations, notations
+                }
+            }
+        }
+    }
+
+    private XsdModel compileModel() {
+        for (Element element : elements.values()) {
+            emitElement(element, XsdModel.ROOT, 0);
+        }
+        return model.build();
+    }
+
+    private void emitElement(Element use, String parentPath, int depth) {
+        Element declaration = use;
+        String name = use.getAttribute("name");
+        if (use.hasAttribute("ref")) {
+            name = localName(use.getAttribute("ref"));
+            declaration = elements.get(name);
+            if (declaration == null) {
+                logger.warn("Unresolved element reference: {}", use.getAttribute("ref"));
+            }
+        }
+        if (name.isEmpty()) {
+            return;
+        }
+
+        String path = parentPath.isEmpty() ? name : parentPath + "." + name;
+        Element typeSource = declaration != null ? declaration : use;
+        model.add(new XsdNode(name, describeType(typeSource), path, parentPath,
+            occurs(use, "minOccurs"), occurs(use, "maxOccurs"), depth));
+
+        if (declaration == null || depth >= MAX_DEPTH) {
+            return;
+        }
+
+        String guard = declaration.hasAttribute("type")
+            ? "type:" + localName(declaration.getAttribute("type"))
+            : "element:" + System.identityHashCode(declaration);
+        if (expanding.contains(guard)) {
+            return;
+        }
+        expanding.push(guard);
+        try {
+            if (declaration.hasAttribute("type")) {
+                Element complexType = resolveComplexType(declaration, declaration.getAttribute("type"));
+                if (complexType != null) {
+                    expandComplexType(complexType, path, depth + 1);
+                }
+            } else {
+                Element inline = firstXsdChild(declaration, "complexType");
+                if (inline != null) {
+                    expandComplexType(inline, path, depth + 1);
+                }
+            }
+        } finally {
+            expanding.pop();
+        }
+    }
+
+    private void expandComplexType(Element complexType, String path, int depth) {
+        for (Element child : xsdChildren(complexType)) {
+            switch (child.getLocalName()) {
+                case "sequence", "choice", "all", "group" -> expandParticle(child, path, depth);
+                case "attribute", "attributeGroup" -> expandAttribute(child, path, depth);
+                case "complexContent", "simpleContent" -> expandDerivation(child, path, depth);
+                default -> {
+                    // annotation, anyAttribute
+                }
+            }
+        }
+    }
+
+    private void expandDerivation(Element content, String path, int depth) {
+        for (Element derivation : xsdChildren(content)) {
+            String kind = derivation.getLocalName();
+            if (!"extension".equals(kind) && !"restriction".equals(kind)) {
+                continue;
+            }
+
+            Element base = resolveComplexType(derivation, derivation.getAttribute("base"));
+            if (base != null) {
+                String guard = "type:" + localName(derivation.getAttribute("base"));
+                if (!expanding.contains(guard)) {
+                    expanding.push(guard);
+                    try {
+                        if ("extension".equals(kind)) {
+                            // An extension appends its own content to the full base content
+                            expandComplexType(base, path, depth);
+                        } else {
+                            // A restriction restates its particles, but attributes are inherited
+                            expandAttributesOnly(base, path, depth);
+                        }
+                    } finally {
+                        expanding.pop();
+                    }
+                }
+            }
+            expandComplexType(derivation, path, depth);
+        }
+    }
+
+    private void expandAttributesOnly(Element complexType, String path, int depth) {
+        for (Element child : xsdChildren(complexType)) {
+            switch (child.getLocalName()) {
+                case "attribute", "attributeGroup" -> expandAttribute(child, path, depth);
+                case "complexContent", "simpleContent" -> {
+                    for (Element derivation : xsdChildren(child)) {
+                        Element base = resolveComplexType(derivation, derivation.getAttribute("base"));
+                        if (base != null && base != complexType) {
+                            expandAttributesOnly(base, path, depth);
+                        }
+                        expandAttributesOnly(derivation, path, depth);
+                    }
+                }
+                default -> {
+                    // particles are restated by the restriction
+                }
+            }
+        }
+    }
+
+    private void expandParticle(Element particle, String path, int depth) {
+        switch (particle.getLocalName()) {
+            case "element" -> emitElement(particle, path, depth);
+            case "sequence", "choice", "all" -> {
+                for (Element child : xsdChildren(particle)) {
+                    expandParticle(child, path, depth);
+                }
+            }
+            case "group" -> {
+                Element group = particle;
+                if (particle.hasAttribute("ref")) {
+                    group = groups.get(localName(particle.getAttribute("ref")));
+                    if (group == null) {
+                        logger.warn("Unresolved group reference: {}", particle.getAttribute("ref"));
+                        return;
+                    }
+                }
+                String guard = "group:" + group.getAttribute("name");
+                if (expanding.contains(guard)) {
+                    return;
+                }
+                expanding.push(guard);
+                try {
+                    for (Element child : xsdChildren(group)) {
+                        expandParticle(child, path, depth);
+                    }
+                } finally {
+                    expanding.pop();
+                }
+            }
+            default -> {
+                // any, annotation
+            }
+        }
+    }
+
+    private void expandAttribute(Element attribute, String path, int depth) {
+        if ("attributeGroup".equals(attribute.getLocalName())) {
+            Element group = attribute;
+            if (attribute.hasAttribute("ref")) {
+                group = attributeGroups.get(localName(attribute.getAttribute("ref")));
+                if (group == null) {
+                    logger.warn("Unresolved attributeGroup reference: {}", attribute.getAttribute("ref"));
+                    return;
+                }
+            }
+            String guard = "attributeGroup:" + group.getAttribute("name");
+            if (expanding.contains(guard)) {
+                return;
+            }
+            expanding.push(guard);
+            try {
+                for (Element child : xsdChildren(group)) {
+                    if ("attribute".equals(child.getLocalName()) || "attributeGroup".equals(child.getLocalName())) {
+                        expandAttribute(child, path, depth);
+                    }
+                }
+            } finally {
+                expanding.pop();
+            }
+            return;
+        }
+
+        if ("prohibited".equals(attribute.getAttribute("use"))) {
+            return;
+        }
+        Element declaration = attribute;
+        String name = attribute.getAttribute("name");
+        if (attribute.hasAttribute("ref")) {
+            name = localName(attribute.getAttribute("ref"));
+            declaration = attributes.getOrDefault(name, attribute);
+        }
+        if (name.isEmpty()) {
+            return;
+        }
+
+        String attributeName = "@" + name;
+        model.add(new XsdNode(attributeName, describeType(declaration), path + "." + attributeName, path,
+            "required".equals(attribute.getAttribute("use")) ? "1" : "0", "1", depth));
+    }
+
+    /**
+     * Returns the named complex type referenced by a QName, or null for built-in and simple types.
+     */
+    private Element resolveComplexType(Element context, String qName) {
+        if (qName == null || qName.isEmpty() || isXsdBuiltIn(context, qName)) {
+            return null;
+        }
+        return complexTypes.get(localName(qName));
+    }
+
+    private String describeType(Element declaration) {
+        if (declaration.hasAttribute("type")) {
+            return declaration.getAttribute("type");
+        }
+        Element simpleType = firstXsdChild(declaration, "simpleType");
+        if (simpleType != null) {
+            Element restriction = firstXsdChild(simpleType, "restriction");
+            if (restriction != null && restriction.hasAttribute("base")) {
+                return restriction.getAttribute("base");
+            }
+            return "simpleType";
+        }
+        Element complexType = firstXsdChild(declaration, "complexType");
+        if (complexType != null) {
+            for (Element content : xsdChildren(complexType)) {
+                if ("simpleContent".equals(content.getLocalName())) {
+                    for (Element derivation : xsdChildren(content)) {
+                        if (derivation.hasAttribute("base")) {
+                            return derivation.getAttribute("base");
+                        }
+                    }
+                }
+            }
+            return "complexType";
+        }
+        return "";
+    }
+
+    private static boolean isXsdBuiltIn(Element context, String qName) {
+        int colon = qName.indexOf(':');
+        String prefix = colon < 0 ? null : qName.substring(0, colon);
+        return XSD_NS.equals(context.lookupNamespaceURI(prefix));
+    }
+
+    private static String occurs(Element element, String attribute) {
+        return element.hasAttribute(attribute) ? element.getAttribute(attribute) : "1";
+    }
+
+    private static String localName(String qName) {
+        int colon = qName.indexOf(':');
+        return colon < 0 ? qName : qName.substring(colon + 1);
+    }
+
+    private static Element firstXsdChild(Element parent, String localName) {
+        for (Element child : xsdChildren(parent)) {
+            if (localName.equals(child.getLocalName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Element children in the XML Schema namespace; text, comments and foreign
+     * (e.g. appinfo) elements are skipped.
+     */
+    private static List<Element> xsdChildren(Element parent) {
+        NodeList nodes = parent.getChildNodes();
+        List<Element> children = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE && XSD_NS.equals(node.getNamespaceURI())) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,349 @@
+package com.xml.processor.service.xsd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary snapshot of compiled {@link XsdModel}s.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header     magic "XSDS", version, createdAt, directoryOffset
+ * payloads   one per model: string table, then per node (name, type, parent, minOccurs, maxOccurs, depth)
+ * directory  per model: clientId, xsdPath, source, candidates, every schema file read with its SHA-256,
+ *            referenced schemas that were missing, payload offset/length
+ * </pre>
+ * The file is memory-mapped read-only; the header and directory are read on open while node
+ * payloads are only decoded when a model is first requested.
+ */
+public final class XsdModelSnapshot {
+
+    private static final int MAGIC = 0x58534453; // "XSDS"
+    private static final int VERSION = 2;
+    private static final long NO_CLIENT = -1L;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final long createdAt;
+    private final Map<String, DirectoryEntry> directory;
+    private final Map<String, XsdModel> decoded = new ConcurrentHashMap<>();
+
+    private XsdModelSnapshot(Path file, ByteBuffer buffer, long createdAt, Map<String, DirectoryEntry> directory) {
+        this.file = file;
+        this.buffer = buffer;
+        this.createdAt = createdAt;
+        this.directory = directory;
+    }
+
+    /**
+     * A compiled model to store, together with how it was resolved: the SHA-256 of every schema file
+     * it was compiled from and the referenced schemas that did not exist.
+     */
+    public record Entry(Long clientId, String xsdPath, Path source, List<Path> candidates,
+                        Map<Path, byte[]> files, List<Path> missingFiles, XsdModel model) {
+    }
+
+    /**
+     * A model restored from the snapshot after its schema files were checked against the file system.
+     */
+    public record Restored(Path source, List<Path> candidates, Map<Path, byte[]> files, List<Path> missingFiles,
+                           XsdModel model) {
+    }
+
+    private record DirectoryEntry(Path source, List<Path> candidates, Map<Path, byte[]> files,
+                                  List<Path> missingFiles, int offset, int length) {
+    }
+
+    public static XsdModelSnapshot open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an XSD model snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported XSD model snapshot version " + version + ": " + file);
+            }
+            long createdAt = buffer.getLong();
+            int directoryOffset = buffer.getInt();
+
+            ByteBuffer in = buffer.duplicate();
+            in.position(directoryOffset);
+            int entryCount = in.getInt();
+            Map<String, DirectoryEntry> directory = new HashMap<>(entryCount * 2);
+            for (int i = 0; i < entryCount; i++) {
+                long clientId = in.getLong();
+                String xsdPath = readString(in);
+                Path source = Paths.get(readString(in));
+                List<Path> candidates = readPaths(in);
+                int fileCount = in.getInt();
+                Map<Path, byte[]> files = new LinkedHashMap<>(fileCount * 2);
+                for (int f = 0; f < fileCount; f++) {
+                    Path schemaFile = Paths.get(readString(in));
+                    byte[] sha256 = new byte[32];
+                    in.get(sha256);
+                    files.put(schemaFile, sha256);
+                }
+                List<Path> missingFiles = readPaths(in);
+                int offset = in.getInt();
+                int length = in.getInt();
+                directory.put(key(clientId == NO_CLIENT ? null : clientId, xsdPath), new DirectoryEntry(source,
+                    candidates, Collections.unmodifiableMap(files), missingFiles, offset, length));
+            }
+
+            return new XsdModelSnapshot(file, buffer, createdAt, Collections.unmodifiableMap(directory));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt XSD model snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to {@code target} and moves it into place.
+     */
+    public static void write(Path target, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(0); // directory offset, patched below
+
+        int[] offsets = new int[entries.size()];
+        int[] lengths = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            offsets[i] = out.size();
+            writeModel(out, entries.get(i).model());
+            lengths[i] = out.size() - offsets[i];
+        }
+
+        int directoryOffset = out.size();
+        out.writeInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            out.writeLong(entry.clientId() == null ? NO_CLIENT : entry.clientId());
+            writeString(out, entry.xsdPath());
+            writeString(out, entry.source().toString());
+            writePaths(out, entry.candidates());
+            out.writeInt(entry.files().size());
+            for (Map.Entry<Path, byte[]> schemaFile : entry.files().entrySet()) {
+                writeString(out, schemaFile.getKey().toString());
+                out.write(schemaFile.getValue());
+            }
+            writePaths(out, entry.missingFiles());
+            out.writeInt(offsets[i]);
+            out.writeInt(lengths[i]);
+        }
+        out.flush();
+
+        ByteBuffer content = ByteBuffer.wrap(bytes.toByteArray());
+        content.putInt(16, directoryOffset);
+
+        Path absolute = target.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores the model stored for the given key, provided none of the schema files it was compiled
+     * from has changed, no missing include has appeared and no higher-precedence candidate (e.g. a
+     * client override) has appeared since the snapshot was taken.
+     */
+    public Optional<Restored> restore(Long clientId, String xsdPath) throws IOException {
+        String key = key(clientId, xsdPath);
+        DirectoryEntry entry = directory.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        for (Path candidate : entry.candidates()) {
+            if (candidate.equals(entry.source())) {
+                break;
+            }
+            if (Files.exists(candidate)) {
+                return Optional.empty();
+            }
+        }
+        if (!Files.isRegularFile(entry.source())) {
+            return Optional.empty();
+        }
+        for (Map.Entry<Path, byte[]> schemaFile : entry.files().entrySet()) {
+            if (!Files.isRegularFile(schemaFile.getKey())
+                    || !Arrays.equals(schemaFile.getValue(), sha256(schemaFile.getKey()))) {
+                return Optional.empty();
+            }
+        }
+        for (Path missing : entry.missingFiles()) {
+            if (Files.exists(missing)) {
+                return Optional.empty();
+            }
+        }
+
+        XsdModel model = decoded.computeIfAbsent(key, k -> readModel(entry));
+        return Optional.of(new Restored(entry.source(), entry.candidates(), entry.files(), entry.missingFiles(),
+            model));
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getModelCount() {
+        return directory.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] chunk = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private XsdModel readModel(DirectoryEntry entry) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(entry.offset());
+        in.limit(entry.offset() + entry.length());
+
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+
+        int nodeCount = in.getInt();
+        String[] paths = new String[nodeCount];
+        XsdModel.Builder model = XsdModel.builder();
+        for (int i = 0; i < nodeCount; i++) {
+            String name = strings[in.getInt()];
+            String type = strings[in.getInt()];
+            int parent = in.getInt();
+            String minOccurs = strings[in.getInt()];
+            String maxOccurs = strings[in.getInt()];
+            int depth = in.getShort();
+
+            String parentPath = parent < 0 ? XsdModel.ROOT : paths[parent];
+            paths[i] = parent < 0 ? name : parentPath + "." + name;
+            model.add(new XsdNode(name, type, paths[i], parentPath, minOccurs, maxOccurs, depth));
+        }
+        return model.build();
+    }
+
+    private static void writeModel(DataOutputStream out, XsdModel model) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<String, Integer> nodeIndex = new HashMap<>(model.size() * 2);
+        int index = 0;
+        for (XsdNode node : model.getNodes()) {
+            intern(strings, node.getName());
+            intern(strings, node.getType());
+            intern(strings, node.getMinOccurs());
+            intern(strings, node.getMaxOccurs());
+            nodeIndex.put(node.getPath(), index++);
+        }
+
+        out.writeInt(strings.size());
+        for (String value : strings.keySet()) {
+            writeString(out, value);
+        }
+
+        out.writeInt(model.size());
+        for (XsdNode node : model.getNodes()) {
+            out.writeInt(strings.get(node.getName()));
+            out.writeInt(strings.get(node.getType()));
+            out.writeInt(node.getParentPath().isEmpty() ? -1 : nodeIndex.get(node.getParentPath()));
+            out.writeInt(strings.get(node.getMinOccurs()));
+            out.writeInt(strings.get(node.getMaxOccurs()));
+            out.writeShort(node.getDepth());
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String value) {
+        strings.putIfAbsent(value, strings.size());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static void writePaths(DataOutputStream out, List<Path> paths) throws IOException {
+        out.writeInt(paths.size());
+        for (Path path : paths) {
+            writeString(out, path.toString());
+        }
+    }
+
+    private static List<Path> readPaths(ByteBuffer in) {
+        int count = in.getInt();
+        List<Path> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(Paths.get(readString(in)));
+        }
+        return List.copyOf(paths);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static String key(Long clientId, String xsdPath) {
+        return clientId + ":" + xsdPath;
+    }
+}
@@ -0,0 +1,80 @@
+package com.xml.processor.service.xsd;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single element of a parsed XSD, addressed by its dotted path (e.g. {@code IDOC.E1EDL20.VBELN}).
+ */
+public final class XsdNode {
+
+    private final String name;
+    private final String type;
+    private final String path;
+    private final String parentPath;
+    private final String minOccurs;
+    private final String maxOccurs;
+    private final int depth;
+
+    public XsdNode(String name, String type, String path, String parentPath,
+                   String minOccurs, String maxOccurs, int depth) {
+        this.name = name;
+        this.type = type;
+        this.path = path;
+        this.parentPath = parentPath;
+        this.minOccurs = minOccurs;
+        this.maxOccurs = maxOccurs;
+        this.depth = depth;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public String getMinOccurs() {
+        return minOccurs;
+    }
+
+    public String getMaxOccurs() {
+        return maxOccurs;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The representation returned by the original flat {@code /xsd-structure} endpoint.
+     */
+    public Map<String, Object> toFlatMap() {
+        return Map.of(
+            "name", name,
+            "type", type,
+            "path", path
+        );
+    }
+
+    public Map<String, Object> toTreeMap(int childCount) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("type", type);
+        map.put("path", path);
+        map.put("minOccurs", minOccurs);
+        map.put("maxOccurs", maxOccurs);
+        map.put("childCount", childCount);
+        map.put("hasChildren", childCount > 0);
+        return map;
+    }
+}
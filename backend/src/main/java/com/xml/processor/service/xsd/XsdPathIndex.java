@@ -0,0 +1,120 @@
+package com.xml.processor.service.xsd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prefix index over the dotted element paths of an {@link XsdModel}.
+ * <p>
+ * Paths are held in a sorted array, so all paths sharing a prefix form one contiguous run
+ * that is found with a binary search; this gives the same lookups as a trie with a single
+ * compact allocation. A second array over the lower-cased paths serves case-insensitive
+ * autocomplete, and a map by leaf name answers descendant ({@code //NAME}) XPath checks.
+ */
+public final class XsdPathIndex {
+
+    private final String[] sortedPaths;
+    private final String[] sortedLowerPaths;
+    private final String[] lowerToPath;
+    private final Map<String, List<String>> pathsByLeafName;
+
+    private XsdPathIndex(String[] sortedPaths, String[] sortedLowerPaths, String[] lowerToPath,
+                         Map<String, List<String>> pathsByLeafName) {
+        this.sortedPaths = sortedPaths;
+        this.sortedLowerPaths = sortedLowerPaths;
+        this.lowerToPath = lowerToPath;
+        this.pathsByLeafName = pathsByLeafName;
+    }
+
+    static XsdPathIndex build(Collection<XsdNode> nodes) {
+        String[] paths = new String[nodes.size()];
+        Map<String, List<String>> byLeaf = new HashMap<>();
+        int i = 0;
+        for (XsdNode node : nodes) {
+            paths[i++] = node.getPath();
+            byLeaf.computeIfAbsent(node.getName(), key -> new ArrayList<>()).add(node.getPath());
+        }
+        Arrays.sort(paths);
+
+        Integer[] order = new Integer[paths.length];
+        String[] lower = new String[paths.length];
+        for (int j = 0; j < paths.length; j++) {
+            order[j] = j;
+            lower[j] = paths[j].toLowerCase(Locale.ROOT);
+        }
+        Arrays.sort(order, (a, b) -> lower[a].compareTo(lower[b]));
+        String[] sortedLower = new String[paths.length];
+        String[] lowerToPath = new String[paths.length];
+        for (int j = 0; j < order.length; j++) {
+            sortedLower[j] = lower[order[j]];
+            lowerToPath[j] = paths[order[j]];
+        }
+
+        Map<String, List<String>> leaves = new HashMap<>(byLeaf.size() * 2);
+        byLeaf.forEach((name, list) -> leaves.put(name, List.copyOf(list)));
+        return new XsdPathIndex(paths, sortedLower, lowerToPath, Collections.unmodifiableMap(leaves));
+    }
+
+    /**
+     * Up to {@code limit} paths starting with {@code prefix}, in lexical order.
+     */
+    public List<String> findByPrefix(String prefix, int limit) {
+        return collect(sortedPaths, sortedPaths, prefix, limit);
+    }
+
+    /**
+     * Case-insensitive variant of {@link #findByPrefix(String, int)}, returning the paths
+     * with their original casing.
+     */
+    public List<String> findByPrefixIgnoreCase(String prefix, int limit) {
+        return collect(sortedLowerPaths, lowerToPath, prefix.toLowerCase(Locale.ROOT), limit);
+    }
+
+    public int countByPrefix(String prefix) {
+        int from = lowerBound(sortedPaths, prefix);
+        int to = lowerBound(sortedPaths, prefix + Character.MAX_VALUE);
+        return to - from;
+    }
+
+    /**
+     * All paths whose last segment is {@code name}, used for {@code //name} expressions.
+     */
+    public List<String> findByLeafName(String name) {
+        return pathsByLeafName.getOrDefault(name, Collections.emptyList());
+    }
+
+    public int size() {
+        return sortedPaths.length;
+    }
+
+    private static List<String> collect(String[] keys, String[] values, String prefix, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 32));
+        for (int i = lowerBound(keys, prefix); i < keys.length && result.size() < limit; i++) {
+            if (!keys[i].startsWith(prefix)) {
+                break;
+            }
+            result.add(values[i]);
+        }
+        return result;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,44 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the sequence that hands out ids for all {@code BaseEntity} tables.
+ * <p>
+ * The sequence must start above every id the identity columns have already issued, which a
+ * plain SQL script cannot compute, hence a Java migration. It increments by the allocation
+ * size of the pooled optimizer so one call reserves a block of 50 ids.
+ */
+public class V4__Create_Base_Entity_Sequence extends BaseJavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String[] TABLES = {
+        "interfaces", "asn_headers", "asn_lines", "processed_files", "mapping_rules"
+    };
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId = 0;
+            for (String table : TABLES) {
+                maxId = Math.max(maxId, maxId(statement, table));
+            }
+            // The pooled optimizer treats a value as the upper end of a block, so the first
+            // block handed out starts at maxId + 2
+            statement.execute("CREATE SEQUENCE base_entity_seq START WITH " + (maxId + ALLOCATION_SIZE + 1)
+                + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+
+    private static long maxId(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
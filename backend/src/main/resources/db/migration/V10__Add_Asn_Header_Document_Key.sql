@@ -0,0 +1,22 @@
+-- An ASN is identified by its client and document number. Resent deliveries used to create another
+-- header, so keep only the newest header of each document (and its lines) before making the pair
+-- unique. AsnUpsertWriter merges on this key.
+-- The removed rows are copied to asn_headers_dedup_backup and asn_lines_dedup_backup first; drop
+-- those tables once the result has been checked.
+CREATE TABLE asn_headers_dedup_backup AS
+SELECT h.* FROM asn_headers h
+WHERE EXISTS (
+    SELECT 1 FROM asn_headers n
+    WHERE n.client_id = h.client_id AND n.document_number = h.document_number AND n.id > h.id);
+
+CREATE TABLE asn_lines_dedup_backup AS
+SELECT l.* FROM asn_lines l
+WHERE l.header_id IN (SELECT b.id FROM asn_headers_dedup_backup b);
+
+DELETE FROM asn_lines
+WHERE header_id IN (SELECT b.id FROM asn_headers_dedup_backup b);
+
+DELETE FROM asn_headers
+WHERE id IN (SELECT b.id FROM asn_headers_dedup_backup b);
+
+CREATE UNIQUE INDEX uk_asn_headers_client_document ON asn_headers(client_id, document_number);
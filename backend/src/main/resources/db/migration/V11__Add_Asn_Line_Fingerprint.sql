@@ -0,0 +1,3 @@
+-- Fingerprint of the content of an ASN line as last written by AsnUpsertWriter. A revision of the
+-- document only writes the lines whose fingerprint changed; null means unknown and is rewritten.
+ALTER TABLE asn_lines ADD COLUMN line_fingerprint VARCHAR(64);
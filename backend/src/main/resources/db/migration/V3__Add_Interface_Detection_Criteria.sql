@@ -0,0 +1,2 @@
+-- Optional content-based detection rules per interface, e.g. {"MESTYP": "DELVRY", "SNDPRN": ["SAPERP", "SAPQAS"]}
+ALTER TABLE interfaces ADD COLUMN detection_criteria JSON;
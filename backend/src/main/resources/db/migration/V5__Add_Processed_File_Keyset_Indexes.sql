@@ -0,0 +1,4 @@
+-- Keyset paging seeks on (filter, created_at, id); these indexes serve each page as a range scan
+CREATE INDEX idx_processed_files_created_at_id ON processed_files(created_at, id);
+CREATE INDEX idx_processed_files_client_created_at_id ON processed_files(client_id, created_at, id);
+CREATE INDEX idx_processed_files_status_created_at_id ON processed_files(status, created_at, id);
@@ -0,0 +1,10 @@
+-- Processed data moves out of processed_files into a compressed side table, so scans of the
+-- metadata rows no longer read the payloads. processed_files.processed_data is drained in the
+-- background by ProcessedDataMigration and dropped in a later release.
+CREATE TABLE processed_file_payloads (
+    processed_file_id BIGINT PRIMARY KEY,
+    codec VARCHAR(16) NOT NULL,
+    original_size INT NOT NULL,
+    payload BLOB NOT NULL,
+    FOREIGN KEY (processed_file_id) REFERENCES processed_files(id) ON DELETE CASCADE
+);
@@ -0,0 +1,15 @@
+-- Catalog of the monthly partitions detached from processed_files and audit_logs by PartitionManager.
+-- Listings read the live table plus the partitions whose recorded range overlaps their date filter.
+CREATE TABLE table_partitions (
+    partition_name VARCHAR(128) PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    range_start TIMESTAMP,
+    range_end TIMESTAMP,
+    min_id BIGINT,
+    max_id BIGINT,
+    row_count BIGINT NOT NULL,
+    detached_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Processed file partitions are cut on processed_at, which is also what the date filters use
+CREATE INDEX idx_processed_files_processed_at ON processed_files(processed_at);
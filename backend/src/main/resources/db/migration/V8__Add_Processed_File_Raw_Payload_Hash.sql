@@ -0,0 +1,6 @@
+-- The original XML of a processed file is kept in the raw payload store on disk, addressed by the
+-- SHA-256 of its content. Files processed before this column existed have no stored payload.
+ALTER TABLE processed_files ADD COLUMN raw_payload_hash VARCHAR(64);
+
+-- Serves the garbage collector, which reads the references one hash prefix at a time
+CREATE INDEX idx_processed_files_raw_payload_hash ON processed_files(raw_payload_hash);
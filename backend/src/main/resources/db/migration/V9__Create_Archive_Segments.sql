@@ -0,0 +1,18 @@
+-- Catalog of the columnar segment files that old processed_files, asn_headers and asn_lines rows
+-- are archived into by ArchiveManager. Queries of the archive prune segments on these statistics
+-- before opening any file.
+CREATE TABLE archive_segments (
+    segment_name VARCHAR(128) PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    source VARCHAR(128) NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    row_count BIGINT NOT NULL,
+    min_id BIGINT,
+    max_id BIGINT,
+    range_start TIMESTAMP,
+    range_end TIMESTAMP,
+    column_stats CLOB NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_archive_segments_table_source ON archive_segments(table_name, source);
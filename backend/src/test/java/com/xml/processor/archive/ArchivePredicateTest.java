@@ -0,0 +1,52 @@
+package com.xml.processor.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchivePredicateTest {
+
+    private static final ColumnStats IDS = new ColumnStats(10L, 20L, 0);
+
+    @Test
+    void equalPrunesSegmentsOutsideTheRange() {
+        assertTrue(ArchivePredicate.equal("id", 10L).mayMatch(IDS));
+        assertTrue(ArchivePredicate.equal("id", 15L).mayMatch(IDS));
+        assertTrue(ArchivePredicate.equal("id", 20L).mayMatch(IDS));
+        assertFalse(ArchivePredicate.equal("id", 9L).mayMatch(IDS));
+        assertFalse(ArchivePredicate.equal("id", 21L).mayMatch(IDS));
+    }
+
+    @Test
+    void boundsPruneSegmentsEntirelyOnTheOtherSide() {
+        assertTrue(ArchivePredicate.atLeast("id", 20L).mayMatch(IDS));
+        assertFalse(ArchivePredicate.atLeast("id", 21L).mayMatch(IDS));
+        assertTrue(ArchivePredicate.atMost("id", 10L).mayMatch(IDS));
+        assertFalse(ArchivePredicate.atMost("id", 9L).mayMatch(IDS));
+
+        ColumnStats january = new ColumnStats(
+            LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 31, 23, 59), 0);
+        assertFalse(ArchivePredicate.atLeast("created_at", LocalDateTime.of(2024, 2, 1, 0, 0)).mayMatch(january));
+        assertTrue(ArchivePredicate.atMost("created_at", LocalDateTime.of(2024, 1, 1, 0, 0)).mayMatch(january));
+
+        ColumnStats statuses = new ColumnStats("ERROR", "PROCESSED", 3);
+        assertTrue(ArchivePredicate.equal("status", "NEW").mayMatch(statuses));
+        assertFalse(ArchivePredicate.equal("status", "SHIPPED").mayMatch(statuses));
+    }
+
+    @Test
+    void segmentsWithoutBoundsAreAlwaysRead() {
+        assertTrue(ArchivePredicate.equal("id", 1L).mayMatch(null));
+        assertTrue(ArchivePredicate.equal("notes", "x").mayMatch(new ColumnStats(null, null, 5)));
+    }
+
+    @Test
+    void nullValuesNeverMatch() {
+        assertFalse(ArchivePredicate.atMost("id", 10L).test(null));
+        assertTrue(ArchivePredicate.atMost("id", 10L).test(10L));
+        assertFalse(ArchivePredicate.atLeast("id", 11L).test(10L));
+    }
+}
@@ -0,0 +1,112 @@
+package com.xml.processor.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes segments of archived ASN lines and reads every column back.
+ */
+public class SegmentFileTest {
+
+    private static final List<String> COLUMNS = ArchivedTable.ASN_LINES.getColumns();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void columnsRoundTripWithNullsNegativeDeltasAndLongStrings() throws IOException {
+        String longNotes = "Lieferung \u00fcber Zoll ".repeat(5_000);
+        List<Object[]> rows = List.of(
+            row(500L, 7L, 1L, "ITEM-1", -3L, "NEW", null, LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000)),
+            row(20L, 7L, null, "ITEM-2", 1_000_000L, null, longNotes, LocalDateTime.of(1969, 12, 31, 23, 59, 59)),
+            row(-40L, null, 2L, "", Long.MIN_VALUE / 2, "NEW", "", LocalDateTime.of(2024, 2, 1, 0, 0)),
+            row(Long.MAX_VALUE / 2, 7L, 3L, null, Long.MAX_VALUE / 2, "SHIPPED", "note", null));
+        Path path = directory.resolve("asn_lines").resolve("segment.seg");
+
+        Map<String, ColumnStats> stats = SegmentFile.write(path, ArchivedTable.ASN_LINES, rows);
+        SegmentFile segment = SegmentFile.open(path);
+
+        assertEquals("asn_lines", segment.tableName());
+        assertEquals(rows.size(), segment.rowCount());
+        for (int c = 0; c < COLUMNS.size(); c++) {
+            Object[] expected = new Object[rows.size()];
+            for (int r = 0; r < rows.size(); r++) {
+                expected[r] = rows.get(r)[c];
+            }
+            assertArrayEquals(expected, segment.column(COLUMNS.get(c)), COLUMNS.get(c));
+        }
+        assertFalse(Arrays.stream(path.getParent().toFile().list()).anyMatch(name -> name.endsWith(".tmp")));
+
+        assertEquals(new ColumnStats(-40L, Long.MAX_VALUE / 2, 0), stats.get("id"));
+        assertEquals(new ColumnStats(null, null, 1), stats.get("notes"));
+        assertEquals(new ColumnStats("", "ITEM-2", 1), stats.get("item_number"));
+        assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 59), stats.get("created_at").min());
+    }
+
+    @Test
+    void decodedColumnsAreKeptAndUnknownColumnsReadAsNulls() throws IOException {
+        Path path = directory.resolve("segment.seg");
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(1L, 1L, 1L, "ITEM", 1L, "NEW", null, null));
+        SegmentFile.write(path, ArchivedTable.ASN_LINES, rows);
+        SegmentFile segment = SegmentFile.open(path);
+
+        assertSame(segment.column("status"), segment.column("status"));
+        assertFalse(segment.hasColumn("archived_by"));
+        assertArrayEquals(new Object[1], segment.column("archived_by"));
+    }
+
+    @Test
+    void columnOfOnlyNullsHasNoBounds() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            rows.add(row(id, 1L, id, "ITEM", 1L, "NEW", null, null));
+        }
+        Path path = directory.resolve("segment.seg");
+
+        Map<String, ColumnStats> stats = SegmentFile.write(path, ArchivedTable.ASN_LINES, rows);
+
+        assertEquals(new ColumnStats(null, null, 1_000), stats.get("lot_number"));
+        assertEquals(new ColumnStats(1L, 1_000L, 0), stats.get("line_number"));
+        assertTrue(ArchivePredicate.equal("lot_number", "LOT-1").mayMatch(stats.get("lot_number")));
+        assertArrayEquals(new Object[1_000], SegmentFile.open(path).column("lot_number"));
+    }
+
+    @Test
+    void typeCodesAreStable() {
+        assertEquals(0, ColumnType.LONG.code());
+        assertEquals(1, ColumnType.TIMESTAMP.code());
+        assertEquals(2, ColumnType.STRING.code());
+        for (ColumnType type : ColumnType.values()) {
+            assertSame(type, ColumnType.fromCode(type.code()));
+        }
+        assertNull(ColumnType.fromCode(3));
+    }
+
+    /**
+     * A row of asn_lines; the columns not given are filled from the ones that are.
+     */
+    private static Object[] row(Long id, Long headerId, Long lineNumber, String itemNumber, Long quantity,
+                                String status, String notes, LocalDateTime createdAt) {
+        return new Object[] {
+            id, headerId, lineNumber, itemNumber, itemNumber != null ? itemNumber + " description" : null, quantity,
+            "EA", null, notes != null ? "SN-" + notes.length() : null, status, notes, 1L, createdAt,
+            createdAt != null ? createdAt.plusSeconds(-90) : null
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.xml.processor.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * In-memory H2 databases stand in for the workload pools and the replica; each one knows its own name.
+ */
+public class WorkloadRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @AfterEach
+    void tearDown() {
+        WorkloadContextHolder.restore(null);
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        route(database("routing-replica"));
+        assertEquals("routing-replica", readOnly.execute(status -> nodeName()));
+        WorkloadContextHolder.setWorkload(Workload.QUERY);
+        assertEquals("routing-replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    void readOnlyTransactionsOfOtherWorkloadsStayOnThePrimary() {
+        route(database("routing-replica"));
+        WorkloadContextHolder.setWorkload(Workload.INGEST);
+        assertEquals("routing-ingest", readOnly.execute(status -> nodeName()));
+        WorkloadContextHolder.setWorkload(Workload.ADMIN);
+        assertEquals("routing-admin", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    void writesAndStatementsOutsideTransactionsUseTheWorkloadPool() {
+        route(database("routing-replica"));
+        assertEquals("routing-query", readWrite.execute(status -> nodeName()));
+        assertEquals("routing-query", nodeName());
+
+        WorkloadContextHolder.setWorkload(Workload.INGEST);
+        assertEquals("routing-ingest", readWrite.execute(status -> nodeName()));
+        WorkloadContextHolder.setWorkload(Workload.ADMIN);
+        assertEquals("routing-admin", nodeName());
+    }
+
+    @Test
+    void readOnlyCallJoiningAWriteTransactionKeepsItsConnection() {
+        route(database("routing-replica"));
+        WorkloadContextHolder.setWorkload(Workload.INGEST);
+        String name = readWrite.execute(status -> {
+            nodeName();
+            WorkloadContextHolder.setWorkload(Workload.QUERY);
+            return readOnly.execute(inner -> nodeName());
+        });
+        assertEquals("routing-ingest", name);
+    }
+
+    @Test
+    void readOnlyTransactionsStayOnTheWorkloadPoolWithoutReplica() {
+        route(null);
+        WorkloadContextHolder.setWorkload(Workload.ADMIN);
+        assertEquals("routing-admin", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    void tasksOnOtherThreadsRunUnderTheSubmittingWorkload() throws Exception {
+        route(database("routing-replica"));
+        WorkloadContextHolder.setWorkload(Workload.INGEST);
+        Runnable task = WorkloadContextHolder.propagate(() -> assertEquals("routing-ingest", nodeName()));
+        WorkloadContextHolder.restore(null);
+
+        CompletableFuture.runAsync(task).get();
+        assertEquals(Workload.QUERY, WorkloadContextHolder.getWorkload());
+    }
+
+    private void route(DataSource replica) {
+        Map<Workload, DataSource> pools = Map.of(
+            Workload.INGEST, database("routing-ingest"),
+            Workload.QUERY, database("routing-query"),
+            Workload.ADMIN, database("routing-admin"));
+        DataSource routing = new LazyConnectionDataSourceProxy(new WorkloadRoutingDataSource(pools, replica));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(50))");
+        jdbc.update("DELETE FROM node");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
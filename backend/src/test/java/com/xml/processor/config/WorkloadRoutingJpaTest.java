@@ -0,0 +1,103 @@
+package com.xml.processor.config;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.service.AuditLogService;
+import com.xml.processor.service.interfaces.ClientService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the services the way a request with an open entity manager does: one entity manager for
+ * several transactions. The replica is the primary database under another pool name, so the pool
+ * statistics tell which one served each transaction.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:routing-jpa;DB_CLOSE_DELAY=-1",
+    "app.datasource.replica.url=jdbc:h2:mem:routing-jpa;DB_CLOSE_DELAY=-1",
+    "app.datasource.replica.username=sa",
+    "spring.jpa.show-sql=false",
+    "app.partitioning.enabled=false"
+})
+public class WorkloadRoutingJpaTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    private EntityManagerHolder request;
+
+    @BeforeEach
+    void openRequest() {
+        request = new EntityManagerHolder(entityManagerFactory.createEntityManager());
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, request);
+    }
+
+    @AfterEach
+    void closeRequest() {
+        TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        request.getEntityManager().close();
+    }
+
+    @Test
+    void writeAfterReadInOneRequestRunsOnThePrimary() {
+        Client client = clientService.saveClient(client("Routing read-write"));
+        entityManagerFactory.getCache().evictAll();
+        request.getEntityManager().clear();
+        connectionPoolMetrics.reset();
+
+        Client loaded = clientService.getClientById(client.getId()).orElseThrow();
+        loaded.setDescription("updated");
+        clientService.saveClient(loaded);
+
+        assertEquals(1L, acquisitions("replica"));
+        assertTrue(acquisitions("query") >= 1, "the write must not reuse the replica connection");
+        assertEquals("updated", clientService.getClientByName("Routing read-write").getDescription());
+    }
+
+    @Test
+    void callsOnDifferentWorkloadsInOneRequestUseTheirOwnPools() {
+        connectionPoolMetrics.reset();
+
+        clientService.saveClient(client("Routing workloads"));
+        auditLogService.getAuditLogs(PageRequest.of(0, 10));
+        assertEquals("Routing workloads", clientService.getClientByName("Routing workloads").getName());
+
+        assertTrue(acquisitions("query") >= 1);
+        assertTrue(acquisitions("admin") >= 1, "the admin call must not reuse the query connection");
+        assertEquals(1L, acquisitions("replica"));
+    }
+
+    private long acquisitions(String pool) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> statistics = (Map<String, Object>) connectionPoolMetrics.getStatistics().get(pool);
+        return ((Number) statistics.get("acquisitions")).longValue();
+    }
+
+    private static Client client(String name) {
+        Client client = new Client();
+        client.setName(name);
+        client.setCode(name.toUpperCase().replace(' ', '_'));
+        client.setStatus(Client.ClientStatus.ACTIVE);
+        return client;
+    }
+}
@@ -0,0 +1,122 @@
+package com.xml.processor.controller;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Export tasks run directly, as the MVC async support would run them on the export executor.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ExportControllerTest {
+
+    @Autowired
+    private ExportController exportController;
+
+    @Autowired
+    @Qualifier("exportExecutor")
+    private ThreadPoolTaskExecutor exportExecutor;
+
+    @Autowired
+    @Qualifier("mvcAsyncExecutor")
+    private ThreadPoolTaskExecutor mvcAsyncExecutor;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    private Client own;
+    private Client other;
+
+    @BeforeEach
+    void setUp() {
+        own = TestClients.create(clientService, "EXPORT_OWN");
+        other = TestClients.create(clientService, "EXPORT_OTHER");
+        file(own, "own-" + own.getId() + ".xml");
+        file(other, "other-" + other.getId() + ".xml");
+        ClientContextHolder.setClient(own);
+        ClientContextHolder.setClientId(own.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ClientContextHolder.clear();
+    }
+
+    @Test
+    void exportsRunOnTheExportExecutorAndOtherAsyncRequestsDoNot() {
+        WebAsyncTask<Void> task = exportController.exportProcessedFiles(
+            null, null, null, null, null, null, null, null, new MockHttpServletResponse());
+
+        assertSame(exportExecutor, task.getExecutor());
+        assertSame(mvcAsyncExecutor, ReflectionTestUtils.getField(handlerAdapter, "taskExecutor"));
+    }
+
+    @Test
+    void callerWithAClientContextExportsOnlyItsOwnFiles() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebAsyncTask<Void> task = exportController.exportProcessedFiles(
+            null, other.getId(), null, null, null, null, null, null, response);
+
+        // The export thread has no client context
+        ClientContextHolder.clear();
+        task.getCallable().call();
+
+        String body = response.getContentAsString();
+        assertTrue(body.contains("own-" + own.getId() + ".xml"));
+        assertFalse(body.contains("other-" + other.getId() + ".xml"));
+    }
+
+    @Test
+    void exportIsCompressedWhenTheClientAcceptsGzip() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebAsyncTask<Void> task = exportController.exportProcessedFiles(
+            "csv", null, null, null, null, null, null, "gzip, deflate", response);
+        task.getCallable().call();
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("processed-files.csv"));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertTrue(new String(body.readAllBytes(), StandardCharsets.UTF_8).contains("own-" + own.getId() + ".xml"));
+        }
+    }
+
+    private void file(Client client, String fileName) {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName(fileName);
+        file.setStatus("PROCESSED");
+        processedFileRepository.save(file);
+    }
+}
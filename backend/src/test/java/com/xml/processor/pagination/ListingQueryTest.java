@@ -0,0 +1,233 @@
+package com.xml.processor.pagination;
+
+import com.xml.processor.exception.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset paging over plain tables in an in-memory database, walked page by page and compared
+ * with the order computed in Java.
+ */
+public class ListingQueryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    record Row(Long id, String name, LocalDateTime processedAt) {
+    }
+
+    private static final KeysetSort<Row> BY_NAME = KeysetSort.of("name", String.class, Row::name);
+    private static final KeysetSort<Row> BY_PROCESSED_AT =
+        KeysetSort.nullable("processedAt", LocalDateTime.class, Row::processedAt);
+
+    private JdbcTemplate jdbcTemplate;
+    private ListingQuery<Row> listing;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:listing-query;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        for (String table : List.of("items", "items_old")) {
+            jdbcTemplate.execute("CREATE TABLE " + table
+                + " (id BIGINT PRIMARY KEY, name VARCHAR(50) NOT NULL, processed_at TIMESTAMP)");
+        }
+        TableStatistics tableStatistics = new TableStatistics();
+        ReflectionTestUtils.setField(tableStatistics, "jdbcTemplate", jdbcTemplate);
+
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("name", "name");
+        columns.put("processedAt", "processed_at");
+        listing = new ListingQuery<>(jdbcTemplate, tableStatistics, columns,
+            (rs, rowNum) -> new Row(rs.getLong("id"), rs.getString("name"),
+                rs.getObject("processed_at", LocalDateTime.class)),
+            Row::id, BY_NAME, BY_PROCESSED_AT, KeysetSort.of("id", Long.class, Row::id));
+    }
+
+    private void insert(String table, long id, String name, LocalDateTime processedAt) {
+        jdbcTemplate.update("INSERT INTO " + table + " (id, name, processed_at) VALUES (?, ?, ?)", id, name, processedAt);
+    }
+
+    /**
+     * Follows the cursors from the first to the last page and returns the ids in page order.
+     */
+    private List<Long> walk(List<String> tables, SqlFilter filter, String sortBy, boolean ascending, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Row> page = listing.scroll(tables, filter,
+                new KeysetRequest(sortBy, ascending, cursor, limit, CountMode.NONE));
+            page.items().forEach(row -> ids.add(row.id()));
+            assertEquals(page.hasNext(), page.nextCursor() != null);
+            assertTrue(page.items().size() <= limit);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Long> expected(List<String> tables, Comparator<Row> order) {
+        return tables.stream()
+            .flatMap(table -> jdbcTemplate.query("SELECT id, name, processed_at FROM " + table,
+                (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2), rs.getObject(3, LocalDateTime.class))).stream())
+            .sorted(order).map(Row::id).toList();
+    }
+
+    @Test
+    void cursorRoundTripsItsSortValue() {
+        KeysetSort<Row> byId = KeysetSort.of("id", Long.class, Row::id);
+        for (Object value : new Object[] {"a:b:c", "", null}) {
+            KeysetCursor cursor = new KeysetCursor("name", true, 42L, value);
+            assertEquals(cursor, KeysetCursor.decode(cursor.encode(), BY_NAME, true));
+        }
+        KeysetCursor byTime = new KeysetCursor("processedAt", false, 7L, T0.plusNanos(1000));
+        assertEquals(byTime, KeysetCursor.decode(byTime.encode(), BY_PROCESSED_AT, false));
+        KeysetCursor nullTime = new KeysetCursor("processedAt", false, 7L, null);
+        assertEquals(nullTime, KeysetCursor.decode(nullTime.encode(), BY_PROCESSED_AT, false));
+        KeysetCursor idOnly = new KeysetCursor("id", true, 9L, 9L);
+        assertEquals(idOnly, KeysetCursor.decode(idOnly.encode(), byId, true));
+    }
+
+    @Test
+    void cursorIsBoundToItsSortAndDirection() {
+        String cursor = new KeysetCursor("name", true, 1L, "x").encode();
+
+        ValidationException otherSort = assertThrows(ValidationException.class,
+            () -> KeysetCursor.decode(cursor, BY_PROCESSED_AT, true));
+        assertTrue(otherSort.getMessage().contains("different sort order"));
+        ValidationException otherDirection = assertThrows(ValidationException.class,
+            () -> KeysetCursor.decode(cursor, BY_NAME, false));
+        assertTrue(otherDirection.getMessage().contains("different sort order"));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        String oldVersion = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("k1:name:a:1:x".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("k2:name:a:one:x".getBytes(StandardCharsets.UTF_8));
+        String badTime = new KeysetCursor("processedAt", true, 1L, "yesterday").encode();
+
+        for (String cursor : List.of("not base64!", oldVersion, badId)) {
+            ValidationException e = assertThrows(ValidationException.class,
+                () -> KeysetCursor.decode(cursor, BY_NAME, true));
+            assertTrue(e.getMessage().startsWith("Invalid cursor"));
+        }
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(badTime, BY_PROCESSED_AT, true));
+    }
+
+    @Test
+    void cursorOfAnotherSortIsRejectedByTheListing() {
+        insert("items", 1, "a", T0);
+        insert("items", 2, "b", T0);
+        CursorPage<Row> first = listing.scroll(List.of("items"), new SqlFilter(),
+            new KeysetRequest("name", true, null, 1, CountMode.NONE));
+
+        assertThrows(ValidationException.class, () -> listing.scroll(List.of("items"), new SqlFilter(),
+            new KeysetRequest("processedAt", true, first.nextCursor(), 1, CountMode.NONE)));
+        assertThrows(ValidationException.class, () -> listing.scroll(List.of("items"), new SqlFilter(),
+            new KeysetRequest("name", false, first.nextCursor(), 1, CountMode.NONE)));
+        assertThrows(ValidationException.class, () -> listing.scroll(List.of("items"), new SqlFilter(),
+            new KeysetRequest("unknown", true, null, 1, CountMode.NONE)));
+    }
+
+    @Test
+    void idBreaksTiesBetweenEqualSortValues() {
+        for (long id = 1; id <= 9; id++) {
+            insert("items", id, id % 3 == 0 ? "b" : "a", T0);
+        }
+        Comparator<Row> ascending = Comparator.comparing(Row::name).thenComparing(Row::id);
+
+        assertEquals(expected(List.of("items"), ascending), walk(List.of("items"), new SqlFilter(), "name", true, 2));
+        assertEquals(expected(List.of("items"), ascending.reversed()), walk(List.of("items"), new SqlFilter(), "name", false, 2));
+        assertEquals(List.of(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), walk(List.of("items"), new SqlFilter(), "id", false, 4));
+    }
+
+    @Test
+    void nullSortValuesAreNeitherSkippedNorRepeated() {
+        for (long id = 1; id <= 8; id++) {
+            insert("items", id, "n" + id, id % 3 == 1 ? null : T0.plusHours(id % 2));
+        }
+        Comparator<Row> ascending = Comparator
+            .comparing(Row::processedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Row::id);
+
+        // Page boundaries fall before, inside and after the NULLs
+        for (int limit = 1; limit <= 3; limit++) {
+            assertEquals(expected(List.of("items"), ascending),
+                walk(List.of("items"), new SqlFilter(), "processedAt", true, limit));
+            assertEquals(expected(List.of("items"), ascending.reversed()),
+                walk(List.of("items"), new SqlFilter(), "processedAt", false, limit));
+        }
+    }
+
+    @Test
+    void pagesMergeAllTablesInOrder() {
+        for (long id = 1; id <= 12; id++) {
+            insert(id % 2 == 0 ? "items" : "items_old", id, "n" + (id % 5), id % 4 == 0 ? null : T0.plusMinutes(id % 3));
+        }
+        List<String> tables = List.of("items", "items_old");
+        Comparator<Row> byName = Comparator.comparing(Row::name).thenComparing(Row::id);
+        Comparator<Row> byProcessedAt = Comparator
+            .comparing(Row::processedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Row::id);
+
+        assertEquals(expected(tables, byName), walk(tables, new SqlFilter(), "name", true, 5));
+        List<Long> descending = walk(tables, new SqlFilter(), "processedAt", false, 5);
+        assertEquals(expected(tables, byProcessedAt.reversed()), descending);
+        assertEquals(List.of(12L, 8L, 4L), descending.subList(0, 3));
+
+        // Filter arguments are bound once per table
+        assertEquals(List.of(6L, 4L, 2L), walk(tables, new SqlFilter().range("id", 2L, 6L).equal("MOD(id, 2)", 0),
+            "id", false, 1));
+    }
+
+    @Test
+    void countModes() {
+        jdbcTemplate.update("INSERT INTO items (id, name) SELECT X, 'n' || MOD(X, 2) FROM SYSTEM_RANGE(1, ?)",
+            ListingQuery.ESTIMATE_CAP + 5);
+        jdbcTemplate.update("INSERT INTO items_old (id, name) SELECT X, 'n1' FROM SYSTEM_RANGE(?, ?)",
+            ListingQuery.ESTIMATE_CAP + 6, ListingQuery.ESTIMATE_CAP + 9);
+        List<String> tables = List.of("items", "items_old");
+        SqlFilter all = new SqlFilter().equal("LENGTH(name)", 2);
+        SqlFilter few = new SqlFilter().equal("name", "n1").range("id", ListingQuery.ESTIMATE_CAP, null);
+
+        CursorPage<Row> none = listing.scroll(tables, all, new KeysetRequest("id", true, null, 3, CountMode.NONE));
+        assertNull(none.total());
+
+        CursorPage<Row> exact = listing.scroll(tables, all, new KeysetRequest("id", true, null, 3, CountMode.EXACT));
+        assertEquals(ListingQuery.ESTIMATE_CAP + 9L, exact.total());
+        assertTrue(exact.totalExact());
+
+        CursorPage<Row> capped = listing.scroll(tables, all, new KeysetRequest("id", true, null, 3, CountMode.ESTIMATE));
+        assertEquals((long) ListingQuery.ESTIMATE_CAP, capped.total());
+        assertFalse(capped.totalExact());
+        assertEquals(CountMode.ESTIMATE, capped.countMode());
+
+        CursorPage<Row> small = listing.scroll(tables, few, new KeysetRequest("id", true, null, 3, CountMode.ESTIMATE));
+        assertEquals(7L, small.total());
+        assertTrue(small.totalExact());
+
+        CursorPage<Row> unfiltered = listing.scroll(tables, new SqlFilter(),
+            new KeysetRequest("id", true, null, 3, CountMode.ESTIMATE));
+        assertNotNull(unfiltered.total());
+        assertFalse(unfiltered.totalExact());
+    }
+}
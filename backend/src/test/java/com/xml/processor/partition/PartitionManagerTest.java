@@ -0,0 +1,310 @@
+package com.xml.processor.partition;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.controller.XmlProcessorController;
+import com.xml.processor.dto.ProcessedFileFilter;
+import com.xml.processor.dto.ProcessedFileSummary;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.pagination.CountMode;
+import com.xml.processor.pagination.CursorPage;
+import com.xml.processor.pagination.KeysetRequest;
+import com.xml.processor.repository.ProcessedFileListingRepository;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.XmlProcessorService;
+import com.xml.processor.service.bulk.ProcessedFileStatusBuffer;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.service.payload.RawPayloadStore;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Detaching and dropping processed file partitions on H2, with maintenance triggered by the tests
+ * for chosen dates. Every test starts from empty tables and no partitions.
+ */
+// Own database: the tests swap and drop the partitioned tables
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:partition-manager;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class PartitionManagerTest {
+
+    private static final PartitionedTable TABLE = PartitionedTable.PROCESSED_FILES;
+
+    private static final byte[] CONTENT =
+        "<?xml version=\"1.0\"?><Unknown><Id>7</Id></Unknown>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void rawPayloadDirectory(DynamicPropertyRegistry registry) {
+        registry.add("app.raw-payloads.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private PartitionCatalog partitionCatalog;
+
+    @Autowired
+    private ProcessedFileListingRepository processedFileListingRepository;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private XmlProcessorService xmlProcessorService;
+
+    @Autowired
+    private XmlProcessorController xmlProcessorController;
+
+    @Autowired
+    private RawPayloadStore rawPayloadStore;
+
+    @Autowired
+    private ProcessedFileStatusBuffer processedFileStatusBuffer;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        for (TablePartition partition : partitionCatalog.getPartitions(TABLE)) {
+            partitionManager.drop(TABLE, partition);
+        }
+        jdbcTemplate.update("DELETE FROM processed_file_payloads");
+        jdbcTemplate.update("DELETE FROM processed_files");
+
+        client = TestClients.create(clientService, "PARTITION");
+    }
+
+    @Test
+    void detachSwapsTheLiveTablesForEmptyOnes() {
+        long march = file("march.xml", LocalDateTime.of(2030, 3, 14, 10, 0));
+        long april = file("april.xml", LocalDateTime.of(2030, 4, 1, 0, 1));
+        payload(march);
+
+        TablePartition partition = partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 1, 0, 5)).orElseThrow();
+
+        assertEquals("processed_files_p203003", partition.partitionName());
+        assertEquals(2, partition.rowCount());
+        assertEquals(LocalDateTime.of(2030, 3, 14, 10, 0), partition.rangeStart());
+        assertEquals(LocalDateTime.of(2030, 4, 1, 0, 1), partition.rangeEnd());
+        assertEquals(Math.min(march, april), partition.minId());
+        assertEquals(List.of(partition), partitionCatalog.getPartitions(TABLE));
+
+        assertEquals(0, count("processed_files"));
+        assertEquals(0, count("processed_file_payloads"));
+        assertEquals(2, count("processed_files_p203003"));
+        assertEquals(1, count("processed_file_payloads_p203003"));
+        assertEquals(List.of("IDX_PROCESSED_FILES_CLIENT_CREATED_AT_ID", "IDX_PROCESSED_FILES_CLIENT_ID",
+            "IDX_PROCESSED_FILES_CREATED_AT_ID", "IDX_PROCESSED_FILES_FILE_NAME", "IDX_PROCESSED_FILES_PROCESSED_AT",
+            "IDX_PROCESSED_FILES_RAW_PAYLOAD_HASH", "IDX_PROCESSED_FILES_STATUS_CREATED_AT_ID"), indexes("processed_files"));
+        assertTrue(indexes("processed_files_p203003").contains("IDX_PROCESSED_FILES_FILE_NAME_P203003"));
+        assertEquals(0, foreignKeys("processed_files_p203003"));
+
+        // The new live table takes writes with ids above the detached ones, and detaching is done for the month
+        long next = file("april-2.xml", LocalDateTime.of(2030, 4, 2, 9, 0));
+        assertTrue(next > partition.maxId());
+        assertFalse(partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 2, 0, 5)).isPresent());
+    }
+
+    @Test
+    void detachedFileIsDownloadedAndReprocessedAsANewFile() throws IOException {
+        long march = file("march.xml", LocalDateTime.of(2030, 3, 14, 10, 0));
+        String hash = rawPayloadStore.store(new ByteArrayInputStream(CONTENT));
+        jdbcTemplate.update("UPDATE processed_files SET raw_payload_hash = ? WHERE id = ?", hash, march);
+        partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 1, 0, 5)).orElseThrow();
+
+        ClientContextHolder.setClient(client);
+        ClientContextHolder.setClientId(client.getId());
+        try {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            xmlProcessorController.downloadRawPayload(march, null, response);
+            assertArrayEquals(CONTENT, response.getContentAsByteArray());
+
+            // No interface matches the original, so the new file ends in ERROR
+            ProcessedFile reprocessed = xmlProcessorService.reprocessFile(march);
+            processedFileStatusBuffer.flush();
+            assertNotEquals(march, reprocessed.getId());
+            assertEquals("ERROR", reprocessed.getStatus());
+            assertEquals(hash, reprocessed.getRawPayloadHash());
+            assertEquals(client.getId(), reprocessed.getClientId());
+            assertEquals(1, count("processed_files"));
+            assertEquals("PROCESSED", jdbcTemplate.queryForObject(
+                "SELECT status FROM processed_files_p203003 WHERE id = ?", String.class, march));
+        } finally {
+            ClientContextHolder.clear();
+        }
+    }
+
+    @Test
+    void failedSwapIsUndone() {
+        file("march.xml", LocalDateTime.of(2030, 3, 14, 10, 0));
+        List<String> liveIndexes = indexes("processed_files");
+        // Only the companion's partition name is taken, so the swap fails after renaming the main table
+        jdbcTemplate.execute("CREATE TABLE processed_file_payloads_p203003 (id BIGINT)");
+
+        try {
+            assertThrows(DataAccessException.class,
+                () -> partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 1, 0, 5)));
+
+            assertEquals(1, count("processed_files"));
+            assertEquals(liveIndexes, indexes("processed_files"));
+            assertFalse(tableExists("processed_files_p203003"));
+            assertFalse(tableExists("processed_files_next"));
+            assertFalse(tableExists("processed_file_payloads_next"));
+            assertEquals(List.of(), partitionCatalog.getPartitions(TABLE));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE processed_file_payloads_p203003");
+        }
+
+        assertTrue(partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 1, 0, 5)).isPresent());
+        assertEquals(0, count("processed_files"));
+    }
+
+    @Test
+    void liveTableHoldingOnlyTheCurrentMonthIsNotDetached() {
+        file("april.xml", LocalDateTime.of(2030, 4, 2, 9, 0));
+
+        assertEquals(Optional.empty(), partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 4, 3, 0, 5)));
+        assertEquals(1, count("processed_files"));
+    }
+
+    @Test
+    void dropBeforeDropsOnlyPartitionsPastTheCutoff() {
+        file("january.xml", LocalDateTime.of(2030, 1, 20, 8, 0));
+        partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 2, 1, 0, 5)).orElseThrow();
+        file("february.xml", LocalDateTime.of(2030, 2, 20, 8, 0));
+        partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 3, 1, 0, 5)).orElseThrow();
+        payload(file("march.xml", LocalDateTime.of(2030, 3, 2, 8, 0)));
+
+        List<TablePartition> dropped = partitionManager.dropBefore(TABLE, LocalDateTime.of(2030, 2, 1, 0, 0));
+
+        assertEquals(List.of("processed_files_p203001"), dropped.stream().map(TablePartition::partitionName).toList());
+        assertFalse(tableExists("processed_files_p203001"));
+        assertFalse(tableExists("processed_file_payloads_p203001"));
+        assertTrue(tableExists("processed_files_p203002"));
+        assertEquals(List.of("processed_files_p203002"),
+            partitionCatalog.getPartitions(TABLE).stream().map(TablePartition::partitionName).toList());
+        assertEquals(1, count("processed_files"));
+    }
+
+    @Test
+    void listingsMergeTheLiveTableWithDetachedPartitionsUntilRetentionDropsThem() {
+        List<Long> expected = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            expected.add(0, file("january-" + day + ".xml", LocalDateTime.of(2030, 1, day, 8, 0)));
+        }
+        partitionManager.detachIfDue(TABLE, LocalDateTime.of(2030, 2, 1, 0, 5)).orElseThrow();
+        for (int day = 1; day <= 3; day++) {
+            expected.add(0, file("february-" + day + ".xml", LocalDateTime.of(2030, 2, day, 8, 0)));
+        }
+        ProcessedFileFilter filter = new ProcessedFileFilter(client.getId(), null, null, null, null, null);
+
+        // Offset pages, newest first, with the second page straddling the live table and the partition
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            Page<ProcessedFileSummary> summaries = processedFileListingRepository.findSummaries(filter, PageRequest.of(page, 2));
+            assertEquals(6, summaries.getTotalElements());
+            summaries.forEach(summary -> paged.add(summary.id()));
+        }
+        assertEquals(expected, paged);
+
+        CursorPage<ProcessedFileSummary> first = processedFileListingRepository.scroll(filter,
+            new KeysetRequest(null, false, null, 4, CountMode.EXACT));
+        CursorPage<ProcessedFileSummary> second = processedFileListingRepository.scroll(filter,
+            new KeysetRequest(null, false, first.nextCursor(), 4, CountMode.EXACT));
+        assertEquals(expected.subList(0, 4), first.items().stream().map(ProcessedFileSummary::id).toList());
+        assertEquals(expected.subList(4, 6), second.items().stream().map(ProcessedFileSummary::id).toList());
+        assertFalse(second.hasNext());
+        assertNull(second.nextCursor());
+        assertEquals(6, second.total());
+
+        // A date filter past the partition's range reads the live table only
+        ProcessedFileFilter february = new ProcessedFileFilter(client.getId(), null, null, null,
+            LocalDateTime.of(2030, 2, 1, 0, 0), null);
+        assertEquals(List.of("processed_files"), partitionCatalog.tablesFor(TABLE, LocalDateTime.of(2030, 2, 1, 0, 0), null));
+        assertEquals(3, processedFileListingRepository.findSummaries(february, PageRequest.of(0, 10)).getTotalElements());
+
+        partitionManager.dropBefore(TABLE, LocalDateTime.of(2030, 2, 1, 0, 0));
+
+        Page<ProcessedFileSummary> retained = processedFileListingRepository.findSummaries(filter, PageRequest.of(0, 10));
+        assertEquals(expected.subList(0, 3), retained.map(ProcessedFileSummary::id).getContent());
+        assertEquals(3, retained.getTotalElements());
+    }
+
+    /**
+     * Saves a processed file of the test's client processed and created at the given time.
+     */
+    private long file(String fileName, LocalDateTime at) {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName(fileName);
+        file.setStatus("PROCESSED");
+        long id = processedFileRepository.save(file).getId();
+        jdbcTemplate.update("UPDATE processed_files SET processed_at = ?, created_at = ? WHERE id = ?", at, at, id);
+        return id;
+    }
+
+    private void payload(long fileId) {
+        jdbcTemplate.update("INSERT INTO processed_file_payloads (processed_file_id, codec, original_size, payload)"
+            + " VALUES (?, 'gzip', 2, ?)", fileId, new byte[] {0x7b, 0x7d});
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private boolean tableExists(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES"
+            + " WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ?", Integer.class, table.toUpperCase(Locale.ROOT)) > 0;
+    }
+
+    private List<String> indexes(String table) {
+        return jdbcTemplate.queryForList("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES"
+                + " WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND INDEX_NAME LIKE 'IDX%' ORDER BY INDEX_NAME",
+            String.class, table.toUpperCase(Locale.ROOT));
+    }
+
+    private int foreignKeys(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS"
+                + " WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+            Integer.class, table.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,101 @@
+package com.xml.processor.partition;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The live table DDL of each {@link PartitionedTable} against the tables the migrations and
+ * Hibernate created, so a migration that changes one of them without the DDL fails here instead of
+ * at the next month start. Tables are created from the DDL under a check suffix and compared
+ * column by column and index by index.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class PartitionedTableDdlTest {
+
+    private static final String SUFFIX = "_ddl_check";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void processedFilesDdlMatchesTheMigratedTables() {
+        assertDdlMatches(PartitionedTable.PROCESSED_FILES);
+    }
+
+    @Test
+    void auditLogsDdlMatchesTheMappedTable() {
+        assertDdlMatches(PartitionedTable.AUDIT_LOGS);
+    }
+
+    private void assertDdlMatches(PartitionedTable table) {
+        List<String> tableNames = new ArrayList<>();
+        tableNames.add(table.getTableName());
+        tableNames.addAll(table.getCompanions());
+        try {
+            for (String ddl : table.liveTableDdl()) {
+                for (String tableName : tableNames) {
+                    ddl = ddl.replace("{" + tableName + "}", tableName + SUFFIX);
+                }
+                jdbcTemplate.execute(ddl.replace("{next_id}", "1").replace("CREATE INDEX idx_", "CREATE INDEX check_idx_"));
+            }
+            for (String tableName : tableNames) {
+                Map<String, List<Object>> migrated = columns(tableName);
+                assertFalse(migrated.isEmpty(), tableName);
+                assertEquals(migrated, columns(tableName + SUFFIX), "Columns of " + tableName);
+                assertEquals(indexes(tableName, "IDX_"), indexes(tableName + SUFFIX, "CHECK_IDX_"), "Indexes of " + tableName);
+            }
+        } finally {
+            for (int i = tableNames.size() - 1; i >= 0; i--) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableNames.get(i) + SUFFIX);
+            }
+        }
+    }
+
+    /**
+     * Type, size, nullability, default and identity of each column, by column name.
+     */
+    private Map<String, List<Object>> columns(String tableName) {
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT COLUMN_NAME, DATA_TYPE, CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION,"
+                + " DATETIME_PRECISION, IS_NULLABLE, COLUMN_DEFAULT, COLUMN_ON_UPDATE, IS_IDENTITY"
+                + " FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ?"
+                + " ORDER BY COLUMN_NAME",
+            rs -> {
+                List<Object> definition = new ArrayList<>();
+                for (int i = 2; i <= 9; i++) {
+                    definition.add(rs.getObject(i));
+                }
+                columns.put(rs.getString(1), definition);
+            }, tableName.toUpperCase(Locale.ROOT));
+        return columns;
+    }
+
+    /**
+     * Columns of each named index, by index name without its prefix.
+     */
+    private Map<String, List<String>> indexes(String tableName, String prefix) {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT i.INDEX_NAME, c.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEXES i"
+                + " JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c ON c.INDEX_SCHEMA = i.INDEX_SCHEMA AND c.INDEX_NAME = i.INDEX_NAME"
+                + " WHERE i.TABLE_SCHEMA = CURRENT_SCHEMA AND i.TABLE_NAME = ? AND i.INDEX_NAME LIKE ?"
+                + " ORDER BY i.INDEX_NAME, c.ORDINAL_POSITION",
+            rs -> {
+                indexes.computeIfAbsent(rs.getString(1).substring(prefix.length()), name -> new ArrayList<>())
+                    .add(rs.getString(2));
+            }, tableName.toUpperCase(Locale.ROOT), prefix + "%");
+        return indexes;
+    }
+}
@@ -0,0 +1,133 @@
+package com.xml.processor.repository;
+
+import com.xml.processor.dto.AsnDocument;
+import com.xml.processor.dto.AsnDocumentFilter;
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.model.Client;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.StatementCounter;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ASN documents are read in two statements per page however many headers and lines it holds.
+ * The repository under test runs on a JdbcTemplate that records its statements.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class AsnDocumentRepositoryTest {
+
+    private static final int HEADERS = 12;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private AsnHeaderRepository asnHeaderRepository;
+
+    @Autowired
+    private AsnLineRepository asnLineRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AsnDocumentRepository asnDocumentRepository;
+    private Client client;
+    private final List<Long> headerIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        asnDocumentRepository = new AsnDocumentRepository();
+        ReflectionTestUtils.setField(asnDocumentRepository, "jdbcTemplate",
+            StatementCounter.jdbcTemplate(jdbcTemplate.getDataSource()));
+
+        client = TestClients.create(clientService, "ASN_DOCUMENTS");
+        // Header i has i lines, saved in reverse line order
+        for (int i = 0; i < HEADERS; i++) {
+            headerIds.add(header(client, "AD-" + client.getId() + "-" + i, i).getId());
+        }
+        Client other = TestClients.create(clientService, "ASN_DOCUMENTS_OTHER");
+        header(other, "AD-OTHER-" + other.getId(), 3);
+    }
+
+    private AsnHeader header(Client owner, String documentNumber, int lineCount) {
+        AsnHeader header = new AsnHeader();
+        header.setDocumentNumber(documentNumber);
+        header.setClient(owner);
+        header = asnHeaderRepository.save(header);
+        for (int line = lineCount; line >= 1; line--) {
+            AsnLine asnLine = new AsnLine();
+            asnLine.setLineNumber(String.valueOf(line));
+            asnLine.setItemNumber(documentNumber + "/" + line);
+            asnLine.setHeader(header);
+            asnLine.setClient(owner);
+            asnLineRepository.save(asnLine);
+        }
+        return header;
+    }
+
+    private List<AsnDocument> page(Long afterId, int limit) {
+        return asnDocumentRepository.findPage(new AsnDocumentFilter(client.getId(), null, null, null), afterId, limit);
+    }
+
+    @Test
+    void pageTakesTwoStatementsWhateverItsSize() {
+        StatementCounter.reset();
+        List<AsnDocument> documents = page(null, 50);
+
+        assertEquals(2, StatementCounter.getStatements().size(), () -> String.join("\n", StatementCounter.getStatements()));
+        assertEquals(headerIds, documents.stream().map(AsnDocument::id).toList());
+        for (int i = 0; i < HEADERS; i++) {
+            AsnDocument document = documents.get(i);
+            assertEquals(i, document.lines().size());
+            List<Integer> lineNumbers = document.lines().stream().map(AsnDocument.Line::lineNumber).toList();
+            for (int line = 0; line < i; line++) {
+                assertEquals(line + 1, lineNumbers.get(line));
+                assertEquals(document.documentNumber() + "/" + (line + 1), document.lines().get(line).itemNumber());
+            }
+        }
+    }
+
+    @Test
+    void pagesContinueAfterTheLastId() {
+        List<Long> seen = new ArrayList<>();
+        Long afterId = null;
+        for (int pageNumber = 0; pageNumber < 3; pageNumber++) {
+            StatementCounter.reset();
+            List<AsnDocument> documents = page(afterId, 5);
+            assertEquals(2, StatementCounter.getStatements().size());
+            documents.forEach(document -> seen.add(document.id()));
+            afterId = documents.get(documents.size() - 1).id();
+        }
+        assertEquals(headerIds, seen);
+
+        // An empty page does not look for lines
+        StatementCounter.reset();
+        assertEquals(List.of(), page(afterId, 5));
+        assertEquals(1, StatementCounter.getStatements().size());
+    }
+
+    @Test
+    void filterRestrictsTheHeaders() {
+        String documentNumber = "AD-" + client.getId() + "-4";
+        StatementCounter.reset();
+        List<AsnDocument> documents = asnDocumentRepository.findPage(
+            new AsnDocumentFilter(client.getId(), null, null, List.of(documentNumber, "AD-MISSING")), null, 50);
+
+        assertEquals(2, StatementCounter.getStatements().size());
+        assertEquals(List.of(documentNumber), documents.stream().map(AsnDocument::documentNumber).toList());
+        assertEquals(4, documents.get(0).lines().size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.xml.processor.service;
+
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.model.Client;
+import com.xml.processor.repository.AsnLineRepository;
+import com.xml.processor.service.interfaces.AsnService;
+import com.xml.processor.service.interfaces.ClientService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares row-by-row ASN line inserts with the batched {@code createAsnWithLines} path.
+ * Run with {@code mvn test -Dtest=AsnBulkInsertBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:asn-benchmark;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "logging.level.com.xml.processor=INFO"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class AsnBulkInsertBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsnBulkInsertBenchmarkTest.class);
+
+    private static final int LINE_COUNT = 5000;
+
+    /** Batching saves a transaction and a round trip per row, which is worth well over this. */
+    private static final double MIN_SPEEDUP = 2.0;
+
+    @Autowired
+    private AsnService asnService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private AsnLineRepository asnLineRepository;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        client = new Client();
+        client.setName("BENCHMARK_CLIENT_" + System.nanoTime());
+        client.setCode("BENCH" + System.nanoTime());
+        client.setStatus(Client.ClientStatus.ACTIVE);
+        client = clientService.saveClient(client);
+    }
+
+    @Test
+    void benchmarkBulkInsert() {
+        // Row by row: one transaction and one INSERT per line
+        AsnHeader singleHeader = asnService.createAsnHeader(newHeader("BENCH-SINGLE"));
+        long start = System.nanoTime();
+        for (AsnLine line : newLines(LINE_COUNT)) {
+            line.setHeader(singleHeader);
+            asnService.createAsnLine(line);
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        // Batched: one transaction, sequence blocks of 50 ids and batched INSERTs
+        start = System.nanoTime();
+        AsnHeader bulkHeader = asnService.createAsnWithLines(newHeader("BENCH-BULK"), newLines(LINE_COUNT));
+        long bulkNanos = System.nanoTime() - start;
+
+        assertNotNull(bulkHeader.getId());
+        assertEquals(LINE_COUNT, asnLineRepository.findByClient_IdAndHeaderId(client.getId(), bulkHeader.getId()).size());
+
+        double speedup = (double) singleNanos / bulkNanos;
+        logger.info("ASN line inserts, {} rows: row-by-row {} rows/s, batched {} rows/s ({}x)", LINE_COUNT,
+            Math.round(rowsPerSecond(singleNanos)), Math.round(rowsPerSecond(bulkNanos)), String.format("%.1f", speedup));
+        assertTrue(speedup >= MIN_SPEEDUP,
+            "Batched insert should be at least " + MIN_SPEEDUP + "x faster than row-by-row inserts, was " + speedup + "x");
+    }
+
+    private AsnHeader newHeader(String documentNumber) {
+        AsnHeader header = new AsnHeader();
+        header.setClient(client);
+        header.setDocumentNumber(documentNumber);
+        header.setDocumentDate("20240101");
+        header.setStatus("NEW");
+        return header;
+    }
+
+    private List<AsnLine> newLines(int count) {
+        List<AsnLine> lines = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            AsnLine line = new AsnLine();
+            line.setClient(client);
+            line.setLineNumber(String.valueOf(i));
+            line.setItemNumber("ITEM-" + (i % 200));
+            line.setQuantity(i % 17 + 1);
+            line.setUnitOfMeasure("EA");
+            line.setStatus("NEW");
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return LINE_COUNT / (nanos / 1_000_000_000.0);
+    }
+}
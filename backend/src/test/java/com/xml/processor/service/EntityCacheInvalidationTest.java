@@ -0,0 +1,156 @@
+package com.xml.processor.service;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
+import com.xml.processor.repository.ClientRepository;
+import com.xml.processor.repository.InterfaceRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.StatementCounter;
+import com.xml.processor.support.TestClients;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes through JPA keep the second-level and query cache of the reference entities current:
+ * after each write the next read, cached or not, sees the new state.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.xml.processor.support.StatementCounter"
+})
+@ActiveProfiles("test")
+public class EntityCacheInvalidationTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private InterfaceRepository interfaceRepository;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        client = TestClients.create(clientService, "ENTITY_CACHE");
+        entityCacheService.evictAll();
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    /**
+     * Runs the read in its own transaction and returns how many statements it took.
+     */
+    private int statementsFor(Runnable read) {
+        StatementCounter.reset();
+        inTransaction(() -> {
+            read.run();
+            return null;
+        });
+        return StatementCounter.getStatements().size();
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @Test
+    void entityUpdateIsSeenThroughTheCache() {
+        Long id = client.getId();
+        inTransaction(() -> clientRepository.findById(id));
+        assertTrue(cache().containsEntity(Client.class, id));
+        assertEquals(0, statementsFor(() -> clientRepository.findById(id)));
+
+        String renamed = client.getName() + "_RENAMED";
+        inTransaction(() -> {
+            clientRepository.findById(id).orElseThrow().setName(renamed);
+            return null;
+        });
+
+        assertEquals(renamed, inTransaction(() -> clientRepository.findById(id).orElseThrow().getName()));
+    }
+
+    @Test
+    void entityDeleteEvictsTheCachedEntity() {
+        Long id = client.getId();
+        inTransaction(() -> clientRepository.findById(id));
+        assertTrue(cache().containsEntity(Client.class, id));
+
+        inTransaction(() -> {
+            clientRepository.deleteById(id);
+            return null;
+        });
+
+        assertFalse(cache().containsEntity(Client.class, id));
+        assertTrue(inTransaction(() -> clientRepository.findById(id)).isEmpty());
+    }
+
+    @Test
+    void insertInvalidatesCachedQueryResults() {
+        String code = "QC" + System.nanoTime();
+        assertTrue(inTransaction(() -> clientRepository.findByCode(code)).isEmpty());
+        // The empty result is cached as well
+        assertEquals(0, statementsFor(() -> clientRepository.findByCode(code)));
+
+        Client created = new Client();
+        created.setName("ENTITY_CACHE_" + code);
+        created.setCode(code);
+        created.setStatus(Client.ClientStatus.ACTIVE);
+        Long id = inTransaction(() -> clientRepository.save(created).getId());
+
+        Optional<Client> found = inTransaction(() -> clientRepository.findByCode(code));
+        assertEquals(Optional.of(id), found.map(Client::getId));
+    }
+
+    @Test
+    void insertAndUpdateInvalidateTheActiveInterfacesOfAClient() {
+        Long clientId = client.getId();
+        assertEquals(List.of(), inTransaction(() -> interfaceRepository.findByClient_IdAndIsActiveTrue(clientId)));
+        assertEquals(0, statementsFor(() -> interfaceRepository.findByClient_IdAndIsActiveTrue(clientId)));
+
+        Interface created = new Interface();
+        created.setName("ENTITY_CACHE_IF");
+        created.setType("ASN");
+        created.setClient(client);
+        Long interfaceId = inTransaction(() -> interfaceRepository.save(created).getId());
+
+        assertEquals(List.of(interfaceId), inTransaction(() ->
+            interfaceRepository.findByClient_IdAndIsActiveTrue(clientId).stream().map(Interface::getId).toList()));
+        assertEquals(0, statementsFor(() -> interfaceRepository.findByClient_IdAndIsActiveTrue(clientId)));
+
+        inTransaction(() -> {
+            interfaceRepository.findById(interfaceId).orElseThrow().setIsActive(false);
+            return null;
+        });
+
+        assertEquals(List.of(), inTransaction(() -> interfaceRepository.findByClient_IdAndIsActiveTrue(clientId)));
+    }
+}
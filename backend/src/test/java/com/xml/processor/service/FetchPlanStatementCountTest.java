@@ -0,0 +1,197 @@
+package com.xml.processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
+import com.xml.processor.model.MappingRule;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.AsnHeaderRepository;
+import com.xml.processor.repository.AsnLineRepository;
+import com.xml.processor.repository.ClientRepository;
+import com.xml.processor.repository.InterfaceRepository;
+import com.xml.processor.repository.MappingRuleRepository;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.AsnService;
+import com.xml.processor.service.interfaces.MappingRuleService;
+import com.xml.processor.service.interfaces.ProcessedFileService;
+import com.xml.processor.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the statements each listing takes, including serializing its result the way the endpoint
+ * does, with a cold second-level cache. A lazy association that slips out of the fetch plan shows
+ * up as one extra statement per row and fails the budget.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.xml.processor.support.StatementCounter"
+})
+@ActiveProfiles("test")
+public class FetchPlanStatementCountTest {
+
+    private static final int ROWS = 20;
+
+    @Autowired
+    private ProcessedFileService processedFileService;
+
+    @Autowired
+    private MappingRuleService mappingRuleService;
+
+    @Autowired
+    private AsnService asnService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private InterfaceRepository interfaceRepository;
+
+    @Autowired
+    private MappingRuleRepository mappingRuleRepository;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private AsnHeaderRepository asnHeaderRepository;
+
+    @Autowired
+    private AsnLineRepository asnLineRepository;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Client client;
+    private Interface interfaceEntity;
+    private AsnHeader header;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            String suffix = String.valueOf(System.nanoTime());
+            client = new Client();
+            client.setName("FETCH_PLAN_" + suffix);
+            client.setCode("FP" + suffix);
+            client.setStatus(Client.ClientStatus.ACTIVE);
+            client = clientRepository.save(client);
+
+            // Every row points at a different interface, so a lazy load per row cannot hide in the session
+            for (int i = 0; i < ROWS; i++) {
+                Interface rowInterface = new Interface();
+                rowInterface.setName("FETCH_PLAN_IF_" + suffix + "_" + i);
+                rowInterface.setType("ASN");
+                rowInterface.setClient(client);
+                rowInterface = interfaceRepository.save(rowInterface);
+                if (interfaceEntity == null) {
+                    interfaceEntity = rowInterface;
+                }
+
+                MappingRule rule = new MappingRule();
+                rule.setName("rule" + i);
+                rule.setXmlPath("/ASN/field" + i);
+                rule.setDatabaseField("field" + i);
+                rule.setIsActive(true);
+                rule.setClient(client);
+                rule.setInterfaceEntity(rowInterface);
+                mappingRuleRepository.save(rule);
+
+                ProcessedFile file = new ProcessedFile();
+                file.setFileName("file" + i + ".xml");
+                file.setStatus("SUCCESS");
+                file.setClient(client);
+                file.setInterfaceEntity(rowInterface);
+                processedFileRepository.save(file);
+            }
+
+            header = new AsnHeader();
+            header.setDocumentNumber("FETCH_PLAN_" + suffix);
+            header.setClient(client);
+            header = asnHeaderRepository.save(header);
+            for (int i = 0; i < ROWS; i++) {
+                AsnLine line = new AsnLine();
+                line.setLineNumber(String.valueOf(i + 1));
+                line.setItemNumber("ITEM" + i);
+                line.setHeader(header);
+                line.setClient(client);
+                asnLineRepository.save(line);
+            }
+        });
+    }
+
+    @Test
+    void processedFilesOfClient() {
+        List<String> statements = statementsFor(() -> processedFileService.getProcessedFilesByClient_Id(client.getId()), ROWS);
+        assertWithinBudget(1, statements);
+    }
+
+    @Test
+    void activeMappingRulesOfInterface() {
+        // Interface lookup plus the rules
+        List<String> statements = statementsFor(() -> mappingRuleService.getActiveMappingRules(interfaceEntity.getId()), ROWS);
+        assertWithinBudget(2, statements);
+    }
+
+    @Test
+    void asnLinesOfHeader() {
+        List<String> statements = statementsFor(() -> asnService.getAsnLinesByHeaderId(header.getId()), ROWS);
+        assertWithinBudget(1, statements);
+    }
+
+    @Test
+    void asnLinesOfClient() {
+        List<String> statements = statementsFor(() -> asnService.getAsnLinesByClient_Id(client.getId()), ROWS);
+        assertWithinBudget(1, statements);
+    }
+
+    @Test
+    void asnHeadersOfClient() {
+        List<String> statements = statementsFor(() -> asnService.getAsnHeadersByClient_Id(client.getId()), 1);
+        assertWithinBudget(1, statements);
+    }
+
+    /**
+     * Runs the listing and serializes its result in one read-only transaction, as an endpoint with
+     * open-session-in-view would, and returns the statements that took.
+     */
+    private List<String> statementsFor(Supplier<List<?>> listing, int expectedRows) {
+        entityCacheService.evictAll();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        StatementCounter.reset();
+        readOnly.executeWithoutResult(status -> {
+            List<?> result = listing.get();
+            assertEquals(expectedRows, result.size());
+            try {
+                objectMapper.writeValueAsString(result);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not serialize listing", e);
+            }
+        });
+        return StatementCounter.getStatements();
+    }
+
+    private static void assertWithinBudget(int budget, List<String> statements) {
+        assertTrue(statements.size() <= budget,
+            () -> "Expected at most " + budget + " statements but got " + statements.size() + ":\n"
+                + String.join("\n", statements));
+    }
+}
@@ -0,0 +1,181 @@
+package com.xml.processor.service;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.controller.XmlProcessorController;
+import com.xml.processor.exception.ResourceNotFoundException;
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.service.payload.ProcessedDataCodec;
+import com.xml.processor.service.payload.RawPayloadStore;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Downloads and reprocessing of kept originals. The uploads match no interface, so every file ends
+ * in ERROR with its original stored.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RawPayloadReprocessTest {
+
+    private static final byte[] CONTENT =
+        "<?xml version=\"1.0\"?><Unknown><Id>42</Id></Unknown>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void rawPayloadDirectory(DynamicPropertyRegistry registry) {
+        registry.add("app.raw-payloads.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private XmlProcessorService xmlProcessorService;
+
+    @Autowired
+    private XmlProcessorController xmlProcessorController;
+
+    @Autowired
+    private RawPayloadStore rawPayloadStore;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        client = TestClients.createCurrent(clientService, "RAW_PAYLOAD");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ClientContextHolder.clear();
+    }
+
+    @Test
+    void downloadReturnsTheOriginalPlainOrAsStored() throws IOException {
+        ProcessedFile file = upload();
+
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+        xmlProcessorController.downloadRawPayload(file.getId(), null, plain);
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(CONTENT, plain.getContentAsByteArray());
+
+        MockHttpServletResponse gzip = new MockHttpServletResponse();
+        xmlProcessorController.downloadRawPayload(file.getId(), "gzip, deflate", gzip);
+        assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(rawPayloadStore.compressedSize(file.getRawPayloadHash()), gzip.getContentLengthLong());
+        try (InputStream payload = new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))) {
+            assertArrayEquals(CONTENT, payload.readAllBytes());
+        }
+        assertTrue(gzip.getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("unknown.xml"));
+    }
+
+    @Test
+    void otherClientsCannotDownloadTheOriginal() {
+        ProcessedFile file = upload();
+
+        ClientContextHolder.setClientId(-1L);
+        assertThrows(ResourceNotFoundException.class,
+            () -> xmlProcessorController.downloadRawPayload(file.getId(), null, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void reprocessingReadsTheStoredOriginal() {
+        ProcessedFile file = upload();
+
+        ProcessedFile reprocessed = xmlProcessorService.reprocessFile(file.getId());
+
+        assertEquals(file.getId(), reprocessed.getId());
+        assertEquals("ERROR", reprocessed.getStatus());
+        assertEquals(file.getRawPayloadHash(), reprocessed.getRawPayloadHash());
+        assertEquals("ERROR", xmlProcessorService.getFileWithRawPayload(file.getId()).getStatus());
+    }
+
+    @Test
+    void reprocessingFailsOnceTheOriginalIsCollected() throws IOException {
+        ProcessedFile file = upload();
+        assertTrue(rawPayloadStore.deleteIfUnmodifiedSince(file.getRawPayloadHash(), Instant.now().plusSeconds(1)));
+
+        ValidationException error = assertThrows(ValidationException.class,
+            () -> xmlProcessorService.reprocessFile(file.getId()));
+        assertTrue(error.getMessage().contains("past its retention"));
+    }
+
+    @Test
+    void filesWithoutAnOriginalCannotBeReprocessed() {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName("legacy.xml");
+        file.setStatus("PROCESSED");
+        ProcessedFile saved = processedFileRepository.save(file);
+
+        assertThrows(ValidationException.class, () -> xmlProcessorService.reprocessFile(saved.getId()));
+    }
+
+    @Test
+    void filesThatBulkWroteOtherTablesAreNotReprocessed() throws IOException {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName("shipments.xml");
+        file.setStatus("SUCCESS");
+        file.setRawPayloadHash(rawPayloadStore.store(new ByteArrayInputStream(CONTENT)));
+        ProcessedFile saved = processedFileRepository.save(file);
+        ProcessedDataCodec.Encoded data = ProcessedDataCodec.encode(
+            Map.of("rowsWritten", Map.of("asn_headers", 1, "asn_lines", 4, "shipments", 3)));
+        jdbcTemplate.update("INSERT INTO processed_file_payloads (processed_file_id, codec, original_size, payload)"
+            + " VALUES (?, ?, ?, ?)", saved.getId(), data.codec(), data.originalSize(), data.payload());
+
+        // The ASN rows would be upserted, the shipments inserted a second time
+        ValidationException error = assertThrows(ValidationException.class,
+            () -> xmlProcessorService.reprocessFile(saved.getId()));
+        assertTrue(error.getMessage().contains("[shipments]"));
+        assertEquals("SUCCESS", xmlProcessorService.getFileWithRawPayload(saved.getId()).getStatus());
+    }
+
+    private ProcessedFile upload() {
+        ProcessedFile file = xmlProcessorService.processXmlFile(
+            new MockMultipartFile("file", "unknown.xml", "application/xml", CONTENT), null);
+        assertEquals("ERROR", file.getStatus());
+        assertNotNull(file.getRawPayloadHash());
+        return file;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xml.processor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A root schema that includes a shared one, compiled without a snapshot.
+ */
+public class XsdServiceInvalidationTest {
+
+    private static final String ROOT = """
+        <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+          <xs:include schemaLocation="common/types.xsd"/>
+          <xs:include schemaLocation="common/extra.xsd"/>
+          <xs:element name="Order" type="OrderType"/>
+        </xs:schema>
+        """;
+
+    @TempDir
+    Path schemaDir;
+
+    private XsdService xsdService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        XsdSnapshotStore snapshotStore = new XsdSnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "snapshotEnabled", false);
+        xsdService = new XsdService();
+        ReflectionTestUtils.setField(xsdService, "schemaDir", schemaDir.toString());
+        ReflectionTestUtils.setField(xsdService, "xsdSnapshotStore", snapshotStore);
+
+        Files.writeString(schemaDir.resolve("order.xsd"), ROOT);
+        Files.createDirectories(schemaDir.resolve("common"));
+        writeTypes("Number");
+    }
+
+    @Test
+    void changedIncludeDropsTheSchemasIncludingIt() throws IOException {
+        assertTrue(xsdService.getXsdModel("order.xsd", null).contains("Order.Number"));
+
+        writeTypes("Reference");
+        xsdService.invalidate(schemaDir.resolve("common").resolve("types.xsd"));
+
+        assertTrue(xsdService.getXsdModel("order.xsd", null).contains("Order.Reference"));
+        assertFalse(xsdService.getXsdModel("order.xsd", null).contains("Order.Number"));
+    }
+
+    @Test
+    void missingIncludeThatAppearsDropsTheSchema() throws IOException {
+        assertFalse(xsdService.getXsdModel("order.xsd", null).contains("Note"));
+
+        Files.writeString(schemaDir.resolve("common").resolve("extra.xsd"), """
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+              <xs:element name="Note" type="xs:string"/>
+            </xs:schema>
+            """);
+        xsdService.invalidate(schemaDir.resolve("common").resolve("extra.xsd"));
+
+        assertTrue(xsdService.getXsdModel("order.xsd", null).contains("Note"));
+    }
+
+    @Test
+    void unrelatedFilesKeepTheCachedModel() throws IOException {
+        Object model = xsdService.getXsdModel("order.xsd", null);
+
+        Files.writeString(schemaDir.resolve("invoice.xsd"), ROOT);
+        xsdService.invalidate(schemaDir.resolve("invoice.xsd"));
+
+        assertSame(model, xsdService.getXsdModel("order.xsd", null));
+    }
+
+    private void writeTypes(String field) throws IOException {
+        Files.writeString(schemaDir.resolve("common").resolve("types.xsd"), """
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+              <xs:complexType name="OrderType">
+                <xs:sequence>
+                  <xs:element name="%s" type="xs:string"/>
+                </xs:sequence>
+              </xs:complexType>
+            </xs:schema>
+            """.formatted(field));
+    }
+}
@@ -0,0 +1,132 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Upserts of the same new document racing each other on the unique (client_id, document_number)
+ * index, as when a sender resends an ASN before the first delivery was committed.
+ */
+@SpringBootTest(properties = {
+    "app.asn.upsert.max-attempts=3"
+})
+@ActiveProfiles("test")
+public class AsnUpsertConcurrencyTest {
+
+    @Autowired
+    private AsnUpsertWriter asnUpsertWriter;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientService clientService;
+
+    private Long clientId;
+
+    @BeforeEach
+    void setUp() {
+        reset(jdbcTemplate);
+        clientId = TestClients.create(clientService, "ASN_UPSERT_RACE").getId();
+    }
+
+    @Test
+    void loserOfTheFirstInsertRetriesAndUpdatesTheWinnersDocument() throws Exception {
+        ExecutorService competitor = Executors.newSingleThreadExecutor();
+        AtomicBoolean raced = new AtomicBoolean();
+        List<AsnUpsertWriter.Result> winner = new ArrayList<>();
+        // The other delivery commits between this one's start and its merge, which then hits the index
+        doAnswer(invocation -> {
+            if (raced.compareAndSet(false, true)) {
+                winner.add(competitor.submit(() -> upsert(1, 2)).get(10, TimeUnit.SECONDS));
+                throw new DuplicateKeyException("Unique index violated by a concurrent insert");
+            }
+            return invocation.callRealMethod();
+        }).when(jdbcTemplate).batchUpdate(startsWith("MERGE"), anyList());
+
+        try {
+            AsnUpsertWriter.Result result = upsert(1, 5);
+
+            assertEquals(winner.get(0).headerIds(), result.headerIds());
+            assertEquals(new AsnUpsertWriter.LineDelta(0, 1, 0, 0), result.lines());
+            verify(jdbcTemplate, times(3)).batchUpdate(startsWith("MERGE"), anyList());
+        } finally {
+            competitor.shutdownNow();
+        }
+        assertEquals(1, headerCount());
+        assertEquals(List.of(5), jdbcTemplate.queryForList("SELECT quantity FROM asn_lines l"
+            + " JOIN asn_headers h ON h.id = l.header_id WHERE h.client_id = ?", Integer.class, clientId));
+    }
+
+    @Test
+    void simultaneousUpsertsOfANewDocumentAllSucceed() throws Exception {
+        int threads = 4;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<AsnUpsertWriter.Result>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int quantity = i + 1;
+                results.add(executor.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    return upsert(1, quantity);
+                }));
+            }
+            Long headerId = results.get(0).get(30, TimeUnit.SECONDS).headerIds().get("ASN-RACE");
+            for (Future<AsnUpsertWriter.Result> result : results) {
+                assertEquals(headerId, result.get(30, TimeUnit.SECONDS).headerIds().get("ASN-RACE"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, headerCount());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM asn_lines l"
+            + " JOIN asn_headers h ON h.id = l.header_id WHERE h.client_id = ?", Integer.class, clientId));
+    }
+
+    /**
+     * One document with a single line of the given number and quantity.
+     */
+    private AsnUpsertWriter.Result upsert(int lineNumber, int quantity) {
+        AsnHeader header = new AsnHeader();
+        header.setDocumentNumber("ASN-RACE");
+        header.setStatus("NEW");
+        AsnLine line = new AsnLine();
+        line.setLineNumber(String.valueOf(lineNumber));
+        line.setItemNumber("ITEM-" + quantity);
+        line.setQuantity(quantity);
+        return asnUpsertWriter.upsert(clientId, List.of(new AsnUpsertWriter.Document(header, List.of(line))));
+    }
+
+    private int headerCount() {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM asn_headers WHERE client_id = ?", Integer.class, clientId);
+    }
+}
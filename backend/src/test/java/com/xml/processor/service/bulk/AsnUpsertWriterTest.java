@@ -0,0 +1,204 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.model.AsnHeader;
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.repository.AsnLineRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Upserts of one document of a fresh client per test, checked against the stored lines.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class AsnUpsertWriterTest {
+
+    @Autowired
+    private AsnUpsertWriter asnUpsertWriter;
+
+    @Autowired
+    private AsnLineRepository asnLineRepository;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long clientId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = TestClients.create(clientService, "ASN_UPSERT").getId();
+    }
+
+    @Test
+    void firstUpsertInsertsEveryLine() {
+        AsnUpsertWriter.Result result = upsert(line(1, "A", 5), line(2, "B", 3), line(3, "C", 1));
+
+        assertEquals(new AsnUpsertWriter.LineDelta(3, 0, 0, 0), result.lines());
+        assertNotNull(result.headerIds().get("ASN-1"));
+        List<StoredLine> stored = storedLines(result);
+        assertEquals(List.of("A", "B", "C"), stored.stream().map(StoredLine::itemNumber).toList());
+        stored.forEach(line -> assertEquals(64, line.fingerprint().length()));
+    }
+
+    @Test
+    void identicalResendWritesNothing() {
+        AsnUpsertWriter.Result first = upsert(line(1, "A", 5), line(2, "B", 3));
+        List<StoredLine> before = storedLines(first);
+
+        AsnUpsertWriter.Result resent = upsert(line(1, "A", 5), line(2, "B", 3));
+
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 0, 0, 2), resent.lines());
+        assertEquals(0, resent.lines().written());
+        assertEquals(first.headerIds(), resent.headerIds());
+        assertEquals(before, storedLines(resent));
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM asn_headers WHERE client_id = ?", Integer.class, clientId));
+    }
+
+    @Test
+    void revisionInsertsUpdatesAndDeletesOnlyTheLinesThatDiffer() {
+        List<StoredLine> before = storedLines(upsert(line(1, "A", 5), line(2, "B", 3), line(3, "C", 1)));
+
+        AsnUpsertWriter.Result revised = upsert(line(1, "A", 5), line(2, "B", 4), line(4, "D", 2));
+
+        assertEquals(new AsnUpsertWriter.LineDelta(1, 1, 1, 1), revised.lines());
+        List<StoredLine> after = storedLines(revised);
+        assertEquals(List.of(1, 2, 4), after.stream().map(StoredLine::lineNumber).toList());
+        // Matched lines keep their rows; only the changed one has a new fingerprint
+        assertEquals(before.get(0), after.get(0));
+        assertEquals(before.get(1).id(), after.get(1).id());
+        assertEquals(4, after.get(1).quantity());
+        assertNotEquals(before.get(1).fingerprint(), after.get(1).fingerprint());
+    }
+
+    @Test
+    void removingEveryLineDeletesThem() {
+        upsert(line(1, "A", 5), line(2, "B", 3));
+
+        AsnUpsertWriter.Result emptied = upsert();
+
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 0, 2, 0), emptied.lines());
+        assertEquals(List.of(), storedLines(emptied));
+    }
+
+    @Test
+    void repeatedAndMissingLineNumbersPairInDocumentOrder() {
+        List<StoredLine> before = storedLines(upsert(line(1, "A", 1), line(1, "B", 1), line(null, "C", 1),
+            line(null, "D", 1)));
+
+        AsnUpsertWriter.Result revised = upsert(line(1, "A", 1), line(1, "B", 2), line(null, "C", 1),
+            line(null, "D", 1), line(null, "E", 1));
+
+        assertEquals(new AsnUpsertWriter.LineDelta(1, 1, 0, 3), revised.lines());
+        List<StoredLine> after = storedLines(revised);
+        assertEquals(before.get(0), after.get(0));
+        assertEquals(before.get(1).id(), after.get(1).id());
+        assertEquals(2, after.get(1).quantity());
+        assertEquals(before.subList(2, 4), after.subList(2, 4));
+        assertNull(after.get(4).lineNumber());
+        assertEquals("E", after.get(4).itemNumber());
+    }
+
+    @Test
+    void lineKeyCountsOccurrencesOfEachNumber() {
+        Map<String, Integer> occurrences = new HashMap<>();
+
+        assertEquals("1#1", AsnUpsertWriter.lineKey(1, occurrences));
+        assertEquals("2#1", AsnUpsertWriter.lineKey(2, occurrences));
+        assertEquals("1#2", AsnUpsertWriter.lineKey(1, occurrences));
+        assertEquals("null#1", AsnUpsertWriter.lineKey(null, occurrences));
+        assertEquals("null#2", AsnUpsertWriter.lineKey(null, occurrences));
+    }
+
+    @Test
+    void fingerprintCoversEveryContentColumnAndTellsNullFromEmpty() {
+        upsert(line(1, "A", 5));
+
+        AsnLine withNotes = line(1, "A", 5);
+        withNotes.setNotes("");
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 1, 0, 0), upsert(withNotes).lines());
+
+        AsnLine otherLot = line(1, "A", 5);
+        otherLot.setNotes("");
+        otherLot.setLotNumber("L-7");
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 1, 0, 0), upsert(otherLot).lines());
+
+        AsnLine sameAgain = line(1, "A", 5);
+        sameAgain.setNotes("");
+        sameAgain.setLotNumber("L-7");
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 0, 0, 1), upsert(sameAgain).lines());
+    }
+
+    @Test
+    void updateThroughJpaClearsTheFingerprintSoTheNextRevisionRewritesTheLine() {
+        StoredLine stored = storedLines(upsert(line(1, "A", 5))).get(0);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            asnLineRepository.findById(stored.id()).orElseThrow().setNotes("Edited by hand"));
+        assertNull(jdbcTemplate.queryForObject(
+            "SELECT line_fingerprint FROM asn_lines WHERE id = ?", String.class, stored.id()));
+
+        AsnUpsertWriter.Result resent = upsert(line(1, "A", 5));
+
+        // The stale fingerprint would have matched and kept the edited notes
+        assertEquals(new AsnUpsertWriter.LineDelta(0, 1, 0, 0), resent.lines());
+        assertEquals(stored, storedLines(resent).get(0));
+        assertNull(jdbcTemplate.queryForObject("SELECT notes FROM asn_lines WHERE id = ?", String.class, stored.id()));
+    }
+
+    private AsnUpsertWriter.Result upsert(AsnLine... lines) {
+        AsnHeader header = new AsnHeader();
+        header.setDocumentNumber("ASN-1");
+        header.setDocumentType("ASN");
+        header.setStatus("NEW");
+        return asnUpsertWriter.upsert(clientId,
+            List.of(new AsnUpsertWriter.Document(header, new ArrayList<>(Arrays.asList(lines)))));
+    }
+
+    private static AsnLine line(Integer lineNumber, String itemNumber, int quantity) {
+        AsnLine line = new AsnLine();
+        if (lineNumber != null) {
+            line.setLineNumber(lineNumber.toString());
+        }
+        line.setItemNumber(itemNumber);
+        line.setQuantity(quantity);
+        line.setUnitOfMeasure("EA");
+        return line;
+    }
+
+    private List<StoredLine> storedLines(AsnUpsertWriter.Result result) {
+        return jdbcTemplate.query("SELECT id, line_number, item_number, quantity, line_fingerprint FROM asn_lines"
+                + " WHERE header_id = ? ORDER BY id",
+            (rs, row) -> new StoredLine(rs.getLong("id"), (Integer) rs.getObject("line_number"),
+                rs.getString("item_number"), rs.getInt("quantity"), rs.getString("line_fingerprint")),
+            result.headerIds().get("ASN-1"));
+    }
+
+    private record StoredLine(long id, Integer lineNumber, String itemNumber, int quantity, String fingerprint) {
+    }
+}
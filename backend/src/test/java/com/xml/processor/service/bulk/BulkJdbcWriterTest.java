@@ -0,0 +1,107 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.exception.ValidationException;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Bulk writes of mapped records for a fresh client per test: the rows, their links and the
+ * targets a mapping rule may not write.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class BulkJdbcWriterTest {
+
+    @Autowired
+    private BulkJdbcWriter bulkJdbcWriter;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clientId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = TestClients.create(clientService, "BULK_WRITER").getId();
+    }
+
+    @Test
+    void linesAreWrittenUnderTheirOwnHeader() {
+        MappedRecord first = header("BW-1");
+        MappedRecord second = header("BW-2");
+
+        Map<String, Integer> rowCounts = bulkJdbcWriter.write(Stream.of(
+            first, line(first, "A"), line(first, "B"), second, line(second, "C")), clientId);
+
+        assertEquals(Map.of("asn_headers", 2, "asn_lines", 3), rowCounts);
+        assertEquals(List.of("A", "B"), items("BW-1"));
+        assertEquals(List.of("C"), items("BW-2"));
+    }
+
+    @Test
+    void rowsBelongToTheSessionClient() {
+        MappedRecord header = header("BW-3");
+        bulkJdbcWriter.write(Stream.of(header, line(header, "D")), clientId);
+
+        assertEquals(List.of(clientId), jdbcTemplate.queryForList(
+            "SELECT DISTINCT l.client_id FROM asn_lines l JOIN asn_headers h ON h.id = l.header_id"
+                + " WHERE h.document_number = 'BW-3'", Long.class));
+    }
+
+    @Test
+    void rulesCannotMapTheColumnsTheWriterOwns() {
+        Long otherClientId = TestClients.create(clientService, "BULK_WRITER_OTHER").getId();
+        MappedRecord header = header("BW-4");
+        MappedRecord foreign = new MappedRecord("asn_lines", Map.of("item_number", "E", "client_id", otherClientId), header);
+
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.write(Stream.of(header, foreign), clientId));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("asn_headers", "client_id"));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("asn_headers", "id"));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("asn_lines", "header_id"));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("asn_lines", "no_such_column"));
+        assertDoesNotThrow(() -> bulkJdbcWriter.checkTarget("ASN_LINES", "item_number"));
+    }
+
+    @Test
+    void onlyTheTargetTablesCanBeWritten() {
+        MappedRecord user = new MappedRecord("users", Map.of("username", "mapped-admin"));
+
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.write(Stream.of(user), clientId));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("users", "username"));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("clients", "name"));
+        assertThrows(ValidationException.class, () -> bulkJdbcWriter.checkTarget("mapping_rules", "xml_path"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM users WHERE username = 'mapped-admin'", Integer.class));
+    }
+
+    private MappedRecord header(String documentNumber) {
+        return new MappedRecord("asn_headers",
+            Map.of("document_number", documentNumber, "document_date", "2024-01-01", "status", "NEW"));
+    }
+
+    private MappedRecord line(MappedRecord header, String itemNumber) {
+        return new MappedRecord("asn_lines", Map.of("item_number", itemNumber), header);
+    }
+
+    private List<String> items(String documentNumber) {
+        return jdbcTemplate.queryForList("SELECT l.item_number FROM asn_lines l JOIN asn_headers h ON h.id = l.header_id"
+            + " WHERE h.client_id = ? AND h.document_number = ? ORDER BY l.id", String.class, clientId, documentNumber);
+    }
+}
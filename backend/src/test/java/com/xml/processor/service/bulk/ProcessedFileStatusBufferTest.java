@@ -0,0 +1,182 @@
+package com.xml.processor.service.bulk;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.service.interfaces.ProcessedFileService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Buffered status changes, flushed by the tests themselves; the scheduled flush waits an hour.
+ */
+@SpringBootTest(properties = {
+    "app.processed-files.status-buffer.flush-interval-ms=3600000",
+    "app.processed-files.status-buffer.max-attempts=2"
+})
+@ActiveProfiles("test")
+public class ProcessedFileStatusBufferTest {
+
+    @Autowired
+    private ProcessedFileStatusBuffer statusBuffer;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProcessedFileService processedFileService;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private ClientService clientService;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        statusBuffer.flush();
+        reset(jdbcTemplate);
+        client = TestClients.createCurrent(clientService, "STATUS_BUFFER");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset(jdbcTemplate);
+        statusBuffer.flush();
+        ClientContextHolder.clear();
+    }
+
+    @Test
+    void changesOfANewFileAreCoalescedIntoOneInsert() {
+        ProcessedFile file = newFile();
+        statusBuffer.record(file, "PROCESSING", null);
+        statusBuffer.record(file, "ERROR", "No interface matches");
+        assertNull(status(file.getId()));
+
+        statusBuffer.flush();
+
+        assertEquals("ERROR", status(file.getId()));
+        assertEquals("No interface matches", jdbcTemplate.queryForObject(
+            "SELECT error_message FROM processed_files WHERE id = ?", String.class, file.getId()));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"),
+            argThat((List<Object[]> rows) -> rows.size() == 1), any(int[].class));
+    }
+
+    @Test
+    void discardedChangeOfAnExistingFileIsNotWritten() {
+        ProcessedFile existing = existingFile();
+        statusBuffer.record(existing, "PROCESSING", null);
+
+        statusBuffer.discard(existing.getId());
+        statusBuffer.flush();
+
+        assertEquals("PROCESSED", status(existing.getId()));
+    }
+
+    @Test
+    void discardKeepsANewFile() {
+        ProcessedFile file = statusBuffer.record(newFile(), "ERROR", "Invalid XML");
+
+        statusBuffer.discard(file.getId());
+        statusBuffer.flush();
+
+        assertEquals("ERROR", status(file.getId()));
+    }
+
+    @Test
+    void changeDoesNotOverwriteALaterSave() {
+        ProcessedFile existing = existingFile();
+        statusBuffer.record(existing, "ERROR", "Invalid XML");
+        // Saved synchronously after the change was recorded
+        jdbcTemplate.update("UPDATE processed_files SET status = 'PROCESSED', updated_at = ? WHERE id = ?",
+            LocalDateTime.now().plusMinutes(1), existing.getId());
+
+        statusBuffer.flush();
+
+        assertEquals("PROCESSED", status(existing.getId()));
+    }
+
+    @Test
+    void readOfASingleFileSeesItsRecordedChange() {
+        ProcessedFile file = statusBuffer.record(newFile(), "ERROR", "Invalid XML");
+
+        assertEquals("ERROR", processedFileService.getProcessedFileById(file.getId()).orElseThrow().getStatus());
+        assertEquals("ERROR", status(file.getId()));
+    }
+
+    @Test
+    void newFileIsWrittenAloneOnceItsBatchRanOutOfAttempts() {
+        doThrow(new DataAccessResourceFailureException("Batch rejected"))
+            .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        ProcessedFile file = statusBuffer.record(newFile(), "ERROR", "Invalid XML");
+
+        statusBuffer.flush();
+        assertNull(status(file.getId()));
+        statusBuffer.flush();
+
+        assertEquals("ERROR", status(file.getId()));
+    }
+
+    @Test
+    void newFileIsKeptWhileEvenItsOwnWriteFails() {
+        doThrow(new DataAccessResourceFailureException("Batch rejected"))
+            .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        doThrow(new DataAccessResourceFailureException("Insert rejected"))
+            .when(jdbcTemplate).update(startsWith("INSERT"), any(Object[].class), any(int[].class));
+        ProcessedFile file = statusBuffer.record(newFile(), "ERROR", "Invalid XML");
+
+        statusBuffer.flush();
+        statusBuffer.flush();
+        statusBuffer.flush();
+        assertNull(status(file.getId()));
+
+        reset(jdbcTemplate);
+        statusBuffer.flush();
+
+        assertEquals("ERROR", status(file.getId()));
+    }
+
+    private ProcessedFile newFile() {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName("buffered-" + System.nanoTime() + ".xml");
+        return file;
+    }
+
+    private ProcessedFile existingFile() {
+        ProcessedFile file = newFile();
+        file.setStatus("PROCESSED");
+        return processedFileRepository.save(file);
+    }
+
+    private String status(Long id) {
+        List<String> status = jdbcTemplate.queryForList("SELECT status FROM processed_files WHERE id = ?", String.class, id);
+        return status.isEmpty() ? null : status.get(0);
+    }
+}
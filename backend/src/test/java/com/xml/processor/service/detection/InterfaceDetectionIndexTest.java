@@ -0,0 +1,134 @@
+package com.xml.processor.service.detection;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.model.Interface;
+import com.xml.processor.repository.InterfaceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Detection against an index loaded from a mocked repository.
+ */
+public class InterfaceDetectionIndexTest {
+
+    private static final Long CLIENT_ID = 1L;
+
+    private InterfaceRepository interfaceRepository;
+    private InterfaceDetectionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        interfaceRepository = mock(InterfaceRepository.class);
+        index = new InterfaceDetectionIndex();
+        ReflectionTestUtils.setField(index, "interfaceRepository", interfaceRepository);
+    }
+
+    private static Interface anInterface(long id, String rootElement, Integer priority, Map<String, Object> criteria) {
+        Interface entity = new Interface();
+        entity.setId(id);
+        entity.setName("interface-" + id);
+        entity.setRootElement(rootElement);
+        entity.setPriority(priority);
+        entity.setDetectionCriteria(criteria);
+        return entity;
+    }
+
+    private Long detect(String rootElement, Map<String, String> fields) {
+        Interface detected = index.detect(CLIENT_ID, new XmlDocumentSignature(rootElement, null, fields, 0));
+        return detected != null ? detected.getId() : null;
+    }
+
+    @Test
+    void moreCriteriaWinOverHigherPriority() {
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID)).thenReturn(List.of(
+            anInterface(1, "ORDERS05", 10, null),
+            anInterface(2, "ORDERS05", 0, Map.of("MESTYP", "ORDERS")),
+            anInterface(3, "ORDERS05", 0, Map.of("MESTYP", "ORDERS", "SNDPRN", List.of("ACME", "ACME2")))));
+
+        assertEquals(3L, detect("ORDERS05", Map.of("MESTYP", "ORDERS", "SNDPRN", "ACME2")));
+        assertEquals(2L, detect("ORDERS05", Map.of("MESTYP", "ORDERS", "SNDPRN", "OTHER")));
+        assertEquals(1L, detect("ORDERS05", Map.of("MESTYP", "ORDCHG")));
+        assertEquals(1L, detect("ORDERS05", Map.of()));
+    }
+
+    @Test
+    void priorityThenLowestIdBreakTies() {
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID)).thenReturn(List.of(
+            anInterface(7, "ASN", 5, null),
+            anInterface(4, "ASN", 5, null),
+            anInterface(2, "ASN", 1, null)));
+
+        assertEquals(4L, detect("ASN", Map.of()));
+    }
+
+    @Test
+    void partialMatchPicksTheMostSpecificOfAllContainedRoots() {
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID)).thenReturn(List.of(
+            anInterface(1, "ASN", 9, null),
+            anInterface(2, "DESADV", 0, Map.of("MESTYP", "DESADV")),
+            anInterface(3, "INVOIC", 20, null)));
+
+        assertEquals(2L, detect("DESADV_ASN_V2", Map.of("MESTYP", "DESADV")));
+        assertEquals(1L, detect("DESADV_ASN_V2", Map.of("MESTYP", "OTHER")));
+        assertNull(detect("ORDERS05", Map.of()));
+    }
+
+    @Test
+    void exactMatchTakesPrecedenceOverPartialMatch() {
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID)).thenReturn(List.of(
+            anInterface(1, "ASN", 0, null),
+            anInterface(2, "AS", 50, Map.of("MESTYP", "DESADV"))));
+
+        assertEquals(1L, detect("ASN", Map.of("MESTYP", "DESADV")));
+    }
+
+    @Test
+    void updatesAfterLoadingAreApplied() {
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID)).thenReturn(List.of(
+            anInterface(1, "ASN", 0, null)));
+        assertEquals(1L, detect("ASN", Map.of()));
+
+        Interface update = anInterface(2, "ASN", 5, null);
+        update.setClient(clientWithId(CLIENT_ID));
+        index.interfaceSaved(update);
+        assertEquals(2L, detect("ASN", Map.of()));
+
+        index.interfaceDeleted(2L);
+        assertEquals(1L, detect("ASN", Map.of()));
+        verify(interfaceRepository, times(1)).findByClient_IdAndIsActiveTrue(CLIENT_ID);
+    }
+
+    @Test
+    void indexLoadedWhileAnInterfaceIsDeletedIsNotKept() {
+        Interface deleted = anInterface(1, "ASN", 0, null);
+        when(interfaceRepository.findByClient_IdAndIsActiveTrue(CLIENT_ID))
+            .thenAnswer(invocation -> {
+                // The delete commits after the load has read the interface
+                index.interfaceDeleted(1L);
+                return List.of(deleted);
+            })
+            .thenReturn(List.of());
+
+        detect("ASN", Map.of());
+
+        assertNull(detect("ASN", Map.of()));
+        verify(interfaceRepository, times(2)).findByClient_IdAndIsActiveTrue(CLIENT_ID);
+    }
+
+    private static Client clientWithId(Long id) {
+        Client client = new Client();
+        client.setId(id);
+        return client;
+    }
+}
@@ -0,0 +1,62 @@
+package com.xml.processor.service.detection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SubstringMatcherTest {
+
+    private static BitSet ranks(int... values) {
+        BitSet ranks = new BitSet();
+        for (int value : values) {
+            ranks.set(value);
+        }
+        return ranks;
+    }
+
+    @Test
+    void findsOverlappingPatterns() {
+        SubstringMatcher matcher = new SubstringMatcher(List.of("he", "she", "his", "hers"));
+
+        assertEquals(ranks(0, 1, 3), matcher.findAll("ushers"));
+        assertEquals(ranks(0, 1, 2), matcher.findAll("ahishe"));
+        assertEquals(ranks(2), matcher.findAll("this"));
+    }
+
+    @Test
+    void findsPatternsThatAreSuffixesOrPrefixesOfOthers() {
+        SubstringMatcher matcher = new SubstringMatcher(List.of("DESADV_ASN", "ASN", "SN", "DESADV"));
+
+        assertEquals(ranks(0, 1, 2, 3), matcher.findAll("DESADV_ASN_V2"));
+        assertEquals(ranks(1, 2), matcher.findAll("ASNX"));
+        assertEquals(ranks(3), matcher.findAll("DESADV_AS"));
+    }
+
+    @Test
+    void followsFailureLinksAfterAPartialMatch() {
+        SubstringMatcher matcher = new SubstringMatcher(List.of("ABAB", "BAC"));
+
+        assertEquals(ranks(1), matcher.findAll("ABAC"));
+        assertEquals(ranks(0, 1), matcher.findAll("ABABAC"));
+        assertEquals(ranks(0), matcher.findAll("ABABBAB"));
+    }
+
+    @Test
+    void lowestRankWinsAndMissesAreReported() {
+        SubstringMatcher matcher = new SubstringMatcher(List.of("Order", "Ord", "ASN"));
+
+        assertEquals(1, matcher.findLowestRank("PurchaseOrd"));
+        assertEquals(0, matcher.findLowestRank("PurchaseOrder"));
+        assertEquals(-1, matcher.findLowestRank("Invoice"));
+        assertEquals(-1, matcher.findLowestRank(""));
+    }
+
+    @Test
+    void matcherWithoutPatternsFindsNothing() {
+        assertTrue(new SubstringMatcher(List.of()).findAll("anything").isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package com.xml.processor.service.detection;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class XmlPrefixSnifferTest {
+
+    private static final Set<String> FIELDS = Set.of("MESTYP", "SNDPRN");
+
+    private static final String IDOC = "<ORDERS05 xmlns=\"urn:sap:idoc\"><IDOC><EDI_DC40>"
+        + "<MESTYP>ORDERS</MESTYP><SNDPRN>ACME</SNDPRN></EDI_DC40><E1EDK01/></IDOC></ORDERS05>";
+
+    private static XmlPrefixSniffer sniffer(int sniffBytes) {
+        XmlPrefixSniffer sniffer = new XmlPrefixSniffer();
+        ReflectionTestUtils.setField(sniffer, "sniffBytes", sniffBytes);
+        return sniffer;
+    }
+
+    /**
+     * Sniffs the stream and the in-memory variant and checks that both agree.
+     */
+    private static XmlDocumentSignature sniff(String xml, int sniffBytes) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        BufferedInputStream input = new BufferedInputStream(new ByteArrayInputStream(bytes));
+        XmlDocumentSignature fromStream = sniffer(sniffBytes).sniff(input, FIELDS);
+        assertArrayEquals(bytes, input.readAllBytes(), "stream is rewound to its start");
+
+        XmlDocumentSignature fromString = sniffer(sniffBytes).sniff(xml, FIELDS);
+        assertEquals(fromStream.rootElement(), fromString.rootElement());
+        assertEquals(fromStream.namespace(), fromString.namespace());
+        assertEquals(fromStream.fields(), fromString.fields());
+        return fromStream;
+    }
+
+    private static int cutAfter(String xml, String marker) {
+        return xml.indexOf(marker) + marker.length();
+    }
+
+    @Test
+    void capturesRootAndHeaderFieldsOfACompletePrefix() throws IOException {
+        XmlDocumentSignature signature = sniff(IDOC, 65536);
+
+        assertEquals("ORDERS05", signature.rootElement());
+        assertEquals("urn:sap:idoc", signature.namespace());
+        assertEquals(Map.of("MESTYP", "ORDERS", "SNDPRN", "ACME"), signature.fields());
+    }
+
+    @Test
+    void cutInsideATagKeepsWhatWasReadBefore() throws IOException {
+        XmlDocumentSignature signature = sniff(IDOC, cutAfter(IDOC, "<SND"));
+
+        assertEquals("ORDERS05", signature.rootElement());
+        assertEquals(Map.of("MESTYP", "ORDERS"), signature.fields());
+    }
+
+    @Test
+    void cutInsideAFieldValueDropsThePartialValue() throws IOException {
+        XmlDocumentSignature signature = sniff(IDOC, cutAfter(IDOC, "<SNDPRN>AC"));
+
+        assertEquals("ORDERS05", signature.rootElement());
+        assertFalse(signature.fields().containsKey("SNDPRN"));
+        assertEquals("ORDERS", signature.fields().get("MESTYP"));
+    }
+
+    @Test
+    void cutInsideTheRootStartTagFindsNoRoot() throws IOException {
+        XmlDocumentSignature signature = sniff(IDOC, cutAfter(IDOC, "<ORDERS05 xmlns=\"urn:"));
+
+        assertFalse(signature.hasRootElement());
+        assertEquals(Map.of(), signature.fields());
+    }
+
+    @Test
+    void cutInsideACommentBeforeTheRootFindsNoRoot() throws IOException {
+        String xml = "<?xml version=\"1.0\"?><!-- exported by the ERP, <ORDERS05> follows -->" + IDOC;
+
+        XmlDocumentSignature signature = sniff(xml, cutAfter(xml, "<ORDERS05>"));
+
+        assertNull(signature.rootElement());
+    }
+
+    @Test
+    void cutInsideACommentAfterTheRootKeepsTheRoot() throws IOException {
+        String xml = IDOC.replace("<IDOC>", "<IDOC><!-- <MESTYP>FAKE</MESTYP> -->");
+
+        XmlDocumentSignature signature = sniff(xml, cutAfter(xml, "<MESTYP>FA"));
+
+        assertEquals("ORDERS05", signature.rootElement());
+        assertEquals(Map.of(), signature.fields());
+    }
+}
@@ -0,0 +1,107 @@
+package com.xml.processor.service.payload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessedDataCodecTest {
+
+    private static final Map<String, Object> DATA = data();
+
+    private static Map<String, Object> data() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("documentNumber", "ASN-4711");
+        data.put("supplier", "M\u00fcller & S\u00f6hne \u2713");
+        data.put("quantity", 12);
+        data.put("lines", List.of(Map.of("item", "A", "qty", 5), Map.of("item", "B", "qty", 7)));
+        data.put("rowsWritten", Map.of("asn_headers", 1, "asn_lines", 2));
+        data.put("note", null);
+        return data;
+    }
+
+    @Test
+    void roundTripsProcessedData() {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(DATA);
+
+        assertEquals(ProcessedDataCodec.DEFLATE, encoded.codec());
+        assertEquals(DATA, ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize(), encoded.payload()));
+    }
+
+    @Test
+    void compressesRepetitiveData() {
+        Map<String, Object> data = Map.of("lines", Collections.nCopies(200, Map.of("item", "A-100", "qty", 1)));
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(data);
+
+        assertTrue(encoded.payload().length * 10 < encoded.originalSize());
+        assertEquals(data, ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize(), encoded.payload()));
+    }
+
+    @Test
+    void truncatedPayloadIsRejected() {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(DATA);
+        byte[] truncated = Arrays.copyOf(encoded.payload(), encoded.payload().length / 2);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize(), truncated));
+        assertTrue(e.getMessage().contains("Truncated"));
+    }
+
+    @Test
+    void payloadThatDoesNotMatchItsRecordedSizeIsRejected() {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(DATA);
+
+        IllegalStateException longer = assertThrows(IllegalStateException.class,
+            () -> ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize() - 1, encoded.payload()));
+        assertTrue(longer.getMessage().contains("Corrupt"));
+        IllegalStateException shorter = assertThrows(IllegalStateException.class,
+            () -> ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize() + 1, encoded.payload()));
+        assertTrue(shorter.getMessage().contains("Truncated"));
+    }
+
+    @Test
+    void corruptPayloadIsRejected() {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(DATA);
+        byte[] corrupt = encoded.payload().clone();
+        corrupt[0] ^= (byte) 0xFF;
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize(), corrupt));
+        assertTrue(e.getMessage().contains("Corrupt"));
+    }
+
+    @Test
+    void unknownCodecIsRejected() {
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(DATA);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> ProcessedDataCodec.decode("zstd", encoded.originalSize(), encoded.payload()));
+    }
+
+    @Test
+    void legacyJsonIsReadAsObjectOrAsWrappedString() throws IOException {
+        String object = "{\"documentNumber\":\"ASN-1\",\"lines\":[1,2]}";
+        String wrapped = "\"{\\\"documentNumber\\\":\\\"ASN-1\\\",\\\"lines\\\":[1,2]}\"";
+        Map<String, Object> expected = Map.of("documentNumber", "ASN-1", "lines", List.of(1, 2));
+
+        assertEquals(expected, ProcessedDataCodec.decodeJson(object));
+        assertEquals(expected, ProcessedDataCodec.decodeJson(wrapped));
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encodeJson(wrapped);
+        assertEquals(expected, ProcessedDataCodec.decode(encoded.codec(), encoded.originalSize(), encoded.payload()));
+    }
+
+    @Test
+    void legacyJsonThatIsNoObjectIsRejected() {
+        for (String json : List.of("[1,2]", "\"plain text\"", "42", "{\"unterminated\":", "null")) {
+            assertThrows(IOException.class, () -> ProcessedDataCodec.encodeJson(json), json);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drains legacy inline processed data into the payload table, batch by batch. The scheduled run
+ * is pushed out of the way and batches are driven by the test.
+ */
+@SpringBootTest(properties = {
+    "app.processed-data.migration.batch-size=2",
+    "app.processed-data.migration.initial-delay-ms=3600000"
+})
+@ActiveProfiles("test")
+public class ProcessedDataMigrationTest {
+
+    private static final String LEGACY_JSON = "{\"documentNumber\":\"ASN-1\",\"lines\":[1,2]}";
+    private static final Map<String, Object> LEGACY = Map.of("documentNumber", "ASN-1", "lines", List.of(1, 2));
+
+    @Autowired
+    private ProcessedDataMigration migration;
+
+    @Autowired
+    private ProcessedDataStore processedDataStore;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        client = TestClients.create(clientService, "DATA_MIGRATION");
+        ReflectionTestUtils.setField(migration, "finished", false);
+        ReflectionTestUtils.setField(migration, "lastId", 0L);
+    }
+
+    private ProcessedFile file(String name) {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName(name);
+        file.setStatus("SUCCESS");
+        return processedFileRepository.save(file);
+    }
+
+    /**
+     * Stores the JSON inline as an object, the way the column held it before the payload table.
+     */
+    private ProcessedFile legacyFile(String name, String json) {
+        ProcessedFile file = file(name);
+        jdbcTemplate.update("UPDATE processed_files SET processed_data = ? FORMAT JSON WHERE id = ?", json, file.getId());
+        return file;
+    }
+
+    private void migrateAll() {
+        for (int run = 0; run < 100 && !migration.isFinished(); run++) {
+            migration.migrateNextBatch();
+        }
+        assertTrue(migration.isFinished());
+    }
+
+    private String inline(ProcessedFile file) {
+        return jdbcTemplate.queryForObject("SELECT processed_data FROM processed_files WHERE id = ?", String.class,
+            file.getId());
+    }
+
+    private Map<String, Object> payload(ProcessedFile file) {
+        ProcessedFile reloaded = processedFileRepository.findById(file.getId()).orElseThrow();
+        return processedDataStore.load(reloaded).getProcessedData();
+    }
+
+    private Timestamp updatedAt(ProcessedFile file) {
+        return jdbcTemplate.queryForObject("SELECT updated_at FROM processed_files WHERE id = ?", Timestamp.class,
+            file.getId());
+    }
+
+    @Test
+    void inlineDataMovesToThePayloadTableOverSeveralBatches() {
+        List<ProcessedFile> files = List.of(legacyFile("a.xml", LEGACY_JSON), legacyFile("b.xml", LEGACY_JSON),
+            legacyFile("c.xml", LEGACY_JSON), legacyFile("d.xml", LEGACY_JSON), legacyFile("e.xml", LEGACY_JSON));
+        Timestamp before = updatedAt(files.get(0));
+
+        migrateAll();
+
+        for (ProcessedFile file : files) {
+            assertNull(inline(file));
+            assertEquals(LEGACY, payload(file));
+        }
+        assertEquals(before, updatedAt(files.get(0)));
+    }
+
+    @Test
+    void valueStoredAsAJsonStringIsUnwrapped() {
+        ProcessedFile file = file("wrapped.xml");
+        // Bound as plain text, the JSON column keeps a JSON string holding the object
+        jdbcTemplate.update("UPDATE processed_files SET processed_data = ? WHERE id = ?", LEGACY_JSON, file.getId());
+        assertTrue(inline(file).startsWith("\""));
+
+        migrateAll();
+
+        assertNull(inline(file));
+        assertEquals(LEGACY, payload(file));
+    }
+
+    @Test
+    void payloadWrittenByTheApplicationIsNotOverwritten() {
+        ProcessedFile file = legacyFile("rewritten.xml", LEGACY_JSON);
+        // Reprocessed after the upgrade while its old value was still inline
+        Map<String, Object> current = Map.of("documentNumber", "ASN-1", "status", "reprocessed");
+        ProcessedDataCodec.Encoded encoded = ProcessedDataCodec.encode(current);
+        jdbcTemplate.update("INSERT INTO processed_file_payloads (processed_file_id, codec, original_size, payload)"
+            + " VALUES (?, ?, ?, ?)", file.getId(), encoded.codec(), encoded.originalSize(), encoded.payload());
+
+        migrateAll();
+
+        assertNull(inline(file));
+        assertEquals(current, payload(file));
+    }
+
+    @Test
+    void unreadableInlineDataIsLeftInPlace() {
+        ProcessedFile unreadable = legacyFile("array.xml", "[1,2]");
+        ProcessedFile readable = legacyFile("object.xml", LEGACY_JSON);
+
+        migrateAll();
+
+        assertNotNull(inline(unreadable));
+        assertNull(payload(unreadable));
+        assertFalse(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) > 0 FROM processed_file_payloads WHERE processed_file_id = ?", Boolean.class,
+            unreadable.getId()));
+        assertEquals(LEGACY, payload(readable));
+    }
+}
@@ -0,0 +1,151 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.model.Client;
+import com.xml.processor.model.ProcessedFile;
+import com.xml.processor.repository.ProcessedFileRepository;
+import com.xml.processor.service.interfaces.ClientService;
+import com.xml.processor.support.TestClients;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Collections over blobs aged past the grace period by setting their modification time.
+ */
+@SpringBootTest(properties = {
+    "app.raw-payloads.retention-days=90",
+    "app.raw-payloads.gc-grace-minutes=60"
+})
+@ActiveProfiles("test")
+public class RawPayloadCollectorTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void rawPayloadDirectory(DynamicPropertyRegistry registry) {
+        registry.add("app.raw-payloads.directory", () -> directory.toString());
+    }
+
+    @SpyBean
+    private RawPayloadStore rawPayloadStore;
+
+    @Autowired
+    private RawPayloadCollector rawPayloadCollector;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProcessedFileRepository processedFileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        reset(rawPayloadStore);
+        client = TestClients.create(clientService, "RAW_PAYLOAD_GC");
+    }
+
+    @Test
+    void deletesOnlyUnreferencedBlobsPastTheGracePeriod() throws IOException {
+        String referenced = store("<ASN>referenced</ASN>");
+        String orphaned = store("<ASN>orphaned</ASN>");
+        String fresh = store("<ASN>fresh</ASN>");
+        fileReferencing(referenced, LocalDateTime.now());
+        age(referenced);
+        age(orphaned);
+
+        rawPayloadCollector.collect();
+
+        assertTrue(exists(referenced));
+        assertFalse(exists(orphaned));
+        assertTrue(exists(fresh));
+    }
+
+    @Test
+    void deletesBlobsReferencedOnlyByFilesPastRetention() throws IOException {
+        String expired = store("<ASN>expired</ASN>");
+        String shared = store("<ASN>shared</ASN>");
+        fileReferencing(expired, LocalDateTime.now().minusDays(91));
+        fileReferencing(shared, LocalDateTime.now().minusDays(91));
+        fileReferencing(shared, LocalDateTime.now().minusDays(1));
+        age(expired);
+        age(shared);
+
+        rawPayloadCollector.collect();
+
+        assertFalse(exists(expired));
+        assertTrue(exists(shared));
+    }
+
+    @Test
+    void keepsABlobStoredAgainWhileItsShardIsSwept() throws IOException {
+        String content = "<ASN>resent</ASN>";
+        String hash = store(content);
+        age(hash);
+        // The identical upload lands after the shard was listed and before its references are read,
+        // and its processed file is not committed yet
+        doAnswer(invocation -> {
+            Object blobs = invocation.callRealMethod();
+            store(content);
+            return blobs;
+        }).when(rawPayloadStore).list(anyString());
+
+        rawPayloadCollector.collect();
+
+        assertTrue(exists(hash));
+    }
+
+    private String store(String content) throws IOException {
+        return rawPayloadStore.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void fileReferencing(String hash, LocalDateTime processedAt) {
+        ProcessedFile file = new ProcessedFile();
+        file.setClient(client);
+        file.setFileName("gc.xml");
+        file.setStatus("PROCESSED");
+        file.setRawPayloadHash(hash);
+        file = processedFileRepository.save(file);
+        jdbcTemplate.update("UPDATE processed_files SET processed_at = ? WHERE id = ?", processedAt, file.getId());
+    }
+
+    private void age(String hash) throws IOException {
+        Files.setLastModifiedTime(pathOf(hash), FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+    }
+
+    private boolean exists(String hash) {
+        return Files.exists(pathOf(hash));
+    }
+
+    private static Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".xml.gz");
+    }
+}
@@ -0,0 +1,137 @@
+package com.xml.processor.service.payload;
+
+import com.xml.processor.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RawPayloadStoreTest {
+
+    private static final byte[] PAYLOAD =
+        "<ASN><DocumentNumber>4711</DocumentNumber></ASN>".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private RawPayloadStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new RawPayloadStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        store.init();
+    }
+
+    @Test
+    void storesCompressedBlobsAddressedByContent() throws Exception {
+        String hash = store.store(new ByteArrayInputStream(PAYLOAD));
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(PAYLOAD)), hash);
+        assertTrue(Files.isRegularFile(directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+            .resolve(hash + ".xml.gz")));
+        try (InputStream payload = store.open(hash)) {
+            assertArrayEquals(PAYLOAD, payload.readAllBytes());
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        assertEquals(store.compressedSize(hash), store.transferCompressed(hash, Channels.newChannel(compressed)));
+        try (InputStream payload = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertArrayEquals(PAYLOAD, payload.readAllBytes());
+        }
+
+        assertEquals(List.of(hash.substring(0, 2)), store.shards());
+        assertEquals(List.of(hash),
+            store.list(hash.substring(0, 2)).stream().map(RawPayloadStore.StoredBlob::hash).toList());
+        try (var temp = Files.list(directory.resolve("tmp"))) {
+            assertEquals(0, temp.count());
+        }
+    }
+
+    @Test
+    void identicalUploadsShareOneBlobAndTouchIt() throws IOException {
+        String hash = store.store(new ByteArrayInputStream(PAYLOAD));
+        Instant aged = age(hash, Duration.ofHours(2));
+
+        assertEquals(hash, store.store(new ByteArrayInputStream(PAYLOAD)));
+
+        List<RawPayloadStore.StoredBlob> blobs = store.list(hash.substring(0, 2));
+        assertEquals(1, blobs.size());
+        assertTrue(blobs.get(0).lastModified().isAfter(aged));
+    }
+
+    @Test
+    void blobStoredAgainAfterBeingListedIsNotDeleted() throws IOException {
+        String hash = store.store(new ByteArrayInputStream(PAYLOAD));
+        age(hash, Duration.ofHours(2));
+        Instant graceCutoff = Instant.now().minus(Duration.ofHours(1));
+        assertTrue(store.list(hash.substring(0, 2)).get(0).lastModified().isBefore(graceCutoff));
+
+        // A new file with the same content arrives while the collector decides on the listed blob
+        store.store(new ByteArrayInputStream(PAYLOAD));
+
+        assertFalse(store.deleteIfUnmodifiedSince(hash, graceCutoff));
+        try (InputStream payload = store.open(hash)) {
+            assertArrayEquals(PAYLOAD, payload.readAllBytes());
+        }
+
+        age(hash, Duration.ofHours(2));
+        assertTrue(store.deleteIfUnmodifiedSince(hash, graceCutoff));
+        assertFalse(store.deleteIfUnmodifiedSince(hash, graceCutoff));
+        assertThrows(ResourceNotFoundException.class, () -> store.open(hash));
+    }
+
+    @Test
+    void staleTemporaryFilesAreDeleted() throws IOException {
+        Path stale = Files.createFile(directory.resolve("tmp").resolve("payload-1.tmp"));
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Path writing = Files.createFile(directory.resolve("tmp").resolve("payload-2.tmp"));
+
+        assertEquals(1, store.deleteTempFilesBefore(Instant.now().minus(Duration.ofHours(1))));
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(writing));
+    }
+
+    @Test
+    void onlyHashesAddressBlobs() {
+        assertThrows(IllegalArgumentException.class, () -> store.open("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.open(null));
+    }
+
+    @Test
+    void disabledStoreKeepsNothing() throws IOException {
+        ReflectionTestUtils.setField(store, "enabled", false);
+        assertNull(store.store(new ByteArrayInputStream(PAYLOAD)));
+    }
+
+    private Instant age(String hash, Duration age) throws IOException {
+        Instant aged = Instant.now().minus(age);
+        Files.setLastModifiedTime(directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+            .resolve(hash + ".xml.gz"), FileTime.from(aged));
+        return aged;
+    }
+}
@@ -0,0 +1,157 @@
+package com.xml.processor.service.strategy;
+
+import com.xml.processor.model.AsnLine;
+import com.xml.processor.model.Interface;
+import com.xml.processor.model.MappingRule;
+import com.xml.processor.service.bulk.AsnUpsertWriter;
+import com.xml.processor.service.bulk.MappedRecord;
+import com.xml.processor.service.interfaces.MappingRuleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Records mapped from a document by the rules of its interface, without a database.
+ */
+public class DocumentMappingTest {
+
+    private static final String TWO_SHIPMENTS = """
+        <ASN>
+          <Shipment>
+            <DocNo>A-1</DocNo>
+            <Line><Item>I1</Item><Qty>5</Qty></Line>
+            <Line><Qty>3</Qty></Line>
+            <Line><Item>I3</Item><Qty>1</Qty></Line>
+          </Shipment>
+          <Shipment>
+            <DocNo>A-2</DocNo>
+            <Line><Item>J1</Item><Qty>7</Qty></Line>
+          </Shipment>
+        </ASN>""";
+
+    private final MappingRuleService mappingRuleService = mock(MappingRuleService.class);
+    private final List<MappingRule> rules = new ArrayList<>();
+    private AsnDocumentProcessingStrategy strategy;
+    private Interface interfaceEntity;
+
+    @BeforeEach
+    void setUp() {
+        strategy = new AsnDocumentProcessingStrategy();
+        strategy.mappingRuleService = mappingRuleService;
+        interfaceEntity = new Interface();
+        interfaceEntity.setId(1L);
+        when(mappingRuleService.getActiveMappingRules(1L)).thenReturn(rules);
+    }
+
+    @Test
+    void missingOptionalElementOnlyEmptiesItsOwnRow() throws Exception {
+        rule("asn_lines", "item_number", "//Shipment/Line/Item");
+        rule("asn_lines", "quantity", "//Shipment/Line/Qty");
+
+        List<MappedRecord> lines = map(TWO_SHIPMENTS);
+
+        assertEquals(Arrays.asList("I1", null, "I3", "J1"), values(lines, "item_number"));
+        assertEquals(List.of("5", "3", "1", "7"), values(lines, "quantity"));
+    }
+
+    @Test
+    void linesOfTwoHeadersInOneFileKeepTheirOwnHeader() throws Exception {
+        rule("asn_headers", "document_number", "//Shipment/DocNo");
+        rule("asn_lines", "item_number", "//Shipment/Line/Item");
+        rule("asn_lines", "quantity", "//Shipment/Line/Qty");
+
+        List<MappedRecord> records = map(TWO_SHIPMENTS);
+
+        // Document order, each header before its lines
+        assertEquals(List.of("asn_headers", "asn_lines", "asn_lines", "asn_lines", "asn_headers", "asn_lines"),
+            records.stream().map(MappedRecord::tableName).toList());
+        MappedRecord first = records.get(0);
+        MappedRecord second = records.get(4);
+        assertNull(first.parent());
+        assertSame(first, records.get(1).parent());
+        assertSame(first, records.get(3).parent());
+        assertSame(second, records.get(5).parent());
+
+        List<AsnUpsertWriter.Document> documents = AsnUpsertWriter.toDocuments(records);
+        assertEquals(List.of("A-1", "A-2"), documents.stream().map(document -> document.header().getDocumentNumber()).toList());
+        assertEquals(Arrays.asList("I1", null, "I3"), documents.get(0).lines().stream().map(AsnLine::getItemNumber).toList());
+        assertEquals(List.of("J1"), documents.get(1).lines().stream().map(AsnLine::getItemNumber).toList());
+    }
+
+    @Test
+    void linesOutsideTheirHeaderElementHaveNoParent() throws Exception {
+        rule("asn_headers", "document_number", "/ASN/Header/DocNo");
+        rule("asn_lines", "item_number", "/ASN/Lines/Line/Item");
+
+        List<MappedRecord> records = map("""
+            <ASN><Header><DocNo>B-1</DocNo></Header><Lines><Line><Item>K1</Item></Line></Lines></ASN>""");
+
+        assertEquals(List.of("asn_headers", "asn_lines"), records.stream().map(MappedRecord::tableName).toList());
+        assertNull(records.get(1).parent());
+        // The writers then link the line to the header written last before it
+        assertEquals(List.of("K1"), AsnUpsertWriter.toDocuments(records).get(0).lines().stream()
+            .map(AsnLine::getItemNumber).toList());
+    }
+
+    @Test
+    void defaultValueFillsAMissingElementPerRow() throws Exception {
+        rule("asn_lines", "item_number", "//Shipment/Line/Item").setDefaultValue("UNKNOWN");
+
+        assertEquals(List.of("I1", "UNKNOWN", "I3", "J1"), values(map(TWO_SHIPMENTS), "item_number"));
+    }
+
+    @Test
+    void rowsAreTheLocationTheRulePathsShare() {
+        assertEquals(List.of("", "", "A", "B[C/D]"), AbstractDocumentProcessingStrategy.steps("//A/B[C/D]"));
+        assertNull(AbstractDocumentProcessingStrategy.steps("/A/B | /A/C"));
+
+        List<String> rowSteps = AbstractDocumentProcessingStrategy.rowSteps(List.of(
+            newRule("/ASN//Line/Item/Code"), newRule("/ASN//Line/Qty")));
+        assertEquals(List.of("", "ASN", "", "Line"), rowSteps);
+        assertEquals("Item/Code", AbstractDocumentProcessingStrategy.relativePath("/ASN//Line/Item/Code", rowSteps));
+        assertEquals(".//Item", AbstractDocumentProcessingStrategy.relativePath("/ASN//Item",
+            AbstractDocumentProcessingStrategy.rowSteps(List.of(newRule("/ASN/Code"), newRule("/ASN//Item")))));
+
+        // A union or a path of one step leaves the document as the only row
+        assertEquals(List.of(), AbstractDocumentProcessingStrategy.rowSteps(List.of(newRule("/A/B | /A/C"))));
+        assertEquals(List.of(), AbstractDocumentProcessingStrategy.rowSteps(List.of(newRule("//A"))));
+    }
+
+    private List<MappedRecord> map(String xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        return strategy.mapRecords(document, interfaceEntity, 1L).toList();
+    }
+
+    private static List<Object> values(List<MappedRecord> records, String column) {
+        return records.stream().map(record -> record.values().get(column)).toList();
+    }
+
+    private MappingRule rule(String tableName, String databaseField, String xmlPath) {
+        MappingRule rule = newRule(xmlPath);
+        rule.setName(tableName + "." + databaseField);
+        rule.setTableName(tableName);
+        rule.setDatabaseField(databaseField);
+        rules.add(rule);
+        return rule;
+    }
+
+    private static MappingRule newRule(String xmlPath) {
+        MappingRule rule = new MappingRule();
+        rule.setXmlPath(xmlPath);
+        return rule;
+    }
+}
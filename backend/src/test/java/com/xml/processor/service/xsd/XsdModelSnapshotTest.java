@@ -0,0 +1,81 @@
+package com.xml.processor.service.xsd;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snapshots of a schema that includes a second one and references a third that does not exist.
+ */
+public class XsdModelSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path root;
+    private Path types;
+    private Path snapshotFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = directory.resolve("order.xsd");
+        types = directory.resolve("types.xsd");
+        snapshotFile = directory.resolve("models.snapshot");
+        Files.writeString(root, """
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+              <xs:include schemaLocation="types.xsd"/>
+              <xs:include schemaLocation="extra.xsd"/>
+              <xs:element name="Order" type="OrderType"/>
+            </xs:schema>
+            """);
+        Files.writeString(types, """
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+              <xs:complexType name="OrderType">
+                <xs:sequence><xs:element name="Number" type="xs:string"/></xs:sequence>
+              </xs:complexType>
+            </xs:schema>
+            """);
+
+        XsdModelCompiler.Compilation compilation = XsdModelCompiler.compileWithFiles(root.toFile());
+        assertEquals(2, compilation.files().size());
+        assertEquals(1, compilation.missingFiles().size());
+        XsdModelSnapshot.write(snapshotFile, List.of(new XsdModelSnapshot.Entry(7L, "order.xsd", root,
+            List.of(root), compilation.files(), compilation.missingFiles(), compilation.model())));
+    }
+
+    @Test
+    void restoresWhileEverySchemaFileIsUnchanged() throws IOException {
+        Optional<XsdModelSnapshot.Restored> restored = XsdModelSnapshot.open(snapshotFile).restore(7L, "order.xsd");
+
+        assertTrue(restored.isPresent());
+        assertTrue(restored.get().model().contains("Order.Number"));
+        assertEquals(2, restored.get().files().size());
+        assertFalse(XsdModelSnapshot.open(snapshotFile).restore(8L, "order.xsd").isPresent());
+    }
+
+    @Test
+    void changedIncludeIsNotRestored() throws IOException {
+        Files.writeString(types, Files.readString(types).replace("Number", "Reference"));
+
+        assertFalse(XsdModelSnapshot.open(snapshotFile).restore(7L, "order.xsd").isPresent());
+    }
+
+    @Test
+    void includeThatAppearedIsNotRestored() throws IOException {
+        Files.writeString(directory.resolve("extra.xsd"), """
+            <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema"/>
+            """);
+
+        assertFalse(XsdModelSnapshot.open(snapshotFile).restore(7L, "order.xsd").isPresent());
+    }
+}
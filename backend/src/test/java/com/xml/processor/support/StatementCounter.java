@@ -0,0 +1,64 @@
+package com.xml.processor.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread. Register it with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ * Plain JDBC code is counted by handing it a {@link #jdbcTemplate(DataSource)}, which records
+ * the statements it prepares.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    public static List<String> getStatements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+
+    /**
+     * A JdbcTemplate whose prepared statements are recorded along with Hibernate's.
+     */
+    public static JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return recording(super.getConnection());
+            }
+        });
+    }
+
+    private static Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement") || method.getName().equals("prepareCall")) {
+                    STATEMENTS.get().add((String) args[0]);
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
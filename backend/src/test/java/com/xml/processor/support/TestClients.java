@@ -0,0 +1,38 @@
+package com.xml.processor.support;
+
+import com.xml.processor.config.ClientContextHolder;
+import com.xml.processor.model.Client;
+import com.xml.processor.service.interfaces.ClientService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates active clients with a unique name and code, so tests sharing a
+ * database never collide on the unique client columns.
+ */
+public final class TestClients {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
+    private TestClients() {
+    }
+
+    public static Client create(ClientService clientService, String prefix) {
+        long suffix = SEQUENCE.incrementAndGet();
+        Client client = new Client();
+        client.setName(prefix + "_" + suffix);
+        client.setCode(prefix.substring(0, Math.min(prefix.length(), 4)) + suffix);
+        client.setStatus(Client.ClientStatus.ACTIVE);
+        return clientService.saveClient(client);
+    }
+
+    /**
+     * Creates a client and makes it the current one, as the client filter does for a request.
+     */
+    public static Client createCurrent(ClientService clientService, String prefix) {
+        Client client = create(clientService, prefix);
+        ClientContextHolder.setClient(client);
+        ClientContextHolder.setClientId(client.getId());
+        return client;
+    }
+}